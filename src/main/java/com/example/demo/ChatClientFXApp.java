@@ -36,8 +36,17 @@ import com.example.demo.ui.ProfileDialog;
 import com.example.demo.ui.MessageHistoryDialog;
 import com.example.demo.ui.RoomInviteDialog;
 import com.example.demo.ui.PrivateChatDialog;
+import com.example.demo.client.http.Upload;
+import com.example.demo.client.http.UploadProgressListener;
 import com.example.demo.client.service.ChatService;
+import com.example.demo.client.service.MessageHistoryCursor;
 import com.example.demo.client.service.NotificationService;
+import com.example.demo.client.service.PresenceEngine;
+import com.example.demo.client.service.ReadReceiptPipeline;
+import com.example.demo.client.service.TypingTracker;
+import com.example.demo.client.service.UnreadCountLoader;
+import com.example.demo.client.websocket.GapFillSource;
+import com.example.demo.client.websocket.StompSender;
 import com.example.demo.client.websocket.WebSocketClient;
 import com.example.demo.client.config.ServerConfig;
 import com.example.demo.client.model.ChatRoom;
@@ -81,6 +90,30 @@ public class ChatClientFXApp extends Application {
     // Message storage per room
     private Map<Long, List<ChatMessage>> roomMessages = new HashMap<>();
 
+    // 📜 History paging for the conversation currently shown
+    private static final int HISTORY_PAGE_SIZE = 50;
+    private volatile MessageHistoryCursor historyCursor;
+
+    // 📎 Attachment upload in progress (the file button cancels it)
+    private volatile Upload<String> activeUpload;
+
+    // 🛰️ Real-time presence (deltas + periodic reconciliation)
+    private PresenceEngine presenceEngine;
+
+    // 📊 Unread badge loader (bounded parallel requests)
+    private UnreadCountLoader unreadCountLoader;
+
+    // 👁️ Coalesced "mark as read" writes (skips conversations with nothing unread)
+    private ReadReceiptPipeline readReceipts;
+    // Newest message that arrived in the open conversation while the window was unfocused;
+    // marked read once the window has focus again
+    private ReadReceiptPipeline.Kind awayReadKind;
+    private Long awayReadId;
+    private Long awayReadMessageId;
+
+    // ⌨️ Typing indicators: throttled on the way out, aggregated per room on the way in
+    private TypingTracker typingTracker;
+
     public static void main(String[] args) {
         // Disable SSL verification for development
         disableSSLVerification();
@@ -99,9 +132,11 @@ public class ChatClientFXApp extends Application {
             // Create UI
             contentArea = new ContentArea();
             contentArea.getInputField().setOnAction(e -> sendMessage());
+            contentArea.getInputField().textProperty().addListener((obs, oldText, text) -> onInputChanged(text));
             contentArea.getSendButton().setOnAction(e -> sendMessage());
             contentArea.getFileButton().setOnAction(e -> sendFile());
             contentArea.setOnVoiceSendClicked(this::sendVoiceMessage);
+            contentArea.setOnScrolledToTop(this::loadOlderMessages);
 
             // Create sidebar
             sidebar = new Sidebar();
@@ -147,6 +182,11 @@ public class ChatClientFXApp extends Application {
             // Initialize notification service with window focus tracking
             notificationService = NotificationService.getInstance();
             notificationService.setPrimaryStage(primaryStage);
+            primaryStage.focusedProperty().addListener((obs, wasFocused, isNowFocused) -> {
+                if (isNowFocused) {
+                    flushAwayRead();
+                }
+            });
 
             // Cleanup notification service on close
             primaryStage.setOnCloseRequest(e -> {
@@ -366,6 +406,11 @@ public class ChatClientFXApp extends Application {
 
             // Switch ContentArea to private chat mode immediately for responsive UI
             contentArea.switchToPrivateChatMode(friend);
+            if (typingTracker != null) {
+                typingTracker.stopped();
+                contentArea.showTypingUsers(List.of());
+            }
+            historyCursor = null;
 
             // Set up callbacks for sending messages
             contentArea.setOnBackToRoomClicked(v -> {
@@ -390,11 +435,15 @@ public class ChatClientFXApp extends Application {
             final User targetFriend = friend;
             new Thread(() -> {
                 try {
-                    // Mark as read on backend (background)
-                    chatService.markAllPrivateMessagesAsRead(targetFriend.getId());
-
                     // Load private message history (background)
-                    List<ChatMessage> messages = chatService.getPrivateMessages(targetFriend.getId());
+                    List<ChatMessage> messages = openHistory(
+                            chatService.openPrivateHistory(targetFriend.getId(), HISTORY_PAGE_SIZE));
+
+                    // Mark as read (coalesced, skipped if nothing is unread)
+                    readReceipts.markRead(ReadReceiptPipeline.Kind.PRIVATE, targetFriend.getId(),
+                            newestMessageId(messages));
+                    webSocketClient.noteSeen(GapFillSource.Kind.PRIVATE, targetFriend.getId(),
+                            newestMessageId(messages));
 
                     // Update UI on FX thread
                     Platform.runLater(() -> {
@@ -618,11 +667,29 @@ public class ChatClientFXApp extends Application {
 
             // Initialize chat service and websocket client
             chatService = new ChatService(serverUrl);
+            unreadCountLoader = new UnreadCountLoader(chatService);
+            readReceipts = new ReadReceiptPipeline(chatService);
             contentArea.setChatService(chatService);
             webSocketClient = new WebSocketClient(serverUrl);
+            webSocketClient.setOutbox(chatService.getOutbox());
+            typingTracker = new TypingTracker(
+                    (roomId, typing) -> webSocketClient.sendTypingIndicator(roomId, typing),
+                    (roomId, names) -> {
+                        if (roomId.equals(currentRoomId) && !contentArea.isPrivateMode()) {
+                            contentArea.showTypingUsers(names);
+                        }
+                    });
+            webSocketClient.setGapFillSource((kind, id, afterId, pageSize) -> kind == GapFillSource.Kind.ROOM
+                    ? chatService.getRoomMessagesPageAsync(id, null, afterId, pageSize)
+                    : chatService.getPrivateMessagesPageAsync(id, null, afterId, pageSize));
+            webSocketClient.setOnReconnected(() -> {
+                clearTypingUsers();
+                resumeInterruptedUploads();
+            });
 
-            // Configure AvatarUtils with server base URL
+            // Configure AvatarUtils with server base URL and the shared media cache
             com.example.demo.util.AvatarUtils.setBaseUrl(serverUrl);
+            com.example.demo.util.AvatarUtils.setMediaCache(chatService.getMediaCache());
 
         } catch (Exception e) {
             log.error("❌ Error initializing chat client: {}", e.getMessage(), e);
@@ -708,6 +775,7 @@ public class ChatClientFXApp extends Application {
                     webSocketClient.subscribeToFriendRequests(this::handleFriendRequestNotification);
                     webSocketClient.subscribeToRoomInvites(this::handleRoomInviteNotification);
                     webSocketClient.subscribeToPrivateMessages(this::handlePrivateMessageNotification);
+                    startPresenceEngine();
                     webSocketClient.subscribeToUserStatus(this::handleUserStatusUpdate);
                     webSocketClient.subscribeToMessageRecall(this::handleMessageRecall);
                     webSocketClient.subscribeToRoomEvents(this::handleRoomEvent);
@@ -731,6 +799,9 @@ public class ChatClientFXApp extends Application {
                     // Load public rooms for sidebar
                     loadPublicRooms();
 
+                    // Finish attachments interrupted by the last exit or a dropped connection
+                    resumeInterruptedUploads();
+
                     loginSuccess[0] = true;
                     // Allow dialog to close
                 } else {
@@ -874,7 +945,8 @@ public class ChatClientFXApp extends Application {
                     currentRoomId = firstRoom.getId();
 
                     // Load message history for first room
-                    List<ChatMessage> messages = chatService.getRoomMessages(currentRoomId);
+                    List<ChatMessage> messages = openHistory(
+                            chatService.openRoomHistory(currentRoomId, HISTORY_PAGE_SIZE));
                     roomMessages.put(currentRoomId, messages);
                     contentArea.clearMessages();
                     contentArea.addMessages(messages, currentUsername);
@@ -934,6 +1006,7 @@ public class ChatClientFXApp extends Application {
                         String eventType = (String) event.get("type");
                         if ("BANNED_FROM_ROOM".equals(eventType)) {
                             Long roomId = ((Number) event.get("roomId")).longValue();
+                            chatService.getRoomRoles().invalidate(roomId);
                             String roomName = (String) event.get("roomName");
                             String reason = (String) event.get("reason");
 
@@ -1097,6 +1170,64 @@ public class ChatClientFXApp extends Application {
         alert.showAndWait();
     }
 
+    /**
+     * 📜 Make the cursor current and load its latest page (blocking)
+     */
+    private List<ChatMessage> openHistory(MessageHistoryCursor cursor) {
+        historyCursor = cursor;
+        try {
+            return cursor.loadOlder().join();
+        } catch (java.util.concurrent.CompletionException e) {
+            // Shown empty; scrolling to the top tries the page again
+            log.error("Failed to load history: {}", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Highest message id in a loaded page, null if there is none
+     */
+    private static Long newestMessageId(List<ChatMessage> messages) {
+        Long newest = null;
+        if (messages != null) {
+            for (ChatMessage message : messages) {
+                if (message.getId() != null && (newest == null || message.getId() > newest)) {
+                    newest = message.getId();
+                }
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * ⬆️ Load the previous history page when the user scrolls to the top
+     */
+    private void loadOlderMessages() {
+        final MessageHistoryCursor cursor = historyCursor;
+        if (cursor == null || !cursor.hasMore() || cursor.isLoading()) {
+            return;
+        }
+        final boolean privateView = contentArea.isPrivateMode();
+        final Long roomId = currentRoomId;
+        cursor.loadOlder().thenAccept(older -> Platform.runLater(() -> {
+            // Ignore the page if the user switched conversation meanwhile
+            if (cursor != historyCursor || older.isEmpty()) {
+                return;
+            }
+            if (!privateView && roomId != null) {
+                List<ChatMessage> cached = roomMessages.get(roomId);
+                if (cached != null) {
+                    cached.addAll(0, older);
+                }
+            }
+            contentArea.prependMessages(older, currentUsername);
+            log.info("📜 Loaded {} older messages", older.size());
+        })).exceptionally(e -> {
+            log.warn("📜 Failed to load older messages, will retry on next scroll: {}", e.getMessage());
+            return null;
+        });
+    }
+
     // Store loaded rooms for room switching
     private List<ChatRoom> loadedRooms;
     private Long currentRoomId = 1L; // Default to General room
@@ -1125,12 +1256,17 @@ public class ChatClientFXApp extends Application {
                     // Update current room ID immediately to prevent race conditions
                     final Long previousRoomId = currentRoomId;
                     currentRoomId = targetRoom.getId();
+                    if (typingTracker != null) {
+                        typingTracker.stopped();
+                        contentArea.showTypingUsers(typingTracker.typingIn(currentRoomId));
+                    }
 
                     // Update room selector immediately for responsive UI
                     contentArea.getRoomSelector().setValue(roomName);
 
                     // Clear messages immediately for fast visual feedback
                     contentArea.clearMessages();
+                    historyCursor = null;
 
                     // Show loading indicator
                     contentArea.showLoading(true);
@@ -1141,17 +1277,23 @@ public class ChatClientFXApp extends Application {
 
                     new Thread(() -> {
                         try {
-                            // Mark as read on backend (background)
-                            chatService.markAllMessagesInRoomAsRead(roomIdToLoad);
-
                             // Fetch message history (background)
-                            List<ChatMessage> messages = chatService.getRoomMessages(roomIdToLoad);
+                            MessageHistoryCursor cursor = chatService.openRoomHistory(roomIdToLoad,
+                                    HISTORY_PAGE_SIZE);
+                            List<ChatMessage> messages = cursor.loadOlder().join();
                             roomMessages.put(roomIdToLoad, messages);
 
+                            // Mark as read (coalesced, skipped if nothing is unread)
+                            readReceipts.markRead(ReadReceiptPipeline.Kind.ROOM, roomIdToLoad,
+                                    newestMessageId(messages));
+                            webSocketClient.noteSeen(GapFillSource.Kind.ROOM, roomIdToLoad,
+                                    newestMessageId(messages));
+
                             // Update UI on FX thread
                             Platform.runLater(() -> {
                                 // Only update if still in this room (user might have switched again)
                                 if (currentRoomId != null && currentRoomId.equals(roomIdToLoad)) {
+                                    historyCursor = cursor;
                                     contentArea.showLoading(false);
                                     contentArea.addMessages(messages, currentUsername);
                                     appendMessage("✅ Đã chuyển sang phòng: " + roomNameForLog);
@@ -1179,17 +1321,20 @@ public class ChatClientFXApp extends Application {
         String message = contentArea.getInputField().getText().trim();
         if (!message.isEmpty()) {
             try {
-                if (webSocketClient != null && webSocketClient.isConnected()) {
+                // Sent while disconnected too: the sender keeps it in the outbox (QUEUED)
+                if (webSocketClient != null) {
                     // Check if we're in private chat mode
                     if (contentArea.isPrivateMode() && contentArea.getPrivateChatUser() != null) {
                         // Send private message - server will echo back with ID via WebSocket
                         User privateChatUser = contentArea.getPrivateChatUser();
-                        webSocketClient.sendPrivateMessage(privateChatUser.getId(), message);
+                        webSocketClient.sendPrivateMessage(privateChatUser.getId(), message)
+                                .whenComplete(this::reportDelivery);
                         // Message will appear via handlePrivateChatMessage callback with proper ID
                         contentArea.getInputField().clear();
                     } else {
                         // Send to current room
-                        webSocketClient.sendChatMessage(currentRoomId, message);
+                        webSocketClient.sendChatMessage(currentRoomId, message)
+                                .whenComplete(this::reportDelivery);
 
                         // Create ChatMessage for local storage and display
                         ChatMessage sentMessage = ChatMessage.builder()
@@ -1221,7 +1366,103 @@ public class ChatClientFXApp extends Application {
         }
     }
 
+    /**
+     * 👁️ A message in the open conversation counts as read only while the
+     * window has focus; otherwise it is marked once focus returns
+     */
+    private synchronized void markReadIfSeen(ReadReceiptPipeline.Kind kind, Long id, Long messageId) {
+        if (notificationService.isWindowFocused()) {
+            readReceipts.markRead(kind, id, messageId);
+            return;
+        }
+        if (kind != awayReadKind || !id.equals(awayReadId)) {
+            awayReadMessageId = null; // Another conversation was opened meanwhile
+        }
+        awayReadKind = kind;
+        awayReadId = id;
+        if (messageId != null && (awayReadMessageId == null || messageId > awayReadMessageId)) {
+            awayReadMessageId = messageId;
+        }
+    }
+
+    /**
+     * 👁️ Window focused again: mark what arrived meanwhile, if that
+     * conversation is still the one on screen
+     */
+    private synchronized void flushAwayRead() {
+        ReadReceiptPipeline.Kind kind = awayReadKind;
+        Long id = awayReadId;
+        Long messageId = awayReadMessageId;
+        awayReadKind = null;
+        awayReadId = null;
+        awayReadMessageId = null;
+        if (kind == null || readReceipts == null) {
+            return;
+        }
+        boolean stillOpen = kind == ReadReceiptPipeline.Kind.ROOM
+                ? !contentArea.isPrivateMode() && id.equals(currentRoomId)
+                : contentArea.isPrivateMode() && contentArea.getPrivateChatUser() != null
+                        && id.equals(contentArea.getPrivateChatUser().getId());
+        if (stillOpen) {
+            readReceipts.markRead(kind, id, messageId);
+        }
+    }
+
+    /**
+     * 📤 Tell the user when a sent message did not (or not provably) reach the server
+     */
+    private void reportDelivery(StompSender.Delivery delivery, Throwable error) {
+        String notice;
+        if (error != null || delivery == StompSender.Delivery.FAILED) {
+            notice = "❌ Không gửi được tin nhắn";
+        } else if (delivery == StompSender.Delivery.QUEUED) {
+            notice = "📮 Tin nhắn sẽ được gửi khi kết nối lại";
+        } else if (delivery == StompSender.Delivery.UNCONFIRMED) {
+            notice = "⚠️ Tin nhắn chưa xác nhận: server chưa báo đã nhận";
+        } else {
+            return; // SENT / DELIVERED
+        }
+        Platform.runLater(() -> contentArea.addMessage("System", notice, java.time.LocalDateTime.now()));
+    }
+
+    /**
+     * ⌨️ Drop typing indicators from before the connection dropped: their
+     * "stopped" frames may have been lost while offline
+     */
+    private void clearTypingUsers() {
+        if (typingTracker == null) {
+            return;
+        }
+        typingTracker.clear();
+        Platform.runLater(() -> contentArea.showTypingUsers(List.of()));
+    }
+
+    /**
+     * 🔁 Resume interrupted attachment uploads in the background and report
+     * how each one ends
+     */
+    private void resumeInterruptedUploads() {
+        chatService.resumePendingUploads(null).forEach((filePath, upload) -> {
+            String fileName = new File(filePath).getName();
+            Platform.runLater(() -> appendMessage("🔁 Đang tiếp tục tải lên: " + fileName));
+            upload.getResult().whenComplete((fileUrl, e) -> Platform.runLater(() -> {
+                if (e == null) {
+                    appendMessage("✅ Đã gửi file: " + fileName);
+                } else if (!upload.isCancelled()) {
+                    log.warn("Resumed upload of {} failed: {}", fileName, e.getMessage());
+                    appendMessage("❌ Lỗi tải lên file: " + fileName);
+                }
+            }));
+        });
+    }
+
     private void sendFile() {
+        // Clicking the file button during an upload cancels it
+        Upload<String> running = activeUpload;
+        if (running != null && !running.getResult().isDone()) {
+            running.cancel();
+            return;
+        }
         try {
             // Open file chooser
             FileChooser fileChooser = new FileChooser();
@@ -1230,9 +1471,9 @@ public class ChatClientFXApp extends Application {
 
             if (selectedFile != null) {
                 if (webSocketClient != null && webSocketClient.isConnected()) {
-                    // Show loading
-                    contentArea.getFileButton().setDisable(true);
-                    contentArea.getFileButton().setText("⏳ Đang tải...");
+                    UploadProgressListener progress = (sent, total) -> Platform.runLater(() -> contentArea
+                            .getFileButton().setText("⏳ " + (total > 0 ? sent * 100 / total : 0) + "% ✖"));
+                    Upload<String> upload;
 
                     // Check if we're in private chat mode
                     if (contentArea.isPrivateMode() && contentArea.getPrivateChatUser() != null) {
@@ -1240,36 +1481,45 @@ public class ChatClientFXApp extends Application {
                         User privateChatUser = contentArea.getPrivateChatUser();
 
                         // Upload file to private endpoint
-                        String fileUrl = chatService.uploadPrivateFile(
+                        upload = chatService.startPrivateFileUpload(
                                 privateChatUser.getId(),
-                                selectedFile.getAbsolutePath());
-
-                        if (fileUrl != null && !fileUrl.isEmpty()) {
-                            // Success - message will appear via WebSocket callback from server broadcast
-                            // Don't add locally to avoid duplicate (server broadcasts file message)
-                            appendMessage("✅ Đã gửi file: " + selectedFile.getName());
-                            log.info("📎 Sent private file: {} to user {}", selectedFile.getName(),
-                                    privateChatUser.getId());
-                        } else {
-                            appendMessage("❌ Lỗi tải lên file");
-                        }
+                                selectedFile.getAbsolutePath(), progress);
+                        log.info("📎 Sending private file: {} to user {}", selectedFile.getName(),
+                                privateChatUser.getId());
                     } else if (currentRoomId != null) {
                         // ROOM CHAT FILE UPLOAD
                         // REST API saves message to DB and broadcasts via WebSocket automatically
                         // No need to send WebSocket message manually - it will arrive via
                         // handleIncomingMessage
-                        String fileUrl = chatService.uploadFile(currentRoomId, selectedFile.getAbsolutePath());
+                        upload = chatService.startFileUpload(currentRoomId, selectedFile.getAbsolutePath(),
+                                progress);
+                    } else {
+                        contentArea.addMessage("System", "❌ Chưa chọn phòng hoặc người nhận",
+                                java.time.LocalDateTime.now());
+                        return;
+                    }
 
-                        if (fileUrl != null) {
+                    // Show loading (button cancels while uploading)
+                    activeUpload = upload;
+                    contentArea.getFileButton().setText("⏳ 0% ✖");
+                    upload.getResult().whenComplete((fileUrl, e) -> Platform.runLater(() -> {
+                        activeUpload = null;
+                        if (e != null && upload.isCancelled()) {
+                            appendMessage("⛔ Đã hủy tải lên: " + selectedFile.getName());
+                        } else if (e != null) {
+                            log.error("Error sending file: {}", e.getMessage());
+                            contentArea.addMessage("System", "❌ Lỗi gửi file: " + e.getMessage(),
+                                    java.time.LocalDateTime.now());
+                        } else if (fileUrl != null && !fileUrl.isEmpty()) {
                             // Success - message will appear via WebSocket callback from server broadcast
+                            // Don't add locally to avoid duplicate (server broadcasts file message)
                             appendMessage("✅ Đã gửi file: " + selectedFile.getName());
                         } else {
                             appendMessage("❌ Lỗi tải lên file");
                         }
-                    } else {
-                        contentArea.addMessage("System", "❌ Chưa chọn phòng hoặc người nhận",
-                                java.time.LocalDateTime.now());
-                    }
+                        // Reset button
+                        contentArea.getFileButton().setText("📎 File");
+                    }));
                 } else {
                     contentArea.addMessage("System", "❌ Chưa kết nối đến server",
                             java.time.LocalDateTime.now());
@@ -1278,10 +1528,6 @@ public class ChatClientFXApp extends Application {
         } catch (Exception e) {
             log.error("Error sending file: {}", e.getMessage());
             contentArea.addMessage("System", "❌ Lỗi gửi file: " + e.getMessage(), java.time.LocalDateTime.now());
-        } finally {
-            // Reset button
-            contentArea.getFileButton().setDisable(false);
-            contentArea.getFileButton().setText("📎 File");
         }
     }
 
@@ -1404,6 +1650,12 @@ public class ChatClientFXApp extends Application {
                 boolean isFocused = notificationService.isWindowFocused();
                 boolean isInPrivateMode = contentArea.isPrivateMode();
 
+                // 👁️ Track unread state; read right away when this room is on screen
+                readReceipts.onIncoming(ReadReceiptPipeline.Kind.ROOM, message.getRoomId(), message.getId());
+                if (isCurrentRoom && !isInPrivateMode) {
+                    markReadIfSeen(ReadReceiptPipeline.Kind.ROOM, message.getRoomId(), message.getId());
+                }
+
                 // 📨 Increment room unread count if NOT viewing this room
                 // (only when NOT in private chat mode)
                 if (!isCurrentRoom || isInPrivateMode) {
@@ -1447,20 +1699,29 @@ public class ChatClientFXApp extends Application {
             return;
         }
 
-        // Only show if it's the current room
-        if (!indicator.getRoomId().equals(currentRoomId)) {
-            return;
-        }
-
         // Ignore own typing
         if (indicator.getUserId() != null && indicator.getUserId().equals(currentUserId)) {
             return;
         }
 
-        Platform.runLater(() -> {
-            String username = indicator.getUsername() != null ? indicator.getUsername() : "Someone";
-            contentArea.showTypingIndicator(username, indicator.isTyping());
-        });
+        // Every subscribed room is tracked; the label follows the current one
+        if (typingTracker != null) {
+            typingTracker.onIndicator(indicator);
+        }
+    }
+
+    /**
+     * ⌨️ Input changed: the tracker decides whether a typing frame goes out
+     */
+    private void onInputChanged(String text) {
+        if (typingTracker == null) {
+            return;
+        }
+        if (text == null || text.isBlank() || contentArea.isPrivateMode() || currentRoomId == null) {
+            typingTracker.stopped();
+        } else {
+            typingTracker.typed(currentRoomId);
+        }
     }
 
     /**
@@ -1580,51 +1841,38 @@ public class ChatClientFXApp extends Application {
      */
     private void loadUnreadMessageCounts() {
         try {
-            // Load friend unread counts
-            List<java.util.Map<String, Object>> friendsData = chatService.getFriends();
-            if (friendsData != null && !friendsData.isEmpty()) {
-                for (java.util.Map<String, Object> data : friendsData) {
-                    Long friendId = Long.valueOf(data.get("id").toString());
-                    // Skip current user
-                    if (currentUserId != null && friendId.equals(currentUserId)) {
-                        continue;
-                    }
-
-                    // Get unread count from backend
-                    int unreadCount = chatService.getUnreadPrivateMessageCount(friendId);
-                    if (unreadCount > 0) {
-                        final Long fId = friendId;
-                        final int count = unreadCount;
-                        Platform.runLater(() -> {
-                            sidebar.setUnreadCount(fId, count);
-                        });
-                        log.debug("📨 Friend {} has {} unread messages", friendId, unreadCount);
-                    }
+            // Friend IDs: reuse the list already shown in the sidebar when available
+            List<Long> friendIds = new ArrayList<>();
+            List<User> shownFriends = sidebar.getLoadedFriends();
+            if (shownFriends != null) {
+                for (User friend : new ArrayList<>(shownFriends)) {
+                    friendIds.add(friend.getId());
+                }
+            } else {
+                for (java.util.Map<String, Object> data : chatService.getFriends()) {
+                    friendIds.add(Long.valueOf(data.get("id").toString()));
                 }
-                Platform.runLater(() -> {
-                    sidebar.refreshUnreadBadges();
-                });
-                log.info("📨 Loaded unread message counts for {} friends", friendsData.size());
             }
+            // Skip current user
+            friendIds.removeIf(id -> id == null || id.equals(currentUserId));
 
-            // Load room unread counts
-            if (loadedRooms != null && !loadedRooms.isEmpty()) {
+            List<Long> roomIds = new ArrayList<>();
+            if (loadedRooms != null) {
                 for (ChatRoom room : loadedRooms) {
-                    int roomUnreadCount = chatService.getUnreadMessageCount(room.getId());
-                    if (roomUnreadCount > 0) {
-                        final Long roomId = room.getId();
-                        final int count = roomUnreadCount;
-                        Platform.runLater(() -> {
-                            sidebar.setRoomUnreadCount(roomId, count);
-                        });
-                        log.debug("🏠 Room {} has {} unread messages", room.getName(), roomUnreadCount);
-                    }
+                    roomIds.add(room.getId());
                 }
-                Platform.runLater(() -> {
-                    sidebar.refreshRoomsList();
-                });
-                log.info("🏠 Loaded unread message counts for {} rooms", loadedRooms.size());
             }
+
+            unreadCountLoader.load(friendIds, roomIds)
+                    .thenAccept(counts -> Platform.runLater(() -> {
+                        // One coalesced badge update for all friends and rooms
+                        sidebar.setUnreadCounts(counts.getFriendCounts(), counts.getRoomCounts());
+                        readReceipts.setUnreadCounts(counts.getFriendCounts(), counts.getRoomCounts());
+                    }))
+                    .exceptionally(e -> {
+                        log.error("Failed to load unread message counts: " + e.getMessage());
+                        return null;
+                    });
         } catch (Exception e) {
             log.error("Failed to load unread message counts: " + e.getMessage());
         }
@@ -1656,6 +1904,11 @@ public class ChatClientFXApp extends Application {
         String eventType = (String) event.get("type");
         log.info("🏠 Handling room event: {}", eventType);
 
+        // 👮 Members or roles may have changed: reload them on the next admin check
+        if (event.get("roomId") instanceof Number) {
+            chatService.getRoomRoles().invalidate(((Number) event.get("roomId")).longValue());
+        }
+
         Platform.runLater(() -> {
             try {
                 if ("ROOM_CREATED".equals(eventType)) {
@@ -1712,7 +1965,8 @@ public class ChatClientFXApp extends Application {
                             if (!loadedRooms.isEmpty()) {
                                 ChatRoom firstRoom = loadedRooms.get(0);
                                 currentRoomId = firstRoom.getId();
-                                var messages = chatService.getRoomMessages(currentRoomId);
+                                var messages = openHistory(
+                                        chatService.openRoomHistory(currentRoomId, HISTORY_PAGE_SIZE));
                                 contentArea.clearMessages();
                                 contentArea.addMessages(messages, currentUsername);
                                 appendMessage("⚠️ Phòng bạn đang xem đã bị xóa. Đã chuyển sang phòng: "
@@ -1788,6 +2042,12 @@ public class ChatClientFXApp extends Application {
         boolean isViewingThisChat = isInPrivateMode
                 && privateChatUser.getId().equals(message.getSenderId());
 
+        // 👁️ Track unread state; read right away when this chat is on screen
+        readReceipts.onIncoming(ReadReceiptPipeline.Kind.PRIVATE, message.getSenderId(), message.getId());
+        if (isViewingThisChat) {
+            markReadIfSeen(ReadReceiptPipeline.Kind.PRIVATE, message.getSenderId(), message.getId());
+        }
+
         // Only increment unread if NOT viewing this chat
         // (if viewing, user already sees the message - no need to count)
         if (!isViewingThisChat) {
@@ -1812,26 +2072,25 @@ public class ChatClientFXApp extends Application {
         if (statusMessage == null)
             return;
 
-        // Skip status updates for current user - don't show yourself
-        if (statusMessage.getUserId() != null && statusMessage.getUserId().equals(currentUserId)) {
-            log.debug("👥 Ignoring status update for self");
-            return;
-        }
+        log.debug("👥 User status update: {} (id={}) -> {}",
+                statusMessage.getUsername(), statusMessage.getUserId(), statusMessage.getStatus());
 
-        boolean isOnline = "ONLINE".equals(statusMessage.getStatus())
-                || Boolean.TRUE.equals(statusMessage.getIsOnline());
-        log.info("👥 User status update: {} (id={}) is now {}",
-                statusMessage.getUsername(), statusMessage.getUserId(), isOnline ? "ONLINE" : "OFFLINE");
-
-        Platform.runLater(() -> {
-            // Update friend status in sidebar Direct Messages list
-            sidebar.updateFriendStatus(statusMessage.getUserId(), isOnline);
+        // Applied in place; the sidebar gets coalesced changes from the engine
+        if (presenceEngine != null) {
+            presenceEngine.onStatusMessage(statusMessage);
+        }
+    }
 
-            // Reload online users and friends to get fresh showOnlineStatus from backend
-            // This ensures Online Now tab and DM list respect privacy settings correctly
-            loadOnlineUsers();
-            loadFriends();
-        });
+    /**
+     * 🛰️ (Re)start the presence engine for the logged-in user
+     */
+    private void startPresenceEngine() {
+        if (presenceEngine != null) {
+            presenceEngine.stop();
+        }
+        presenceEngine = new PresenceEngine(chatService,
+                changes -> Platform.runLater(() -> sidebar.updateFriendStatuses(changes)));
+        presenceEngine.start(currentUserId);
     }
 
     /**
@@ -1883,7 +2142,7 @@ public class ChatClientFXApp extends Application {
 
     /**
      * 😀 Handle reaction update notification from WebSocket
-     * Updates the UI when someone adds/removes a reaction on a message
+     * Updates the UI in place when someone adds/removes a reaction on a message
      */
     private void handleReactionUpdate(java.util.Map<String, Object> reactionEvent) {
         if (reactionEvent == null)
@@ -1909,11 +2168,10 @@ public class ChatClientFXApp extends Application {
         System.out.println(
                 "😀 handleReactionUpdate: " + displayName + " " + action + " " + emoji + " on message " + messageId);
 
-        // Refresh reaction counts in ContentArea
-        final Long finalMessageId = messageId;
-        Platform.runLater(() -> {
-            contentArea.refreshReactionForMessage(finalMessageId);
-        });
+        // Apply the delta in place (ContentArea listens to the reaction model)
+        if (chatService != null) {
+            chatService.getReactionModel().applyEvent(reactionEvent);
+        }
     }
 
     private void appendMessage(String message) {
@@ -1943,6 +2201,15 @@ public class ChatClientFXApp extends Application {
 
     @Override
     public void stop() {
+        if (presenceEngine != null) {
+            presenceEngine.stop();
+        }
+        if (readReceipts != null) {
+            readReceipts.stop();
+        }
+        if (typingTracker != null) {
+            typingTracker.shutdown();
+        }
         if (webSocketClient != null) {
             try {
                 webSocketClient.disconnect();
@@ -1976,6 +2243,9 @@ public class ChatClientFXApp extends Application {
             sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
             HttpsURLConnection.setDefaultSSLSocketFactory(sslContext.getSocketFactory());
             HttpsURLConnection.setDefaultHostnameVerifier((hostname, session) -> true);
+            // Same for the shared java.net.http client used by ChatService
+            SSLContext.setDefault(sslContext);
+            System.setProperty("jdk.internal.httpclient.disableHostnameVerification", "true");
 
             log.debug("⚠️ SSL verification disabled (for development)");
         } catch (Exception e) {
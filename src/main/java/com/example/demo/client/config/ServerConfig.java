@@ -32,6 +32,17 @@ public class ServerConfig {
      * Load cấu hình từ các nguồn (theo ưu tiên)
      */
     private static void loadConfig() {
+        // Luôn nạp config.properties để các cấu hình khác (HTTP timeout, ...) có
+        // hiệu lực kể cả khi URL được đặt qua biến môi trường
+        try (InputStream inputStream = ServerConfig.class.getClassLoader()
+                .getResourceAsStream("config.properties")) {
+            if (inputStream != null) {
+                properties.load(inputStream);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read config.properties: {}", e.getMessage());
+        }
+
         // 1. Kiểm tra System property
         String sysUrl = System.getProperty("WEBCHAT_G10_SERVER_URL");
         if (sysUrl != null && !sysUrl.trim().isEmpty()) {
@@ -49,22 +60,14 @@ public class ServerConfig {
         }
 
         // 3. Kiểm tra config.properties trong classpath
-        try {
-            InputStream inputStream = ServerConfig.class.getClassLoader().getResourceAsStream("config.properties");
-            if (inputStream != null) {
-                properties.load(inputStream);
-                String url = properties.getProperty("server.url", "").trim();
-                if (!url.isEmpty()) {
-                    serverUrl = url;
-                    wsUrl = properties.getProperty("ws.url", "").trim();
-                    if (wsUrl.isEmpty()) {
-                        updateWsUrl();
-                    }
-                    return;
-                }
+        String url = properties.getProperty("server.url", "").trim();
+        if (!url.isEmpty()) {
+            serverUrl = url;
+            wsUrl = properties.getProperty("ws.url", "").trim();
+            if (wsUrl.isEmpty()) {
+                updateWsUrl();
             }
-        } catch (IOException e) {
-            log.warn("Failed to read config.properties: {}", e.getMessage());
+            return;
         }
 
         // 4. Mặc định
@@ -99,6 +102,41 @@ public class ServerConfig {
         return wsUrl != null ? wsUrl : DEFAULT_WS_URL;
     }
 
+    /**
+     * Lấy cấu hình dạng số
+     * Ưu tiên: System property → config.properties → giá trị mặc định
+     */
+    public static long getLong(String key, long defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            value = properties.getProperty(key);
+        }
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for {}: {} (using {})", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Lấy cấu hình dạng chuỗi
+     * Ưu tiên: System property → config.properties → giá trị mặc định
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            value = properties.getProperty(key);
+        }
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
     /**
      * Cập nhật URL server tại runtime
      */
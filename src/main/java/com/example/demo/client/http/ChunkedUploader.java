@@ -0,0 +1,447 @@
+package com.example.demo.client.http;
+
+import com.example.demo.client.config.ServerConfig;
+import com.example.demo.client.json.JsonCodec;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 🧩 ChunkedUploader - Resumable uploads in fixed-size parts
+ *
+ * Protocol:
+ * - POST /api/uploads (JSON: fileName, fileSize, contentType, partSize + target
+ *   fields such as roomId) → {"uploadId", "partSize"}
+ * - PUT /api/uploads/{id}/parts/{index} (raw bytes of one part)
+ * - GET /api/uploads/{id} → {"receivedParts": [...]} (used when resuming)
+ * - POST /api/uploads/{id}/complete → same response as a multipart upload
+ * - DELETE /api/uploads/{id} (cancelled upload)
+ *
+ * Parts are sent with bounded parallelism and retried with backoff (a part
+ * rejected by the open circuit breaker waits out the open interval). Every
+ * finished part is checkpointed to disk, so after a dropped connection or a
+ * restart only the missing parts are sent again. If the server does not know
+ * the protocol (404/405/501 on create), the upload falls back to a single
+ * multipart POST; that answer is remembered, so later uploads go straight to
+ * the multipart endpoint instead of asking again.
+ *
+ * Settings from {@link ServerConfig}:
+ * - upload.part-bytes, upload.part-concurrency
+ * - upload.part-retries, upload.retry-base-ms
+ * - upload.checkpoint-dir
+ */
+@Slf4j
+public class ChunkedUploader {
+
+    private static final Set<Integer> UNSUPPORTED = Set.of(404, 405, 501);
+    private static final byte[] NONE = new byte[0];
+
+    private final HttpTransport transport;
+    private final UploadCheckpointStore checkpoints;
+    private final UploadMetrics metrics;
+    private final long partSize;
+    private final int concurrency;
+    private final int maxRetries;
+    private final long retryBaseMs;
+    private final int chunkSize;
+    private final long progressIntervalMs;
+    /** Checkpoint keys of the uploads running now */
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    /** Set once the server answered create with 404/405/501 */
+    private volatile boolean unsupported;
+
+    public ChunkedUploader(HttpTransport transport, UploadMetrics metrics) {
+        this(transport, metrics, new UploadCheckpointStore(Paths.get(ServerConfig.getString("upload.checkpoint-dir",
+                Paths.get(System.getProperty("user.home"), ".webchat", "uploads").toString()))));
+    }
+
+    public ChunkedUploader(HttpTransport transport, UploadMetrics metrics, UploadCheckpointStore checkpoints) {
+        this.transport = transport;
+        this.metrics = metrics;
+        this.checkpoints = checkpoints;
+        this.partSize = Math.max(64 * 1024, ServerConfig.getLong("upload.part-bytes", 8 * 1024 * 1024));
+        this.concurrency = (int) Math.max(1, ServerConfig.getLong("upload.part-concurrency", 3));
+        this.maxRetries = (int) Math.max(0, ServerConfig.getLong("upload.part-retries", 4));
+        this.retryBaseMs = ServerConfig.getLong("upload.retry-base-ms", 500);
+        this.chunkSize = (int) Math.max(8 * 1024, ServerConfig.getLong("upload.chunk-bytes", 256 * 1024));
+        this.progressIntervalMs = ServerConfig.getLong("upload.progress-interval-ms", 100);
+    }
+
+    /**
+     * ⚡ Start (or resume) uploading {@code file}
+     *
+     * @param target   stable name of the destination (e.g. "room:5"); with the
+     *                 file path it identifies the checkpoint to resume
+     * @param fields   destination fields sent when the session is created
+     * @param fallback starts a single multipart upload if the server has no
+     *                 chunked endpoint; it reports through the given listener
+     */
+    public Upload<String> upload(String target, Map<String, Object> fields, String bearerToken, Path file,
+            UploadProgressListener listener, Function<UploadProgressListener, Upload<String>> fallback) {
+        long size;
+        long modified;
+        try {
+            size = Files.size(file);
+            modified = Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return Upload.failed(new FileNotFoundException("File not found: " + file));
+        }
+
+        Upload.Progress progress = new Upload.Progress(size, listener, progressIntervalMs);
+        CompletableFuture<String> result = new CompletableFuture<>();
+        progress.attach(result);
+        String key = UploadCheckpointStore.keyOf(target, file);
+        running.add(key);
+        Run run = new Run(target, fields, bearerToken, file, size, modified, progress, result);
+
+        long start = System.nanoTime();
+        openSession(run)
+                .thenCompose(checkpoint -> {
+                    if (checkpoint == null) {
+                        return runFallback(run, fallback);
+                    }
+                    run.checkpoint = checkpoint;
+                    if (progress.isCancelled()) {
+                        abandon(run); // Cancelled while the session was being opened
+                    }
+                    progress.advance(completedBytes(checkpoint));
+                    return uploadParts(run).thenCompose(v -> run.result.isDone()
+                            ? CompletableFuture.<String>failedFuture(new CancellationException("Upload stopped"))
+                            : complete(run));
+                })
+                .whenComplete((body, error) -> {
+                    if (error == null) {
+                        result.complete(body);
+                    } else {
+                        result.completeExceptionally(HttpTransport.unwrap(error));
+                    }
+                });
+
+        result.whenComplete((body, error) -> {
+            running.remove(key);
+            if (run.fallback) {
+                return; // Counted by the multipart uploader
+            }
+            if (error == null) {
+                long nanos = System.nanoTime() - start;
+                metrics.recordCompleted(size, nanos);
+                log.info("🧩 Uploaded {} ({} bytes) in {}ms", file.getFileName(), size, nanos / 1_000_000);
+            } else if (progress.isCancelled() || error instanceof CancellationException) {
+                metrics.recordCancelled();
+                abandon(run);
+            } else {
+                metrics.recordFailed();
+                log.warn("⚠️ Upload of {} interrupted at {}/{} bytes, resumable: {}", file.getFileName(),
+                        progress.getSent(), size, HttpTransport.unwrap(error).getMessage());
+            }
+        });
+        return new Upload<>(progress, result);
+    }
+
+    /**
+     * 📋 Interrupted uploads that can be resumed (not the ones running now)
+     */
+    public List<UploadCheckpoint> pending() {
+        List<UploadCheckpoint> pending = new ArrayList<>(checkpoints.list());
+        pending.removeIf(checkpoint -> running.contains(checkpoint.getKey()));
+        return pending;
+    }
+
+    /**
+     * 🗑️ Forget an interrupted upload that cannot be resumed (file gone)
+     */
+    public void discard(UploadCheckpoint checkpoint) {
+        checkpoints.delete(checkpoint.getKey());
+    }
+
+    // ==================== SESSION ====================
+
+    /**
+     * Checkpoint to continue from, a fresh session, or null if the server has
+     * no chunked endpoint
+     */
+    private CompletableFuture<UploadCheckpoint> openSession(Run run) {
+        String key = UploadCheckpointStore.keyOf(run.target, run.file);
+        UploadCheckpoint saved = checkpoints.load(key);
+        if (saved != null && !saved.matches(run.size, run.modified)) {
+            log.info("🧩 {} changed since the last attempt, starting over", run.file.getFileName());
+            checkpoints.delete(key);
+            saved = null;
+        }
+        if (saved == null) {
+            return createSession(run, key);
+        }
+
+        UploadCheckpoint checkpoint = saved;
+        return transport.sendAsync("GET", "/api/uploads/" + checkpoint.getUploadId(), null, null, run.token)
+                .thenApply(response -> {
+                    // The server's view wins: a part may have arrived without being checkpointed
+                    SessionResponse status = JsonCodec.read(response, SessionResponse.class);
+                    if (status.receivedParts != null) {
+                        checkpoint.setCompletedParts(new TreeSet<>(status.receivedParts));
+                    }
+                    log.info("🧩 Resuming {}: {}/{} parts already uploaded", run.file.getFileName(),
+                            checkpoint.getCompletedParts().size(), checkpoint.getPartCount());
+                    return CompletableFuture.completedFuture(checkpoint);
+                })
+                .exceptionally(e -> {
+                    Throwable cause = HttpTransport.unwrap(e);
+                    if (cause instanceof HttpStatusException && ((HttpStatusException) cause).getStatusCode() < 500) {
+                        // Session expired or unknown on the server
+                        checkpoints.delete(key);
+                        return createSession(run, key);
+                    }
+                    return CompletableFuture.failedFuture(cause);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<UploadCheckpoint> createSession(Run run, String key) {
+        if (unsupported) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String fileName = run.file.getFileName().toString();
+        Map<String, Object> request = new LinkedHashMap<>(run.fields);
+        request.put("fileName", fileName);
+        request.put("fileSize", run.size);
+        request.put("contentType", MediaTypes.forFileName(fileName));
+        request.put("partSize", partSize);
+
+        return transport.sendAsync("POST", "/api/uploads", HttpTransport.JSON, JsonCodec.write(request), run.token)
+                .thenApply(response -> {
+                    SessionResponse session = JsonCodec.read(response, SessionResponse.class);
+                    long agreedPartSize = session.partSize != null && session.partSize > 0
+                            ? session.partSize : partSize;
+                    UploadCheckpoint checkpoint = UploadCheckpoint.builder()
+                            .key(key)
+                            .uploadId(session.uploadId)
+                            .target(run.target)
+                            .filePath(run.file.toAbsolutePath().toString())
+                            .fileSize(run.size)
+                            .lastModified(run.modified)
+                            .partSize(agreedPartSize)
+                            .partCount((int) Math.max(1, (run.size + agreedPartSize - 1) / agreedPartSize))
+                            .build();
+                    save(checkpoint);
+                    return checkpoint;
+                })
+                .exceptionally(e -> {
+                    Throwable cause = HttpTransport.unwrap(e);
+                    if (cause instanceof HttpStatusException
+                            && UNSUPPORTED.contains(((HttpStatusException) cause).getStatusCode())) {
+                        unsupported = true;
+                        log.info("🧩 Chunked uploads not supported by the server, using multipart from now on");
+                        return null;
+                    }
+                    throw new CompletionException(cause);
+                });
+    }
+
+    private CompletableFuture<String> runFallback(Run run, Function<UploadProgressListener, Upload<String>> fallback) {
+        log.debug("🧩 Sending {} in one multipart request", run.file.getFileName());
+        run.fallback = true;
+        Upload<String> upload = fallback.apply((sent, total) -> run.progress.set(sent));
+        run.result.whenComplete((body, error) -> {
+            if (error != null) {
+                upload.cancel();
+            }
+        });
+        return upload.getResult();
+    }
+
+    private CompletableFuture<String> complete(Run run) {
+        String id = run.checkpoint.getUploadId();
+        return transport.sendAsync("POST", "/api/uploads/" + id + "/complete", HttpTransport.JSON, "{}", run.token)
+                .thenApply(body -> {
+                    checkpoints.delete(run.checkpoint.getKey());
+                    return body;
+                });
+    }
+
+    /**
+     * Cancelled by the user: forget the checkpoint and the server session
+     */
+    private void abandon(Run run) {
+        UploadCheckpoint checkpoint = run.checkpoint;
+        if (checkpoint == null) {
+            return;
+        }
+        synchronized (checkpoint) {
+            run.abandoned = true; // Parts still in flight must not write it back
+            checkpoints.delete(checkpoint.getKey());
+        }
+        transport.sendAsync("DELETE", "/api/uploads/" + checkpoint.getUploadId(), null, null, run.token)
+                .exceptionally(e -> null);
+    }
+
+    // ==================== PARTS ====================
+
+    private CompletableFuture<Void> uploadParts(Run run) {
+        UploadCheckpoint checkpoint = run.checkpoint;
+        List<Integer> missing = new ArrayList<>();
+        synchronized (checkpoint) {
+            for (int i = 0; i < checkpoint.getPartCount(); i++) {
+                if (!checkpoint.getCompletedParts().contains(i)) {
+                    missing.add(i);
+                }
+            }
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        int laneCount = Math.min(concurrency, missing.size());
+        CompletableFuture<?>[] lanes = new CompletableFuture<?>[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = runLane(run, missing, next);
+        }
+        return CompletableFuture.allOf(lanes);
+    }
+
+    private CompletableFuture<Void> runLane(Run run, List<Integer> parts, AtomicInteger next) {
+        if (run.result.isDone()) {
+            return CompletableFuture.completedFuture(null); // Cancelled or another part failed
+        }
+        int index = next.getAndIncrement();
+        if (index >= parts.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return uploadPart(run, parts.get(index), 0)
+                .whenComplete((v, e) -> {
+                    if (e != null) {
+                        run.result.completeExceptionally(HttpTransport.unwrap(e)); // Stops the other lanes
+                    }
+                })
+                .thenCompose(v -> runLane(run, parts, next));
+    }
+
+    private CompletableFuture<Void> uploadPart(Run run, int index, int attempt) {
+        UploadCheckpoint checkpoint = run.checkpoint;
+        long offset = index * checkpoint.getPartSize();
+        long length = Math.min(checkpoint.getPartSize(), run.size - offset);
+        Upload.Progress partProgress = run.progress.child(length);
+
+        HttpRequest request = transport
+                .newRequest("/api/uploads/" + checkpoint.getUploadId() + "/parts/" + index, run.token)
+                .timeout(transport.getUploadTimeout())
+                .header("Content-Type", MediaTypes.OCTET_STREAM)
+                .PUT(new FileRegionPublisher(run.file, offset, length, NONE, NONE, chunkSize, partProgress))
+                .build();
+
+        return transport.sendAsync(request)
+                .thenAccept(response -> markCompleted(run, index))
+                .handle((v, e) -> {
+                    if (e == null) {
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    partProgress.rollback();
+                    Throwable cause = HttpTransport.unwrap(e);
+                    if (attempt >= maxRetries || run.progress.isCancelled() || !isRetryable(cause)) {
+                        return CompletableFuture.<Void>failedFuture(cause);
+                    }
+                    long delay = retryBaseMs << attempt;
+                    if (cause instanceof CircuitOpenException) {
+                        // Not sent at all: wait until the breaker lets a request through again
+                        delay = Math.max(delay, ((CircuitOpenException) cause).getRetryInMs());
+                    }
+                    log.warn("🔁 Part {} of {} failed ({}), retry {} in {}ms", index, run.file.getFileName(),
+                            cause.getMessage(), attempt + 1, delay);
+                    return CompletableFuture
+                            .supplyAsync(() -> null, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                            .thenCompose(x -> uploadPart(run, index, attempt + 1));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private static boolean isRetryable(Throwable cause) {
+        if (cause instanceof HttpStatusException) {
+            int status = ((HttpStatusException) cause).getStatusCode();
+            return status >= 500 || status == 408 || status == 429;
+        }
+        return cause instanceof IOException || cause instanceof CircuitOpenException;
+    }
+
+    private void markCompleted(Run run, int index) {
+        UploadCheckpoint checkpoint = run.checkpoint;
+        synchronized (checkpoint) {
+            if (run.abandoned) {
+                return;
+            }
+            checkpoint.getCompletedParts().add(index);
+            save(checkpoint);
+        }
+    }
+
+    private void save(UploadCheckpoint checkpoint) {
+        try {
+            checkpoints.save(checkpoint);
+        } catch (IOException e) {
+            // The upload itself can continue; only resuming loses this part
+            log.warn("⚠️ Failed to write upload checkpoint: {}", e.getMessage());
+        }
+    }
+
+    private static long completedBytes(UploadCheckpoint checkpoint) {
+        long bytes = 0;
+        synchronized (checkpoint) {
+            for (int index : checkpoint.getCompletedParts()) {
+                long offset = index * checkpoint.getPartSize();
+                bytes += Math.max(0, Math.min(checkpoint.getPartSize(), checkpoint.getFileSize() - offset));
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * State of one upload while it runs
+     */
+    private static final class Run {
+        final String target;
+        final Map<String, Object> fields;
+        final String token;
+        final Path file;
+        final long size;
+        final long modified;
+        final Upload.Progress progress;
+        final CompletableFuture<String> result;
+        volatile UploadCheckpoint checkpoint;
+        volatile boolean fallback;
+        boolean abandoned; // Guarded by the checkpoint
+
+        Run(String target, Map<String, Object> fields, String token, Path file, long size, long modified,
+                Upload.Progress progress, CompletableFuture<String> result) {
+            this.target = target;
+            this.fields = fields;
+            this.token = token;
+            this.file = file;
+            this.size = size;
+            this.modified = modified;
+            this.progress = progress;
+            this.result = result;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class SessionResponse {
+        public String uploadId;
+        public Long partSize;
+        public List<Integer> receivedParts;
+    }
+}
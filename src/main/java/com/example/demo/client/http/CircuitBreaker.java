@@ -0,0 +1,113 @@
+package com.example.demo.client.http;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 🔌 CircuitBreaker - Fails fast while an endpoint keeps failing
+ *
+ * CLOSED: requests pass; after {@code failureThreshold} consecutive
+ * failures the breaker opens.
+ * OPEN: requests are rejected for {@code openMs}.
+ * HALF_OPEN: a single probe request passes; success closes the breaker,
+ * failure opens it again.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+    private long timesOpened;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMs) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMs = openMs;
+    }
+
+    /**
+     * May a request be sent now? Every true must be followed by exactly one
+     * of {@link #onSuccess()}, {@link #onFailure()} or {@link #onRelease()}
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMs) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    /**
+     * The backend answered (including answers like 404)
+     */
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("🔌 Circuit for {} closed again", name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            probeInFlight = false;
+            timesOpened++;
+            log.warn("🔌 Circuit for {} opened after {} consecutive failures", name, consecutiveFailures);
+        }
+    }
+
+    /**
+     * The request ended without telling anything about the backend (cancelled)
+     */
+    public synchronized void onRelease() {
+        probeInFlight = false;
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+            return State.HALF_OPEN; // Next request will probe
+        }
+        return state;
+    }
+
+    /**
+     * Time until an open breaker lets a probe through, 0 otherwise
+     */
+    public synchronized long getRetryInMs() {
+        return state == State.OPEN ? Math.max(0, openMs - (System.currentTimeMillis() - openedAt)) : 0;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized long getTimesOpened() {
+        return timesOpened;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
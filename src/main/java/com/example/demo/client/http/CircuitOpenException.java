@@ -0,0 +1,25 @@
+package com.example.demo.client.http;
+
+/**
+ * ⚡ Request rejected without being sent: the endpoint's circuit breaker is
+ * open after repeated failures
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    private final String endpoint;
+    private final long retryInMs;
+
+    public CircuitOpenException(String endpoint, long retryInMs) {
+        super("Circuit open for " + endpoint + " (retry in " + retryInMs + "ms)");
+        this.endpoint = endpoint;
+        this.retryInMs = retryInMs;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getRetryInMs() {
+        return retryInMs;
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.demo.client.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * 🗜️ ContentDecoding - gzip / deflate response bodies, byte-oriented
+ *
+ * Bodies are inflated straight into a byte array sized from the gzip trailer
+ * (ISIZE), so a typical response is decoded without any intermediate String
+ * or buffer-to-buffer copy. The trailer is untrusted: the first allocation
+ * is capped at 8x the wire size and MAX_INITIAL_BUFFER, and grows from there.
+ */
+final class ContentDecoding {
+
+    static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private static final int MAX_INITIAL_BUFFER = 8 * 1024 * 1024;
+
+    private ContentDecoding() {
+    }
+
+    static boolean isCompressed(String encoding) {
+        String e = normalize(encoding);
+        return e.equals("gzip") || e.equals("x-gzip") || e.equals("deflate");
+    }
+
+    /**
+     * Decoded body for a buffered response
+     */
+    static byte[] decode(byte[] wire, String encoding) {
+        String e = normalize(encoding);
+        try {
+            switch (e) {
+                case "gzip":
+                case "x-gzip":
+                    return readFully(new GZIPInputStream(new ByteArrayInputStream(wire)), gzipSize(wire));
+                case "deflate":
+                    try {
+                        return readFully(new InflaterInputStream(new ByteArrayInputStream(wire)),
+                                initialSize(wire.length * 4L, wire));
+                    } catch (ZipException zlibHeaderMissing) {
+                        // Some servers send raw deflate without the zlib wrapper
+                        Inflater raw = new Inflater(true);
+                        try {
+                            return readFully(new InflaterInputStream(new ByteArrayInputStream(wire), raw),
+                                    initialSize(wire.length * 4L, wire));
+                        } finally {
+                            raw.end();
+                        }
+                    }
+                default:
+                    return wire;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to decode " + e + " response", ex);
+        }
+    }
+
+    /**
+     * Decoding stream for a streamed response
+     */
+    static InputStream decode(InputStream wire, String encoding) throws IOException {
+        switch (normalize(encoding)) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(wire, 16 * 1024);
+            case "deflate":
+                Inflater inflater = new Inflater();
+                return new InflaterInputStream(wire, inflater, 16 * 1024) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            inflater.end(); // Not done by close() for a caller-supplied Inflater
+                        }
+                    }
+                };
+            default:
+                return wire;
+        }
+    }
+
+    private static String normalize(String encoding) {
+        return encoding == null ? "" : encoding.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Uncompressed size guess from the gzip trailer (last 4 bytes, little-endian)
+     */
+    private static int gzipSize(byte[] wire) {
+        int n = wire.length;
+        if (n < 18) {
+            return 256;
+        }
+        long size = (wire[n - 4] & 0xFFL)
+                | (wire[n - 3] & 0xFFL) << 8
+                | (wire[n - 2] & 0xFFL) << 16
+                | (wire[n - 1] & 0xFFL) << 24;
+        return initialSize(size > 0 ? size : wire.length * 4L, wire);
+    }
+
+    /**
+     * First buffer size: the guess, but never more than 8x the wire size or
+     * MAX_INITIAL_BUFFER; a larger body grows the buffer as it is read
+     */
+    private static int initialSize(long guess, byte[] wire) {
+        return (int) Math.min(guess, Math.min(wire.length * 8L, MAX_INITIAL_BUFFER));
+    }
+
+    /**
+     * Read everything into one array; only copies if the size guess was wrong
+     */
+    private static byte[] readFully(InputStream in, int expectedSize) throws IOException {
+        try (in) {
+            byte[] buffer = new byte[Math.max(expectedSize, 256)];
+            int length = 0;
+            while (true) {
+                if (length == buffer.length) {
+                    int probe = in.read();
+                    if (probe < 0) {
+                        return buffer; // Exact fit
+                    }
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    buffer[length++] = (byte) probe;
+                }
+                int read = in.read(buffer, length, buffer.length - length);
+                if (read < 0) {
+                    return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+                }
+                length += read;
+            }
+        }
+    }
+
+    /**
+     * Stream wrapper counting the bytes read through it
+     */
+    static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.demo.client.http;
+
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 📥 Download - Handle of a queued or running download
+ *
+ * The result is the saved file. {@link #cancel()} stops the download and
+ * removes its partial file; a download that fails for any other reason keeps
+ * its partial file, so downloading the same URL to the same target resumes.
+ */
+public final class Download {
+
+    public enum State {
+        QUEUED, RUNNING, DONE
+    }
+
+    private final Path target;
+    private final DownloadProgressListener listener;
+    private final long intervalMs;
+    private final CompletableFuture<Path> result = new CompletableFuture<>();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong lastReportAt = new AtomicLong();
+    private volatile long total = -1;
+    private volatile boolean cancelled;
+    private volatile State state = State.QUEUED;
+
+    Download(Path target, DownloadProgressListener listener, long intervalMs) {
+        this.target = target;
+        this.listener = listener;
+        this.intervalMs = intervalMs;
+        result.whenComplete((path, error) -> state = State.DONE);
+    }
+
+    public CompletableFuture<Path> getResult() {
+        return result;
+    }
+
+    public Path getTarget() {
+        return target;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * ⛔ Stop (or unqueue) the download; the result completes with a
+     * {@link CancellationException}
+     */
+    public boolean cancel() {
+        cancelled = true;
+        return result.completeExceptionally(new CancellationException("Download cancelled"));
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getBytesReceived() {
+        return received.get();
+    }
+
+    /**
+     * Size of the file, -1 until known
+     */
+    public long getTotalBytes() {
+        return total;
+    }
+
+    // ==================== DOWNLOAD MANAGER SIDE ====================
+
+    void started() {
+        state = State.RUNNING;
+    }
+
+    void setTotal(long totalBytes) {
+        this.total = totalBytes;
+    }
+
+    void resetReceived(long bytes) {
+        received.set(bytes);
+        report(bytes);
+    }
+
+    void advance(long delta) {
+        report(received.addAndGet(delta));
+    }
+
+    /**
+     * Final report, never throttled
+     */
+    void finish() {
+        if (listener != null) {
+            listener.onProgress(received.get(), total);
+        }
+    }
+
+    private void report(long bytes) {
+        if (listener == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long last = lastReportAt.get();
+        if (now - last >= intervalMs && lastReportAt.compareAndSet(last, now)) {
+            listener.onProgress(bytes, total);
+        }
+    }
+}
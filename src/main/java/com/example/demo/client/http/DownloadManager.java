@@ -0,0 +1,650 @@
+package com.example.demo.client.http;
+
+import com.example.demo.client.config.ServerConfig;
+import com.example.demo.client.json.JsonCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 📥 DownloadManager - Queued, parallel, resumable file downloads
+ *
+ * - at most download.max-concurrent downloads run at once, the rest wait in
+ *   a FIFO queue (no thread per download)
+ * - a file is fetched as HTTP Range requests of download.segment-bytes, up to
+ *   download.connections of them in parallel, written in place into a
+ *   "&lt;target&gt;.part" file
+ * - finished segments are recorded in "&lt;target&gt;.part.json"; after a failure
+ *   or a restart, downloading the same URL to the same target continues from
+ *   there, unless the remote file changed (size / ETag / Last-Modified)
+ * - a failed segment is retried from the last byte written, with backoff
+ * - servers without range support get a single plain GET
+ * - progress is reported at most every download.progress-interval-ms
+ * - files already in the {@link MediaCache} are copied from there, and
+ *   finished downloads are added to it
+ */
+@Slf4j
+public class DownloadManager {
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+    private static final Pattern EMPTY_RANGE = Pattern.compile("bytes \\*/0");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final HttpTransport transport;
+    private final MediaCache mediaCache;
+    private final ExecutorService executor;
+    private final int maxConcurrent;
+    private final int connections;
+    private final long segmentSize;
+    private final int retries;
+    private final long retryBaseMs;
+    private final long progressIntervalMs;
+    private final Duration requestTimeout;
+
+    private final Deque<Job> queue = new ArrayDeque<>();
+    private final Map<Path, Download> byTarget = new HashMap<>();
+    private int active;
+
+    public DownloadManager(HttpTransport transport) {
+        this(transport, null);
+    }
+
+    public DownloadManager(HttpTransport transport, MediaCache mediaCache) {
+        this.transport = transport;
+        this.mediaCache = mediaCache;
+        this.maxConcurrent = (int) Math.max(1, ServerConfig.getLong("download.max-concurrent", 3));
+        this.connections = (int) Math.max(1, ServerConfig.getLong("download.connections", 4));
+        this.segmentSize = Math.max(64 * 1024, ServerConfig.getLong("download.segment-bytes", 4 * 1024 * 1024));
+        this.retries = (int) Math.max(0, ServerConfig.getLong("download.retries", 4));
+        this.retryBaseMs = ServerConfig.getLong("download.retry-base-ms", 500);
+        this.progressIntervalMs = ServerConfig.getLong("download.progress-interval-ms", 100);
+        this.requestTimeout = Duration.ofMillis(ServerConfig.getLong("http.request-timeout-ms", 15_000));
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrent * connections, r -> {
+            Thread t = new Thread(r, "download-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * ⚡ Queue a download of {@code url} (absolute, or a server path) into
+     * {@code target}; a download already running for the same target is
+     * returned instead of starting a second one
+     */
+    public synchronized Download download(String url, Path target, DownloadProgressListener listener) {
+        Path key = target.toAbsolutePath().normalize();
+        Download existing = byTarget.get(key);
+        if (existing != null && !existing.getResult().isDone()) {
+            return existing;
+        }
+
+        Download download = new Download(key, listener, progressIntervalMs);
+        Job job = new Job(transport.resolve(url), key, download);
+        byTarget.put(key, download);
+        queue.add(job);
+        download.getResult().whenComplete((path, error) -> {
+            synchronized (this) {
+                queue.remove(job); // Cancelled while still queued
+                byTarget.remove(key, download);
+            }
+        });
+        pump();
+        return download;
+    }
+
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    public synchronized int getActiveCount() {
+        return active;
+    }
+
+    private synchronized void pump() {
+        while (active < maxConcurrent && !queue.isEmpty()) {
+            Job job = queue.poll();
+            if (job.download.getResult().isDone()) {
+                continue;
+            }
+            active++;
+            job.download.started();
+            CompletableFuture.runAsync(() -> {
+                        if (!copyFromCache(job)) {
+                            probe(job);
+                        }
+                    }, executor)
+                    .thenCompose(v -> fetchSegments(job))
+                    .whenComplete((v, error) -> {
+                        finish(job, error);
+                        synchronized (this) {
+                            active--;
+                        }
+                        pump();
+                    });
+        }
+    }
+
+    // ==================== PROBE ====================
+
+    /**
+     * A file already in the media cache is copied instead of downloaded
+     */
+    private boolean copyFromCache(Job job) {
+        Path cached = mediaCache != null ? mediaCache.lookup(job.uri.toString()) : null;
+        if (cached == null) {
+            return false;
+        }
+        try {
+            Files.createDirectories(job.target.getParent());
+            Files.copy(cached, job.partial, StandardCopyOption.REPLACE_EXISTING);
+            long size = Files.size(job.partial);
+            job.wholeFile = true;
+            job.fromCache = true;
+            job.download.setTotal(size);
+            job.download.resetReceived(size);
+            return true;
+        } catch (IOException e) {
+            log.warn("⚠️ Cached copy of {} unusable, downloading: {}", job.uri, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * First request: learns the size and range support and, when ranges are
+     * supported, already fills the first missing segment
+     */
+    private void probe(Job job) {
+        try {
+            for (int attempt = 0;; attempt++) {
+                try {
+                    probeOnce(job);
+                    return;
+                } catch (IOException e) {
+                    closeChannel(job);
+                    if (attempt >= retries || job.stopped() || !isRetryable(e)) {
+                        throw e;
+                    }
+                    backoff(job, attempt, e);
+                }
+            }
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    private void probeOnce(Job job) throws IOException, InterruptedException {
+        Files.createDirectories(job.target.getParent());
+        DownloadState saved = loadState(job);
+        int firstSegment = saved != null ? firstMissing(saved) : 0;
+        long probeSegmentSize = saved != null ? saved.getSegmentSize() : segmentSize;
+        long from = firstSegment * probeSegmentSize;
+
+        HttpResponse<InputStream> response = transport.openStream(rangeRequest(job, from,
+                from + probeSegmentSize - 1));
+        int status = response.statusCode();
+        if (status == 200) {
+            downloadWhole(job, response); // No range support
+            return;
+        }
+        if (status == 416 && EMPTY_RANGE.matcher(
+                response.headers().firstValue("Content-Range").orElse("")).matches()) {
+            response.body().close();
+            downloadEmpty(job); // Zero-length file: no byte range is satisfiable
+            return;
+        }
+        if (status != 206) {
+            throw failure(response);
+        }
+
+        Matcher range = CONTENT_RANGE.matcher(response.headers().firstValue("Content-Range").orElse(""));
+        if (!range.matches() || range.group(3).equals("*")) {
+            response.body().close();
+            downloadWhole(job, transport.openStream(plainRequest(job)));
+            return;
+        }
+        long total = Long.parseLong(range.group(3));
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+
+        boolean resume = saved != null && saved.sameRemoteFile(total, etag, lastModified);
+        job.state = resume ? saved : DownloadState.builder()
+                .url(job.uri.toString())
+                .totalSize(total)
+                .etag(etag)
+                .lastModified(lastModified)
+                .segmentSize(segmentSize)
+                .build();
+        job.channel = FileChannel.open(job.partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (!resume) {
+            job.channel.truncate(0);
+        }
+        job.initSegments();
+        job.download.setTotal(total);
+        job.download.resetReceived(job.completedBytes());
+        if (resume) {
+            log.info("📥 Resuming {}: {}/{} segments already on disk", job.target.getFileName(),
+                    job.state.getCompletedSegments().size(), job.segmentCount);
+        }
+
+        int probed = (int) (Long.parseLong(range.group(1)) / job.state.getSegmentSize());
+        if ((resume || from == 0) && !job.isComplete(probed)) {
+            try {
+                copy(job, probed, response.body(), Long.parseLong(range.group(1)));
+            } catch (IOException e) {
+                // The segment lanes pick it up again from the last byte written
+                log.debug("Probe body of {} cut short: {}", job.target.getFileName(), e.getMessage());
+            }
+        } else {
+            response.body().close(); // Remote file changed: this range belongs to the old layout
+        }
+        saveState(job);
+    }
+
+    /**
+     * Empty remote file: an empty partial is already the complete download
+     */
+    private void downloadEmpty(Job job) throws IOException {
+        job.wholeFile = true;
+        job.state = null;
+        deleteState(job);
+        job.channel = FileChannel.open(job.partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        job.download.setTotal(0);
+        job.download.resetReceived(0);
+    }
+
+    /**
+     * Single GET for servers that ignore Range; cannot resume, so a retry
+     * starts over
+     */
+    private void downloadWhole(Job job, HttpResponse<InputStream> response)
+            throws IOException, InterruptedException {
+        job.wholeFile = true;
+        job.state = null;
+        deleteState(job);
+        job.channel = FileChannel.open(job.partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        for (int attempt = 0;; attempt++) {
+            try {
+                if (response.statusCode() != 200) {
+                    throw failure(response);
+                }
+                job.download.setTotal(response.headers().firstValueAsLong("Content-Length").orElse(-1));
+                job.download.resetReceived(0);
+                job.channel.truncate(0);
+                copy(job, -1, response.body(), 0);
+                return;
+            } catch (IOException e) {
+                if (attempt >= retries || job.stopped()) {
+                    throw e;
+                }
+                backoff(job, attempt, e);
+                response = transport.openStream(plainRequest(job));
+            }
+        }
+    }
+
+    // ==================== SEGMENTS ====================
+
+    private CompletableFuture<Void> fetchSegments(Job job) {
+        if (job.wholeFile) {
+            return CompletableFuture.completedFuture(null); // Already fetched in one piece
+        }
+        for (int s = 0; s < job.segmentCount; s++) {
+            if (!job.isComplete(s)) {
+                job.pending.add(s);
+            }
+        }
+        int laneCount = Math.min(connections, job.pending.size());
+        CompletableFuture<?>[] lanes = new CompletableFuture<?>[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = CompletableFuture.runAsync(() -> runLane(job), executor);
+        }
+        return CompletableFuture.allOf(lanes);
+    }
+
+    private void runLane(Job job) {
+        Integer segment;
+        while (!job.stopped() && (segment = job.pending.poll()) != null) {
+            try {
+                fetchSegment(job, segment);
+            } catch (IOException e) {
+                job.failure.compareAndSet(null, e); // Stops the other lanes
+                throw new CompletionException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }
+    }
+
+    private void fetchSegment(Job job, int segment) throws IOException, InterruptedException {
+        long segmentStart = segment * job.state.getSegmentSize();
+        long segmentEnd = job.segmentEnd(segment);
+        for (int attempt = 0;; attempt++) {
+            long from = segmentStart + job.written.get(segment);
+            if (from > segmentEnd) {
+                return;
+            }
+            try {
+                HttpResponse<InputStream> response = transport.openStream(rangeRequest(job, from, segmentEnd));
+                if (response.statusCode() != 206) {
+                    throw failure(response);
+                }
+                Matcher range = CONTENT_RANGE.matcher(response.headers().firstValue("Content-Range").orElse(""));
+                if (!range.matches() || Long.parseLong(range.group(1)) != from) {
+                    response.body().close();
+                    throw new IOException("Unexpected Content-Range for segment " + segment);
+                }
+                copy(job, segment, response.body(), from);
+                if (job.isComplete(segment)) {
+                    return;
+                }
+                throw new IOException("Connection closed early in segment " + segment);
+            } catch (IOException e) {
+                if (attempt >= retries || job.stopped() || !isRetryable(e)) {
+                    throw e;
+                }
+                backoff(job, attempt, e);
+            }
+        }
+    }
+
+    /**
+     * Stream {@code in} into the partial file at {@code position}; a segment
+     * of -1 means "whole file"
+     */
+    private void copy(Job job, int segment, InputStream in, long position) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long limit = segment >= 0 ? job.segmentEnd(segment) + 1 : Long.MAX_VALUE;
+        try (in) {
+            int read;
+            while (position < limit && (read = in.read(buffer, 0, (int) Math.min(buffer.length, limit - position))) > 0) {
+                if (job.stopped()) {
+                    throw new CancellationException("Download stopped");
+                }
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    position += job.channel.write(chunk, position);
+                }
+                if (segment >= 0) {
+                    job.written.addAndGet(segment, read);
+                }
+                job.download.advance(read);
+            }
+        }
+        if (segment >= 0 && job.isComplete(segment)) {
+            synchronized (job) {
+                job.state.getCompletedSegments().add(segment);
+                saveState(job);
+            }
+        }
+    }
+
+    private void backoff(Job job, int attempt, IOException cause) throws InterruptedException {
+        long delay = retryBaseMs << attempt;
+        log.warn("🔁 Download of {} interrupted ({}), retry {} in {}ms", job.target.getFileName(),
+                cause.getMessage(), attempt + 1, delay);
+        Thread.sleep(delay);
+    }
+
+    private static boolean isRetryable(IOException e) {
+        if (e instanceof HttpStatusIOException) {
+            int status = ((HttpStatusIOException) e).status;
+            return status >= 500 || status == 408 || status == 429;
+        }
+        return true;
+    }
+
+    // ==================== COMPLETION ====================
+
+    private void finish(Job job, Throwable error) {
+        closeChannel(job);
+        Download download = job.download;
+        Throwable cause = job.failure.get() != null ? job.failure.get()
+                : error != null ? HttpTransport.unwrap(error) : null;
+
+        if (download.isCancelled() || cause instanceof CancellationException) {
+            deletePartial(job);
+            download.cancel();
+            log.info("⛔ Download of {} cancelled", job.target.getFileName());
+            return;
+        }
+        if (cause != null) {
+            if (job.wholeFile) {
+                deletePartial(job); // Nothing to resume from
+            }
+            log.warn("❌ Download of {} failed at {}/{} bytes: {}", job.target.getFileName(),
+                    download.getBytesReceived(), download.getTotalBytes(), cause.getMessage());
+            download.getResult().completeExceptionally(cause);
+            return;
+        }
+        try {
+            try {
+                Files.move(job.partial, job.target, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(job.partial, job.target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            deleteState(job);
+            if (mediaCache != null && !job.fromCache) {
+                try {
+                    mediaCache.put(job.uri.toString(), job.target);
+                } catch (IOException e) {
+                    log.warn("⚠️ Failed to cache {}: {}", job.target.getFileName(), e.getMessage());
+                }
+            }
+            download.finish();
+            download.getResult().complete(job.target);
+            log.info("📥 Downloaded {} ({} bytes)", job.target.getFileName(), download.getBytesReceived());
+        } catch (IOException e) {
+            download.getResult().completeExceptionally(e);
+        }
+    }
+
+    // ==================== REQUESTS ====================
+
+    private HttpRequest rangeRequest(Job job, long from, long to) {
+        return HttpRequest.newBuilder(job.uri)
+                .timeout(requestTimeout)
+                .header("Range", "bytes=" + from + "-" + to)
+                .header("Accept-Encoding", "identity") // Ranges must address the stored bytes
+                .GET()
+                .build();
+    }
+
+    private HttpRequest plainRequest(Job job) {
+        return HttpRequest.newBuilder(job.uri)
+                .timeout(requestTimeout)
+                .header("Accept-Encoding", "identity")
+                .GET()
+                .build();
+    }
+
+    private static HttpStatusIOException failure(HttpResponse<InputStream> response) throws IOException {
+        String body;
+        try (InputStream in = response.body()) {
+            body = new String(in.readNBytes(4096), StandardCharsets.UTF_8);
+        }
+        return new HttpStatusIOException(response.statusCode(), body);
+    }
+
+    // ==================== STATE FILES ====================
+
+    private DownloadState loadState(Job job) {
+        if (!Files.isRegularFile(job.partial) || !Files.isRegularFile(job.stateFile)) {
+            return null;
+        }
+        try {
+            DownloadState state = JsonCodec.read(Files.readAllBytes(job.stateFile), DownloadState.class);
+            return job.uri.toString().equals(state.getUrl()) && state.getSegmentSize() > 0 ? state : null;
+        } catch (Exception e) {
+            log.warn("⚠️ Ignoring unreadable download state {}: {}", job.stateFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private void saveState(Job job) {
+        synchronized (job) {
+            if (job.state == null || job.download.isCancelled()) {
+                return;
+            }
+            Path temp = job.stateFile.resolveSibling(job.stateFile.getFileName() + ".tmp");
+            try {
+                Files.write(temp, JsonCodec.write(job.state).getBytes(StandardCharsets.UTF_8));
+                try {
+                    Files.move(temp, job.stateFile, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, job.stateFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                // The download itself can continue; only resuming loses this segment
+                log.warn("⚠️ Failed to write download state: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static int firstMissing(DownloadState state) {
+        int segment = 0;
+        while (state.getCompletedSegments().contains(segment)) {
+            segment++;
+        }
+        long segments = (state.getTotalSize() + state.getSegmentSize() - 1) / state.getSegmentSize();
+        return segment < segments ? segment : 0;
+    }
+
+    private void deleteState(Job job) {
+        try {
+            Files.deleteIfExists(job.stateFile);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void deletePartial(Job job) {
+        synchronized (job) {
+            try {
+                Files.deleteIfExists(job.partial);
+            } catch (IOException ignored) {
+            }
+            deleteState(job);
+        }
+    }
+
+    private static void closeChannel(Job job) {
+        if (job.channel != null) {
+            try {
+                job.channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Non-2xx answer inside the blocking download code
+     */
+    private static class HttpStatusIOException extends IOException {
+        final int status;
+
+        HttpStatusIOException(int status, String body) {
+            super("HTTP " + status + " - " + body);
+            this.status = status;
+        }
+    }
+
+    /**
+     * One download while it runs
+     */
+    private static final class Job {
+        final URI uri;
+        final Path target;
+        final Path partial;
+        final Path stateFile;
+        final Download download;
+        final Queue<Integer> pending = new ConcurrentLinkedQueue<>();
+        volatile DownloadState state;
+        volatile FileChannel channel;
+        volatile AtomicLongArray written;
+        volatile int segmentCount;
+        volatile boolean wholeFile;
+        volatile boolean fromCache;
+        final AtomicReference<IOException> failure = new AtomicReference<>();
+
+        Job(URI uri, Path target, Download download) {
+            this.uri = uri;
+            this.target = target;
+            this.partial = target.resolveSibling(target.getFileName() + ".part");
+            this.stateFile = target.resolveSibling(target.getFileName() + ".part.json");
+            this.download = download;
+        }
+
+        void initSegments() {
+            long size = state.getSegmentSize();
+            segmentCount = (int) Math.max(1, (state.getTotalSize() + size - 1) / size);
+            written = new AtomicLongArray(segmentCount);
+            for (int segment : state.getCompletedSegments()) {
+                if (segment < segmentCount) {
+                    written.set(segment, segmentLength(segment));
+                }
+            }
+        }
+
+        long segmentEnd(int segment) {
+            return Math.min(state.getTotalSize(), (segment + 1) * state.getSegmentSize()) - 1;
+        }
+
+        long segmentLength(int segment) {
+            return segmentEnd(segment) - segment * state.getSegmentSize() + 1;
+        }
+
+        boolean isComplete(int segment) {
+            return written.get(segment) >= segmentLength(segment);
+        }
+
+        long completedBytes() {
+            long bytes = 0;
+            for (int s = 0; s < segmentCount; s++) {
+                bytes += written.get(s);
+            }
+            return bytes;
+        }
+
+        boolean stopped() {
+            return failure.get() != null || download.getResult().isDone();
+        }
+    }
+}
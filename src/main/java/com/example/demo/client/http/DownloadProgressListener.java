@@ -0,0 +1,14 @@
+package com.example.demo.client.http;
+
+/**
+ * 📶 Progress callback of a {@link Download}
+ *
+ * Called from a download thread at most once per download.progress-interval-ms,
+ * and always once more when the download completes. {@code totalBytes} is -1
+ * while the size is unknown.
+ */
+@FunctionalInterface
+public interface DownloadProgressListener {
+
+    void onProgress(long bytesReceived, long totalBytes);
+}
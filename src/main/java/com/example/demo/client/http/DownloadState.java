@@ -0,0 +1,45 @@
+package com.example.demo.client.http;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.TreeSet;
+
+/**
+ * 💾 DownloadState - Sidecar of a partial download (".part.json")
+ *
+ * Records which segments of the ".part" file are complete, together with the
+ * validators of the remote file; if the size, ETag or Last-Modified no longer
+ * match, the partial file is discarded instead of resumed.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class DownloadState {
+    private String url;
+    private long totalSize;
+    private String etag;
+    private String lastModified;
+    private long segmentSize;
+
+    @Builder.Default
+    private TreeSet<Integer> completedSegments = new TreeSet<>();
+
+    public boolean sameRemoteFile(long size, String otherEtag, String otherLastModified) {
+        if (totalSize != size) {
+            return false;
+        }
+        if (etag != null && otherEtag != null) {
+            return etag.equals(otherEtag);
+        }
+        if (lastModified != null && otherLastModified != null) {
+            return lastModified.equals(otherLastModified);
+        }
+        return true; // No validators on either side: size is all we can compare
+    }
+}
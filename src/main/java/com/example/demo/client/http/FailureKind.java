@@ -0,0 +1,120 @@
+package com.example.demo.client.http;
+
+import com.fasterxml.jackson.core.JacksonException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 🏷️ FailureKind - What went wrong with a request
+ *
+ * Decides whether an idempotent request may be retried and whether the
+ * failure counts against the endpoint's {@link CircuitBreaker}; an answer
+ * such as 404 or 401 means the backend is up, so it never trips the breaker.
+ */
+public enum FailureKind {
+    /** Connection refused / reset, DNS, TLS */
+    NETWORK(true, true),
+    /** Connect or request timeout, HTTP 408 */
+    TIMEOUT(true, true),
+    /** HTTP 502 / 503 / 504 */
+    UNAVAILABLE(true, true),
+    /** Any other 5xx */
+    SERVER_ERROR(false, true),
+    /** HTTP 429 */
+    RATE_LIMITED(true, false),
+    /** HTTP 401 / 403 */
+    UNAUTHORIZED(false, false),
+    /** Any other 4xx */
+    CLIENT_ERROR(false, false),
+    /** Rejected locally by an open circuit breaker */
+    CIRCUIT_OPEN(false, false),
+    CANCELLED(false, false),
+    /** Decoding errors and bugs */
+    OTHER(false, false);
+
+    private final boolean retryable;
+    private final boolean tripsBreaker;
+
+    FailureKind(boolean retryable, boolean tripsBreaker) {
+        this.retryable = retryable;
+        this.tripsBreaker = tripsBreaker;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    public boolean tripsBreaker() {
+        return tripsBreaker;
+    }
+
+    /**
+     * True for failures that say nothing about the data ("try again later"),
+     * as opposed to a real answer from the server
+     */
+    public boolean isTransient() {
+        return tripsBreaker || this == RATE_LIMITED || this == CIRCUIT_OPEN;
+    }
+
+    public static FailureKind of(Throwable error) {
+        Throwable e = HttpTransport.unwrap(error);
+        if (e instanceof UncheckedIOException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        if (e instanceof CircuitOpenException) {
+            return CIRCUIT_OPEN;
+        }
+        if (e instanceof CancellationException) {
+            return CANCELLED;
+        }
+        if (e instanceof HttpStatusException) {
+            return ofStatus(((HttpStatusException) e).getStatusCode());
+        }
+        if (e instanceof HttpTimeoutException) {
+            return TIMEOUT;
+        }
+        if (e instanceof JacksonException) {
+            return OTHER; // An unparseable body is not a network problem
+        }
+        if (e instanceof IOException) {
+            return NETWORK;
+        }
+        return OTHER;
+    }
+
+    /**
+     * True when the request provably never reached the server (connection
+     * refused or timed out while connecting, unknown host, open breaker), so
+     * sending it again cannot apply it twice
+     */
+    public static boolean neverSent(Throwable error) {
+        Throwable e = HttpTransport.unwrap(error);
+        if (e instanceof UncheckedIOException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e instanceof CircuitOpenException || e instanceof ConnectException
+                || e instanceof HttpConnectTimeoutException || e instanceof UnknownHostException;
+    }
+
+    public static FailureKind ofStatus(int status) {
+        if (status == 408) {
+            return TIMEOUT;
+        }
+        if (status == 429) {
+            return RATE_LIMITED;
+        }
+        if (status == 401 || status == 403) {
+            return UNAUTHORIZED;
+        }
+        if (status == 502 || status == 503 || status == 504) {
+            return UNAVAILABLE;
+        }
+        return status >= 500 ? SERVER_ERROR : CLIENT_ERROR;
+    }
+}
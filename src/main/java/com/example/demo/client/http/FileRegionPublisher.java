@@ -0,0 +1,207 @@
+package com.example.demo.client.http;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 📼 FileRegionPublisher - Fixed-length request body streamed from a file
+ *
+ * Publishes {@code prefix}, then {@code length} bytes of the file starting at
+ * {@code offset}, then {@code suffix}. The content length is known up front,
+ * so the request is sent with a fixed Content-Length and the file is never
+ * held in memory. Chunks are only produced on demand from the HTTP client.
+ *
+ * Chunks are read with positional {@link FileChannel#read(ByteBuffer, long)}
+ * into a small ring of direct buffers allocated once per subscription: no
+ * bytes are copied onto the Java heap, no buffer is allocated per chunk, and
+ * nothing is memory-mapped (a mapping stays alive until the GC collects it,
+ * and on Windows keeps the file locked until then). The JDK client asks for
+ * the next chunk only after the previous one was handed to the socket, so a
+ * buffer coming round again RING chunks later is no longer in use.
+ */
+final class FileRegionPublisher implements HttpRequest.BodyPublisher {
+
+    private static final int RING = 4;
+
+    private final Path file;
+    private final long offset;
+    private final long length;
+    private final byte[] prefix;
+    private final byte[] suffix;
+    private final int chunkSize;
+    private final Upload.Progress progress;
+
+    FileRegionPublisher(Path file, long offset, long length, byte[] prefix, byte[] suffix, int chunkSize,
+            Upload.Progress progress) {
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.chunkSize = chunkSize;
+        this.progress = progress;
+    }
+
+    @Override
+    public long contentLength() {
+        return prefix.length + length + suffix.length;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        // The client may subscribe again (e.g. on a redirect); each attempt starts over
+        if (progress != null) {
+            progress.rollback();
+        }
+        subscriber.onSubscribe(new RegionSubscription(subscriber));
+    }
+
+    private final class RegionSubscription implements Flow.Subscription {
+        private static final int PREFIX = 0, BODY = 1, SUFFIX = 2, DONE = 3;
+
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean terminated;
+        private FileChannel channel;
+        private ByteBuffer[] buffers;
+        private int nextBuffer;
+        private int stage = PREFIX;
+        private long position;
+
+        RegionSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("non-positive request: " + n));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            terminated = true;
+            drain(); // Closes the file from the draining thread
+        }
+
+        /**
+         * Emits while there is demand; reentrant calls (request() from inside
+         * onNext) only bump the work counter
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (!terminated && demand.get() > 0) {
+                    if (progress != null && progress.isCancelled()) {
+                        fail(new CancellationException("Upload cancelled"));
+                        break;
+                    }
+                    ByteBuffer next;
+                    try {
+                        next = nextChunk();
+                    } catch (IOException e) {
+                        fail(e);
+                        break;
+                    }
+                    if (next == null) {
+                        terminated = true;
+                        close();
+                        subscriber.onComplete();
+                        break;
+                    }
+                    demand.decrementAndGet();
+                    if (progress != null) {
+                        progress.advance(next.remaining());
+                    }
+                    subscriber.onNext(next);
+                }
+                if (terminated) {
+                    close();
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        private ByteBuffer nextChunk() throws IOException {
+            while (true) {
+                switch (stage) {
+                    case PREFIX:
+                        stage = BODY;
+                        if (prefix.length > 0) {
+                            return ByteBuffer.wrap(prefix);
+                        }
+                        break;
+                    case BODY:
+                        if (position < length) {
+                            return readChunk();
+                        }
+                        stage = SUFFIX;
+                        break;
+                    case SUFFIX:
+                        stage = DONE;
+                        if (suffix.length > 0) {
+                            return ByteBuffer.wrap(suffix);
+                        }
+                        break;
+                    default:
+                        return null;
+                }
+            }
+        }
+
+        private ByteBuffer readChunk() throws IOException {
+            if (channel == null) {
+                channel = FileChannel.open(file, StandardOpenOption.READ);
+                int bufferSize = (int) Math.min(chunkSize, length);
+                buffers = new ByteBuffer[(int) Math.min(RING, (length + bufferSize - 1) / bufferSize)];
+                for (int i = 0; i < buffers.length; i++) {
+                    buffers[i] = ByteBuffer.allocateDirect(bufferSize);
+                }
+            }
+            int size = (int) Math.min(chunkSize, length - position);
+            ByteBuffer chunk = buffers[nextBuffer];
+            nextBuffer = (nextBuffer + 1) % buffers.length;
+            chunk.clear().limit(size);
+            while (chunk.hasRemaining()) {
+                if (channel.read(chunk, offset + position + chunk.position()) < 0) {
+                    throw new IOException("File shrank during upload: " + file);
+                }
+            }
+            position += size;
+            return chunk.flip();
+        }
+
+        private void fail(Throwable error) {
+            if (!terminated) {
+                terminated = true;
+                close();
+                subscriber.onError(error);
+            }
+        }
+
+        private void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+                channel = null;
+            }
+            buffers = null;
+        }
+    }
+}
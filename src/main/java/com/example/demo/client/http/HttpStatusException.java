@@ -0,0 +1,29 @@
+package com.example.demo.client.http;
+
+/**
+ * ❌ HttpStatusException - Non-2xx response from the backend
+ *
+ * The message keeps the historical "HTTP {code} - {body}" format because
+ * several ChatService callers still match on it (e.g. "HTTP 403").
+ */
+public class HttpStatusException extends RuntimeException {
+
+    private final int statusCode;
+    private final String responseBody;
+
+    public HttpStatusException(int statusCode, String responseBody) {
+        super(responseBody == null || responseBody.isEmpty()
+                ? "HTTP " + statusCode
+                : "HTTP " + statusCode + " - " + responseBody);
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+}
@@ -0,0 +1,369 @@
+package com.example.demo.client.http;
+
+import com.example.demo.client.config.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 🚚 HttpTransport - Shared, pooled HTTP transport for REST calls
+ *
+ * All requests go through one {@link HttpClient}, so TCP/TLS connections are
+ * kept alive and reused (HTTP/2 multiplexing when the server supports it)
+ * instead of opening a new HttpURLConnection per call.
+ *
+ * Every request advertises gzip/deflate; bodies are inflated as bytes and the
+ * wire vs decoded size is tracked per endpoint in {@link TransferStats}.
+ *
+ * Asynchronous requests run under {@link Resilience}: a circuit breaker per
+ * endpoint template, and retries with backoff for GETs. Each attempt is
+ * timed in {@link RequestInstrumentation}.
+ *
+ * Timeouts are read from {@link ServerConfig}:
+ * - http.connect-timeout-ms
+ * - http.request-timeout-ms
+ * - http.upload-timeout-ms
+ * - http.keepalive-seconds
+ */
+@Slf4j
+public class HttpTransport {
+
+    public static final String JSON = "application/json";
+    public static final String FORM_URLENCODED = "application/x-www-form-urlencoded";
+
+    private static volatile HttpClient sharedClient;
+    private static volatile ExecutorService sharedExecutor;
+
+    private final String baseUrl;
+    private final HttpClient client;
+    private final Duration requestTimeout;
+    private final Duration uploadTimeout;
+    private final TransferStats transferStats = new TransferStats();
+    private final Resilience resilience = new Resilience();
+    private final RequestInstrumentation instrumentation = new RequestInstrumentation(transferStats);
+
+    public HttpTransport(String baseUrl) {
+        this(baseUrl, sharedClient());
+    }
+
+    public HttpTransport(String baseUrl, HttpClient client) {
+        this.baseUrl = baseUrl;
+        this.client = client;
+        this.requestTimeout = Duration.ofMillis(ServerConfig.getLong("http.request-timeout-ms", 15_000));
+        this.uploadTimeout = Duration.ofMillis(ServerConfig.getLong("http.upload-timeout-ms", 600_000));
+    }
+
+    /**
+     * 🔁 Process-wide HttpClient (lazily created, shared by every ChatService)
+     */
+    public static HttpClient sharedClient() {
+        HttpClient result = sharedClient;
+        if (result == null) {
+            synchronized (HttpTransport.class) {
+                result = sharedClient;
+                if (result == null) {
+                    result = createClient();
+                    sharedClient = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static HttpClient createClient() {
+        // The JDK connection pool reads this once, before the first client is built
+        long keepAliveSeconds = ServerConfig.getLong("http.keepalive-seconds", 300);
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout", String.valueOf(keepAliveSeconds));
+        }
+
+        long connectTimeoutMs = ServerConfig.getLong("http.connect-timeout-ms", 5_000);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(sharedExecutor())
+                .build();
+        log.info("🚚 HTTP transport ready (connectTimeout={}ms, keepAlive={}s)", connectTimeoutMs, keepAliveSeconds);
+        return client;
+    }
+
+    /**
+     * 🧵 Daemon worker pool used by the HttpClient and async continuations
+     */
+    public static ExecutorService sharedExecutor() {
+        ExecutorService result = sharedExecutor;
+        if (result == null) {
+            synchronized (HttpTransport.class) {
+                result = sharedExecutor;
+                if (result == null) {
+                    AtomicInteger counter = new AtomicInteger();
+                    result = Executors.newCachedThreadPool(r -> {
+                        Thread t = new Thread(r, "http-transport-" + counter.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                    sharedExecutor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public Duration getUploadTimeout() {
+        return uploadTimeout;
+    }
+
+    /**
+     * 📦 Wire vs decoded bytes per endpoint template
+     */
+    public TransferStats getTransferStats() {
+        return transferStats;
+    }
+
+    /**
+     * 🛡️ Breakers, retries and failure counts per endpoint template
+     */
+    public Resilience getResilience() {
+        return resilience;
+    }
+
+    /**
+     * ⏱️ Latency histograms, errors, bytes and in-flight requests per endpoint
+     */
+    public RequestInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * 🧱 Request builder with base URL, timeout, auth and Accept-Encoding applied
+     */
+    public HttpRequest.Builder newRequest(String endpoint, String bearerToken) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + endpoint))
+                .timeout(requestTimeout)
+                .header("Accept-Encoding", ContentDecoding.ACCEPT_ENCODING);
+        if (bearerToken != null) {
+            builder.header("Authorization", "Bearer " + bearerToken);
+        }
+        return builder;
+    }
+
+    /**
+     * 🌐 Blocking request, returns the response body or throws
+     * {@link HttpStatusException} on a non-2xx status
+     */
+    public String send(String method, String endpoint, String contentType, String body, String bearerToken)
+            throws IOException, InterruptedException {
+        return send(buildRequest(method, endpoint, contentType, body, bearerToken));
+    }
+
+    public String send(HttpRequest request) throws IOException, InterruptedException {
+        return text(bodyOrThrow(client.send(request, decodingHandler(request))));
+    }
+
+    /**
+     * ⚡ Non-blocking request, completes with the response body
+     */
+    public CompletableFuture<String> sendAsync(String method, String endpoint, String contentType, String body,
+            String bearerToken) {
+        return sendBytesAsync(method, endpoint, contentType, body, bearerToken).thenApply(HttpTransport::text);
+    }
+
+    public CompletableFuture<String> sendAsync(HttpRequest request) {
+        return sendBytesAsync(request).thenApply(HttpTransport::text);
+    }
+
+    /**
+     * ⚡ Non-blocking request, completes with the decoded body bytes (no String
+     * copy; feed them straight to a JSON reader)
+     */
+    public CompletableFuture<byte[]> sendBytesAsync(String method, String endpoint, String contentType,
+            String body, String bearerToken) {
+        HttpRequest request;
+        try {
+            request = buildRequest(method, endpoint, contentType, body, bearerToken);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return sendBytesAsync(request);
+    }
+
+    public CompletableFuture<byte[]> sendBytesAsync(HttpRequest request) {
+        return resilience.execute(request.method(), request.uri().getRawPath(),
+                () -> timed(request, () -> client.sendAsync(request, decodingHandler(request))
+                        .thenApply(HttpTransport::bodyOrThrow)));
+    }
+
+    /**
+     * 🔁 Non-blocking request returning the full response (status and headers)
+     * for conditional GETs; 304 Not Modified is passed through, any other
+     * non-2xx status fails with {@link HttpStatusException}
+     */
+    public CompletableFuture<HttpResponse<byte[]>> exchangeAsync(HttpRequest request) {
+        return resilience.execute(request.method(), request.uri().getRawPath(),
+                () -> timed(request, () -> client.sendAsync(request, decodingHandler(request))
+                        .thenApply(response -> {
+                            if (response.statusCode() != 304) {
+                                bodyOrThrow(response);
+                            }
+                            return response;
+                        })));
+    }
+
+    /**
+     * 🌊 Non-blocking GET whose body is consumed as a stream instead of being
+     * buffered (used for large payloads such as message history); the stream
+     * is already decompressed, and its byte counts are recorded on close
+     */
+    public CompletableFuture<InputStream> getStreamAsync(String endpoint, String bearerToken) {
+        HttpRequest request;
+        try {
+            request = newRequest(endpoint, bearerToken).header("Accept", JSON).GET().build();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        String path = request.uri().getRawPath();
+        return resilience.execute("GET", path,
+                () -> timed(request, () -> client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(response -> {
+                    String encoding = response.headers().firstValue("Content-Encoding").orElse(null);
+                    boolean compressed = ContentDecoding.isCompressed(encoding);
+                    ContentDecoding.CountingInputStream wire = new ContentDecoding.CountingInputStream(response.body());
+                    InputStream decoded;
+                    try {
+                        decoded = new ContentDecoding.CountingInputStream(ContentDecoding.decode(wire, encoding)) {
+                            private boolean closed = false;
+
+                            @Override
+                            public void close() throws IOException {
+                                if (!closed) {
+                                    closed = true;
+                                    transferStats.record(path, wire.getCount(), getCount(), compressed);
+                                }
+                                super.close();
+                            }
+                        };
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+
+                    int status = response.statusCode();
+                    if (status < 200 || status >= 300) {
+                        String body;
+                        try (InputStream in = decoded) {
+                            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                        } catch (IOException e) {
+                            body = "";
+                        }
+                        throw new HttpStatusException(status, body);
+                    }
+                    return decoded;
+                })));
+    }
+
+    /**
+     * 🔗 Absolute URI for a server path (e.g. "/uploads/a.png") or a full URL
+     */
+    public URI resolve(String pathOrUrl) {
+        if (pathOrUrl.startsWith("http://") || pathOrUrl.startsWith("https://")) {
+            return URI.create(pathOrUrl);
+        }
+        return URI.create(baseUrl + (pathOrUrl.startsWith("/") ? "" : "/") + pathOrUrl);
+    }
+
+    /**
+     * 🌊 Blocking request returning the raw body stream whatever the status
+     * (callers such as downloads handle 200 / 206 / 416 themselves)
+     */
+    public HttpResponse<InputStream> openStream(HttpRequest request) throws IOException, InterruptedException {
+        RequestInstrumentation.Sample sample = instrumentation.begin(request.uri().getRawPath(), 0);
+        try {
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            sample.end(response.statusCode() >= 400 ? new HttpStatusException(response.statusCode(), null) : null);
+            return response;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            sample.end(e);
+            throw e;
+        }
+    }
+
+    /**
+     * One timed attempt (retries are timed separately)
+     */
+    private <T> CompletableFuture<T> timed(HttpRequest request, Supplier<CompletableFuture<T>> call) {
+        long bytesSent = request.bodyPublisher().map(HttpRequest.BodyPublisher::contentLength).orElse(0L);
+        return instrumentation.track(request.uri().getRawPath(), bytesSent, call);
+    }
+
+    private HttpRequest buildRequest(String method, String endpoint, String contentType, String body,
+            String bearerToken) {
+        HttpRequest.Builder builder = newRequest(endpoint, bearerToken);
+        if (contentType != null) {
+            builder.header("Content-Type", contentType);
+        }
+        HttpRequest.BodyPublisher publisher = body != null
+                ? HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8)
+                : HttpRequest.BodyPublishers.noBody();
+        return builder.method(method, publisher).build();
+    }
+
+    /**
+     * Collects the body as bytes and inflates gzip/deflate according to
+     * Content-Encoding, recording wire and decoded sizes
+     */
+    private HttpResponse.BodyHandler<byte[]> decodingHandler(HttpRequest request) {
+        String path = request.uri().getRawPath();
+        return responseInfo -> {
+            String encoding = responseInfo.headers().firstValue("Content-Encoding").orElse(null);
+            return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), wire -> {
+                byte[] decoded = ContentDecoding.decode(wire, encoding);
+                transferStats.record(path, wire.length, decoded.length, ContentDecoding.isCompressed(encoding));
+                return decoded;
+            });
+        };
+    }
+
+    private static byte[] bodyOrThrow(HttpResponse<byte[]> response) {
+        int status = response.statusCode();
+        byte[] body = response.body() != null ? response.body() : new byte[0];
+        if (status < 200 || status >= 300) {
+            throw new HttpStatusException(status, text(body));
+        }
+        return body;
+    }
+
+    /**
+     * UTF-8 text of a decoded body
+     */
+    public static String text(byte[] body) {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 🎁 Unwrap CompletionException to the exception thrown by the request
+     */
+    public static Throwable unwrap(Throwable t) {
+        while (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+}
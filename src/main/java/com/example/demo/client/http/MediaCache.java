@@ -0,0 +1,439 @@
+package com.example.demo.client.http;
+
+import com.example.demo.client.config.ServerConfig;
+import com.example.demo.client.json.JsonCodec;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🗃️ MediaCache - Persistent, size-bounded cache of attachments on disk
+ *
+ * - content is stored once per SHA-256 under "blobs/", so the same clip or
+ *   image reachable through several URLs takes space once
+ * - an in-memory index maps URL to content hash in LRU order; it is saved to
+ *   "index.json" when entries are added or evicted, and the LRU order is
+ *   rebuilt from blob modification times (touched on every hit)
+ * - least recently used URLs are evicted once the blobs exceed
+ *   media.cache-max-bytes; files above media.cache-max-entry-bytes are
+ *   never cached
+ * - attachment URLs are immutable on the server, so a hit costs no request
+ *
+ * Config: media.cache-dir (default ~/.webchat/media), media.cache-max-bytes,
+ * media.cache-max-entry-bytes, media.fetch-threads
+ */
+@Slf4j
+public class MediaCache {
+
+    private final HttpTransport transport;
+    private final Path directory;
+    private final Path blobs;
+    private final Path indexFile;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final Duration requestTimeout;
+    private final ExecutorService executor;
+
+    // URL → entry, access-ordered (eldest = least recently used)
+    private final LinkedHashMap<String, IndexEntry> index = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Integer> blobRefs = new HashMap<>();
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong bytesFetched = new AtomicLong();
+
+    public MediaCache(HttpTransport transport) {
+        this(transport, Paths.get(ServerConfig.getString("media.cache-dir",
+                Paths.get(System.getProperty("user.home"), ".webchat", "media").toString())));
+    }
+
+    public MediaCache(HttpTransport transport, Path directory) {
+        this.transport = transport;
+        this.directory = directory;
+        this.blobs = directory.resolve("blobs");
+        this.indexFile = directory.resolve("index.json");
+        this.maxBytes = ServerConfig.getLong("media.cache-max-bytes", 512L * 1024 * 1024);
+        this.maxEntryBytes = ServerConfig.getLong("media.cache-max-entry-bytes", 64L * 1024 * 1024);
+        this.requestTimeout = Duration.ofMillis(ServerConfig.getLong("http.request-timeout-ms", 15_000));
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool((int) Math.max(1, ServerConfig.getLong("media.fetch-threads", 4)),
+                r -> {
+                    Thread t = new Thread(r, "media-fetch-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        loadIndex();
+    }
+
+    // ==================== LOOKUP ====================
+
+    /**
+     * ⚡ Local file for {@code url} (absolute, or a server path), fetched once
+     * on a miss; concurrent callers for the same URL share one request
+     */
+    public CompletableFuture<Path> get(String url) {
+        String key = keyOf(url);
+        Path cached = lookup(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<Path> created = new CompletableFuture<>();
+        CompletableFuture<Path> running = inFlight.putIfAbsent(key, created);
+        if (running != null) {
+            return running;
+        }
+        misses.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                created.complete(fetch(key));
+            } catch (Throwable e) {
+                created.completeExceptionally(e);
+            } finally {
+                inFlight.remove(key, created);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * Cached file for {@code url}, or null without touching the network
+     */
+    public Path lookup(String url) {
+        String key = keyOf(url);
+        Path blob;
+        synchronized (this) {
+            IndexEntry entry = index.get(key);
+            if (entry == null) {
+                return null;
+            }
+            blob = blobs.resolve(entry.hash);
+            if (!Files.isRegularFile(blob)) {
+                remove(key); // Deleted behind our back
+                saveIndex();
+                return null;
+            }
+        }
+        hits.incrementAndGet();
+        touch(blob);
+        return blob;
+    }
+
+    public boolean contains(String url) {
+        synchronized (this) {
+            return index.containsKey(keyOf(url));
+        }
+    }
+
+    /**
+     * 📥 Add a file that was obtained elsewhere (e.g. a finished download or a
+     * sent attachment) under {@code url}; the file itself is left in place
+     */
+    public Path put(String url, Path file) throws IOException {
+        long size = Files.size(file);
+        if (size > maxEntryBytes) {
+            return null;
+        }
+        Files.createDirectories(blobs);
+        Path temp = blobs.resolve(UUID.randomUUID() + ".tmp");
+        String hash;
+        try (InputStream in = Files.newInputStream(file)) {
+            hash = writeBlob(in, temp);
+        }
+        return store(keyOf(url), hash, temp);
+    }
+
+    // ==================== FETCH ====================
+
+    private Path fetch(String key) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(transport.resolve(key))
+                .timeout(requestTimeout)
+                .header("Accept-Encoding", "identity") // Media is already compressed
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = transport.openStream(request);
+        if (response.statusCode() != 200) {
+            String body;
+            try (InputStream in = response.body()) {
+                body = new String(in.readNBytes(4096), StandardCharsets.UTF_8);
+            }
+            throw new HttpStatusException(response.statusCode(), body);
+        }
+
+        Files.createDirectories(blobs);
+        Path temp = blobs.resolve(UUID.randomUUID() + ".tmp");
+        String hash;
+        try (InputStream in = response.body()) {
+            hash = writeBlob(in, temp);
+        }
+        long size = Files.size(temp);
+        bytesFetched.addAndGet(size);
+        if (size > maxEntryBytes) {
+            // Too big to keep: hand out a private copy that is not indexed
+            Path uncached = Files.createTempFile("media_", suffixOf(key));
+            Files.move(temp, uncached, StandardCopyOption.REPLACE_EXISTING);
+            uncached.toFile().deleteOnExit();
+            return uncached;
+        }
+        return store(key, hash, temp);
+    }
+
+    private static String writeBlob(InputStream in, Path temp) throws IOException {
+        MessageDigest digest = sha256();
+        try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private synchronized Path store(String key, String hash, Path temp) throws IOException {
+        Path blob = blobs.resolve(hash);
+        long size = Files.size(temp);
+        if (Files.exists(blob)) {
+            Files.delete(temp); // Same content already cached under another URL
+        } else {
+            try {
+                Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, blob, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        touch(blob);
+
+        IndexEntry previous = index.get(key);
+        if (previous == null || !previous.hash.equals(hash)) {
+            if (previous != null) {
+                remove(key);
+            }
+            IndexEntry entry = new IndexEntry();
+            entry.url = key;
+            entry.hash = hash;
+            entry.size = size;
+            index.put(key, entry);
+            if (blobRefs.merge(hash, 1, Integer::sum) == 1) {
+                totalBytes += size;
+            }
+        }
+        evict(key);
+        saveIndex();
+        return blob;
+    }
+
+    // ==================== EVICTION ====================
+
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, IndexEntry>> it = index.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, IndexEntry> eldest = it.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            it.remove();
+            release(eldest.getValue());
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(String key) {
+        IndexEntry entry = index.remove(key);
+        if (entry != null) {
+            release(entry);
+        }
+    }
+
+    private void release(IndexEntry entry) {
+        int refs = blobRefs.merge(entry.hash, -1, Integer::sum);
+        if (refs > 0) {
+            return;
+        }
+        blobRefs.remove(entry.hash);
+        totalBytes -= entry.size;
+        try {
+            Files.deleteIfExists(blobs.resolve(entry.hash));
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to delete cached blob {}: {}", entry.hash, e.getMessage());
+        }
+    }
+
+    /**
+     * 🧹 Drop every cached file
+     */
+    public synchronized void clear() {
+        for (IndexEntry entry : new ArrayList<>(index.values())) {
+            remove(entry.url);
+        }
+        saveIndex();
+    }
+
+    // ==================== INDEX FILE ====================
+
+    private synchronized void loadIndex() {
+        List<IndexEntry> entries = new ArrayList<>();
+        if (Files.isRegularFile(indexFile)) {
+            try {
+                entries.addAll(JsonCodec.readList(Files.readAllBytes(indexFile), IndexEntry.class));
+            } catch (Exception e) {
+                log.warn("⚠️ Media cache index unreadable, starting empty: {}", e.getMessage());
+            }
+        }
+
+        // Rebuild LRU order from the blob access times
+        Map<String, FileTime> accessed = new HashMap<>();
+        entries.removeIf(entry -> {
+            if (entry.url == null || entry.hash == null) {
+                return true;
+            }
+            try {
+                accessed.put(entry.url, Files.getLastModifiedTime(blobs.resolve(entry.hash)));
+                return false;
+            } catch (IOException e) {
+                return true; // Blob gone
+            }
+        });
+        entries.sort(Comparator.comparing(entry -> accessed.get(entry.url)));
+        for (IndexEntry entry : entries) {
+            index.put(entry.url, entry);
+            if (blobRefs.merge(entry.hash, 1, Integer::sum) == 1) {
+                totalBytes += entry.size;
+            }
+        }
+        deleteOrphans();
+        evict(null);
+        log.info("🗃️ Media cache: {} entries, {} bytes in {}", index.size(), totalBytes, directory);
+    }
+
+    private void deleteOrphans() {
+        if (!Files.isDirectory(blobs)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(blobs)) {
+            for (Path blob : stream) {
+                if (!blobRefs.containsKey(blob.getFileName().toString())) {
+                    Files.deleteIfExists(blob); // Interrupted fetches and unindexed blobs
+                }
+            }
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to clean media cache: {}", e.getMessage());
+        }
+    }
+
+    private void saveIndex() {
+        try {
+            Files.createDirectories(directory);
+            Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+            Files.write(temp, JsonCodec.write(new ArrayList<>(index.values())).getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to save media cache index: {}", e.getMessage());
+        }
+    }
+
+    // ==================== STATS ====================
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getBytesFetched() {
+        return bytesFetched.get();
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MediaCache{entries=%d, bytes=%d/%d, hits=%d, misses=%d, evictions=%d, fetched=%d}",
+                size(), getTotalBytes(), maxBytes, getHits(), getMisses(), getEvictions(), getBytesFetched());
+    }
+
+    // ==================== HELPERS ====================
+
+    private String keyOf(String url) {
+        return transport.resolve(url).toString();
+    }
+
+    private static void touch(Path blob) {
+        try {
+            Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+            // Only affects eviction order after a restart
+        }
+    }
+
+    private static String suffixOf(String url) {
+        String name = url.substring(url.lastIndexOf('/') + 1);
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && name.length() - dot <= 6 ? name.substring(dot) : ".bin";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class IndexEntry {
+        public String url;
+        public String hash;
+        public long size;
+    }
+}
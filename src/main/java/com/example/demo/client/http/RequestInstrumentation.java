@@ -0,0 +1,231 @@
+package com.example.demo.client.http;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * ⏱️ RequestInstrumentation - Latency, volume and errors per endpoint template
+ *
+ * Every request sent by {@link HttpTransport} (each retry counts as its own
+ * request) is timed until its response is complete, or until the headers
+ * for streamed bodies. Per template: latency histogram and percentiles,
+ * requests, errors and error rate, bytes sent and received, and requests
+ * currently in flight.
+ *
+ * Query it through {@link #getEndpoints()}, or write {@link #dump()} to the
+ * log ({@link #dumpToLog()}) or a file ({@link #dumpToFile(Path)}).
+ */
+@Slf4j
+public class RequestInstrumentation {
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final TransferStats transferStats;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public RequestInstrumentation(TransferStats transferStats) {
+        this.transferStats = transferStats;
+    }
+
+    /**
+     * Start timing one request; the caller must {@link Sample#end(Throwable)} it
+     */
+    public Sample begin(String path, long bytesSent) {
+        String template = TransferStats.template(path);
+        Endpoint endpoint = endpoints.computeIfAbsent(template, Endpoint::new);
+        endpoint.inFlight.incrementAndGet();
+        inFlight.incrementAndGet();
+        if (bytesSent > 0) {
+            endpoint.bytesSent.addAndGet(bytesSent);
+        }
+        return new Sample(endpoint, System.nanoTime());
+    }
+
+    /**
+     * ⚡ Time an asynchronous request
+     */
+    public <T> CompletableFuture<T> track(String path, long bytesSent, Supplier<CompletableFuture<T>> call) {
+        Sample sample = begin(path, bytesSent);
+        CompletableFuture<T> request;
+        try {
+            request = call.get();
+        } catch (Throwable e) {
+            request = CompletableFuture.failedFuture(e);
+        }
+        return request.whenComplete((value, error) -> sample.end(error));
+    }
+
+    /**
+     * Per-template view, sorted by template
+     */
+    public Map<String, Endpoint> getEndpoints() {
+        return Collections.unmodifiableMap(new TreeMap<>(endpoints));
+    }
+
+    public Endpoint getEndpoint(String template) {
+        return endpoints.get(template);
+    }
+
+    /**
+     * Requests currently waiting for a response, all endpoints together
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Clear latencies and counters (in-flight gauges keep counting)
+     */
+    public void reset() {
+        endpoints.values().forEach(Endpoint::reset);
+    }
+
+    /**
+     * 📋 Table of all endpoints, slowest p99 first; latencies in ms
+     */
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("HTTP requests at %s (in flight: %d)%n", LocalDateTime.now(), getInFlight()));
+        sb.append(String.format("%-40s %7s %6s %6s %8s %8s %8s %8s %8s %10s %10s %4s%n",
+                "endpoint", "count", "errors", "err%", "p50", "p90", "p99", "p99.9", "max", "sent", "received", "live"));
+        endpoints.values().stream()
+                .sorted((a, b) -> Long.compare(b.latency.getValueAtPercentile(99), a.latency.getValueAtPercentile(99)))
+                .forEach(e -> sb.append(String.format("%-40s %7d %6d %5.1f%% %8.1f %8.1f %8.1f %8.1f %8.1f %10d %10d %4d%n",
+                        e.template, e.getRequests(), e.getErrors(), e.getErrorRate() * 100,
+                        e.getPercentileMs(50), e.getPercentileMs(90), e.getPercentileMs(99),
+                        e.getPercentileMs(99.9), e.latency.getMax() / 1000.0,
+                        e.getBytesSent(), e.getBytesReceived(), e.getInFlight())));
+        return sb.toString();
+    }
+
+    public void dumpToLog() {
+        log.info("⏱️ {}", dump());
+    }
+
+    /**
+     * 💾 Append the current table to {@code file}
+     */
+    public void dumpToFile(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.writeString(file, dump() + System.lineSeparator(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * One request being timed
+     */
+    public static final class Sample {
+        private final Endpoint endpoint;
+        private final long startNanos;
+        private boolean ended;
+
+        private Sample(Endpoint endpoint, long startNanos) {
+            this.endpoint = endpoint;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * @param error failure of the request, null on success
+         */
+        public synchronized void end(Throwable error) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            endpoint.latency.record((System.nanoTime() - startNanos) / 1_000);
+            endpoint.requests.incrementAndGet();
+            if (error != null) {
+                endpoint.errors.incrementAndGet();
+            }
+            endpoint.inFlight.decrementAndGet();
+            endpoint.owner().inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Counters of one endpoint template
+     */
+    public final class Endpoint {
+        private final String template;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong bytesSent = new AtomicLong();
+        /** Wire bytes already counted by {@link TransferStats} at the last reset */
+        private final AtomicLong bytesReceivedBase = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private Endpoint(String template) {
+            this.template = template;
+        }
+
+        public String getTemplate() {
+            return template;
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public double getPercentileMs(double percentile) {
+            return latency.getValueAtPercentile(percentile) / 1000.0;
+        }
+
+        public long getRequests() {
+            return requests.get();
+        }
+
+        public long getErrors() {
+            return errors.get();
+        }
+
+        public double getErrorRate() {
+            long n = requests.get();
+            return n == 0 ? 0 : (double) errors.get() / n;
+        }
+
+        public long getBytesSent() {
+            return bytesSent.get();
+        }
+
+        /**
+         * Response bytes on the wire since the last reset (see {@link TransferStats})
+         */
+        public long getBytesReceived() {
+            long wire = transferStats.getWireBytes(template);
+            long base = bytesReceivedBase.get();
+            return wire >= base ? wire - base : wire; // TransferStats was reset since
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        private RequestInstrumentation owner() {
+            return RequestInstrumentation.this;
+        }
+
+        private void reset() {
+            latency.reset();
+            requests.set(0);
+            errors.set(0);
+            bytesSent.set(0);
+            bytesReceivedBase.set(transferStats.getWireBytes(template));
+        }
+    }
+}
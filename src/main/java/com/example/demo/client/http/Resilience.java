@@ -0,0 +1,143 @@
+package com.example.demo.client.http;
+
+import com.example.demo.client.config.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 🛡️ Resilience - Retry and circuit breaking around REST calls
+ *
+ * - every endpoint template (see {@link TransferStats#template(String)}) has
+ *   its own {@link CircuitBreaker}; while it is open, calls fail at once with
+ *   {@link CircuitOpenException} instead of waiting on a sick backend
+ * - GET/HEAD requests that fail with a retryable {@link FailureKind} are
+ *   retried with exponential backoff and jitter; other methods are never
+ *   retried, since the server may already have applied them
+ * - outcomes are counted in {@link ResilienceMetrics}
+ *
+ * Config: http.retry.max-retries, http.retry.base-ms, http.retry.max-delay-ms,
+ * http.breaker.failure-threshold, http.breaker.open-ms
+ */
+@Slf4j
+public class Resilience {
+
+    private final int maxRetries;
+    private final long retryBaseMs;
+    private final long retryMaxDelayMs;
+    private final int failureThreshold;
+    private final long openMs;
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final ResilienceMetrics metrics = new ResilienceMetrics();
+
+    public Resilience() {
+        this.maxRetries = (int) Math.max(0, ServerConfig.getLong("http.retry.max-retries", 3));
+        this.retryBaseMs = Math.max(1, ServerConfig.getLong("http.retry.base-ms", 200));
+        this.retryMaxDelayMs = ServerConfig.getLong("http.retry.max-delay-ms", 5_000);
+        this.failureThreshold = (int) ServerConfig.getLong("http.breaker.failure-threshold", 5);
+        this.openMs = ServerConfig.getLong("http.breaker.open-ms", 10_000);
+    }
+
+    /**
+     * ⚡ Run {@code call} (which sends one request each time it is invoked)
+     * under the breaker of {@code path}'s template, retrying idempotent methods
+     */
+    public <T> CompletableFuture<T> execute(String method, String path, Supplier<CompletableFuture<T>> call) {
+        String template = TransferStats.template(path);
+        CircuitBreaker breaker = breakers.computeIfAbsent(template,
+                name -> new CircuitBreaker(name, failureThreshold, openMs));
+        boolean idempotent = "GET".equals(method) || "HEAD".equals(method);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(template, breaker, idempotent, call, 0, result);
+        return result;
+    }
+
+    private <T> void attempt(String template, CircuitBreaker breaker, boolean idempotent,
+            Supplier<CompletableFuture<T>> call, int attempt, CompletableFuture<T> result) {
+        if (result.isDone()) {
+            return; // Caller gave up while waiting for the retry
+        }
+        if (!breaker.tryAcquire()) {
+            metrics.recordShortCircuit(template);
+            result.completeExceptionally(new CircuitOpenException(template, breaker.getRetryInMs()));
+            return;
+        }
+
+        CompletableFuture<T> request;
+        try {
+            request = call.get();
+        } catch (Throwable e) {
+            request = CompletableFuture.failedFuture(e);
+        }
+        request.whenComplete((value, error) -> {
+            if (error == null) {
+                breaker.onSuccess();
+                metrics.recordSuccess(template);
+                result.complete(value);
+                return;
+            }
+
+            Throwable cause = HttpTransport.unwrap(error);
+            FailureKind kind = FailureKind.of(cause);
+            if (kind.tripsBreaker()) {
+                breaker.onFailure();
+            } else if (kind == FailureKind.CANCELLED) {
+                breaker.onRelease();
+            } else {
+                breaker.onSuccess(); // The backend answered
+            }
+            metrics.recordFailure(template, kind, cause.getMessage());
+
+            if (idempotent && kind.isRetryable() && attempt < maxRetries) {
+                long delay = backoffMs(attempt);
+                metrics.recordRetry(template);
+                log.debug("🔁 {} failed ({}), retry {}/{} in {}ms", template, kind, attempt + 1, maxRetries, delay);
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, HttpTransport.sharedExecutor())
+                        .execute(() -> attempt(template, breaker, true, call, attempt + 1, result));
+                return;
+            }
+            result.completeExceptionally(cause);
+        });
+    }
+
+    /**
+     * Exponential backoff with "equal jitter": half of the delay is fixed,
+     * the other half random, so retrying clients do not move in lockstep
+     */
+    private long backoffMs(int attempt) {
+        long ceiling = Math.min(retryMaxDelayMs, retryBaseMs << Math.min(attempt, 20));
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    public ResilienceMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 🔌 Current breaker state per endpoint template
+     */
+    public Map<String, CircuitBreaker.State> getBreakerStates() {
+        Map<String, CircuitBreaker.State> states = new TreeMap<>();
+        breakers.forEach((template, breaker) -> states.put(template, breaker.getState()));
+        return states;
+    }
+
+    public CircuitBreaker getBreaker(String template) {
+        return breakers.get(template);
+    }
+
+    /**
+     * True while any endpoint is rejecting calls
+     */
+    public boolean isDegraded() {
+        return breakers.values().stream().anyMatch(b -> b.getState() == CircuitBreaker.State.OPEN);
+    }
+}
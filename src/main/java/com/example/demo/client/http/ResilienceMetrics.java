@@ -0,0 +1,147 @@
+package com.example.demo.client.http;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 📊 ResilienceMetrics - Outcomes per endpoint template: successes,
+ * failures by {@link FailureKind}, retries and calls rejected by an open
+ * circuit breaker
+ */
+public class ResilienceMetrics {
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    void recordSuccess(String template) {
+        endpoint(template).successes.incrementAndGet();
+    }
+
+    void recordFailure(String template, FailureKind kind, String message) {
+        Endpoint e = endpoint(template);
+        e.failures.get(kind).incrementAndGet();
+        e.lastFailure = kind;
+        e.lastFailureMessage = message;
+        e.lastFailureAt = System.currentTimeMillis();
+    }
+
+    void recordRetry(String template) {
+        endpoint(template).retries.incrementAndGet();
+    }
+
+    void recordShortCircuit(String template) {
+        endpoint(template).shortCircuits.incrementAndGet();
+    }
+
+    private Endpoint endpoint(String template) {
+        return endpoints.computeIfAbsent(template, k -> new Endpoint());
+    }
+
+    /**
+     * Per-template counters, sorted by template
+     */
+    public Map<String, Endpoint> getEndpoints() {
+        return Collections.unmodifiableMap(new TreeMap<>(endpoints));
+    }
+
+    public Endpoint getEndpoint(String template) {
+        return endpoints.get(template);
+    }
+
+    public long getTotalFailures(FailureKind kind) {
+        return endpoints.values().stream().mapToLong(e -> e.getFailures(kind)).sum();
+    }
+
+    public long getTotalRetries() {
+        return endpoints.values().stream().mapToLong(Endpoint::getRetries).sum();
+    }
+
+    public long getTotalShortCircuits() {
+        return endpoints.values().stream().mapToLong(Endpoint::getShortCircuits).sum();
+    }
+
+    public void reset() {
+        endpoints.clear();
+    }
+
+    /**
+     * 📋 One line per endpoint that saw failures, retries or rejections
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Endpoint> entry : getEndpoints().entrySet()) {
+            Endpoint e = entry.getValue();
+            if (e.getTotalFailures() == 0 && e.getShortCircuits() == 0) {
+                continue;
+            }
+            sb.append(String.format("%s: ok=%d failed=%d %s retries=%d rejected=%d last=%s%n",
+                    entry.getKey(), e.getSuccesses(), e.getTotalFailures(), e.failureCounts(),
+                    e.getRetries(), e.getShortCircuits(), e.getLastFailure()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Counters of one endpoint template
+     */
+    public static final class Endpoint {
+        private final AtomicLong successes = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong shortCircuits = new AtomicLong();
+        private final Map<FailureKind, AtomicLong> failures = new EnumMap<>(FailureKind.class);
+        private volatile FailureKind lastFailure;
+        private volatile String lastFailureMessage;
+        private volatile long lastFailureAt;
+
+        Endpoint() {
+            for (FailureKind kind : FailureKind.values()) {
+                failures.put(kind, new AtomicLong());
+            }
+        }
+
+        public long getSuccesses() {
+            return successes.get();
+        }
+
+        public long getFailures(FailureKind kind) {
+            return failures.get(kind).get();
+        }
+
+        public long getTotalFailures() {
+            return failures.values().stream().mapToLong(AtomicLong::get).sum();
+        }
+
+        public long getRetries() {
+            return retries.get();
+        }
+
+        public long getShortCircuits() {
+            return shortCircuits.get();
+        }
+
+        public FailureKind getLastFailure() {
+            return lastFailure;
+        }
+
+        public String getLastFailureMessage() {
+            return lastFailureMessage;
+        }
+
+        public long getLastFailureAt() {
+            return lastFailureAt;
+        }
+
+        private Map<FailureKind, Long> failureCounts() {
+            Map<FailureKind, Long> counts = new EnumMap<>(FailureKind.class);
+            failures.forEach((kind, count) -> {
+                if (count.get() > 0) {
+                    counts.put(kind, count.get());
+                }
+            });
+            return counts;
+        }
+    }
+}
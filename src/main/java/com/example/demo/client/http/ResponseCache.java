@@ -0,0 +1,232 @@
+package com.example.demo.client.http;
+
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 🗄️ ResponseCache - Size-bounded LRU of decoded GET responses
+ *
+ * Each entry keeps the decoded object together with its validators (ETag,
+ * Last-Modified) and freshness from Cache-Control, so that:
+ * - a fresh entry (max-age not expired) is served without any request
+ * - a stale entry is revalidated with If-None-Match / If-Modified-Since and a
+ *   304 serves the cached object without re-parsing
+ * - a 200 whose body is identical to the cached one (same length and SHA-256)
+ *   reuses the decoded object
+ *
+ * The bound is the total size of the response bodies (http.cache.max-bytes),
+ * which stands in for the decoded objects' footprint; least recently used
+ * entries go first, and a body larger than the whole budget is not cached.
+ * Only a hash of each body is kept, not the bytes.
+ *
+ * Cache-Control: no-store responses are never cached; no-cache (or no
+ * max-age) means "always revalidate".
+ */
+public class ResponseCache {
+
+    /**
+     * How a lookup was answered
+     */
+    public enum Outcome {
+        FRESH, NOT_MODIFIED, UNCHANGED_BODY, MISS
+    }
+
+    private final long maxBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private final Map<Outcome, AtomicLong> outcomes = new EnumMap<>(Outcome.class);
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, new AtomicLong());
+        }
+    }
+
+    public synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, Entry entry) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            totalBytes -= previous.size;
+        }
+        if (entry == null || entry.size > maxBytes) {
+            return;
+        }
+        entries.put(key, entry);
+        totalBytes += entry.size;
+        // Least recently used first; the new entry is last and fits on its own
+        Iterator<Entry> it = entries.values().iterator();
+        while (totalBytes > maxBytes) {
+            totalBytes -= it.next().size;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * ⏰ Make every entry stale so the next read revalidates (validators are kept)
+     */
+    public synchronized void expireAll() {
+        entries.replaceAll((key, entry) -> entry.expired());
+    }
+
+    /**
+     * ⏰ Make the matching entries stale
+     */
+    public synchronized void expireIf(Predicate<String> matches) {
+        entries.replaceAll((key, entry) -> matches.test(key) ? entry.expired() : entry);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Total body size of the cached entries
+     */
+    public synchronized long getBytes() {
+        return totalBytes;
+    }
+
+    public void record(Outcome outcome) {
+        outcomes.get(outcome).incrementAndGet();
+    }
+
+    public long getCount(Outcome outcome) {
+        return outcomes.get(outcome).get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "ResponseCache[size=%d, bytes=%d/%d, fresh=%d, notModified=%d, unchangedBody=%d, misses=%d, "
+                        + "evictions=%d]",
+                size(), getBytes(), maxBytes, getCount(Outcome.FRESH), getCount(Outcome.NOT_MODIFIED),
+                getCount(Outcome.UNCHANGED_BODY), getCount(Outcome.MISS), getEvictions());
+    }
+
+    /**
+     * 📦 Cached decoded value plus the HTTP metadata needed to revalidate it
+     */
+    public static class Entry {
+        private final Object value;
+        private final String etag;
+        private final String lastModified;
+        private final long expiresAt; // 0 = must revalidate
+        private final int size;
+        private final byte[] bodyHash;
+
+        private Entry(Object value, String etag, String lastModified, long expiresAt, int size, byte[] bodyHash) {
+            this.value = value;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+            this.size = size;
+            this.bodyHash = bodyHash;
+        }
+
+        /**
+         * Entry for a 200 response, or null if the response must not be stored
+         */
+        public static Entry of(HttpResponse<?> response, byte[] body, Object value) {
+            HttpHeaders headers = response.headers();
+            String cacheControl = headers.firstValue("Cache-Control").orElse("").toLowerCase(Locale.ROOT);
+            if (cacheControl.contains("no-store")) {
+                return null;
+            }
+            return new Entry(value,
+                    headers.firstValue("ETag").orElse(null),
+                    headers.firstValue("Last-Modified").orElse(null),
+                    expiresAt(cacheControl),
+                    body.length, hash(body));
+        }
+
+        /**
+         * Same entry after a 304: validators and freshness from the new headers
+         */
+        public Entry revalidated(HttpResponse<?> response) {
+            HttpHeaders headers = response.headers();
+            String cacheControl = headers.firstValue("Cache-Control").orElse("").toLowerCase(Locale.ROOT);
+            return new Entry(value,
+                    headers.firstValue("ETag").orElse(etag),
+                    headers.firstValue("Last-Modified").orElse(lastModified),
+                    expiresAt(cacheControl),
+                    size, bodyHash);
+        }
+
+        Entry expired() {
+            return new Entry(value, etag, lastModified, 0, size, bodyHash);
+        }
+
+        private static long expiresAt(String cacheControl) {
+            if (cacheControl.contains("no-cache")) {
+                return 0;
+            }
+            int index = cacheControl.indexOf("max-age=");
+            if (index < 0) {
+                return 0;
+            }
+            int start = index + "max-age=".length();
+            int end = start;
+            while (end < cacheControl.length() && Character.isDigit(cacheControl.charAt(end))) {
+                end++;
+            }
+            if (end == start) {
+                return 0;
+            }
+            long seconds = Long.parseLong(cacheControl.substring(start, end));
+            return System.currentTimeMillis() + seconds * 1000;
+        }
+
+        public boolean isFresh() {
+            return expiresAt > System.currentTimeMillis();
+        }
+
+        public boolean hasSameBody(byte[] other) {
+            return other.length == size && Arrays.equals(bodyHash, hash(other));
+        }
+
+        private static byte[] hash(byte[] body) {
+            try {
+                return MessageDigest.getInstance("SHA-256").digest(body);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e); // Every JVM ships SHA-256
+            }
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.demo.client.http;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 🪁 SingleFlight - Coalesces identical concurrent requests
+ *
+ * While a request for a key is in flight, further calls for the same key get
+ * the same result instead of issuing another request. A successful result is
+ * also reused for {@code reuseWindowMs} after it completes; failures are never
+ * reused. {@link #invalidateAll()} (e.g. after a write) drops reusable results
+ * and detaches requests still in flight: they complete for the callers that
+ * already joined, but later calls start a new request, since one that started
+ * before the write may return the old state.
+ */
+public class SingleFlight<K, V> {
+
+    private final long reuseWindowMs;
+    private final Map<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    /** Bumped by {@link #invalidateAll()}; flights of an older generation are never joined */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong inFlightHits = new AtomicLong();
+    private final AtomicLong windowHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SingleFlight(long reuseWindowMs) {
+        this.reuseWindowMs = reuseWindowMs;
+    }
+
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> loader) {
+        while (true) {
+            Flight<V> existing = flights.get(key);
+            if (existing != null && existing.generation != generation.get()) {
+                flights.remove(key, existing); // Started before an invalidation
+                continue;
+            }
+            if (existing != null) {
+                long completedAt = existing.completedAt;
+                if (completedAt == 0) {
+                    inFlightHits.incrementAndGet();
+                    return existing.future.copy();
+                }
+                if (System.currentTimeMillis() - completedAt <= reuseWindowMs) {
+                    windowHits.incrementAndGet();
+                    return existing.future.copy();
+                }
+                flights.remove(key, existing); // Expired
+                continue;
+            }
+
+            Flight<V> flight = new Flight<>(generation.get());
+            if (flights.putIfAbsent(key, flight) != null) {
+                continue; // Lost the race, join the winner
+            }
+            misses.incrementAndGet();
+
+            CompletableFuture<V> source;
+            try {
+                source = loader.get();
+            } catch (RuntimeException e) {
+                source = CompletableFuture.failedFuture(e);
+            }
+            source.whenComplete((value, error) -> {
+                if (error != null || reuseWindowMs <= 0 || flight.generation != generation.get()) {
+                    flights.remove(key, flight);
+                } else {
+                    flight.completedAt = System.currentTimeMillis();
+                }
+                if (error != null) {
+                    flight.future.completeExceptionally(error);
+                } else {
+                    flight.future.complete(value);
+                }
+            });
+            return flight.future.copy();
+        }
+    }
+
+    /**
+     * 🧹 Forget completed results and detach in-flight requests
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        flights.clear();
+    }
+
+    /**
+     * 🧹 Forget results and detach in-flight requests for the matching keys
+     */
+    public void invalidateIf(Predicate<? super K> matches) {
+        flights.keySet().removeIf(matches);
+    }
+
+    public long getInFlightHits() {
+        return inFlightHits.get();
+    }
+
+    public long getWindowHits() {
+        return windowHits.get();
+    }
+
+    public long getHits() {
+        return inFlightHits.get() + windowHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + misses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SingleFlight[hits=%d (inFlight=%d, window=%d), misses=%d, hitRate=%.1f%%]",
+                getHits(), getInFlightHits(), getWindowHits(), getMisses(), getHitRate() * 100);
+    }
+
+    private static class Flight<V> {
+        final long generation;
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        volatile long completedAt; // 0 while in flight
+
+        Flight(long generation) {
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo.client.http;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 📦 TransferStats - Bytes on the wire vs decoded bytes per endpoint
+ *
+ * Endpoints are grouped by template: numeric path segments become {id} and
+ * the query string is dropped, e.g. /api/rooms/42/members -> /api/rooms/{id}/members.
+ */
+public class TransferStats {
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    public void record(String path, long wireBytes, long decodedBytes, boolean compressed) {
+        Counters c = counters.computeIfAbsent(template(path), k -> new Counters());
+        c.responses.incrementAndGet();
+        c.wireBytes.addAndGet(wireBytes);
+        c.decodedBytes.addAndGet(decodedBytes);
+        if (compressed) {
+            c.compressedResponses.incrementAndGet();
+        }
+    }
+
+    /**
+     * /api/rooms/42/members?x=1 -> /api/rooms/{id}/members
+     */
+    public static String template(String path) {
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        StringBuilder sb = new StringBuilder(path.length());
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            sb.append('/');
+            sb.append(isNumeric(segment) ? "{id}" : segment);
+        }
+        return sb.length() == 0 ? "/" : sb.toString();
+    }
+
+    private static boolean isNumeric(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            if (!Character.isDigit(segment.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getWireBytes(String template) {
+        Counters c = counters.get(template);
+        return c != null ? c.wireBytes.get() : 0;
+    }
+
+    public long getDecodedBytes(String template) {
+        Counters c = counters.get(template);
+        return c != null ? c.decodedBytes.get() : 0;
+    }
+
+    public long getTotalWireBytes() {
+        return counters.values().stream().mapToLong(c -> c.wireBytes.get()).sum();
+    }
+
+    public long getTotalDecodedBytes() {
+        return counters.values().stream().mapToLong(c -> c.decodedBytes.get()).sum();
+    }
+
+    public void reset() {
+        counters.clear();
+    }
+
+    /**
+     * 📋 One line per endpoint: responses, wire / decoded bytes, ratio
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Counters> entry : new TreeMap<>(counters).entrySet()) {
+            Counters c = entry.getValue();
+            long wire = c.wireBytes.get();
+            long decoded = c.decodedBytes.get();
+            sb.append(String.format("%s: responses=%d (compressed=%d) wire=%d decoded=%d ratio=%.1f%%%n",
+                    entry.getKey(), c.responses.get(), c.compressedResponses.get(), wire, decoded,
+                    decoded == 0 ? 100.0 : wire * 100.0 / decoded));
+        }
+        return sb.toString();
+    }
+
+    private static class Counters {
+        final AtomicLong responses = new AtomicLong();
+        final AtomicLong compressedResponses = new AtomicLong();
+        final AtomicLong wireBytes = new AtomicLong();
+        final AtomicLong decodedBytes = new AtomicLong();
+    }
+}
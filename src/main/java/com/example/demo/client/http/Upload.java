@@ -0,0 +1,173 @@
+package com.example.demo.client.http;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 📤 Upload - Handle of a running upload
+ *
+ * Exposes the result, live progress and cancellation. {@link #map} derives a
+ * handle with a transformed result that shares progress and cancellation.
+ */
+public final class Upload<T> {
+
+    private final Progress progress;
+    private final CompletableFuture<T> result;
+
+    Upload(Progress progress, CompletableFuture<T> result) {
+        this.progress = progress;
+        this.result = result;
+    }
+
+    /**
+     * Handle of an upload that could not be started
+     */
+    public static <T> Upload<T> failed(Throwable error) {
+        Progress progress = new Progress(0, null, 0);
+        return new Upload<>(progress, CompletableFuture.failedFuture(error));
+    }
+
+    public CompletableFuture<T> getResult() {
+        return result;
+    }
+
+    public <R> Upload<R> map(Function<? super T, ? extends R> mapper) {
+        return new Upload<>(progress, result.thenApply(mapper));
+    }
+
+    /**
+     * ⛔ Stop sending; the result completes with a {@link CancellationException}
+     *
+     * @return false if the upload had already finished
+     */
+    public boolean cancel() {
+        if (result.isDone()) {
+            return false;
+        }
+        CancellationException cancelled = new CancellationException("Upload cancelled");
+        boolean done = result.completeExceptionally(cancelled);
+        progress.cancel(cancelled);
+        return done;
+    }
+
+    public boolean isCancelled() {
+        return progress.isCancelled();
+    }
+
+    public long getBytesSent() {
+        return progress.getSent();
+    }
+
+    public long getTotalBytes() {
+        return progress.total;
+    }
+
+    /**
+     * Fraction sent, 0.0 - 1.0
+     */
+    public double getFraction() {
+        return progress.total == 0 ? 0 : (double) progress.getSent() / progress.total;
+    }
+
+    /**
+     * Shared state between the handle, its mapped handles and the body
+     * publishers; a part of a chunked upload has a child that rolls up into
+     * its parent
+     */
+    static final class Progress {
+        final long total;
+        private final UploadProgressListener listener;
+        private final long intervalMs;
+        private final Progress parent;
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong lastReportAt = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile CompletableFuture<?> root;
+
+        Progress(long total, UploadProgressListener listener, long intervalMs) {
+            this(total, listener, intervalMs, null);
+        }
+
+        private Progress(long total, UploadProgressListener listener, long intervalMs, Progress parent) {
+            this.total = total;
+            this.listener = listener;
+            this.intervalMs = intervalMs;
+            this.parent = parent;
+        }
+
+        /**
+         * Progress of one part, counted into this one
+         */
+        Progress child(long partTotal) {
+            return new Progress(partTotal, null, 0, this);
+        }
+
+        /**
+         * The future every handle is derived from; failing it ends the upload
+         */
+        void attach(CompletableFuture<?> root) {
+            this.root = root;
+        }
+
+        void cancel(CancellationException cancelled) {
+            this.cancelled = true; // Stops the body publishers at their next chunk
+            CompletableFuture<?> r = root;
+            if (r != null) {
+                r.completeExceptionally(cancelled);
+            }
+        }
+
+        boolean isCancelled() {
+            return cancelled || (parent != null && parent.isCancelled());
+        }
+
+        long getSent() {
+            return sent.get();
+        }
+
+        /**
+         * {@code delta} more bytes handed to the transport
+         */
+        void advance(long delta) {
+            long now = sent.addAndGet(delta);
+            if (parent != null) {
+                parent.advance(delta);
+            }
+            report(now);
+        }
+
+        /**
+         * Forget this attempt's bytes (the body is being sent again)
+         */
+        void rollback() {
+            long previous = sent.getAndSet(0);
+            if (previous != 0 && parent != null) {
+                parent.advance(-previous);
+            }
+        }
+
+        /**
+         * Set the absolute count (for a fallback upload reporting on its own)
+         */
+        void set(long bytesSent) {
+            sent.set(bytesSent);
+            report(bytesSent);
+        }
+
+        private void report(long bytesSent) {
+            if (listener == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long last = lastReportAt.get();
+            if (bytesSent >= total) {
+                lastReportAt.set(now);
+                listener.onProgress(bytesSent, total); // Final report is never throttled
+            } else if (now - last >= intervalMs && lastReportAt.compareAndSet(last, now)) {
+                listener.onProgress(bytesSent, total);
+            }
+        }
+    }
+}
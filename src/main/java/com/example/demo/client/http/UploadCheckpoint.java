@@ -0,0 +1,39 @@
+package com.example.demo.client.http;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.TreeSet;
+
+/**
+ * 💾 UploadCheckpoint - On-disk state of a resumable upload
+ *
+ * Identifies the upload session on the server and the file it belongs to
+ * (path, size, modification time); if the file has changed since, the
+ * checkpoint is discarded instead of resumed.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UploadCheckpoint {
+    private String key;
+    private String uploadId;
+    private String target;
+    private String filePath;
+    private long fileSize;
+    private long lastModified;
+    private long partSize;
+    private int partCount;
+
+    @Builder.Default
+    private TreeSet<Integer> completedParts = new TreeSet<>();
+
+    public boolean matches(long size, long modified) {
+        return fileSize == size && lastModified == modified;
+    }
+}
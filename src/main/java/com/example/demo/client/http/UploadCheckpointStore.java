@@ -0,0 +1,106 @@
+package com.example.demo.client.http;
+
+import com.example.demo.client.json.JsonCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * 🗂️ UploadCheckpointStore - One JSON file per resumable upload
+ *
+ * Files are replaced atomically (write to .tmp, then move), so a crash while
+ * saving leaves the previous checkpoint intact.
+ */
+@Slf4j
+public class UploadCheckpointStore {
+
+    private final Path directory;
+
+    public UploadCheckpointStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Stable key for uploading {@code file} to {@code target}
+     */
+    public static String keyOf(String target, Path file) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((target + "\n" + file.toAbsolutePath().normalize())
+                    .getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public UploadCheckpoint load(String key) {
+        Path path = pathOf(key);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            return JsonCodec.read(Files.readAllBytes(path), UploadCheckpoint.class);
+        } catch (Exception e) {
+            log.warn("⚠️ Ignoring unreadable upload checkpoint {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    public synchronized void save(UploadCheckpoint checkpoint) throws IOException {
+        Files.createDirectories(directory);
+        Path path = pathOf(checkpoint.getKey());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temp, JsonCodec.write(checkpoint).getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public void delete(String key) {
+        try {
+            Files.deleteIfExists(pathOf(key));
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to delete upload checkpoint {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * 📋 Uploads that were interrupted and can be resumed
+     */
+    public List<UploadCheckpoint> list() {
+        List<UploadCheckpoint> checkpoints = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return checkpoints;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                UploadCheckpoint checkpoint = load(name.substring(0, name.length() - ".json".length()));
+                if (checkpoint != null) {
+                    checkpoints.add(checkpoint);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to list upload checkpoints: {}", e.getMessage());
+        }
+        return checkpoints;
+    }
+
+    private Path pathOf(String key) {
+        return directory.resolve(key + ".json");
+    }
+}
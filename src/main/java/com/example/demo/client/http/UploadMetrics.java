@@ -0,0 +1,87 @@
+package com.example.demo.client.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 📈 UploadMetrics - Outcomes and throughput of uploads
+ *
+ * Throughput is measured from the first byte handed to the transport until
+ * the server's response, over completed uploads only.
+ */
+public class UploadMetrics {
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong bytesUploaded = new AtomicLong();
+    private final AtomicLong uploadNanos = new AtomicLong();
+    private final AtomicLong lastBytesPerSecond = new AtomicLong();
+    private final AtomicLong peakBytesPerSecond = new AtomicLong();
+
+    public void recordCompleted(long bytes, long nanos) {
+        completed.incrementAndGet();
+        bytesUploaded.addAndGet(bytes);
+        uploadNanos.addAndGet(nanos);
+        long bytesPerSecond = nanos > 0 ? (long) (bytes * 1_000_000_000.0 / nanos) : 0;
+        lastBytesPerSecond.set(bytesPerSecond);
+        peakBytesPerSecond.accumulateAndGet(bytesPerSecond, Math::max);
+    }
+
+    public void recordFailed() {
+        failed.incrementAndGet();
+    }
+
+    public void recordCancelled() {
+        cancelled.incrementAndGet();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getCancelled() {
+        return cancelled.get();
+    }
+
+    public long getBytesUploaded() {
+        return bytesUploaded.get();
+    }
+
+    /**
+     * Bytes per second over all completed uploads
+     */
+    public long getAverageBytesPerSecond() {
+        long nanos = uploadNanos.get();
+        return nanos > 0 ? (long) (bytesUploaded.get() * 1_000_000_000.0 / nanos) : 0;
+    }
+
+    public long getLastBytesPerSecond() {
+        return lastBytesPerSecond.get();
+    }
+
+    public long getPeakBytesPerSecond() {
+        return peakBytesPerSecond.get();
+    }
+
+    public void reset() {
+        completed.set(0);
+        failed.set(0);
+        cancelled.set(0);
+        bytesUploaded.set(0);
+        uploadNanos.set(0);
+        lastBytesPerSecond.set(0);
+        peakBytesPerSecond.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "UploadMetrics[completed=%d, failed=%d, cancelled=%d, bytes=%d, avg=%.2f MB/s, last=%.2f MB/s, peak=%.2f MB/s]",
+                getCompleted(), getFailed(), getCancelled(), getBytesUploaded(),
+                getAverageBytesPerSecond() / 1e6, getLastBytesPerSecond() / 1e6, getPeakBytesPerSecond() / 1e6);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.demo.client.http;
+
+/**
+ * 📶 Progress callback of an {@link Upload}
+ *
+ * Called from the HTTP I/O thread, throttled to upload.progress-interval-ms,
+ * and always once more when the last byte has been handed to the transport.
+ */
+@FunctionalInterface
+public interface UploadProgressListener {
+
+    void onProgress(long bytesSent, long totalBytes);
+}
@@ -0,0 +1,77 @@
+package com.example.demo.client.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+
+/**
+ * 🕒 LocalDateTime deserializer for every timestamp shape the backend sends
+ *
+ * - "2024-05-01T10:15:30" / "2024-05-01T10:15:30.123" (server local time)
+ * - "2024-05-01T10:15:30Z" / "...+07:00" (converted to the local zone)
+ * - 1714558530000 (epoch millis)
+ * - [2024, 5, 1, 10, 15, 30, 123000000] (Jackson array form)
+ *
+ * Unparseable values become null instead of failing the whole payload.
+ */
+class FlexibleLocalDateTimeDeserializer extends StdScalarDeserializer<LocalDateTime> {
+
+    FlexibleLocalDateTimeDeserializer() {
+        super(LocalDateTime.class);
+    }
+
+    @Override
+    public LocalDateTime deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            return parse(p.getText().trim());
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(p.getLongValue()), ZoneId.systemDefault());
+        }
+        if (token == JsonToken.START_ARRAY) {
+            return parseArray(p);
+        }
+        p.skipChildren();
+        return null;
+    }
+
+    private static LocalDateTime parse(String text) {
+        if (text.isEmpty()) {
+            return null;
+        }
+        try {
+            // Offset present: "...Z" or "...+07:00" after the time part
+            int timeStart = text.indexOf('T');
+            if (timeStart > 0 && (text.endsWith("Z") || text.indexOf('+', timeStart) > 0
+                    || text.indexOf('-', timeStart) > 0)) {
+                return OffsetDateTime.parse(text).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            }
+            return LocalDateTime.parse(text);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static LocalDateTime parseArray(JsonParser p) throws IOException {
+        int[] parts = new int[7];
+        int count = 0;
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (count < parts.length) {
+                parts[count] = p.getIntValue();
+            }
+            count++;
+        }
+        if (count < 3) {
+            return null;
+        }
+        return LocalDateTime.of(parts[0], parts[1], parts[2], parts[3], parts[4], parts[5], parts[6]);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.demo.client.json;
+
+import com.example.demo.client.model.ChatMessage;
+import com.example.demo.client.model.ChatRoom;
+import com.example.demo.client.model.FriendRequestNotification;
+import com.example.demo.client.model.MessageReaction;
+import com.example.demo.client.model.RecallResponse;
+import com.example.demo.client.model.RoomInviteNotification;
+import com.example.demo.client.model.TypingIndicator;
+import com.example.demo.client.model.User;
+import com.example.demo.client.model.UserStatusMessage;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 🧬 JsonCodec - Single JSON configuration shared by REST and STOMP
+ *
+ * One {@link ObjectMapper} for the whole client plus a cache of pre-built
+ * {@link ObjectReader}s, one per target type. Payloads decode straight into
+ * the model classes: no intermediate {@code Map<String, Object>}, no per-field
+ * casts, and the bean deserializer of each type is resolved only once.
+ *
+ * Custom deserializers:
+ * - enums are matched leniently; unknown values fall back instead of failing
+ * - LocalDateTime accepts ISO strings (with or without offset), epoch millis
+ *   and the [y, m, d, h, m, s, n] array form
+ */
+public final class JsonCodec {
+
+    private static final ObjectMapper MAPPER = createMapper();
+
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, ObjectReader> LIST_READERS = new ConcurrentHashMap<>();
+
+    static {
+        // Warm up the types decoded on hot paths
+        for (Class<?> type : List.of(ChatMessage.class, User.class, ChatRoom.class, MessageReaction.class,
+                FriendRequestNotification.class, RoomInviteNotification.class, RecallResponse.class,
+                TypingIndicator.class, UserStatusMessage.class)) {
+            reader(type);
+        }
+        listReader(ChatMessage.class);
+        listReader(User.class);
+        listReader(ChatRoom.class);
+    }
+
+    private JsonCodec() {
+    }
+
+    private static ObjectMapper createMapper() {
+        SimpleModule module = new SimpleModule("chat-client");
+        module.addDeserializer(LocalDateTime.class, new FlexibleLocalDateTimeDeserializer());
+        module.addDeserializer(ChatMessage.MessageType.class,
+                new LenientEnumDeserializer<>(ChatMessage.MessageType.class, ChatMessage.MessageType.TEXT));
+        module.addDeserializer(User.Status.class,
+                new LenientEnumDeserializer<>(User.Status.class, null));
+
+        ObjectMapper mapper = new ObjectMapper();
+        // Register Java 8 date/time module (our LocalDateTime deserializer overrides it)
+        mapper.registerModule(new JavaTimeModule());
+        mapper.registerModule(module);
+        // Write dates as ISO-8601 strings instead of arrays
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        return mapper;
+    }
+
+    /**
+     * Shared mapper (serialization and {@code convertValue})
+     */
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    /**
+     * 📖 Cached reader for a single value of {@code type}
+     */
+    public static ObjectReader reader(Class<?> type) {
+        return READERS.computeIfAbsent(type, MAPPER::readerFor);
+    }
+
+    /**
+     * 📚 Cached reader for a JSON array of {@code elementType}
+     */
+    public static ObjectReader listReader(Class<?> elementType) {
+        return LIST_READERS.computeIfAbsent(elementType, t -> {
+            JavaType listType = MAPPER.getTypeFactory().constructCollectionType(List.class, t);
+            return MAPPER.readerFor(listType);
+        });
+    }
+
+    public static <T> T read(String json, Class<T> type) {
+        try {
+            return reader(type).readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static <T> T read(byte[] json, Class<T> type) {
+        try {
+            return reader(type).readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static <T> List<T> readList(String json, Class<T> elementType) {
+        try {
+            return listReader(elementType).readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static <T> List<T> readList(byte[] json, Class<T> elementType) {
+        try {
+            return listReader(elementType).readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static String write(Object value) {
+        try {
+            return MAPPER.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.demo.client.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 🔤 Enum deserializer that never throws on unexpected values
+ *
+ * Constant names are looked up case-insensitively in a pre-built table;
+ * unknown or empty values map to {@code fallback}.
+ */
+class LenientEnumDeserializer<E extends Enum<E>> extends StdScalarDeserializer<E> {
+
+    private final Map<String, E> byName = new HashMap<>();
+    private final E fallback;
+
+    LenientEnumDeserializer(Class<E> type, E fallback) {
+        super(type);
+        this.fallback = fallback;
+        for (E constant : type.getEnumConstants()) {
+            byName.put(constant.name(), constant);
+        }
+    }
+
+    @Override
+    public E deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() != JsonToken.VALUE_STRING) {
+            p.skipChildren();
+            return fallback;
+        }
+        String text = p.getText().trim();
+        E value = byName.get(text);
+        if (value == null) {
+            value = byName.get(text.toUpperCase(Locale.ROOT));
+        }
+        return value != null ? value : fallback;
+    }
+
+    @Override
+    public E getNullValue(DeserializationContext ctxt) {
+        return fallback;
+    }
+}
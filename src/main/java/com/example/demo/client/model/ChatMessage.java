@@ -1,5 +1,7 @@
 package com.example.demo.client.model;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,6 +17,7 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class ChatMessage {
     private Long id;
     private Long roomId;
@@ -23,7 +26,9 @@ public class ChatMessage {
     private String senderDisplayName;
     private String content;
     private String fileName;
-    private MessageType messageType;
+    @Builder.Default
+    private MessageType messageType = MessageType.TEXT; // Missing type in a payload means plain text
+    @JsonAlias("createdAt") // REST history uses createdAt, STOMP uses timestamp
     private LocalDateTime timestamp;
     private boolean recalled;
     private Long recipientId;
@@ -0,0 +1,40 @@
+package com.example.demo.client.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 📄 MessagePage - One page of conversation history (oldest → newest)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessagePage {
+    @Builder.Default
+    private List<ChatMessage> messages = new ArrayList<>();
+    private boolean hasMore; // More messages exist beyond this page (in the paging direction)
+
+    public static MessagePage empty() {
+        return new MessagePage(new ArrayList<>(), false);
+    }
+
+    /**
+     * Oldest message ID on this page (cursor for the previous page)
+     */
+    public Long getOldestId() {
+        return messages.isEmpty() ? null : messages.get(0).getId();
+    }
+
+    /**
+     * Newest message ID on this page (cursor for the next page)
+     */
+    public Long getNewestId() {
+        return messages.isEmpty() ? null : messages.get(messages.size() - 1).getId();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.client.outbox;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 📮 OutboundAction - One send waiting in the {@link OutboundQueue}
+ *
+ * A STOMP frame (destination + JSON body) or a REST write (method + path +
+ * JSON body), exactly as it would have gone out when the user made it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OutboundAction {
+
+    public enum Channel {
+        STOMP, HTTP
+    }
+
+    /** Position in the queue, increasing in enqueue order */
+    private long seq;
+    private Channel channel;
+    /** HTTP method, null for STOMP */
+    private String method;
+    /** STOMP destination or REST path */
+    private String destination;
+    private String body;
+    /** Epoch millis, so the wait survives a restart */
+    private long enqueuedAt;
+
+    /**
+     * Whether it may be sent again after a failure that may have reached the
+     * server: a POST (e.g. a reaction toggle) could be applied twice. STOMP
+     * replays only fail before the frame is written.
+     */
+    @JsonIgnore
+    public boolean isRetrySafe() {
+        return channel == Channel.STOMP || isIdempotent(method);
+    }
+
+    public static boolean isIdempotent(String method) {
+        return method != null && !"POST".equalsIgnoreCase(method) && !"PATCH".equalsIgnoreCase(method);
+    }
+}
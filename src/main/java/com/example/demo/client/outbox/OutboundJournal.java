@@ -0,0 +1,178 @@
+package com.example.demo.client.outbox;
+
+import com.example.demo.client.json.JsonCodec;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * 📒 OutboundJournal - Append-only log of one user's outbox
+ *
+ * Every line is a JSON record: {@code ADD} carries a queued action,
+ * {@code ACK} lists the sequence numbers that left the queue. Replaying the
+ * file rebuilds the pending actions in order; a torn last line (crash while
+ * appending) is skipped. Once acknowledged records outweigh the live ones the
+ * file is rewritten with just the pending actions (write to .tmp, then move).
+ */
+@Slf4j
+public class OutboundJournal implements AutoCloseable {
+
+    private static final String ADD = "ADD";
+    private static final String ACK = "ACK";
+
+    private final Path file;
+    private final boolean fsync;
+    private FileChannel channel;
+    private long deadRecords;
+
+    public OutboundJournal(Path file, boolean fsync) {
+        this.file = file;
+        this.fsync = fsync;
+    }
+
+    /**
+     * 📖 Replay the file; returns the pending actions keyed by sequence number
+     */
+    public LinkedHashMap<Long, OutboundAction> load() throws IOException {
+        LinkedHashMap<Long, OutboundAction> pending = new LinkedHashMap<>();
+        if (Files.isRegularFile(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        apply(JsonCodec.read(line, Record.class), pending);
+                    } catch (RuntimeException e) {
+                        log.warn("⚠️ Skipping unreadable outbox record {}:{}: {}", file, lineNumber, e.getMessage());
+                    }
+                }
+            }
+        }
+        rewrite(pending.values());
+        return pending;
+    }
+
+    public synchronized void append(OutboundAction action) throws IOException {
+        Record record = new Record();
+        record.op = ADD;
+        record.action = action;
+        write(record);
+    }
+
+    /**
+     * ✅ One record (and one fsync) for a whole flushed batch
+     */
+    public synchronized void acknowledge(List<Long> seqs) throws IOException {
+        if (seqs.isEmpty()) {
+            return;
+        }
+        Record record = new Record();
+        record.op = ACK;
+        record.seqs = seqs;
+        write(record);
+        deadRecords += seqs.size() + 1;
+    }
+
+    /**
+     * 🗜️ Rewrite once at least {@code threshold} records are dead and they
+     * outnumber the live ones
+     */
+    public synchronized void compactIfNeeded(Collection<OutboundAction> pending, int threshold) throws IOException {
+        if (deadRecords >= threshold && deadRecords > pending.size()) {
+            rewrite(pending);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("⚠️ Failed to close outbox journal {}: {}", file, e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    private void apply(Record record, LinkedHashMap<Long, OutboundAction> pending) {
+        if (ADD.equals(record.op) && record.action != null) {
+            pending.put(record.action.getSeq(), record.action);
+        } else if (ACK.equals(record.op) && record.seqs != null) {
+            record.seqs.forEach(pending::remove);
+        }
+    }
+
+    private void write(Record record) throws IOException {
+        if (channel == null) {
+            throw new IOException("Outbox journal is closed: " + file);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap((JsonCodec.write(record) + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * 🗜️ Replace the file with ADD records of the pending actions only
+     */
+    private synchronized void rewrite(Collection<OutboundAction> pending) throws IOException {
+        close();
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        StringBuilder content = new StringBuilder();
+        for (OutboundAction action : pending) {
+            Record record = new Record();
+            record.op = ADD;
+            record.action = action;
+            content.append(JsonCodec.write(record)).append('\n');
+        }
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        deadRecords = 0;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class Record {
+        public String op;
+        public OutboundAction action;
+        public List<Long> seqs;
+    }
+}
@@ -0,0 +1,414 @@
+package com.example.demo.client.outbox;
+
+import com.example.demo.client.config.ServerConfig;
+import com.example.demo.client.http.FailureKind;
+import com.example.demo.client.http.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 📮 OutboundQueue - Durable outbox for sends made while offline
+ *
+ * Chat messages, reactions, read marks and recalls that cannot reach the
+ * server are appended to the current user's {@link OutboundJournal} and
+ * replayed once the connection is back:
+ * - strictly in enqueue order per channel; a transient failure holds the
+ *   channel (and everything queued behind it) until the next flush
+ * - an action that never reached the server (not connected, connection
+ *   refused, open breaker) is held for as long as it takes; one the server
+ *   saw but did not accept is tried outbox.max-attempts times and then
+ *   dropped, and a non-idempotent one (POST) is dropped at once, since the
+ *   server may already have applied it
+ * - in batches of outbox.batch-size, acknowledged with one journal write
+ * - retried every outbox.retry-interval-ms while anything is pending
+ *
+ * Queue depth and flush latency (enqueue to delivery) are exposed for the
+ * diagnostics dump.
+ */
+@Slf4j
+public class OutboundQueue implements AutoCloseable {
+
+    private final Path directory;
+    private final int batchSize;
+    private final long retryIntervalMs;
+    private final int compactThreshold;
+    private final boolean fsync;
+    private final int maxAttempts;
+
+    private final LinkedHashMap<Long, OutboundAction> pending = new LinkedHashMap<>();
+    /** Failed deliveries that reached the server, by seq (not persisted) */
+    private final Map<Long, Integer> attempts = new HashMap<>();
+    private final Map<OutboundAction.Channel, Integer> pendingByChannel = new EnumMap<>(OutboundAction.Channel.class);
+    private final Map<OutboundAction.Channel, OutboundTransport> transports = new EnumMap<>(
+            OutboundAction.Channel.class);
+    private OutboundJournal journal;
+    private Long userId;
+    private long nextSeq = 1;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "outbox-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private ScheduledFuture<?> retry;
+
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+    private final LatencyHistogram batchDuration = new LatencyHistogram();
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    public OutboundQueue() {
+        this(Paths.get(ServerConfig.getString("outbox.dir",
+                Paths.get(System.getProperty("user.home"), ".webchat", "outbox").toString())),
+                (int) ServerConfig.getLong("outbox.batch-size", 50),
+                ServerConfig.getLong("outbox.retry-interval-ms", 5_000),
+                (int) ServerConfig.getLong("outbox.compact-threshold", 512),
+                !"false".equalsIgnoreCase(ServerConfig.getString("outbox.fsync", "true")),
+                (int) ServerConfig.getLong("outbox.max-attempts", 5));
+    }
+
+    public OutboundQueue(Path directory, int batchSize, long retryIntervalMs, int compactThreshold, boolean fsync,
+            int maxAttempts) {
+        this.directory = directory;
+        this.batchSize = Math.max(1, batchSize);
+        this.retryIntervalMs = retryIntervalMs;
+        this.compactThreshold = compactThreshold;
+        this.fsync = fsync;
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public void setTransport(OutboundAction.Channel channel, OutboundTransport transport) {
+        synchronized (this) {
+            transports.put(channel, transport);
+        }
+        flush();
+    }
+
+    /**
+     * 🔓 Load the outbox of {@code user}; actions left from an earlier session
+     * are flushed as soon as their transport is available
+     */
+    public void open(Long user) {
+        synchronized (this) {
+            if (user == null || user.equals(userId)) {
+                return;
+            }
+            closeJournal();
+            OutboundJournal opened = new OutboundJournal(directory.resolve(user + ".log"), fsync);
+            try {
+                pending.putAll(opened.load());
+            } catch (IOException e) {
+                log.error("❌ Failed to open outbox for user {}: {}", user, e.getMessage());
+                opened.close();
+                return;
+            }
+            journal = opened;
+            userId = user;
+            pending.values().forEach(action -> {
+                pendingByChannel.merge(action.getChannel(), 1, Integer::sum);
+                nextSeq = Math.max(nextSeq, action.getSeq() + 1);
+            });
+            if (!pending.isEmpty()) {
+                log.info("📮 Outbox restored {} pending action(s) for user {}", pending.size(), user);
+            }
+        }
+        flush();
+    }
+
+    /**
+     * 🔒 Close the current user's outbox (pending actions stay on disk)
+     */
+    @Override
+    public synchronized void close() {
+        closeJournal();
+    }
+
+    public boolean enqueueStomp(String destination, String body) {
+        return enqueue(OutboundAction.builder()
+                .channel(OutboundAction.Channel.STOMP)
+                .destination(destination)
+                .body(body)
+                .build());
+    }
+
+    public boolean enqueueHttp(String method, String path, String body) {
+        return enqueue(OutboundAction.builder()
+                .channel(OutboundAction.Channel.HTTP)
+                .method(method)
+                .destination(path)
+                .body(body)
+                .build());
+    }
+
+    /**
+     * True while actions of {@code channel} are waiting; new sends on that
+     * channel must queue behind them to keep their order
+     */
+    public synchronized boolean hasPending(OutboundAction.Channel channel) {
+        return pendingByChannel.getOrDefault(channel, 0) > 0;
+    }
+
+    /**
+     * 🚀 Deliver pending actions on the flush thread (coalesced)
+     */
+    public void flush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            flusher.execute(this::drain);
+        }
+    }
+
+    // ==================== METRICS ====================
+
+    public synchronized int getDepth() {
+        return pending.size();
+    }
+
+    public synchronized int getDepth(OutboundAction.Channel channel) {
+        return pendingByChannel.getOrDefault(channel, 0);
+    }
+
+    /**
+     * Age of the oldest pending action, 0 when empty
+     */
+    public synchronized long getOldestAgeMs() {
+        return pending.isEmpty() ? 0
+                : System.currentTimeMillis() - pending.values().iterator().next().getEnqueuedAt();
+    }
+
+    /**
+     * Enqueue-to-delivery time of flushed actions, in microseconds
+     */
+    public LatencyHistogram getFlushLatency() {
+        return flushLatency;
+    }
+
+    /**
+     * Time to deliver and acknowledge one batch, in microseconds
+     */
+    public LatencyHistogram getBatchDuration() {
+        return batchDuration;
+    }
+
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public String summary() {
+        return String.format("📮 outbox depth=%d (stomp=%d, http=%d) oldest=%dms enqueued=%d delivered=%d "
+                + "dropped=%d batches=%d latency p50=%.1fms p99=%.1fms max=%.1fms",
+                getDepth(), getDepth(OutboundAction.Channel.STOMP), getDepth(OutboundAction.Channel.HTTP),
+                getOldestAgeMs(), getEnqueued(), getDelivered(), getDropped(), getBatches(),
+                flushLatency.getValueAtPercentile(50) / 1000.0, flushLatency.getValueAtPercentile(99) / 1000.0,
+                flushLatency.getMax() / 1000.0);
+    }
+
+    @Override
+    public String toString() {
+        return summary();
+    }
+
+    // ==================== INTERNALS ====================
+
+    private boolean enqueue(OutboundAction action) {
+        synchronized (this) {
+            if (journal == null) {
+                return false; // Nobody logged in: nothing to send it as
+            }
+            action.setSeq(nextSeq++);
+            action.setEnqueuedAt(System.currentTimeMillis());
+            try {
+                journal.append(action);
+            } catch (IOException e) {
+                log.error("❌ Failed to append to outbox {}: {}", journal.getFile(), e.getMessage());
+                return false;
+            }
+            pending.put(action.getSeq(), action);
+            pendingByChannel.merge(action.getChannel(), 1, Integer::sum);
+        }
+        enqueued.incrementAndGet();
+        log.info("📮 Queued {} {} (outbox depth {})", action.getChannel(), action.getDestination(), getDepth());
+        flush();
+        return true;
+    }
+
+    private void drain() {
+        flushScheduled.set(false);
+        Set<OutboundAction.Channel> held = EnumSet.noneOf(OutboundAction.Channel.class);
+        OutboundJournal batchJournal;
+        List<OutboundAction> batch;
+        while (true) {
+            synchronized (this) {
+                batchJournal = journal;
+                batch = nextBatch(held);
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            long started = System.nanoTime();
+            List<Long> done = new ArrayList<>(batch.size());
+            for (OutboundAction action : batch) {
+                if (held.contains(action.getChannel())) {
+                    continue;
+                }
+                if (deliver(action, held)) {
+                    flushLatency.record((System.currentTimeMillis() - action.getEnqueuedAt()) * 1000);
+                    delivered.incrementAndGet();
+                    done.add(action.getSeq());
+                } else if (held.contains(action.getChannel())) {
+                    continue;
+                } else {
+                    dropped.incrementAndGet();
+                    done.add(action.getSeq());
+                }
+            }
+            if (!acknowledge(batchJournal, done)) {
+                break;
+            }
+            batches.incrementAndGet();
+            batchDuration.record((System.nanoTime() - started) / 1000);
+            if (!done.isEmpty()) {
+                log.info("📮 Flushed {} queued action(s), {} left", done.size(), getDepth());
+            }
+        }
+        scheduleRetry();
+    }
+
+    /**
+     * Next actions in order, skipping channels that are held or have no
+     * transport yet
+     */
+    private List<OutboundAction> nextBatch(Set<OutboundAction.Channel> held) {
+        List<OutboundAction> batch = new ArrayList<>();
+        for (OutboundAction action : pending.values()) {
+            if (batch.size() >= batchSize) {
+                break;
+            }
+            if (!held.contains(action.getChannel()) && transports.containsKey(action.getChannel())) {
+                batch.add(action);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * @return true if delivered, false if it must be dropped (or, when its
+     *         channel has been added to {@code held}, retried later)
+     */
+    private boolean deliver(OutboundAction action, Set<OutboundAction.Channel> held) {
+        OutboundTransport transport;
+        synchronized (this) {
+            transport = transports.get(action.getChannel());
+        }
+        try {
+            transport.deliver(action).join();
+            return true;
+        } catch (RuntimeException e) {
+            FailureKind kind = FailureKind.of(e);
+            if (FailureKind.neverSent(e)) {
+                log.debug("📮 {} still unreachable ({}), holding {} queued action(s)",
+                        action.getChannel(), kind, getDepth(action.getChannel()));
+                held.add(action.getChannel());
+                return false;
+            }
+            if (!action.isRetrySafe()) {
+                log.warn("⚠️ Dropping queued {} {} {}: failed ({}) after it may have been applied",
+                        action.getChannel(), action.getMethod(), action.getDestination(), kind);
+                return false;
+            }
+            int attempt;
+            synchronized (this) {
+                attempt = attempts.merge(action.getSeq(), 1, Integer::sum);
+            }
+            if ((kind.isTransient() || kind == FailureKind.UNAUTHORIZED) && attempt < maxAttempts) {
+                log.debug("📮 {} {} failed ({}), attempt {}/{}, holding {} queued action(s)",
+                        action.getChannel(), action.getDestination(), kind, attempt, maxAttempts,
+                        getDepth(action.getChannel()));
+                held.add(action.getChannel());
+                return false;
+            }
+            log.warn("⚠️ Dropping queued {} {}: {} after {} attempt(s)", action.getChannel(),
+                    action.getDestination(), kind, attempt);
+            return false;
+        }
+    }
+
+    private boolean acknowledge(OutboundJournal batchJournal, List<Long> done) {
+        synchronized (this) {
+            if (batchJournal != journal) {
+                return false; // User switched while flushing: their outbox was reloaded
+            }
+            try {
+                journal.acknowledge(done);
+            } catch (IOException e) {
+                log.error("❌ Failed to acknowledge outbox batch: {}", e.getMessage());
+                return false;
+            }
+            for (Long seq : done) {
+                OutboundAction action = pending.remove(seq);
+                attempts.remove(seq);
+                if (action != null) {
+                    pendingByChannel.merge(action.getChannel(), -1, Integer::sum);
+                }
+            }
+            try {
+                journal.compactIfNeeded(pending.values(), compactThreshold);
+            } catch (IOException e) {
+                log.warn("⚠️ Failed to compact outbox {}: {}", journal.getFile(), e.getMessage());
+            }
+            return true;
+        }
+    }
+
+    private void scheduleRetry() {
+        synchronized (this) {
+            if (pending.isEmpty() || (retry != null && !retry.isDone())) {
+                return;
+            }
+            retry = flusher.schedule(this::flush, retryIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            journal.close();
+        }
+        journal = null;
+        userId = null;
+        pending.clear();
+        attempts.clear();
+        pendingByChannel.clear();
+        nextSeq = 1;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.client.outbox;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 🚚 Delivers queued {@link OutboundAction}s of one channel
+ *
+ * The returned future completes once the action is handed to the server. A
+ * transient failure (see {@link com.example.demo.client.http.FailureKind})
+ * keeps the action and everything behind it queued; any other failure means
+ * the server rejected it, and it is dropped.
+ */
+@FunctionalInterface
+public interface OutboundTransport {
+
+    CompletableFuture<?> deliver(OutboundAction action);
+}
@@ -1,43 +1,101 @@
 package com.example.demo.client.service;
 
+import com.example.demo.client.config.ServerConfig;
+import com.example.demo.client.http.ChunkedUploader;
+import com.example.demo.client.http.DownloadManager;
+import com.example.demo.client.http.FailureKind;
+import com.example.demo.client.http.HttpTransport;
+import com.example.demo.client.http.MediaCache;
+import com.example.demo.client.http.MultipartUploader;
+import com.example.demo.client.http.RequestInstrumentation;
+import com.example.demo.client.http.Resilience;
+import com.example.demo.client.http.ResponseCache;
+import com.example.demo.client.http.SingleFlight;
+import com.example.demo.client.http.TransferStats;
+import com.example.demo.client.http.Upload;
+import com.example.demo.client.http.UploadCheckpoint;
+import com.example.demo.client.http.UploadMetrics;
+import com.example.demo.client.http.UploadProgressListener;
+import com.example.demo.client.json.JsonCodec;
 import com.example.demo.client.model.ChatRoom;
 import com.example.demo.client.model.User;
 import com.example.demo.client.model.ChatMessage;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.example.demo.client.model.MessagePage;
+import com.example.demo.client.outbox.OutboundAction;
+import com.example.demo.client.outbox.OutboundQueue;
+import com.fasterxml.jackson.core.type.TypeReference;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
 import java.nio.charset.StandardCharsets;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.*;
-import java.time.LocalDateTime;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * 🌐 ChatService - REST API client for backend
+ *
+ * Every call goes through the shared {@link HttpTransport}. Each public method
+ * has a non-blocking {@code ...Async} variant returning a CompletableFuture;
+ * the blocking method joins it, so both paths share the same logic. A failed
+ * async call completes exceptionally with the classified cause (see
+ * {@link FailureKind}); only the blocking methods turn it into an empty
+ * list, false or null.
  */
 @Slf4j
 public class ChatService {
 
+    private static final TypeReference<List<Map<String, Object>>> MAP_LIST = new TypeReference<>() {
+    };
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {
+    };
+
     private final String baseUrl;
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private String jwtToken;
-    private Long currentUserId; // Store current user's ID after login
+    private final HttpTransport transport;
+    private final MessagePageReader pageReader = new MessagePageReader();
+    private final MultipartUploader uploader;
+    private final ChunkedUploader chunkedUploader;
+    private final DownloadManager downloadManager;
+    private final MediaCache mediaCache;
+    private final OutboundQueue outbox = new OutboundQueue();
+    private final ReactionSummaryService reactionSummaries = new ReactionSummaryService(this);
+    private final ReactionModel reactionModel = new ReactionModel(this, reactionSummaries);
+    private final RoomRoleCache roomRoles = new RoomRoleCache(
+            roomId -> getCachedAsync(membersWithRolesEndpoint(roomId), response -> readValue(response, MAP_LIST)));
+    private final long chunkedThreshold = ServerConfig.getLong("upload.chunked-threshold-bytes", 32L * 1024 * 1024);
+    private volatile String jwtToken;
+    private volatile Long currentUserId; // Store current user's ID after login
+    private final PresenceIndex presenceIndex = new PresenceIndex();
+    private final RequestCountMetrics requestMetrics = new RequestCountMetrics();
+    private final SingleFlight<String, byte[]> singleFlight = new SingleFlight<>(
+            ServerConfig.getLong("http.single-flight-window-ms", 1_000));
+    private final SingleFlight<String, Object> cachedFlight = new SingleFlight<>(
+            ServerConfig.getLong("http.single-flight-window-ms", 1_000));
+    private final ResponseCache responseCache = new ResponseCache(
+            ServerConfig.getLong("http.cache.max-bytes", 16L * 1024 * 1024));
 
     public ChatService(String baseUrl) {
+        this(baseUrl, new HttpTransport(baseUrl));
+    }
+
+    public ChatService(String baseUrl, HttpTransport transport) {
         this.baseUrl = baseUrl;
-        // Register Java 8 date/time module
-        objectMapper.registerModule(new JavaTimeModule());
-        // Write dates as ISO-8601 strings instead of arrays
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.transport = transport;
+        this.uploader = new MultipartUploader(transport);
+        this.chunkedUploader = new ChunkedUploader(transport, uploader.getMetrics());
+        this.mediaCache = new MediaCache(transport);
+        this.downloadManager = new DownloadManager(transport, mediaCache);
+        this.outbox.setTransport(OutboundAction.Channel.HTTP, action -> write(action.getDestination(),
+                transport.sendAsync(action.getMethod(), action.getDestination(),
+                        action.getBody() != null ? HttpTransport.JSON : null, action.getBody(), bearer(true))));
     }
 
     /**
@@ -65,431 +123,449 @@ public class ChatService {
      * �🔐 Login user
      */
     public LoginResponse login(String username, String password) {
-        try {
-            Map<String, String> loginRequest = new HashMap<>();
-            loginRequest.put("username", username);
-            loginRequest.put("password", password);
-
-            String response = post("/api/auth/login", objectMapper.writeValueAsString(loginRequest), false);
-            LoginResponse result = objectMapper.readValue(response, LoginResponse.class);
-
-            if (result.getToken() != null) {
-                this.jwtToken = result.getToken();
-                this.currentUserId = result.getUserId(); // Store user ID
-                log.info("Logged in as " + username + " (ID: " + this.currentUserId + ")");
-            }
-
-            return result;
-
-        } catch (Exception e) {
-            log.error("Login failed: " + e.getMessage());
-            log.error("Login error", e);
-            return null;
-        }
+        return orElse(loginAsync(username, password), null);
+    }
+
+    public CompletableFuture<LoginResponse> loginAsync(String username, String password) {
+        Map<String, String> loginRequest = new HashMap<>();
+        loginRequest.put("username", username);
+        loginRequest.put("password", password);
+
+        return postAsync("/api/auth/login", writeJson(loginRequest), false)
+                .thenApply(response -> {
+                    LoginResponse result = readValue(response, LoginResponse.class);
+                    if (result.getToken() != null) {
+                        this.jwtToken = result.getToken();
+                        this.currentUserId = result.getUserId(); // Store user ID
+                        presenceIndex.clear();
+                        outbox.open(this.currentUserId);
+                        log.info("Logged in as " + username + " (ID: " + this.currentUserId + ")");
+                    }
+                    return result;
+                })
+                .exceptionally(e -> {
+                    log.error("Login failed: " + errorMessage(e));
+                    log.error("Login error", HttpTransport.unwrap(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * � Register new user
      */
     public boolean register(String username, String password, String displayName) {
-        try {
-            Map<String, String> registerRequest = new HashMap<>();
-            registerRequest.put("username", username);
-            registerRequest.put("password", password);
-            registerRequest.put("displayName", displayName);
+        return orElse(registerAsync(username, password, displayName), false);
+    }
 
-            post("/api/auth/register", objectMapper.writeValueAsString(registerRequest), false);
-            log.info("User registered successfully!");
-            return true;
+    public CompletableFuture<Boolean> registerAsync(String username, String password, String displayName) {
+        Map<String, String> registerRequest = new HashMap<>();
+        registerRequest.put("username", username);
+        registerRequest.put("password", password);
+        registerRequest.put("displayName", displayName);
 
-        } catch (Exception e) {
-            log.error("Registration failed: " + e.getMessage());
-            log.error("Registration error", e);
-            return false;
-        }
+        return postAsync("/api/auth/register", writeJson(registerRequest), false)
+                .thenApply(response -> {
+                    log.info("User registered successfully!");
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Registration failed: " + errorMessage(e));
+                    log.error("Registration error", HttpTransport.unwrap(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * �🔓 Logout
      */
     public void logout() {
-        try {
-            post("/api/auth/logout", "{}", true);
-            jwtToken = null;
-            log.info("Logged out successfully");
-        } catch (Exception e) {
-            log.error("Logout failed: " + e.getMessage());
-            log.error("Logout error", e);
-        }
+        orElse(logoutAsync(), null);
+    }
+
+    public CompletableFuture<Void> logoutAsync() {
+        return postAsync("/api/auth/logout", "{}", true)
+                .thenAccept(response -> {
+                    jwtToken = null;
+                    currentUserId = null;
+                    presenceIndex.clear();
+                    responseCache.clear();
+                    roomRoles.clear();
+                    outbox.close();
+                    log.info("Logged out successfully");
+                })
+                .exceptionally(e -> {
+                    log.error("Logout failed: " + errorMessage(e));
+                    log.error("Logout error", HttpTransport.unwrap(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 📚 Get all rooms
      */
     public List<ChatRoom> getRooms() {
-        try {
-            String response = get("/api/rooms", true);
-            List<ChatRoom> rooms = objectMapper.readValue(response,
-                    TypeFactory.defaultInstance().constructCollectionType(List.class, ChatRoom.class));
-            return rooms;
+        return orElse(getRoomsAsync(), new ArrayList<>());
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to fetch rooms: " + e.getMessage());
-            return new ArrayList<>();
-        }
+    public CompletableFuture<List<ChatRoom>> getRoomsAsync() {
+        return getBytesAsync("/api/rooms", true)
+                .thenApply(response -> readList(response, ChatRoom.class))
+                .exceptionally(e -> {
+                    log.error("Failed to fetch rooms: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 📚 Get room by ID
      */
     public ChatRoom getRoom(Long roomId) {
-        try {
-            String response = get("/api/rooms/" + roomId, true);
-            return objectMapper.readValue(response, ChatRoom.class);
+        return orElse(getRoomAsync(roomId), null);
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to fetch room: " + e.getMessage());
-            return null;
-        }
+    public CompletableFuture<ChatRoom> getRoomAsync(Long roomId) {
+        return getAsync("/api/rooms/" + roomId, true)
+                .thenApply(response -> readValue(response, ChatRoom.class))
+                .exceptionally(e -> {
+                    log.error("Failed to fetch room: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 👥 Get online users
      */
     public List<User> getOnlineUsers() {
-        try {
-            String response = get("/api/users/online", true);
-            log.info("📥 Online users response: {}", response);
-
-            // Parse as raw maps first to debug
-            List<java.util.Map<String, Object>> userMaps = objectMapper.readValue(response,
-                    TypeFactory.defaultInstance().constructCollectionType(List.class, java.util.Map.class));
-
-            List<User> users = new ArrayList<>();
-            for (java.util.Map<String, Object> map : userMaps) {
-                if (map != null) {
-                    User user = new User();
-                    if (map.get("id") != null) {
-                        user.setId(Long.valueOf(map.get("id").toString()));
-                    }
-                    user.setUsername((String) map.get("username"));
-                    user.setDisplayName((String) map.get("displayName"));
-                    user.setAvatarUrl((String) map.get("avatarUrl"));
-
-                    // Parse status
-                    String statusStr = map.get("status") != null ? map.get("status").toString() : null;
-                    if (statusStr != null) {
-                        try {
-                            user.setStatus(User.Status.valueOf(statusStr));
-                        } catch (Exception e) {
+        return orElse(getOnlineUsersAsync(), new ArrayList<>());
+    }
+
+    public CompletableFuture<List<User>> getOnlineUsersAsync() {
+        return fetchOnlineUsersAsync(new AtomicInteger());
+    }
+
+    private CompletableFuture<List<User>> fetchOnlineUsersAsync(AtomicInteger requests) {
+        return getBytesAsync("/api/users/online", true, requests)
+                .thenApply(response -> {
+                    List<User> users = readList(response, User.class);
+                    for (User user : users) {
+                        if (user != null && user.getStatus() == null) {
                             user.setStatus(User.Status.ONLINE); // Default for online users list
                         }
-                    } else {
-                        user.setStatus(User.Status.ONLINE);
                     }
-
-                    users.add(user);
-                    log.debug("Parsed online user: id={}, username={}, status={}",
-                            user.getId(), user.getUsername(), user.getStatus());
-                }
-            }
-
-            log.info("✅ Parsed {} online users", users.size());
-            return users;
-
-        } catch (Exception e) {
-            log.error("❌ Failed to fetch online users: " + e.getMessage(), e);
-            return new ArrayList<>();
-        }
+                    users.removeIf(Objects::isNull);
+                    // Every full list is a fresh presence snapshot
+                    presenceIndex.replaceAll(users);
+                    log.info("✅ Parsed {} online users", users.size());
+                    return users;
+                })
+                .exceptionally(e -> {
+                    log.error("❌ Failed to fetch online users: " + errorMessage(e), HttpTransport.unwrap(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 👥 Get all users
      */
     public List<User> getAllUsers() {
-        try {
-            String response = get("/api/users", true);
-            List<User> users = objectMapper.readValue(response,
-                    TypeFactory.defaultInstance().constructCollectionType(List.class, User.class));
-            return users;
+        return orElse(getAllUsersAsync(), new ArrayList<>());
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to fetch users: " + e.getMessage());
-            return new ArrayList<>();
-        }
+    public CompletableFuture<List<User>> getAllUsersAsync() {
+        return getBytesAsync("/api/users", true)
+                .thenApply(response -> readList(response, User.class))
+                .exceptionally(e -> {
+                    log.error("Failed to fetch users: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 👥 Get friends list with online/offline status
      */
     public List<java.util.Map<String, Object>> getFriends() {
-        try {
-            String response = get("/api/friends", true);
-            // Parse as FriendshipDto list first
-            List<java.util.Map<String, Object>> friendshipDtos = objectMapper.readValue(response,
-                    TypeFactory.defaultInstance().constructCollectionType(List.class, java.util.Map.class));
-
-            // Get online users to check status
-            Set<Long> onlineUserIds = new java.util.HashSet<>();
-            try {
-                List<User> onlineUsers = getOnlineUsers();
-                for (User u : onlineUsers) {
-                    if (u != null && u.getId() != null) {
-                        onlineUserIds.add(u.getId());
-                    }
-                }
-            } catch (Exception e) {
-                log.warn("Could not fetch online users for status check: " + e.getMessage());
-            }
-
-            // Convert to the expected format for UI
-            List<java.util.Map<String, Object>> friends = new ArrayList<>();
-            Set<Long> addedUserIds = new java.util.HashSet<>(); // Track added users to avoid duplicates
-
-            for (java.util.Map<String, Object> friendship : friendshipDtos) {
-                // Extract friend info from the friendship object
-                @SuppressWarnings("unchecked")
-                java.util.Map<String, Object> friend = (java.util.Map<String, Object>) friendship.get("friend");
-                if (friend != null) {
-                    Long friendId = Long.valueOf(friend.get("id").toString());
-                    if (!addedUserIds.contains(friendId)) {
-                        java.util.Map<String, Object> friendData = new java.util.HashMap<>();
-                        friendData.put("id", friendId);
-                        friendData.put("friendshipId", friendship.get("id")); // Add friendshipId for remove feature
-                        friendData.put("username", friend.get("username"));
-                        friendData.put("displayName", friend.get("displayName"));
-                        friendData.put("avatarUrl", friend.get("avatarUrl"));
-                        // Check if user is online
-                        String status = onlineUserIds.contains(friendId) ? "ONLINE" : "OFFLINE";
-                        // Also check if status provided in API response
-                        if (friend.get("status") != null) {
-                            status = friend.get("status").toString();
+        return orElse(getFriendsAsync(), new ArrayList<>());
+    }
+
+    public CompletableFuture<List<Map<String, Object>>> getFriendsAsync() {
+        // Presence and identity come from local state; only the first refresh after
+        // login has to fetch them (concurrently with the friends list)
+        AtomicInteger requests = new AtomicInteger();
+        // Both are best effort: without them the list still loads, just with less status
+        CompletableFuture<?> presence = presenceIndex.isSeeded()
+                ? CompletableFuture.completedFuture(null)
+                : fetchOnlineUsersAsync(requests).exceptionally(e -> null);
+        CompletableFuture<Long> identity = resolveCurrentUserIdAsync(requests).exceptionally(e -> null);
+
+        return getBytesAsync("/api/friends", true, requests)
+                .thenCombine(presence, (response, ignored) -> response)
+                .thenCombine(identity, (response, myId) -> {
+                    List<Friendship> friendshipDtos = readList(response, Friendship.class);
+
+                    // Convert to the expected format for UI
+                    List<Map<String, Object>> friends = new ArrayList<>();
+                    Set<Long> addedUserIds = new HashSet<>(); // Track added users to avoid duplicates
+
+                    for (Friendship friendship : friendshipDtos) {
+                        // Extract friend info from the friendship object
+                        User friend = friendship.friend;
+                        if (friend != null && friend.getId() != null && addedUserIds.add(friend.getId())) {
+                            friends.add(toFriendData(friend, friendship.id));
                         }
-                        friendData.put("status", status);
-                        // Copy showOnlineStatus for privacy setting
-                        friendData.put("showOnlineStatus", friend.get("showOnlineStatus"));
-                        friends.add(friendData);
-                        addedUserIds.add(friendId);
-                    }
-                }
 
-                // Also add the user if it's not the current user (bidirectional friendship)
-                @SuppressWarnings("unchecked")
-                java.util.Map<String, Object> user = (java.util.Map<String, Object>) friendship.get("user");
-                if (user != null) {
-                    User currentUser = getCurrentUser();
-                    Long userId = Long.valueOf(user.get("id").toString());
-                    if (currentUser != null && !userId.equals(currentUser.getId()) && !addedUserIds.contains(userId)) {
-                        java.util.Map<String, Object> friendData = new java.util.HashMap<>();
-                        friendData.put("id", userId);
-                        friendData.put("friendshipId", friendship.get("id")); // Add friendshipId for remove feature
-                        friendData.put("username", user.get("username"));
-                        friendData.put("displayName", user.get("displayName"));
-                        friendData.put("avatarUrl", user.get("avatarUrl"));
-                        // Check if user is online
-                        String status = onlineUserIds.contains(userId) ? "ONLINE" : "OFFLINE";
-                        if (user.get("status") != null) {
-                            status = user.get("status").toString();
+                        // Also add the user if it's not the current user (bidirectional friendship)
+                        User user = friendship.user;
+                        if (user != null && user.getId() != null && myId != null
+                                && !user.getId().equals(myId) && addedUserIds.add(user.getId())) {
+                            friends.add(toFriendData(user, friendship.id));
                         }
-                        friendData.put("status", status);
-                        // Copy showOnlineStatus for privacy setting
-                        friendData.put("showOnlineStatus", user.get("showOnlineStatus"));
-                        friends.add(friendData);
-                        addedUserIds.add(userId);
                     }
-                }
-            }
 
-            return friends;
+                    return friends;
+                })
+                .whenComplete((friends, e) -> requestMetrics.record("getFriends", requests.get()))
+                .exceptionally(e -> {
+                    log.error("Failed to fetch friends: " + errorMessage(e));
+                    throw failed(e);
+                });
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to fetch friends: " + e.getMessage());
-            return new ArrayList<>();
-        }
+    /**
+     * Friend entry in the map format the UI expects
+     */
+    private Map<String, Object> toFriendData(User friend, Long friendshipId) {
+        Map<String, Object> friendData = new HashMap<>();
+        friendData.put("id", friend.getId());
+        friendData.put("friendshipId", friendshipId); // Add friendshipId for remove feature
+        friendData.put("username", friend.getUsername());
+        friendData.put("displayName", friend.getDisplayName());
+        friendData.put("avatarUrl", friend.getAvatarUrl());
+        // Status provided in API response wins, otherwise use the presence index
+        String status = friend.getStatus() != null ? friend.getStatus().name()
+                : presenceIndex.isOnline(friend.getId()) ? "ONLINE" : "OFFLINE";
+        friendData.put("status", status);
+        // Copy showOnlineStatus for privacy setting
+        friendData.put("showOnlineStatus", friend.getShowOnlineStatus());
+        return friendData;
     }
 
     /**
      * Join room
      */
     public boolean joinRoom(Long roomId) {
-        try {
-            post("/api/rooms/" + roomId + "/join", "{}", true);
-            log.info("Joined room " + roomId);
-            return true;
-
-        } catch (Exception e) {
-            String errorMsg = e.getMessage();
-
-            // Check if user is already in the room
-            if (errorMsg.contains("HTTP 403")) {
-                log.warn("Already a member of this room or access denied");
-                return true; // Treat as success since user can access the room
-            }
+        return orElse(joinRoomAsync(roomId), false);
+    }
+
+    public CompletableFuture<Boolean> joinRoomAsync(Long roomId) {
+        return postAsync("/api/rooms/" + roomId + "/join", "{}", true)
+                .thenApply(response -> {
+                    log.info("Joined room " + roomId);
+                    roomRoles.invalidate(roomId);
+                    return true;
+                })
+                .exceptionally(e -> {
+                    String errorMsg = errorMessage(e);
+
+                    // Check if user is already in the room
+                    if (errorMsg.contains("HTTP 403")) {
+                        log.warn("Already a member of this room or access denied");
+                        return true; // Treat as success since user can access the room
+                    }
 
-            log.error("Failed to join room: " + errorMsg);
-            return false;
-        }
+                    log.error("Failed to join room: " + errorMsg);
+                    throw failed(e);
+                });
     }
 
     /**
      * 🚪 Leave room
      */
     public boolean leaveRoom(Long roomId) {
-        try {
-            post("/api/rooms/" + roomId + "/leave", "{}", true);
-            log.info("Left room " + roomId);
-            return true;
+        return orElse(leaveRoomAsync(roomId), false);
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to leave room: " + e.getMessage());
-            return false;
-        }
+    public CompletableFuture<Boolean> leaveRoomAsync(Long roomId) {
+        return postAsync("/api/rooms/" + roomId + "/leave", "{}", true)
+                .thenApply(response -> {
+                    log.info("Left room " + roomId);
+                    roomRoles.invalidate(roomId);
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to leave room: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 🗑️ Delete room (only for owner)
      */
     public boolean deleteRoom(Long roomId) {
-        try {
-            delete("/api/rooms/" + roomId, true);
-            log.info("Room " + roomId + " deleted successfully");
-            return true;
+        return orElse(deleteRoomAsync(roomId), false);
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to delete room: " + e.getMessage());
-            return false;
-        }
+    public CompletableFuture<Boolean> deleteRoomAsync(Long roomId) {
+        return deleteAsync("/api/rooms/" + roomId, true)
+                .thenApply(response -> {
+                    log.info("Room " + roomId + " deleted successfully");
+                    roomRoles.invalidate(roomId);
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to delete room: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 🔍 Search users by username
      */
     public List<User> searchUsers(String keyword) {
-        try {
-            String encodedKeyword = java.net.URLEncoder.encode(keyword, "UTF-8");
-            String endpoint = "/api/friends/search?query=" + encodedKeyword;
-            log.info("🔍 Searching users with endpoint: {}", endpoint);
-
-            String response = get(endpoint, true);
-            log.info("📥 Search response: {}", response);
+        return orElse(searchUsersAsync(keyword), new ArrayList<>());
+    }
 
-            List<User> users = objectMapper.readValue(response,
-                    TypeFactory.defaultInstance().constructCollectionType(List.class, User.class));
-            log.info("✅ Found {} users", users.size());
-            return users;
+    public CompletableFuture<List<User>> searchUsersAsync(String keyword) {
+        String endpoint = "/api/friends/search?query=" + URLEncoder.encode(keyword, StandardCharsets.UTF_8);
+        log.info("🔍 Searching users with endpoint: {}", endpoint);
 
-        } catch (Exception e) {
-            log.error("❌ Failed to search users: " + e.getMessage(), e);
-            return new ArrayList<>();
-        }
+        return getAsync(endpoint, true)
+                .thenApply(response -> {
+                    log.info("📥 Search response: {}", response);
+                    List<User> users = readList(response, User.class);
+                    log.info("✅ Found {} users", users.size());
+                    return users;
+                })
+                .exceptionally(e -> {
+                    log.error("❌ Failed to search users: " + errorMessage(e), HttpTransport.unwrap(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 👫 Add friend (send friend request)
-     * 
+     *
      * @return null if success, error message string if failed
      */
     public String addFriend(Long userId) {
-        try {
-            // Use query parameter for the friend request endpoint
-            String endpoint = String.format("/api/friends/request?friendId=%d", userId);
-            post(endpoint, "{}", true);
-            log.info("Friend request sent!");
-            return null; // Success
-
-        } catch (Exception e) {
-            String errorMsg = e.getMessage();
-
-            // Parse backend error message from HTTP response
-            if (errorMsg.contains("already sent a friend request")) {
-                return "Bạn đã gửi lời mời kết bạn đến người dùng này rồi!";
-            }
-            if (errorMsg.contains("already friends")) {
-                return "Bạn đã là bạn bè với người dùng này!";
-            }
-            if (errorMsg.contains("HTTP 409")) {
-                log.warn("Already friends or request already sent");
-                return null; // Treat as success
-            }
-            if (errorMsg.contains("HTTP 400")) {
-                // Try to extract message from JSON response
-                if (errorMsg.contains("\"message\"")) {
-                    int start = errorMsg.indexOf("\"message\":\"") + 11;
-                    int end = errorMsg.indexOf("\"", start);
-                    if (start > 10 && end > start) {
-                        return errorMsg.substring(start, end);
+        return addFriendAsync(userId).join();
+    }
+
+    public CompletableFuture<String> addFriendAsync(Long userId) {
+        // Use query parameter for the friend request endpoint
+        String endpoint = String.format("/api/friends/request?friendId=%d", userId);
+        return postAsync(endpoint, "{}", true)
+                .thenApply(response -> {
+                    log.info("Friend request sent!");
+                    return (String) null; // Success
+                })
+                .exceptionally(e -> {
+                    String errorMsg = errorMessage(e);
+
+                    // Parse backend error message from HTTP response
+                    if (errorMsg.contains("already sent a friend request")) {
+                        return "Bạn đã gửi lời mời kết bạn đến người dùng này rồi!";
+                    }
+                    if (errorMsg.contains("already friends")) {
+                        return "Bạn đã là bạn bè với người dùng này!";
+                    }
+                    if (errorMsg.contains("HTTP 409")) {
+                        log.warn("Already friends or request already sent");
+                        return null; // Treat as success
+                    }
+                    if (errorMsg.contains("HTTP 400")) {
+                        // Try to extract message from JSON response
+                        if (errorMsg.contains("\"message\"")) {
+                            int start = errorMsg.indexOf("\"message\":\"") + 11;
+                            int end = errorMsg.indexOf("\"", start);
+                            if (start > 10 && end > start) {
+                                return errorMsg.substring(start, end);
+                            }
+                        }
+                        return "Không thể gửi lời mời kết bạn";
                     }
-                }
-                return "Không thể gửi lời mời kết bạn";
-            }
 
-            log.error("Failed to add friend: " + errorMsg);
-            return "Lỗi: " + errorMsg;
-        }
+                    log.error("Failed to add friend: " + errorMsg);
+                    if (FailureKind.of(e).isTransient()) {
+                        return "Máy chủ tạm thời không phản hồi, vui lòng thử lại sau";
+                    }
+                    return "Lỗi: " + errorMsg;
+                });
     }
 
     /**
      * 📥 Get pending friend requests
      */
     public List<java.util.Map<String, Object>> getPendingRequests() {
-        try {
-            String response = get("/api/friends/pending", true);
-            List<java.util.Map<String, Object>> pending = objectMapper.readValue(response,
-                    TypeFactory.defaultInstance().constructCollectionType(List.class, java.util.Map.class));
-            return pending;
+        return orElse(getPendingRequestsAsync(), new ArrayList<>());
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to fetch pending requests: " + e.getMessage());
-            return new ArrayList<>();
-        }
+    public CompletableFuture<List<Map<String, Object>>> getPendingRequestsAsync() {
+        return getBytesAsync("/api/friends/pending", true)
+                .thenApply(response -> readValue(response, MAP_LIST))
+                .exceptionally(e -> {
+                    log.error("Failed to fetch pending requests: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * ✅ Accept friend request
      */
     public boolean acceptFriendRequest(Long friendshipId) {
-        try {
-            String endpoint = String.format("/api/friends/%d/accept", friendshipId);
-            post(endpoint, "{}", true);
-            log.info("Friend request accepted!");
-            return true;
+        return orElse(acceptFriendRequestAsync(friendshipId), false);
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to accept friend request: " + e.getMessage());
-            return false;
-        }
+    public CompletableFuture<Boolean> acceptFriendRequestAsync(Long friendshipId) {
+        String endpoint = String.format("/api/friends/%d/accept", friendshipId);
+        return postAsync(endpoint, "{}", true)
+                .thenApply(response -> {
+                    log.info("Friend request accepted!");
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to accept friend request: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * ❌ Decline friend request
      */
     public boolean declineFriendRequest(Long friendshipId) {
-        try {
-            String endpoint = String.format("/api/friends/%d/decline", friendshipId);
-            delete(endpoint, true);
-            log.info("Friend request declined!");
-            return true;
+        return orElse(declineFriendRequestAsync(friendshipId), false);
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to decline friend request: " + e.getMessage());
-            return false;
-        }
+    public CompletableFuture<Boolean> declineFriendRequestAsync(Long friendshipId) {
+        String endpoint = String.format("/api/friends/%d/decline", friendshipId);
+        return deleteAsync(endpoint, true)
+                .thenApply(response -> {
+                    log.info("Friend request declined!");
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to decline friend request: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 🗑️ Remove friend (delete friendship)
      */
     public boolean removeFriend(Long friendshipId) {
-        try {
-            String endpoint = String.format("/api/friends/%d", friendshipId);
-            delete(endpoint, true);
-            log.info("Friend removed successfully!");
-            return true;
+        return orElse(removeFriendAsync(friendshipId), false);
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to remove friend: " + e.getMessage());
-            return false;
-        }
+    public CompletableFuture<Boolean> removeFriendAsync(Long friendshipId) {
+        String endpoint = String.format("/api/friends/%d", friendshipId);
+        return deleteAsync(endpoint, true)
+                .thenApply(response -> {
+                    log.info("Friend removed successfully!");
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to remove friend: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
@@ -499,198 +575,189 @@ public class ChatService {
         return addFriend(friendId) == null; // null means success
     }
 
+    public CompletableFuture<Boolean> sendFriendRequestAsync(Long friendId) {
+        return addFriendAsync(friendId).thenApply(error -> error == null);
+    }
+
     /**
      * 🏠 Create new room
      */
     public ChatRoom createRoom(String roomName, String description, boolean isPrivate) {
-        try {
-            Map<String, Object> request = new HashMap<>();
-            request.put("name", roomName);
-            request.put("description", description);
-            request.put("isPrivate", isPrivate);
-            String response = post("/api/rooms", objectMapper.writeValueAsString(request), true);
-            ChatRoom room = objectMapper.readValue(response, ChatRoom.class);
-            log.info("Room created: " + roomName + " (private=" + isPrivate + ")");
-            return room;
+        return orElse(createRoomAsync(roomName, description, isPrivate), null);
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to create room: " + e.getMessage());
-            return null;
-        }
+    public CompletableFuture<ChatRoom> createRoomAsync(String roomName, String description, boolean isPrivate) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("name", roomName);
+        request.put("description", description);
+        request.put("isPrivate", isPrivate);
+        return postAsync("/api/rooms", writeJson(request), true)
+                .thenApply(response -> {
+                    ChatRoom room = readValue(response, ChatRoom.class);
+                    log.info("Room created: " + roomName + " (private=" + isPrivate + ")");
+                    return room;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to create room: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * � Get my rooms (rooms I own or joined)
      */
     public List<ChatRoom> getMyRooms() {
+        return orElse(getMyRoomsAsync(), new ArrayList<>());
+    }
 
-        try {
-            String response = get("/api/rooms/my-rooms", true);
-            List<ChatRoom> rooms = objectMapper.readValue(response,
-                    TypeFactory.defaultInstance().constructCollectionType(List.class, ChatRoom.class));
-            return rooms;
-
-        } catch (Exception e) {
-            log.error("Failed to fetch my rooms: " + e.getMessage());
-            return new ArrayList<>();
-        }
+    public CompletableFuture<List<ChatRoom>> getMyRoomsAsync() {
+        return getCachedAsync("/api/rooms/my-rooms", response -> readList(response, ChatRoom.class))
+                .exceptionally(e -> {
+                    log.error("Failed to fetch my rooms: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 🌐 Get public rooms
      */
     public List<ChatRoom> getPublicRooms() {
-        try {
-            String response = get("/api/rooms/public", true);
-            List<ChatRoom> rooms = objectMapper.readValue(response,
-                    TypeFactory.defaultInstance().constructCollectionType(List.class, ChatRoom.class));
-            return rooms;
+        return orElse(getPublicRoomsAsync(), new ArrayList<>());
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to fetch public rooms: " + e.getMessage());
-            return new ArrayList<>();
-        }
+    public CompletableFuture<List<ChatRoom>> getPublicRoomsAsync() {
+        return getCachedAsync("/api/rooms/public", response -> readList(response, ChatRoom.class))
+                .exceptionally(e -> {
+                    log.error("Failed to fetch public rooms: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 📨 Get room messages/history
      */
     public List<ChatMessage> getRoomMessages(Long roomId) {
-        try {
-            String response = get("/api/messages/room/" + roomId, true);
-            List<java.util.Map<String, Object>> messageMaps = objectMapper.readValue(response,
-                    TypeFactory.defaultInstance().constructCollectionType(List.class, java.util.Map.class));
-
-            List<ChatMessage> messages = new ArrayList<>();
-            for (Map<String, Object> map : messageMaps) {
-                ChatMessage msg = new ChatMessage();
-                msg.setId(((Number) map.get("id")).longValue());
-                msg.setRoomId(((Number) map.get("roomId")).longValue());
-                msg.setSenderId(((Number) map.get("senderId")).longValue());
-                msg.setSenderUsername((String) map.get("senderUsername"));
-                msg.setSenderDisplayName((String) map.get("senderDisplayName"));
-                msg.setContent((String) map.get("content"));
-                msg.setTimestamp(LocalDateTime.parse((String) map.get("createdAt")));
-
-                // Parse message type correctly (fix: was missing, causing file messages to show
-                // as text)
-                String messageTypeStr = (String) map.get("messageType");
-                if (messageTypeStr != null) {
-                    try {
-                        msg.setMessageType(ChatMessage.MessageType.valueOf(messageTypeStr));
-                    } catch (IllegalArgumentException e) {
-                        msg.setMessageType(ChatMessage.MessageType.TEXT);
-                    }
-                } else {
-                    msg.setMessageType(ChatMessage.MessageType.TEXT);
-                }
-
-                // Parse fileName for file messages
-                msg.setFileName((String) map.get("fileName"));
-
-                msg.setRecalled((Boolean) map.getOrDefault("recalled", false));
-                messages.add(msg);
-            }
-            return messages;
+        return orElse(getRoomMessagesAsync(roomId), new ArrayList<>());
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to fetch room messages: " + e.getMessage());
-            return new ArrayList<>();
-        }
+    public CompletableFuture<List<ChatMessage>> getRoomMessagesAsync(Long roomId) {
+        return getBytesAsync("/api/messages/room/" + roomId, true)
+                .thenApply(response -> readList(response, ChatMessage.class))
+                .exceptionally(e -> {
+                    log.error("Failed to fetch room messages: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * � Get private messages between current user and another user
      */
     public List<ChatMessage> getPrivateMessages(Long otherUserId) {
-        try {
-            String response = get("/api/messages/private/" + otherUserId, true);
-            List<java.util.Map<String, Object>> messageMaps = objectMapper.readValue(response,
-                    TypeFactory.defaultInstance().constructCollectionType(List.class, java.util.Map.class));
-
-            List<ChatMessage> messages = new ArrayList<>();
-            for (Map<String, Object> map : messageMaps) {
-                ChatMessage msg = new ChatMessage();
-                // Safely parse ID with null check
-                if (map.get("id") != null) {
-                    msg.setId(((Number) map.get("id")).longValue());
-                    log.debug("📨 Parsed private message id: {}", msg.getId());
-                } else {
-                    log.warn("⚠️ Private message has null ID!");
-                }
-                msg.setSenderId(((Number) map.get("senderId")).longValue());
-                msg.setSenderUsername((String) map.get("senderUsername"));
-                msg.setSenderDisplayName((String) map.get("senderDisplayName"));
-                msg.setContent((String) map.get("content"));
-
-                // Handle recipientId if present
-                if (map.get("recipientId") != null) {
-                    msg.setRecipientId(((Number) map.get("recipientId")).longValue());
-                }
+        return orElse(getPrivateMessagesAsync(otherUserId), new ArrayList<>());
+    }
 
-                // Parse timestamp - handle both createdAt and timestamp fields
-                String timestampStr = (String) map.get("createdAt");
-                if (timestampStr == null) {
-                    timestampStr = (String) map.get("timestamp");
-                }
-                if (timestampStr != null) {
-                    msg.setTimestamp(LocalDateTime.parse(timestampStr));
-                }
+    public CompletableFuture<List<ChatMessage>> getPrivateMessagesAsync(Long otherUserId) {
+        return getBytesAsync("/api/messages/private/" + otherUserId, true)
+                .thenApply(response -> readList(response, ChatMessage.class))
+                .exceptionally(e -> {
+                    log.error("Failed to fetch private messages: " + errorMessage(e));
+                    throw failed(e);
+                });
+    }
 
-                // Parse message type correctly
-                String messageTypeStr = (String) map.get("messageType");
-                if (messageTypeStr != null) {
-                    try {
-                        msg.setMessageType(ChatMessage.MessageType.valueOf(messageTypeStr));
-                    } catch (IllegalArgumentException e) {
-                        msg.setMessageType(ChatMessage.MessageType.TEXT);
-                    }
-                } else {
-                    msg.setMessageType(ChatMessage.MessageType.TEXT);
-                }
+    /**
+     * 📄 Get one page of room history around a cursor
+     *
+     * @param beforeId only messages older than this ID (null = latest page)
+     * @param afterId  only messages newer than this ID (null = page backwards)
+     */
+    public MessagePage getRoomMessagesPage(Long roomId, Long beforeId, Long afterId, int pageSize) {
+        return orElse(getRoomMessagesPageAsync(roomId, beforeId, afterId, pageSize), MessagePage.empty());
+    }
 
-                // Parse fileName for file messages
-                msg.setFileName((String) map.get("fileName"));
+    public CompletableFuture<MessagePage> getRoomMessagesPageAsync(Long roomId, Long beforeId, Long afterId,
+            int pageSize) {
+        return getPageAsync("/api/messages/room/" + roomId, beforeId, afterId, pageSize)
+                .exceptionally(e -> {
+                    log.error("Failed to fetch room messages page: " + errorMessage(e));
+                    throw failed(e);
+                });
+    }
 
-                msg.setRecalled((Boolean) map.getOrDefault("recalled", false));
-                messages.add(msg);
-            }
-            return messages;
+    /**
+     * 📄 Get one page of private history with another user around a cursor
+     */
+    public MessagePage getPrivateMessagesPage(Long otherUserId, Long beforeId, Long afterId, int pageSize) {
+        return orElse(getPrivateMessagesPageAsync(otherUserId, beforeId, afterId, pageSize), MessagePage.empty());
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to fetch private messages: " + e.getMessage());
-            return new ArrayList<>();
-        }
+    public CompletableFuture<MessagePage> getPrivateMessagesPageAsync(Long otherUserId, Long beforeId, Long afterId,
+            int pageSize) {
+        return getPageAsync("/api/messages/private/" + otherUserId, beforeId, afterId, pageSize)
+                .exceptionally(e -> {
+                    log.error("Failed to fetch private messages page: " + errorMessage(e));
+                    throw failed(e);
+                });
+    }
+
+    /**
+     * 📜 Cursor that lazily pages backwards through a room's history (a failed
+     * page fails the cursor's future instead of reading as "no more history")
+     */
+    public MessageHistoryCursor openRoomHistory(Long roomId, int pageSize) {
+        return new MessageHistoryCursor(
+                (beforeId, size) -> getPageAsync("/api/messages/room/" + roomId, beforeId, null, size), pageSize);
+    }
+
+    /**
+     * 📜 Cursor that lazily pages backwards through a private conversation
+     */
+    public MessageHistoryCursor openPrivateHistory(Long otherUserId, int pageSize) {
+        return new MessageHistoryCursor(
+                (beforeId, size) -> getPageAsync("/api/messages/private/" + otherUserId, beforeId, null, size),
+                pageSize);
     }
 
     /**
      * �👥 Get room members
      */
     public List<User> getRoomMembers(Long roomId) {
-        try {
-            String response = get("/api/rooms/" + roomId + "/members", true);
-            List<User> members = objectMapper.readValue(response,
-                    TypeFactory.defaultInstance().constructCollectionType(List.class, User.class));
-            return members;
+        return orElse(getRoomMembersAsync(roomId), new ArrayList<>());
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to fetch room members: " + e.getMessage());
-            return new ArrayList<>();
-        }
+    public CompletableFuture<List<User>> getRoomMembersAsync(Long roomId) {
+        return getCachedAsync("/api/rooms/" + roomId + "/members", response -> readList(response, User.class))
+                .exceptionally(e -> {
+                    log.error("Failed to fetch room members: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 👤 Get current user info
      */
     public User getCurrentUser() {
-        try {
-            String response = get("/api/users/me", true);
-            return objectMapper.readValue(response, User.class);
+        return orElse(getCurrentUserAsync(), null);
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to fetch current user: " + e.getMessage());
-            return null;
-        }
+    public CompletableFuture<User> getCurrentUserAsync() {
+        return fetchCurrentUserAsync(new AtomicInteger());
+    }
+
+    private CompletableFuture<User> fetchCurrentUserAsync(AtomicInteger requests) {
+        return getAsync("/api/users/me", true, requests)
+                .thenApply(response -> {
+                    User user = readValue(response, User.class);
+                    if (user != null && user.getId() != null) {
+                        currentUserId = user.getId(); // Cache identity
+                        outbox.open(currentUserId);
+                    }
+                    return user;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to fetch current user: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
@@ -699,343 +766,380 @@ public class ChatService {
      * body
      */
     public boolean updateUserProfile(Long userId, String displayName, String avatarUrl, Boolean showOnlineStatus) {
-        try {
-            log.info("🔄 Updating user profile - userId: {}, displayName: {}, showOnlineStatus: {}", userId,
-                    displayName, showOnlineStatus);
-
-            // Build form data string for PUT request
-            StringBuilder formData = new StringBuilder();
-            if (displayName != null && !displayName.isEmpty()) {
-                formData.append("displayName=").append(java.net.URLEncoder.encode(displayName, "UTF-8"));
-            }
-            if (showOnlineStatus != null) {
-                if (formData.length() > 0) {
-                    formData.append("&");
-                }
-                formData.append("showOnlineStatus=").append(showOnlineStatus);
-            }
-
-            String endpoint = "/api/users/" + userId;
-            String formDataStr = formData.toString();
-
-            log.info("🔄 Sending PUT to {} with form data: {}", endpoint, formDataStr);
-
-            // Use form-urlencoded content type
-            putFormData(endpoint, formDataStr, true);
-            log.info("✅ User profile updated successfully");
-            return true;
-
-        } catch (Exception e) {
-            log.error("❌ Failed to update user profile: " + e.getMessage(), e);
-            return false;
-        }
+        return orElse(updateUserProfileAsync(userId, displayName, avatarUrl, showOnlineStatus), false);
     }
 
-    /**
-     * 🌐 PUT request with form data (application/x-www-form-urlencoded)
-     */
-    private String putFormData(String endpoint, String formData, boolean authenticated) throws Exception {
-        URL url = new URL(baseUrl + endpoint);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-
-        conn.setRequestMethod("PUT");
-        conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-        conn.setDoOutput(true);
-
-        if (authenticated && jwtToken != null) {
-            conn.setRequestProperty("Authorization", "Bearer " + jwtToken);
-        }
+    public CompletableFuture<Boolean> updateUserProfileAsync(Long userId, String displayName, String avatarUrl,
+            Boolean showOnlineStatus) {
+        log.info("🔄 Updating user profile - userId: {}, displayName: {}, showOnlineStatus: {}", userId,
+                displayName, showOnlineStatus);
 
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(formData.getBytes("UTF-8"));
-            os.flush();
+        // Build form data string for PUT request
+        StringBuilder formData = new StringBuilder();
+        if (displayName != null && !displayName.isEmpty()) {
+            formData.append("displayName=").append(URLEncoder.encode(displayName, StandardCharsets.UTF_8));
         }
-
-        int responseCode = conn.getResponseCode();
-        log.info("🔄 PUT form data response code: {}", responseCode);
-
-        if (responseCode != 200 && responseCode != 201) {
-            String errorMsg = "HTTP " + responseCode;
-            try {
-                InputStream errorStream = conn.getErrorStream();
-                if (errorStream != null) {
-                    String errorResponse = readResponse(errorStream);
-                    if (!errorResponse.isEmpty()) {
-                        errorMsg += " - " + errorResponse;
-                    }
-                }
-            } catch (Exception e) {
-                // Ignore error reading error stream
+        if (showOnlineStatus != null) {
+            if (formData.length() > 0) {
+                formData.append("&");
             }
-            throw new Exception(errorMsg);
+            formData.append("showOnlineStatus=").append(showOnlineStatus);
         }
 
-        return readResponse(conn.getInputStream());
+        String endpoint = "/api/users/" + userId;
+        String formDataStr = formData.toString();
+
+        log.info("🔄 Sending PUT to {} with form data: {}", endpoint, formDataStr);
+
+        // Use form-urlencoded content type
+        return putFormDataAsync(endpoint, formDataStr, true)
+                .thenApply(response -> {
+                    log.info("✅ User profile updated successfully");
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("❌ Failed to update user profile: " + errorMessage(e), HttpTransport.unwrap(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 📨 Get pending room invites
      */
     public List<java.util.Map<String, Object>> getPendingRoomInvites() {
-        try {
-            String response = get("/api/room-invites/pending", true);
-            List<java.util.Map<String, Object>> invites = objectMapper.readValue(response,
-                    TypeFactory.defaultInstance().constructCollectionType(List.class, java.util.Map.class));
-            return invites;
+        return orElse(getPendingRoomInvitesAsync(), new ArrayList<>());
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to fetch pending room invites: " + e.getMessage());
-            return new ArrayList<>();
-        }
+    public CompletableFuture<List<Map<String, Object>>> getPendingRoomInvitesAsync() {
+        return getCachedAsync("/api/room-invites/pending", response -> readValue(response, MAP_LIST))
+                .exceptionally(e -> {
+                    log.error("Failed to fetch pending room invites: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * ✅ Invite user to room
      */
     public boolean inviteUserToRoom(Long roomId, Long inviteeId) {
-        try {
-            // Backend expects query parameters, not JSON body
-            String endpoint = String.format("/api/room-invites?roomId=%d&inviteeId=%d", roomId, inviteeId);
-            post(endpoint, "{}", true);
-            log.info("User invited to room!");
-            return true;
+        return orElse(inviteUserToRoomAsync(roomId, inviteeId), false);
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to invite user to room: " + e.getMessage());
-            return false;
-        }
+    public CompletableFuture<Boolean> inviteUserToRoomAsync(Long roomId, Long inviteeId) {
+        // Backend expects query parameters, not JSON body
+        String endpoint = String.format("/api/room-invites?roomId=%d&inviteeId=%d", roomId, inviteeId);
+        return postAsync(endpoint, "{}", true)
+                .thenApply(response -> {
+                    log.info("User invited to room!");
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to invite user to room: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * ✅ Accept room invite
      */
     public boolean acceptRoomInvite(Long inviteId) {
-        try {
-            post("/api/room-invites/" + inviteId + "/accept", "{}", true);
-            log.info("Room invite accepted!");
-            return true;
+        return orElse(acceptRoomInviteAsync(inviteId), false);
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to accept room invite: " + e.getMessage());
-            return false;
-        }
+    public CompletableFuture<Boolean> acceptRoomInviteAsync(Long inviteId) {
+        return postAsync("/api/room-invites/" + inviteId + "/accept", "{}", true)
+                .thenApply(response -> {
+                    log.info("Room invite accepted!");
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to accept room invite: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * ❌ Decline room invite
      */
     public boolean declineRoomInvite(Long inviteId) {
-        try {
-            post("/api/room-invites/" + inviteId + "/decline", "{}", true);
-            log.info("Room invite declined!");
-            return true;
+        return orElse(declineRoomInviteAsync(inviteId), false);
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to decline room invite: " + e.getMessage());
-            return false;
-        }
+    public CompletableFuture<Boolean> declineRoomInviteAsync(Long inviteId) {
+        return postAsync("/api/room-invites/" + inviteId + "/decline", "{}", true)
+                .thenApply(response -> {
+                    log.info("Room invite declined!");
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to decline room invite: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 👥 Get available friends for room invitation
      */
     public List<User> getAvailableFriendsForInvite(Long roomId) {
-        try {
-            String response = get("/api/room-invites/room/" + roomId + "/available-friends", true);
-            List<User> friends = objectMapper.readValue(response,
-                    TypeFactory.defaultInstance().constructCollectionType(List.class, User.class));
-            return friends;
+        return orElse(getAvailableFriendsForInviteAsync(roomId), new ArrayList<>());
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to fetch available friends: " + e.getMessage());
-            return new ArrayList<>();
-        }
+    public CompletableFuture<List<User>> getAvailableFriendsForInviteAsync(Long roomId) {
+        return getBytesAsync("/api/room-invites/room/" + roomId + "/available-friends", true)
+                .thenApply(response -> readList(response, User.class))
+                .exceptionally(e -> {
+                    log.error("Failed to fetch available friends: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 🔙 Recall (unsend) a message
-     * 
+     *
      * @param messageId ID of the message to recall
      * @return true if successful, false otherwise
      */
     public boolean recallMessage(Long messageId) {
-        try {
-            put("/api/messages/" + messageId + "/recall", "{}", true);
-            log.info("Message recalled: " + messageId);
-            return true;
-        } catch (Exception e) {
-            log.error("Failed to recall message: " + e.getMessage());
-            return false;
-        }
+        return orElse(recallMessageAsync(messageId), false);
+    }
+
+    public CompletableFuture<Boolean> recallMessageAsync(Long messageId) {
+        return writeOrQueueAsync("PUT", "/api/messages/" + messageId + "/recall", "{}")
+                .thenApply(response -> {
+                    log.info(response != null ? "Message recalled: " + messageId
+                            : "Message recall queued until the server is back: " + messageId);
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to recall message: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     // ==================== MESSAGE READ STATUS API ====================
 
     /**
      * ✅ Mark a single message as read
-     * 
+     *
      * @param messageId ID of the message to mark as read
      * @return true if successful
      */
     public boolean markMessageAsRead(Long messageId) {
-        try {
-            put("/api/messages/" + messageId + "/mark-as-read", "{}", true);
-            log.debug("📨 Message {} marked as read", messageId);
-            return true;
-        } catch (Exception e) {
-            log.error("Failed to mark message as read: " + e.getMessage());
-            return false;
-        }
+        return orElse(markMessageAsReadAsync(messageId), false);
+    }
+
+    public CompletableFuture<Boolean> markMessageAsReadAsync(Long messageId) {
+        return writeOrQueueAsync("PUT", "/api/messages/" + messageId + "/mark-as-read", "{}")
+                .thenApply(response -> {
+                    log.debug("📨 Message {} marked as read", messageId);
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to mark message as read: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * ✅ Mark all messages in a room as read
-     * 
+     *
      * @param roomId ID of the room
      * @return true if successful
      */
     public boolean markAllMessagesInRoomAsRead(Long roomId) {
-        try {
-            put("/api/messages/room/" + roomId + "/mark-all-as-read", "{}", true);
-            log.info("📨 All messages in room {} marked as read", roomId);
-            return true;
-        } catch (Exception e) {
-            log.error("Failed to mark all messages as read: " + e.getMessage());
-            return false;
-        }
+        return orElse(markAllMessagesInRoomAsReadAsync(roomId), false);
+    }
+
+    public CompletableFuture<Boolean> markAllMessagesInRoomAsReadAsync(Long roomId) {
+        return writeOrQueueAsync("PUT", "/api/messages/room/" + roomId + "/mark-all-as-read", "{}")
+                .thenApply(response -> {
+                    log.info("📨 All messages in room {} marked as read", roomId);
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to mark all messages as read: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 📊 Get unread message count for a room
-     * 
+     *
      * @param roomId ID of the room
      * @return Number of unread messages, 0 if error
      */
     public int getUnreadMessageCount(Long roomId) {
-        try {
-            String response = get("/api/messages/room/" + roomId + "/unread-count", true);
-            return Integer.parseInt(response.trim());
-        } catch (Exception e) {
-            log.error("Failed to get unread count for room {}: {}", roomId, e.getMessage());
-            return 0;
-        }
+        return orElse(getUnreadMessageCountAsync(roomId), 0);
+    }
+
+    public CompletableFuture<Integer> getUnreadMessageCountAsync(Long roomId) {
+        return getAsync("/api/messages/room/" + roomId + "/unread-count", true)
+                .thenApply(response -> Integer.parseInt(response.trim()))
+                .exceptionally(e -> {
+                    log.error("Failed to get unread count for room {}: {}", roomId, errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 📊 Get unread message count for private chat with a friend
-     * 
+     *
      * @param friendId ID of the friend
      * @return Number of unread messages from this friend, 0 if error
      */
     public int getUnreadPrivateMessageCount(Long friendId) {
-        try {
-            String response = get("/api/messages/private/" + friendId + "/unread-count", true);
-            return Integer.parseInt(response.trim());
-        } catch (Exception e) {
-            log.error("Failed to get unread private count for friend {}: {}", friendId, e.getMessage());
-            return 0;
-        }
+        return orElse(getUnreadPrivateMessageCountAsync(friendId), 0);
+    }
+
+    public CompletableFuture<Integer> getUnreadPrivateMessageCountAsync(Long friendId) {
+        return getAsync("/api/messages/private/" + friendId + "/unread-count", true)
+                .thenApply(response -> Integer.parseInt(response.trim()))
+                .exceptionally(e -> {
+                    log.error("Failed to get unread private count for friend {}: {}", friendId, errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * ✅ Mark all private messages from a friend as read
-     * 
+     *
      * @param friendId ID of the friend
      * @return true if successful
      */
     public boolean markAllPrivateMessagesAsRead(Long friendId) {
-        try {
-            put("/api/messages/private/" + friendId + "/mark-all-as-read", "{}", true);
-            log.info("📨 All private messages from friend {} marked as read", friendId);
-            return true;
-        } catch (Exception e) {
-            log.error("Failed to mark private messages as read: " + e.getMessage());
-            return false;
-        }
+        return orElse(markAllPrivateMessagesAsReadAsync(friendId), false);
+    }
+
+    public CompletableFuture<Boolean> markAllPrivateMessagesAsReadAsync(Long friendId) {
+        return writeOrQueueAsync("PUT", "/api/messages/private/" + friendId + "/mark-all-as-read", "{}")
+                .thenApply(response -> {
+                    log.info("📨 All private messages from friend {} marked as read", friendId);
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to mark private messages as read: " + errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 📊 Get total unread message count (all rooms + private chats)
-     * 
+     *
      * @return Total number of unread messages
      */
     public int getTotalUnreadMessageCount() {
-        try {
-            String response = get("/api/messages/total-unread-count", true);
-            return Integer.parseInt(response.trim());
-        } catch (Exception e) {
-            log.error("Failed to get total unread count: {}", e.getMessage());
-            return 0;
-        }
+        return orElse(getTotalUnreadMessageCountAsync(), 0);
+    }
+
+    public CompletableFuture<Integer> getTotalUnreadMessageCountAsync() {
+        return getAsync("/api/messages/total-unread-count", true)
+                .thenApply(response -> Integer.parseInt(response.trim()))
+                .exceptionally(e -> {
+                    log.error("Failed to get total unread count: {}", errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     // ==================== MESSAGE REACTIONS API ====================
 
     /**
      * 😀 Toggle reaction on a message (add if not exists, remove if exists)
-     * 
+     *
      * @param messageId ID of the message
      * @param emoji     Emoji to toggle (e.g., "👍", "❤️", "😂")
      * @return true if added, false if removed
      */
     public Boolean toggleReaction(Long messageId, String emoji) {
-        try {
-            Map<String, String> request = new HashMap<>();
-            request.put("emoji", emoji);
-            String response = post("/api/messages/" + messageId + "/reactions",
-                    objectMapper.writeValueAsString(request), true);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> result = objectMapper.readValue(response, Map.class);
-            String action = (String) result.get("action");
-            log.info("😀 Reaction {} {} on message {}", emoji, action, messageId);
-            return "ADDED".equals(action);
-        } catch (Exception e) {
-            log.error("Failed to toggle reaction: {}", e.getMessage());
-            return null;
-        }
+        return orElse(toggleReactionAsync(messageId, emoji), null);
+    }
+
+    public CompletableFuture<Boolean> toggleReactionAsync(Long messageId, String emoji) {
+        return sendReactionToggleAsync(messageId, emoji)
+                .thenApply(action -> {
+                    if (action == null) {
+                        return null; // Outcome unknown until the outbox delivers it
+                    }
+                    reactionSummaries.invalidate(messageId);
+                    return "ADDED".equals(action);
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to toggle reaction: {}", errorMessage(e));
+                    throw failed(e);
+                });
+    }
+
+    /**
+     * 😀 Toggle without fallback: completes with the server's action ("ADDED"
+     * / "REMOVED"), with null if the toggle was queued in the outbox, and
+     * exceptionally if it failed
+     */
+    public CompletableFuture<String> sendReactionToggleAsync(Long messageId, String emoji) {
+        Map<String, String> request = new HashMap<>();
+        request.put("emoji", emoji);
+        return writeOrQueueAsync("POST", "/api/messages/" + messageId + "/reactions", writeJson(request))
+                .thenApply(response -> {
+                    if (response == null) {
+                        log.info("😀 Reaction {} on message {} queued until the server is back", emoji, messageId);
+                        return null;
+                    }
+                    Map<String, Object> result = readValue(response, MAP);
+                    String action = (String) result.get("action");
+                    log.info("😀 Reaction {} {} on message {}", emoji, action, messageId);
+                    return action;
+                });
     }
 
     /**
      * ❌ Remove a specific reaction
      */
     public boolean removeReaction(Long messageId, String emoji) {
-        try {
-            delete("/api/messages/" + messageId + "/reactions/" + java.net.URLEncoder.encode(emoji, "UTF-8"), true);
-            log.info("❌ Reaction {} removed from message {}", emoji, messageId);
-            return true;
-        } catch (Exception e) {
-            log.error("Failed to remove reaction: {}", e.getMessage());
-            return false;
-        }
+        return orElse(removeReactionAsync(messageId, emoji), false);
+    }
+
+    public CompletableFuture<Boolean> removeReactionAsync(Long messageId, String emoji) {
+        return writeOrQueueAsync("DELETE", "/api/messages/" + messageId + "/reactions/"
+                + URLEncoder.encode(emoji, StandardCharsets.UTF_8), null)
+                .thenApply(response -> {
+                    reactionSummaries.invalidate(messageId);
+                    log.info("❌ Reaction {} removed from message {}", emoji, messageId);
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to remove reaction: {}", errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 📊 Get reactions for a message
      */
     public List<Map<String, Object>> getReactions(Long messageId) {
-        try {
-            String response = get("/api/messages/" + messageId + "/reactions", true);
-            return objectMapper.readValue(response,
-                    TypeFactory.defaultInstance().constructCollectionType(List.class, Map.class));
-        } catch (Exception e) {
-            log.error("Failed to get reactions: {}", e.getMessage());
-            return new ArrayList<>();
-        }
+        return orElse(getReactionsAsync(messageId), new ArrayList<>());
+    }
+
+    public CompletableFuture<List<Map<String, Object>>> getReactionsAsync(Long messageId) {
+        return getAsync("/api/messages/" + messageId + "/reactions", true)
+                .thenApply(response -> readValue(response, MAP_LIST))
+                .exceptionally(e -> {
+                    log.error("Failed to get reactions: {}", errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 📊 Get reaction summary (emoji counts) for a message
      */
     public Map<String, Object> getReactionSummary(Long messageId) {
-        try {
-            String response = get("/api/messages/" + messageId + "/reactions/summary", true);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> result = objectMapper.readValue(response, Map.class);
-            return result;
-        } catch (Exception e) {
-            log.error("Failed to get reaction summary: {}", e.getMessage());
-            return new HashMap<>();
-        }
+        return orElse(getReactionSummaryAsync(messageId), new HashMap<>());
+    }
+
+    public CompletableFuture<Map<String, Object>> getReactionSummaryAsync(Long messageId) {
+        return getAsync("/api/messages/" + messageId + "/reactions/summary", true)
+                .thenApply(response -> readValue(response, MAP))
+                .exceptionally(e -> {
+                    log.error("Failed to get reaction summary: {}", errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     // ==================== ROOM ADMIN MANAGEMENT API ====================
@@ -1044,42 +1148,60 @@ public class ChatService {
      * 👑 Promote a member to admin (owner only)
      */
     public boolean promoteToAdmin(Long roomId, Long userId) {
-        try {
-            post("/api/rooms/" + roomId + "/admins/" + userId, "{}", true);
-            log.info("👑 User {} promoted to admin in room {}", userId, roomId);
-            return true;
-        } catch (Exception e) {
-            log.error("Failed to promote to admin: {}", e.getMessage());
-            return false;
-        }
+        return orElse(promoteToAdminAsync(roomId, userId), false);
+    }
+
+    public CompletableFuture<Boolean> promoteToAdminAsync(Long roomId, Long userId) {
+        return postAsync("/api/rooms/" + roomId + "/admins/" + userId, "{}", true)
+                .thenApply(response -> {
+                    log.info("👑 User {} promoted to admin in room {}", userId, roomId);
+                    roomRoles.setRole(roomId, userId, "ADMIN");
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to promote to admin: {}", errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * ⬇️ Demote an admin to member (owner only)
      */
     public boolean demoteFromAdmin(Long roomId, Long userId) {
-        try {
-            delete("/api/rooms/" + roomId + "/admins/" + userId, true);
-            log.info("⬇️ User {} demoted from admin in room {}", userId, roomId);
-            return true;
-        } catch (Exception e) {
-            log.error("Failed to demote admin: {}", e.getMessage());
-            return false;
-        }
+        return orElse(demoteFromAdminAsync(roomId, userId), false);
+    }
+
+    public CompletableFuture<Boolean> demoteFromAdminAsync(Long roomId, Long userId) {
+        return deleteAsync("/api/rooms/" + roomId + "/admins/" + userId, true)
+                .thenApply(response -> {
+                    log.info("⬇️ User {} demoted from admin in room {}", userId, roomId);
+                    roomRoles.setRole(roomId, userId, "MEMBER");
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to demote admin: {}", errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 🚫 Kick a member from room (owner or admin)
      */
     public boolean kickMember(Long roomId, Long userId) {
-        try {
-            delete("/api/rooms/" + roomId + "/members/" + userId, true);
-            log.info("🚫 User {} kicked from room {}", userId, roomId);
-            return true;
-        } catch (Exception e) {
-            log.error("Failed to kick member: {}", e.getMessage());
-            return false;
-        }
+        return orElse(kickMemberAsync(roomId, userId), false);
+    }
+
+    public CompletableFuture<Boolean> kickMemberAsync(Long roomId, Long userId) {
+        return deleteAsync("/api/rooms/" + roomId + "/members/" + userId, true)
+                .thenApply(response -> {
+                    log.info("🚫 User {} kicked from room {}", userId, roomId);
+                    roomRoles.remove(roomId, userId);
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to kick member: {}", errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     // ==================== BAN MANAGEMENT API ====================
@@ -1088,75 +1210,97 @@ public class ChatService {
      * 🚫 Ban a member from a room (owner or admin only)
      */
     public boolean banMember(Long roomId, Long userId, String reason) {
-        try {
-            String endpoint = "/api/rooms/" + roomId + "/bans/" + userId;
-            if (reason != null && !reason.isEmpty()) {
-                endpoint += "?reason=" + java.net.URLEncoder.encode(reason, "UTF-8");
-            }
-            post(endpoint, "{}", true);
-            log.info("🚫 User {} banned from room {}", userId, roomId);
-            return true;
-        } catch (Exception e) {
-            log.error("Failed to ban member: {}", e.getMessage());
-            return false;
+        return orElse(banMemberAsync(roomId, userId, reason), false);
+    }
+
+    public CompletableFuture<Boolean> banMemberAsync(Long roomId, Long userId, String reason) {
+        String endpoint = "/api/rooms/" + roomId + "/bans/" + userId;
+        if (reason != null && !reason.isEmpty()) {
+            endpoint += "?reason=" + URLEncoder.encode(reason, StandardCharsets.UTF_8);
         }
+        return postAsync(endpoint, "{}", true)
+                .thenApply(response -> {
+                    log.info("🚫 User {} banned from room {}", userId, roomId);
+                    roomRoles.remove(roomId, userId);
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to ban member: {}", errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * ✅ Unban a member from a room (owner or admin only)
      */
     public boolean unbanMember(Long roomId, Long userId) {
-        try {
-            delete("/api/rooms/" + roomId + "/bans/" + userId, true);
-            log.info("✅ User {} unbanned from room {}", userId, roomId);
-            return true;
-        } catch (Exception e) {
-            log.error("Failed to unban member: {}", e.getMessage());
-            return false;
-        }
+        return orElse(unbanMemberAsync(roomId, userId), false);
+    }
+
+    public CompletableFuture<Boolean> unbanMemberAsync(Long roomId, Long userId) {
+        return deleteAsync("/api/rooms/" + roomId + "/bans/" + userId, true)
+                .thenApply(response -> {
+                    log.info("✅ User {} unbanned from room {}", userId, roomId);
+                    return true;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to unban member: {}", errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 🔍 Check if a user is banned from a room
      */
     public boolean isBanned(Long roomId, Long userId) {
-        try {
-            String response = get("/api/rooms/" + roomId + "/bans/" + userId, true);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> result = objectMapper.readValue(response, Map.class);
-            return Boolean.TRUE.equals(result.get("isBanned"));
-        } catch (Exception e) {
-            log.error("Failed to check ban status: {}", e.getMessage());
-            return false;
-        }
+        return orElse(isBannedAsync(roomId, userId), false);
+    }
+
+    public CompletableFuture<Boolean> isBannedAsync(Long roomId, Long userId) {
+        return getAsync("/api/rooms/" + roomId + "/bans/" + userId, true)
+                .thenApply(response -> Boolean.TRUE.equals(readValue(response, MAP).get("isBanned")))
+                .exceptionally(e -> {
+                    log.error("Failed to check ban status: {}", errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 📋 Get banned members list for a room
      */
     public List<Map<String, Object>> getBannedMembers(Long roomId) {
-        try {
-            String response = get("/api/rooms/" + roomId + "/bans", true);
-            return objectMapper.readValue(response,
-                    TypeFactory.defaultInstance().constructCollectionType(List.class, Map.class));
-        } catch (Exception e) {
-            log.error("Failed to get banned members: {}", e.getMessage());
-            return new ArrayList<>();
-        }
+        return orElse(getBannedMembersAsync(roomId), new ArrayList<>());
+    }
+
+    public CompletableFuture<List<Map<String, Object>>> getBannedMembersAsync(Long roomId) {
+        return getCachedAsync("/api/rooms/" + roomId + "/bans", response -> readValue(response, MAP_LIST))
+                .exceptionally(e -> {
+                    log.error("Failed to get banned members: {}", errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
      * 👥 Get room members with their roles
      */
     public List<Map<String, Object>> getRoomMembersWithRoles(Long roomId) {
-        try {
-            String response = get("/api/rooms/" + roomId + "/members-with-roles", true);
-            return objectMapper.readValue(response,
-                    TypeFactory.defaultInstance().constructCollectionType(List.class, Map.class));
-        } catch (Exception e) {
-            log.error("Failed to get room members with roles: {}", e.getMessage());
-            return new ArrayList<>();
-        }
+        return orElse(getRoomMembersWithRolesAsync(roomId), new ArrayList<>());
+    }
+
+    public CompletableFuture<List<Map<String, Object>>> getRoomMembersWithRolesAsync(Long roomId) {
+        return getCachedAsync(membersWithRolesEndpoint(roomId), response -> readValue(response, MAP_LIST))
+                .thenApply(members -> {
+                    roomRoles.populate(roomId, members);
+                    return members;
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to get room members with roles: {}", errorMessage(e));
+                    throw failed(e);
+                });
+    }
+
+    private static String membersWithRolesEndpoint(Long roomId) {
+        return "/api/rooms/" + roomId + "/members-with-roles";
     }
 
     /**
@@ -1167,283 +1311,231 @@ public class ChatService {
     }
 
     /**
-     * 👮 Check if current user is admin of a room
+     * 🆔 Current user's ID, fetched from /api/users/me only if not known yet
      */
-    public boolean isRoomAdmin(Long roomId) {
-        try {
-            List<Map<String, Object>> members = getRoomMembersWithRoles(roomId);
-            for (Map<String, Object> member : members) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> userMap = (Map<String, Object>) member.get("user");
-                if (userMap != null && userMap.get("id") != null) {
-                    Long userId = ((Number) userMap.get("id")).longValue();
-                    if (userId.equals(currentUserId)) {
-                        String role = String.valueOf(member.get("role"));
-                        return "ADMIN".equals(role) || "OWNER".equals(role);
-                    }
-                }
-            }
-            return false;
-        } catch (Exception e) {
-            log.error("Failed to check admin status: {}", e.getMessage());
-            return false;
+    private CompletableFuture<Long> resolveCurrentUserIdAsync(AtomicInteger requests) {
+        Long id = currentUserId;
+        if (id != null) {
+            return CompletableFuture.completedFuture(id);
         }
+        return fetchCurrentUserAsync(requests).thenApply(user -> user != null ? user.getId() : null);
     }
 
     /**
-     * 🌐 Generic PUT request
+     * 🟢 Presence index shared with the real-time status subscription
      */
-    private String put(String endpoint, String body, boolean authenticated) throws Exception {
-        URL url = new URL(baseUrl + endpoint);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-
-        conn.setRequestMethod("PUT");
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
+    public PresenceIndex getPresenceIndex() {
+        return presenceIndex;
+    }
 
-        if (authenticated && jwtToken != null) {
-            conn.setRequestProperty("Authorization", "Bearer " + jwtToken);
-        }
+    /**
+     * 🔢 HTTP requests issued per logical call (e.g. "getFriends")
+     */
+    public RequestCountMetrics getRequestMetrics() {
+        return requestMetrics;
+    }
 
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(body.getBytes("UTF-8"));
-            os.flush();
-        }
+    /**
+     * 🪁 Hit/miss counters of the GET single-flight layer
+     */
+    public SingleFlight<String, byte[]> getSingleFlight() {
+        return singleFlight;
+    }
 
-        int responseCode = conn.getResponseCode();
-
-        if (responseCode != 200 && responseCode != 201) {
-            // Try to read error response
-            String errorMsg = "HTTP " + responseCode;
-            try {
-                InputStream errorStream = conn.getErrorStream();
-                if (errorStream != null) {
-                    String errorResponse = readResponse(errorStream);
-                    if (!errorResponse.isEmpty()) {
-                        errorMsg += " - " + errorResponse;
-                    }
-                }
-            } catch (Exception e) {
-                // Ignore error reading error stream
-            }
-            throw new Exception(errorMsg);
-        }
+    /**
+     * 📦 Bytes on the wire vs decoded bytes per endpoint
+     */
+    public TransferStats getTransferStats() {
+        return transport.getTransferStats();
+    }
 
-        return readResponse(conn.getInputStream());
+    /**
+     * 📈 Upload outcomes and throughput
+     */
+    public UploadMetrics getUploadMetrics() {
+        return uploader.getMetrics();
     }
 
     /**
-     * 🌐 Generic GET request
+     * 📥 Queued, resumable attachment downloads
      */
-    private String get(String endpoint, boolean authenticated) throws Exception {
-        URL url = new URL(baseUrl + endpoint);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+    public DownloadManager getDownloadManager() {
+        return downloadManager;
+    }
 
-        conn.setRequestMethod("GET");
-        conn.setRequestProperty("Content-Type", "application/json");
+    /**
+     * 🗃️ On-disk cache of voice clips, images and downloaded attachments
+     */
+    public MediaCache getMediaCache() {
+        return mediaCache;
+    }
 
-        if (authenticated && jwtToken != null) {
-            conn.setRequestProperty("Authorization", "Bearer " + jwtToken);
-        }
+    /**
+     * ⏱️ Latency percentiles, error rates, bytes and in-flight requests per
+     * endpoint; dump() / dumpToLog() / dumpToFile() for a report
+     */
+    public RequestInstrumentation getInstrumentation() {
+        return transport.getInstrumentation();
+    }
 
-        int responseCode = conn.getResponseCode();
-
-        if (responseCode != 200) {
-            // Try to read error response
-            String errorMsg = "HTTP " + responseCode;
-            try {
-                InputStream errorStream = conn.getErrorStream();
-                if (errorStream != null) {
-                    String errorResponse = readResponse(errorStream);
-                    if (!errorResponse.isEmpty()) {
-                        errorMsg += " - " + errorResponse;
-                    }
-                }
-            } catch (Exception e) {
-                // Ignore error reading error stream
-            }
-            throw new Exception(errorMsg);
-        }
+    /**
+     * 😀 Cached reaction counts, fetched in bounded batches for visible messages
+     */
+    public ReactionSummaryService getReactionSummaries() {
+        return reactionSummaries;
+    }
 
-        return readResponse(conn.getInputStream());
+    /**
+     * 😀 In-memory reactions: optimistic toggles and real-time deltas applied in place
+     */
+    public ReactionModel getReactionModel() {
+        return reactionModel;
     }
 
     /**
-     * 🌐 Generic POST request
+     * 👮 Member roles per room, loaded once and kept up to date by admin actions
      */
-    private String post(String endpoint, String body, boolean authenticated) throws Exception {
-        URL url = new URL(baseUrl + endpoint);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+    public RoomRoleCache getRoomRoles() {
+        return roomRoles;
+    }
 
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
+    /**
+     * 📮 Durable outbox of sends made while offline (shared with the WebSocket client)
+     */
+    public OutboundQueue getOutbox() {
+        return outbox;
+    }
 
-        if (authenticated && jwtToken != null) {
-            conn.setRequestProperty("Authorization", "Bearer " + jwtToken);
-        }
+    /**
+     * 🛡️ Circuit breaker states, retries and classified failures per endpoint
+     */
+    public Resilience getResilience() {
+        return transport.getResilience();
+    }
 
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(body.getBytes("UTF-8"));
-            os.flush();
-        }
+    /**
+     * 🗄️ Conditional response cache (rooms, members, bans, invites)
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
 
-        int responseCode = conn.getResponseCode();
-
-        if (responseCode != 200 && responseCode != 201) {
-            // Try to read error response
-            String errorMsg = "HTTP " + responseCode;
-            try {
-                InputStream errorStream = conn.getErrorStream();
-                if (errorStream != null) {
-                    String errorResponse = readResponse(errorStream);
-                    if (!errorResponse.isEmpty()) {
-                        errorMsg += " - " + errorResponse;
-                    }
-                }
-            } catch (Exception e) {
-                // Ignore error reading error stream
-            }
-            throw new Exception(errorMsg);
-        }
+    /**
+     * 👮 Check if current user is admin of a room
+     */
+    public boolean isRoomAdmin(Long roomId) {
+        return orElse(isRoomAdminAsync(roomId), false);
+    }
 
-        return readResponse(conn.getInputStream());
+    public CompletableFuture<Boolean> isRoomAdminAsync(Long roomId) {
+        return roomRoles.isAdmin(roomId, currentUserId)
+                .exceptionally(e -> {
+                    log.error("Failed to check admin status: {}", errorMessage(e));
+                    throw failed(e);
+                });
     }
 
     /**
-     * 🗑️ DELETE request
+     * 📎 Upload file for message
      */
-    private String delete(String endpoint, boolean authenticated) throws Exception {
-        URL url = new URL(baseUrl + endpoint);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-
-        conn.setRequestMethod("DELETE");
-        conn.setRequestProperty("Content-Type", "application/json");
+    public String uploadFile(Long roomId, String filePath) throws Exception {
+        return await(uploadFileAsync(roomId, filePath));
+    }
 
-        if (authenticated && jwtToken != null) {
-            conn.setRequestProperty("Authorization", "Bearer " + jwtToken);
-        }
+    public CompletableFuture<String> uploadFileAsync(Long roomId, String filePath) {
+        return startFileUpload(roomId, filePath, null).getResult();
+    }
 
-        int responseCode = conn.getResponseCode();
-
-        if (responseCode != 200 && responseCode != 201 && responseCode != 204) {
-            // Try to read error response
-            String errorMsg = "HTTP " + responseCode;
-            try {
-                InputStream errorStream = conn.getErrorStream();
-                if (errorStream != null) {
-                    String errorResponse = readResponse(errorStream);
-                    if (!errorResponse.isEmpty()) {
-                        errorMsg += " - " + errorResponse;
-                    }
-                }
-            } catch (Exception e) {
-                // Ignore error reading error stream
-            }
-            throw new Exception(errorMsg);
-        }
+    /**
+     * 📎 Start a room attachment upload with progress and cancellation; the
+     * result is the file URL
+     */
+    public Upload<String> startFileUpload(Long roomId, String filePath, UploadProgressListener listener) {
+        // The REST API already saves the message to DB and broadcasts via WebSocket
+        // So we return the fileUrl for display purposes only (no need to send WebSocket
+        // manually)
+        return startAttachmentUpload(uploadTarget("room:" + roomId), Map.of("roomId", roomId),
+                "/api/messages/upload?roomId=" + roomId, filePath, listener)
+                .map(this::extractFileUrl);
+    }
 
-        if (responseCode == 204) {
-            return "";
-        }
+    /**
+     * 📎 Upload file for private message
+     */
+    public String uploadPrivateFile(Long recipientId, String filePath) throws Exception {
+        return await(uploadPrivateFileAsync(recipientId, filePath));
+    }
 
-        return readResponse(conn.getInputStream());
+    public CompletableFuture<String> uploadPrivateFileAsync(Long recipientId, String filePath) {
+        return startPrivateFileUpload(recipientId, filePath, null).getResult();
     }
 
     /**
-     * 📖 Read HTTP response with UTF-8 encoding
+     * 📎 Start a private attachment upload with progress and cancellation; the
+     * result is the file URL
      */
-    private String readResponse(InputStream is) throws Exception {
-        StringBuilder response = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-        }
-        return response.toString();
+    public Upload<String> startPrivateFileUpload(Long recipientId, String filePath,
+            UploadProgressListener listener) {
+        return startAttachmentUpload(uploadTarget("private:" + recipientId), Map.of("recipientId", recipientId),
+                "/api/messages/private/upload?recipientId=" + recipientId, filePath, listener)
+                .map(this::extractFileUrl);
     }
 
     /**
-     * 📎 Upload file for message
+     * 📋 Attachment uploads interrupted by a dropped connection or a restart
      */
-    public String uploadFile(Long roomId, String filePath) throws Exception {
-        File file = new File(filePath);
-        if (!file.exists()) {
-            throw new Exception("File not found: " + filePath);
-        }
-
-        String boundary = "----FormBoundary" + System.currentTimeMillis();
-        URL url = new URL(baseUrl + "/api/messages/upload?roomId=" + roomId);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
-        conn.setDoOutput(true);
+    public List<UploadCheckpoint> getPendingUploads() {
+        return chunkedUploader.pending();
+    }
 
-        if (jwtToken != null) {
-            conn.setRequestProperty("Authorization", "Bearer " + jwtToken);
-        }
+    /**
+     * 🔁 Continue an interrupted upload; only the missing parts are sent
+     */
+    public Upload<String> resumeUpload(UploadCheckpoint checkpoint, UploadProgressListener listener) {
+        String target = checkpoint.getTarget();
+        String destination = target.substring(target.indexOf('/') + 1);
+        Long id = Long.valueOf(destination.substring(destination.indexOf(':') + 1));
+        return destination.startsWith("private:")
+                ? startPrivateFileUpload(id, checkpoint.getFilePath(), listener)
+                : startFileUpload(id, checkpoint.getFilePath(), listener);
+    }
 
-        try (OutputStream os = conn.getOutputStream()) {
-            // Determine content type based on file extension
-            String contentType = "application/octet-stream";
-            String fileName = file.getName().toLowerCase();
-            if (fileName.endsWith(".wav")) {
-                contentType = "audio/wav";
-            } else if (fileName.endsWith(".mp3")) {
-                contentType = "audio/mpeg";
-            } else if (fileName.endsWith(".ogg")) {
-                contentType = "audio/ogg";
-            } else if (fileName.endsWith(".png")) {
-                contentType = "image/png";
-            } else if (fileName.endsWith(".jpg") || fileName.endsWith(".jpeg")) {
-                contentType = "image/jpeg";
-            } else if (fileName.endsWith(".gif")) {
-                contentType = "image/gif";
+    /**
+     * 🔁 Resume every interrupted upload of the current user (after login or
+     * a reconnect); checkpoints whose file is gone are dropped. Keyed by file path.
+     */
+    public Map<String, Upload<String>> resumePendingUploads(UploadProgressListener listener) {
+        Map<String, Upload<String>> resumed = new LinkedHashMap<>();
+        String mine = currentUserId + "/";
+        for (UploadCheckpoint checkpoint : chunkedUploader.pending()) {
+            if (checkpoint.getTarget() == null || !checkpoint.getTarget().startsWith(mine)) {
+                continue; // Another account's upload
             }
-
-            // Write file data
-            String header = "--" + boundary + "\r\n" +
-                    "Content-Disposition: form-data; name=\"file\"; filename=\"" + file.getName() + "\"\r\n" +
-                    "Content-Type: " + contentType + "\r\n\r\n";
-
-            os.write(header.getBytes(StandardCharsets.UTF_8));
-
-            try (FileInputStream fis = new FileInputStream(file)) {
-                byte[] buffer = new byte[4096];
-                int bytesRead;
-                while ((bytesRead = fis.read(buffer)) != -1) {
-                    os.write(buffer, 0, bytesRead);
-                }
+            if (!new File(checkpoint.getFilePath()).isFile()) {
+                log.info("🧩 {} no longer exists, dropping its interrupted upload", checkpoint.getFilePath());
+                chunkedUploader.discard(checkpoint);
+                continue;
             }
-
-            os.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
-            os.flush();
+            log.info("🔁 Resuming interrupted upload of {}", checkpoint.getFilePath());
+            resumed.put(checkpoint.getFilePath(), resumeUpload(checkpoint, listener));
         }
+        return resumed;
+    }
 
-        int responseCode = conn.getResponseCode();
-        if (responseCode != 200 && responseCode != 201) {
-            String errorMsg = "HTTP " + responseCode;
-            try {
-                InputStream errorStream = conn.getErrorStream();
-                if (errorStream != null) {
-                    errorMsg += " - " + readResponse(errorStream);
-                }
-            } catch (Exception e) {
-                // Ignore
-            }
-            throw new Exception(errorMsg);
-        }
+    /**
+     * Checkpoint target: the destination, scoped to the user so an upload is
+     * only ever resumed by the account that started it
+     */
+    private String uploadTarget(String destination) {
+        return currentUserId + "/" + destination;
+    }
 
-        // Parse JSON response to extract file URL from 'content' field
-        // The REST API already saves the message to DB and broadcasts via WebSocket
-        // So we return the fileUrl for display purposes only (no need to send WebSocket
-        // manually)
-        String jsonResponse = readResponse(conn.getInputStream());
+    /**
+     * 🔗 Parse upload JSON response to extract file URL from 'content' field
+     */
+    private String extractFileUrl(String jsonResponse) {
         try {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> responseMap = objectMapper.readValue(jsonResponse, Map.class);
+            Map<String, Object> responseMap = readValue(jsonResponse, MAP);
             String fileUrl = (String) responseMap.get("content");
             if (fileUrl != null && !fileUrl.isEmpty()) {
                 // Prepend base URL if the file URL is relative
@@ -1460,207 +1552,354 @@ public class ChatService {
     }
 
     /**
-     * 📎 Upload file for private message
+     * 📷 Upload avatar for user
      */
-    public String uploadPrivateFile(Long recipientId, String filePath) throws Exception {
+    public boolean uploadAvatar(Long userId, String filePath) throws Exception {
+        return await(uploadAvatarAsync(userId, filePath));
+    }
+
+    public CompletableFuture<Boolean> uploadAvatarAsync(Long userId, String filePath) {
         File file = new File(filePath);
         if (!file.exists()) {
-            throw new Exception("File not found: " + filePath);
+            return CompletableFuture.failedFuture(new Exception("File not found: " + filePath));
         }
 
-        String boundary = "----FormBoundary" + System.currentTimeMillis();
-        URL url = new URL(baseUrl + "/api/messages/private/upload?recipientId=" + recipientId);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        log.info("📷 Uploading avatar for user {} from file: {}", userId, filePath);
 
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
-        conn.setDoOutput(true);
-        if (jwtToken != null) {
-            conn.setRequestProperty("Authorization", "Bearer " + jwtToken);
-        }
+        // Backend endpoint is /api/users/{id}/avatar with field name "avatar"
+        String endpoint = "/api/users/" + userId + "/avatar";
+        log.info("📷 Uploading avatar to endpoint: {}", endpoint);
+
+        return uploadAvatarToEndpoint(endpoint, file)
+                .whenComplete((success, e) -> {
+                    if (e != null) {
+                        log.error("❌ Avatar upload failed: {}", errorMessage(e));
+                    } else if (success) {
+                        log.info("✅ Avatar uploaded successfully via {}", endpoint);
+                    }
+                });
+    }
 
-        try (OutputStream os = conn.getOutputStream()) {
-            // Determine content type based on file extension
-            String contentType = "application/octet-stream";
-            String fileName = file.getName().toLowerCase();
-            if (fileName.endsWith(".wav")) {
-                contentType = "audio/wav";
-            } else if (fileName.endsWith(".mp3")) {
-                contentType = "audio/mpeg";
-            } else if (fileName.endsWith(".ogg")) {
-                contentType = "audio/ogg";
-            } else if (fileName.endsWith(".png")) {
-                contentType = "image/png";
-            } else if (fileName.endsWith(".jpg") || fileName.endsWith(".jpeg")) {
-                contentType = "image/jpeg";
-            } else if (fileName.endsWith(".gif")) {
-                contentType = "image/gif";
-            }
+    /**
+     * 📷 Helper method to upload avatar to a specific endpoint
+     */
+    private CompletableFuture<Boolean> uploadAvatarToEndpoint(String endpoint, File file) {
+        log.info("📷 Avatar upload URL: {}", baseUrl + endpoint);
 
-            // Write file data
-            String header = "--" + boundary + "\r\n" +
-                    "Content-Disposition: form-data; name=\"file\"; filename=\"" + file.getName() + "\"\r\n" +
-                    "Content-Type: " + contentType + "\r\n\r\n";
+        // Backend expects field name 'avatar' - @RequestParam("avatar")
+        return startUpload(endpoint, "avatar", file.getPath(), null).getResult()
+                .thenApply(response -> {
+                    log.info("📷 Avatar upload response: {}", response);
+                    return true;
+                });
+    }
 
-            os.write(header.getBytes(StandardCharsets.UTF_8));
+    // ==================== HTTP HELPERS ====================
 
-            try (FileInputStream fis = new FileInputStream(file)) {
-                byte[] buffer = new byte[4096];
-                int bytesRead;
-                while ((bytesRead = fis.read(buffer)) != -1) {
-                    os.write(buffer, 0, bytesRead);
-                }
+    private String bearer(boolean authenticated) {
+        return authenticated ? jwtToken : null;
+    }
+
+    /**
+     * 🌐 Generic GET request
+     */
+    private CompletableFuture<String> getAsync(String endpoint, boolean authenticated) {
+        return getAsync(endpoint, authenticated, null);
+    }
+
+    /**
+     * 🌐 GET counted against a logical call's request budget
+     */
+    private CompletableFuture<String> getAsync(String endpoint, boolean authenticated, AtomicInteger requests) {
+        return getBytesAsync(endpoint, authenticated, requests).thenApply(HttpTransport::text);
+    }
+
+    private CompletableFuture<byte[]> getBytesAsync(String endpoint, boolean authenticated) {
+        return getBytesAsync(endpoint, authenticated, null);
+    }
+
+    /**
+     * 🌐 GET returning the decoded body bytes, for JSON that is parsed without
+     * an intermediate String
+     *
+     * Identical concurrent GETs (same endpoint and token) share one request,
+     * and a result is reused for http.single-flight-window-ms.
+     */
+    private CompletableFuture<byte[]> getBytesAsync(String endpoint, boolean authenticated, AtomicInteger requests) {
+        String token = bearer(authenticated);
+        String key = token + " " + endpoint;
+        return singleFlight.execute(key, () -> {
+            if (requests != null) {
+                requests.incrementAndGet(); // Only requests actually sent are counted
             }
+            return transport.sendBytesAsync("GET", endpoint, null, null, token);
+        });
+    }
 
-            os.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
-            os.flush();
+    /**
+     * 🗄️ Cached GET: served from the response cache while fresh, otherwise
+     * revalidated with If-None-Match / If-Modified-Since. A 304 (or an
+     * identical body) returns the cached decoded object without re-parsing.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> getCachedAsync(String endpoint, Function<byte[], T> decoder) {
+        String token = jwtToken;
+        String key = token + " " + endpoint;
+        return cachedFlight.execute(key, () -> fetchCachedAsync(key, endpoint, token, decoder))
+                .thenApply(value -> (T) copyOf(value));
+    }
+
+    private CompletableFuture<Object> fetchCachedAsync(String key, String endpoint, String token,
+            Function<byte[], ?> decoder) {
+        ResponseCache.Entry cached = responseCache.get(key);
+        if (cached != null && cached.isFresh()) {
+            responseCache.record(ResponseCache.Outcome.FRESH);
+            return CompletableFuture.completedFuture(cached.getValue());
         }
 
-        int responseCode = conn.getResponseCode();
-        if (responseCode != 200 && responseCode != 201) {
-            String errorMsg = "HTTP " + responseCode;
-            try {
-                InputStream errorStream = conn.getErrorStream();
-                if (errorStream != null) {
-                    errorMsg += " - " + readResponse(errorStream);
-                }
-            } catch (Exception e) {
-                // Ignore
-            }
-            throw new Exception(errorMsg);
+        HttpRequest.Builder builder = transport.newRequest(endpoint, token).GET();
+        if (cached != null && cached.getEtag() != null) {
+            builder.header("If-None-Match", cached.getEtag());
+        }
+        if (cached != null && cached.getLastModified() != null) {
+            builder.header("If-Modified-Since", cached.getLastModified());
         }
 
-        // Parse JSON response to extract file URL from 'content' field
-        String jsonResponse = readResponse(conn.getInputStream());
-        try {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> responseMap = objectMapper.readValue(jsonResponse, Map.class);
-            String fileUrl = (String) responseMap.get("content");
-            if (fileUrl != null && !fileUrl.isEmpty()) {
-                // Prepend base URL if the file URL is relative
-                if (!fileUrl.startsWith("http://") && !fileUrl.startsWith("https://")) {
-                    fileUrl = baseUrl + fileUrl;
-                }
-                return fileUrl;
-            }
-        } catch (Exception e) {
-            log.error("Failed to parse upload response: {}", e.getMessage());
+        return transport.exchangeAsync(builder.build())
+                .thenApply(response -> {
+                    if (response.statusCode() == 304 && cached != null) {
+                        responseCache.record(ResponseCache.Outcome.NOT_MODIFIED);
+                        responseCache.put(key, cached.revalidated(response));
+                        return cached.getValue();
+                    }
+                    byte[] body = response.body() != null ? response.body() : new byte[0];
+                    Object value;
+                    if (cached != null && cached.hasSameBody(body)) {
+                        responseCache.record(ResponseCache.Outcome.UNCHANGED_BODY);
+                        value = cached.getValue();
+                    } else {
+                        responseCache.record(ResponseCache.Outcome.MISS);
+                        value = decoder.apply(body);
+                    }
+                    responseCache.put(key, ResponseCache.Entry.of(response, body, value));
+                    return value;
+                });
+    }
+
+    /**
+     * Cached lists are shared, so each caller gets its own list
+     */
+    private static Object copyOf(Object value) {
+        return value instanceof List ? new ArrayList<>((List<?>) value) : value;
+    }
+
+    /**
+     * ✍️ Writes make recently reused GET results stale, but only those of the
+     * resource families the write touches (see {@link ReadScopes})
+     */
+    private CompletableFuture<String> write(String endpoint, CompletableFuture<String> request) {
+        return request.whenComplete((response, e) -> invalidateReads(endpoint));
+    }
+
+    private void invalidateReads(String writeEndpoint) {
+        Predicate<String> affected = ReadScopes.affectedBy(writeEndpoint);
+        Predicate<String> key = k -> affected.test(k.substring(k.indexOf(' ') + 1)); // "token endpoint"
+        singleFlight.invalidateIf(key);
+        cachedFlight.invalidateIf(key);
+        responseCache.expireIf(key);
+    }
+
+    /**
+     * 📮 Write that survives being offline: if the backend cannot be reached
+     * (or earlier writes are still queued) it goes to the outbox and is
+     * replayed in order later; the future then completes with null. A
+     * non-idempotent write (the reaction toggle POST) is only queued after a
+     * failure when it provably never left the client: after a timeout or 5xx
+     * the server may have applied it, and a replay would undo it.
+     */
+    private CompletableFuture<String> writeOrQueueAsync(String method, String endpoint, String body) {
+        if (outbox.hasPending(OutboundAction.Channel.HTTP) && outbox.enqueueHttp(method, endpoint, body)) {
+            return CompletableFuture.completedFuture(null);
         }
+        return write(endpoint, transport.sendAsync(method, endpoint, body != null ? HttpTransport.JSON : null, body,
+                bearer(true)))
+                .handle((response, e) -> {
+                    if (e == null) {
+                        outbox.flush(); // The backend answers again
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    boolean queueable = FailureKind.neverSent(e)
+                            || (OutboundAction.isIdempotent(method) && FailureKind.of(e).isTransient());
+                    if (queueable && outbox.enqueueHttp(method, endpoint, body)) {
+                        return CompletableFuture.<String>completedFuture(null);
+                    }
+                    return CompletableFuture.<String>failedFuture(e);
+                })
+                .thenCompose(Function.identity());
+    }
 
-        return null;
+    /**
+     * 🌐 Generic POST request
+     */
+    private CompletableFuture<String> postAsync(String endpoint, String body, boolean authenticated) {
+        return write(endpoint,
+                transport.sendAsync("POST", endpoint, HttpTransport.JSON, body, bearer(authenticated)));
     }
 
     /**
-     * 📷 Upload avatar for user
+     * 🌐 PUT request with form data (application/x-www-form-urlencoded)
      */
-    public boolean uploadAvatar(Long userId, String filePath) throws Exception {
+    private CompletableFuture<String> putFormDataAsync(String endpoint, String formData, boolean authenticated) {
+        return write(endpoint, transport.sendAsync("PUT", endpoint, HttpTransport.FORM_URLENCODED, formData,
+                bearer(authenticated)));
+    }
+
+    /**
+     * 🗑️ DELETE request
+     */
+    private CompletableFuture<String> deleteAsync(String endpoint, boolean authenticated) {
+        return write(endpoint, transport.sendAsync("DELETE", endpoint, null, null, bearer(authenticated)));
+    }
+
+    /**
+     * 📄 Paged history GET, decoded straight from the response stream
+     */
+    private CompletableFuture<MessagePage> getPageAsync(String endpoint, Long beforeId, Long afterId, int pageSize) {
+        // Ask for one extra message so "has more" is known without a second request
+        StringBuilder query = new StringBuilder(endpoint).append("?size=").append(pageSize + 1);
+        if (beforeId != null) {
+            query.append("&before=").append(beforeId);
+        }
+        if (afterId != null) {
+            query.append("&after=").append(afterId);
+        }
+        return transport.getStreamAsync(query.toString(), jwtToken)
+                .thenApply(in -> {
+                    try {
+                        return pageReader.read(in, beforeId, afterId, pageSize);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * 📎 Attachments from upload.chunked-threshold-bytes up are sent as
+     * resumable parts, smaller ones as one multipart POST
+     */
+    private Upload<String> startAttachmentUpload(String target, Map<String, Object> fields, String endpoint,
+            String filePath, UploadProgressListener listener) {
         File file = new File(filePath);
-        if (!file.exists()) {
-            throw new Exception("File not found: " + filePath);
+        if (!file.isFile() || file.length() < chunkedThreshold) {
+            return startUpload(endpoint, "file", filePath, listener);
         }
+        Upload<String> upload = chunkedUploader.upload(target, fields, jwtToken, file.toPath(), listener,
+                fallbackListener -> startUpload(endpoint, "file", filePath, fallbackListener));
+        upload.getResult().whenComplete((response, e) -> invalidateReads(endpoint));
+        return upload;
+    }
 
-        log.info("📷 Uploading avatar for user {} from file: {}", userId, filePath);
+    /**
+     * 📎 Multipart upload through the shared streaming engine
+     */
+    private Upload<String> startUpload(String endpoint, String fieldName, String filePath,
+            UploadProgressListener listener) {
+        File file = new File(filePath);
+        if (!file.isFile()) {
+            return Upload.failed(new Exception("File not found: " + filePath));
+        }
+        Upload<String> upload = uploader.upload(endpoint, jwtToken, fieldName, file.toPath(), listener);
+        upload.getResult().whenComplete((response, e) -> invalidateReads(endpoint));
+        return upload;
+    }
 
-        // Backend endpoint is /api/users/{id}/avatar with field name "avatar"
-        String endpoint = "/api/users/" + userId + "/avatar";
+    // ==================== JSON HELPERS ====================
+
+    private String writeJson(Object value) {
+        return JsonCodec.write(value);
+    }
+
+    private <T> T readValue(String json, Class<T> type) {
+        return JsonCodec.read(json, type);
+    }
 
+    private <T> T readValue(String json, TypeReference<T> type) {
         try {
-            log.info("📷 Uploading avatar to endpoint: {}", endpoint);
-            boolean success = uploadAvatarToEndpoint(endpoint, file);
-            if (success) {
-                log.info("✅ Avatar uploaded successfully via {}", endpoint);
-                return true;
-            }
-        } catch (Exception e) {
-            log.error("❌ Avatar upload failed: {}", e.getMessage());
-            throw e;
+            return JsonCodec.mapper().readValue(json, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
+
+    private <T> T readValue(byte[] json, TypeReference<T> type) {
+        try {
+            return JsonCodec.mapper().readValue(json, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        return false;
+    private <T> List<T> readList(String json, Class<T> elementType) {
+        return JsonCodec.readList(json, elementType);
+    }
+
+    private <T> List<T> readList(byte[] json, Class<T> elementType) {
+        return JsonCodec.readList(json, elementType);
     }
 
     /**
-     * 📷 Helper method to upload avatar to a specific endpoint
+     * Failure text prefixed with its {@link FailureKind}, so a transient
+     * outage is told apart from a real answer in the logs
      */
-    private boolean uploadAvatarToEndpoint(String endpoint, File file) throws Exception {
-        String boundary = "----FormBoundary" + System.currentTimeMillis();
-        URL url = new URL(baseUrl + endpoint);
-        log.info("📷 Avatar upload URL: {}", url);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+    private static String errorMessage(Throwable e) {
+        Throwable cause = HttpTransport.unwrap(e);
+        return "[" + FailureKind.of(cause) + "] " + cause.getMessage();
+    }
 
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
-        conn.setDoOutput(true);
+    /**
+     * ❌ Fail an async call after logging it, keeping the classified cause
+     * (status, {@link FailureKind}) for the caller
+     */
+    private static CompletionException failed(Throwable e) {
+        return e instanceof CompletionException ? (CompletionException) e
+                : new CompletionException(HttpTransport.unwrap(e));
+    }
 
-        if (jwtToken != null) {
-            conn.setRequestProperty("Authorization", "Bearer " + jwtToken);
+    /**
+     * ⏳ Join for the blocking API: a failed call (already logged) reads as
+     * the given fallback
+     */
+    private static <T> T orElse(CompletableFuture<T> future, T fallback) {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            return fallback;
         }
+    }
 
-        try (OutputStream os = conn.getOutputStream()) {
-            // Write boundary start
-            os.write(("--" + boundary + "\r\n").getBytes(StandardCharsets.UTF_8));
-            // Backend expects field name 'avatar' - @RequestParam("avatar")
-            os.write(("Content-Disposition: form-data; name=\"avatar\"; filename=\"" + file.getName() + "\"\r\n")
-                    .getBytes(StandardCharsets.UTF_8));
-
-            // Determine content type from file extension
-            String contentType = "application/octet-stream";
-            String fileName = file.getName().toLowerCase();
-            if (fileName.endsWith(".png")) {
-                contentType = "image/png";
-            } else if (fileName.endsWith(".jpg") || fileName.endsWith(".jpeg")) {
-                contentType = "image/jpeg";
-            } else if (fileName.endsWith(".gif")) {
-                contentType = "image/gif";
-            }
-            os.write(("Content-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
-
-            // Write file content
-            try (FileInputStream fis = new FileInputStream(file)) {
-                byte[] buffer = new byte[4096];
-                int bytesRead;
-                while ((bytesRead = fis.read(buffer)) != -1) {
-                    os.write(buffer, 0, bytesRead);
-                }
+    /**
+     * ⏳ Join a future, rethrowing the original exception for blocking callers
+     */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = HttpTransport.unwrap(e);
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
             }
-
-            // Write boundary end
-            os.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+            throw e;
         }
+    }
 
-        int responseCode = conn.getResponseCode();
-        log.info("📷 Avatar upload response code: {}", responseCode);
-
-        if (responseCode == 200 || responseCode == 201) {
-            try (BufferedReader br = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = br.readLine()) != null) {
-                    response.append(line);
-                }
-                log.info("📷 Avatar upload response: {}", response.toString());
-            }
-            return true;
-        } else {
-            String errorMsg = "HTTP " + responseCode;
-            InputStream errorStream = conn.getErrorStream();
-            if (errorStream != null) {
-                try (BufferedReader br = new BufferedReader(
-                        new InputStreamReader(errorStream, StandardCharsets.UTF_8))) {
-                    StringBuilder error = new StringBuilder();
-                    String line;
-                    while ((line = br.readLine()) != null) {
-                        error.append(line);
-                    }
-                    if (error.length() > 0) {
-                        errorMsg += " - " + error.toString();
-                    }
-                }
-            }
-            log.error("📷 Avatar upload error: {}", errorMsg);
-            throw new Exception(errorMsg);
-        }
+    /**
+     * 🤝 Friendship DTO from /api/friends (either side may be the friend)
+     */
+    @com.fasterxml.jackson.annotation.JsonIgnoreProperties(ignoreUnknown = true)
+    private static class Friendship {
+        public Long id;
+        public User user;
+        public User friend;
     }
 
     /**
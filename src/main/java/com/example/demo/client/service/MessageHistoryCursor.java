@@ -0,0 +1,85 @@
+package com.example.demo.client.service;
+
+import com.example.demo.client.model.ChatMessage;
+import com.example.demo.client.model.MessagePage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 📜 MessageHistoryCursor - Lazily pages backwards through a conversation
+ *
+ * The first {@link #loadOlder()} returns the latest page; each following call
+ * returns the page just before the oldest message loaded so far. Only one
+ * request is in flight at a time - concurrent callers share it. A failed
+ * load fails the returned future and leaves the cursor where it was.
+ */
+public class MessageHistoryCursor {
+
+    /**
+     * Loads one page: (beforeId, pageSize) → page
+     */
+    @FunctionalInterface
+    interface PageLoader {
+        CompletableFuture<MessagePage> load(Long beforeId, int pageSize);
+    }
+
+    private final PageLoader loader;
+    private final int pageSize;
+
+    private Long oldestId;
+    private boolean hasMore = true;
+    private CompletableFuture<List<ChatMessage>> inFlight;
+
+    MessageHistoryCursor(PageLoader loader, int pageSize) {
+        this.loader = loader;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * ⬆️ Load the next older page (oldest → newest order)
+     */
+    public synchronized CompletableFuture<List<ChatMessage>> loadOlder() {
+        if (inFlight != null) {
+            return inFlight;
+        }
+        if (!hasMore) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        // Set before chaining: an already completed load runs the callback right away
+        CompletableFuture<List<ChatMessage>> future = new CompletableFuture<>();
+        inFlight = future;
+        loader.load(oldestId, pageSize).whenComplete((page, e) -> {
+            synchronized (this) {
+                inFlight = null;
+                if (e == null) {
+                    if (page.getOldestId() != null) {
+                        oldestId = page.getOldestId();
+                    }
+                    // Only a real empty page ends paging; a failed load can be retried
+                    hasMore = page.isHasMore() && !page.getMessages().isEmpty();
+                }
+            }
+            if (e != null) {
+                future.completeExceptionally(e);
+            } else {
+                future.complete(page.getMessages());
+            }
+        });
+        return future;
+    }
+
+    public synchronized boolean hasMore() {
+        return hasMore;
+    }
+
+    public synchronized boolean isLoading() {
+        return inFlight != null;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.demo.client.service;
+
+import com.example.demo.client.json.JsonCodec;
+import com.example.demo.client.model.ChatMessage;
+import com.example.demo.client.model.MessagePage;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+
+/**
+ * 🌊 MessagePageReader - Streams a message history response into a page
+ *
+ * Reads tokens straight from the response stream and decodes each element
+ * with the shared {@link JsonCodec} reader; no intermediate String or Map is
+ * built. Accepts either a bare JSON array or a page object whose
+ * messages sit in "content" / "messages" / "items".
+ *
+ * The cursor is also applied client-side, so a backend that ignores the
+ * before/after parameters still yields a correct page while only ever
+ * holding {@code pageSize} messages in memory.
+ */
+class MessagePageReader {
+
+    private final JsonFactory jsonFactory = JsonCodec.mapper().getFactory();
+    private final ObjectReader messageReader = JsonCodec.reader(ChatMessage.class);
+
+    /**
+     * @param beforeId page ends just before this ID (null = latest messages)
+     * @param afterId  page starts just after this ID (takes precedence)
+     * @param pageSize maximum number of messages to return
+     */
+    MessagePage read(InputStream in, Long beforeId, Long afterId, int pageSize) throws IOException {
+        Window window = new Window(beforeId, afterId, pageSize);
+        Boolean serverHasMore = null;
+
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                readArray(parser, window);
+            } else if (token == JsonToken.START_OBJECT) {
+                while (!window.isFull() && parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    switch (field) {
+                        case "content":
+                        case "messages":
+                        case "items":
+                            if (value == JsonToken.START_ARRAY) {
+                                readArray(parser, window);
+                            } else {
+                                parser.skipChildren();
+                            }
+                            break;
+                        case "hasMore":
+                            serverHasMore = parser.getValueAsBoolean();
+                            break;
+                        case "last":
+                            serverHasMore = !parser.getValueAsBoolean();
+                            break;
+                        default:
+                            parser.skipChildren();
+                    }
+                }
+            }
+        } finally {
+            in.close();
+        }
+
+        return new MessagePage(new ArrayList<>(window.messages),
+                serverHasMore != null ? serverHasMore : window.overflow);
+    }
+
+    private void readArray(JsonParser parser, Window window) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            window.offer(messageReader.readValue(parser));
+            if (window.isFull()) {
+                return; // Stop reading - the rest of the body is not needed
+            }
+        }
+    }
+
+    /**
+     * Sliding window applying the cursor to an oldest → newest stream
+     */
+    private static class Window {
+        private final Long beforeId;
+        private final Long afterId;
+        private final int pageSize;
+        private final Deque<ChatMessage> messages = new ArrayDeque<>();
+        private boolean overflow;
+
+        Window(Long beforeId, Long afterId, int pageSize) {
+            this.beforeId = beforeId;
+            this.afterId = afterId;
+            this.pageSize = pageSize;
+        }
+
+        void offer(ChatMessage msg) {
+            Long id = msg.getId();
+            if (afterId != null) {
+                // Newer page: first pageSize messages after the cursor
+                if (id == null || id <= afterId) {
+                    return;
+                }
+                if (messages.size() == pageSize) {
+                    overflow = true;
+                    return;
+                }
+                messages.addLast(msg);
+            } else {
+                // Older page: last pageSize messages before the cursor
+                if (beforeId != null && (id == null || id >= beforeId)) {
+                    return;
+                }
+                if (messages.size() == pageSize) {
+                    messages.removeFirst();
+                    overflow = true;
+                }
+                messages.addLast(msg);
+            }
+        }
+
+        boolean isFull() {
+            return afterId != null && overflow;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.demo.client.service;
+
+import com.example.demo.client.config.ServerConfig;
+import com.example.demo.client.model.UserStatusMessage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 🛰️ PresenceEngine - Applies status deltas in place and pushes them in batches
+ *
+ * Real-time status messages update the {@link PresenceIndex} directly; only
+ * actual changes are queued, and the queue is flushed to the listener at most
+ * once per flush interval (the last state of a user wins). REST is only used
+ * for a periodic reconciliation snapshot that repairs missed deltas.
+ *
+ * Config (ServerConfig):
+ * - presence.flush-interval-ms      (default 250)
+ * - presence.reconcile-interval-ms  (default 120000)
+ */
+@Slf4j
+public class PresenceEngine {
+
+    private final ChatService chatService;
+    private final PresenceIndex index;
+    private final Consumer<Map<Long, Boolean>> listener;
+    private final long flushIntervalMs;
+    private final long reconcileIntervalMs;
+
+    private final Map<Long, Boolean> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean reconciling = new AtomicBoolean(false);
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Long selfId;
+
+    /**
+     * @param listener receives coalesced changes (userId -> isOnline), called
+     *                 on the engine thread
+     */
+    public PresenceEngine(ChatService chatService, Consumer<Map<Long, Boolean>> listener) {
+        this.chatService = chatService;
+        this.index = chatService.getPresenceIndex();
+        this.listener = listener;
+        this.flushIntervalMs = ServerConfig.getLong("presence.flush-interval-ms", 250);
+        this.reconcileIntervalMs = ServerConfig.getLong("presence.reconcile-interval-ms", 120_000);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "presence-engine");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * ▶️ Start periodic reconciliation
+     */
+    public void start(Long selfId) {
+        this.selfId = selfId;
+        scheduler.scheduleWithFixedDelay(this::reconcile, reconcileIntervalMs, reconcileIntervalMs,
+                TimeUnit.MILLISECONDS);
+        log.info("🛰️ Presence engine started (flush={}ms, reconcile={}ms)", flushIntervalMs, reconcileIntervalMs);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 🔄 Apply one status message; a no-op if the user's state is unchanged
+     */
+    public void onStatusMessage(UserStatusMessage message) {
+        if (message == null || message.getUserId() == null || message.getUserId().equals(selfId)) {
+            return;
+        }
+        Long userId = message.getUserId();
+        boolean wasOnline = index.isOnline(userId);
+        index.apply(message);
+        boolean isOnline = index.isOnline(userId);
+        if (wasOnline != isOnline) {
+            enqueue(userId, isOnline);
+        }
+    }
+
+    /**
+     * 📸 Fetch a full snapshot and queue whatever differs from the index
+     */
+    public void reconcile() {
+        if (!reconciling.compareAndSet(false, true)) {
+            return;
+        }
+        Set<Long> before = onlineSet();
+        chatService.getOnlineUsersAsync()
+                .thenRun(() -> {
+                    // getOnlineUsers replaced the index with the snapshot
+                    Set<Long> after = onlineSet();
+                    int changes = 0;
+                    for (Long id : after) {
+                        if (!before.contains(id)) {
+                            enqueue(id, true);
+                            changes++;
+                        }
+                    }
+                    for (Long id : before) {
+                        if (!after.contains(id)) {
+                            enqueue(id, false);
+                            changes++;
+                        }
+                    }
+                    log.debug("🛰️ Presence reconciled: {} online, {} corrected", after.size(), changes);
+                })
+                .whenComplete((v, e) -> reconciling.set(false));
+    }
+
+    private Set<Long> onlineSet() {
+        Set<Long> online = new HashSet<>();
+        for (Long id : index.onlineIds()) {
+            if (index.isOnline(id) && !id.equals(selfId)) {
+                online.add(id);
+            }
+        }
+        return online;
+    }
+
+    private void enqueue(Long userId, boolean isOnline) {
+        pending.put(userId, isOnline);
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.schedule(this::flush, flushIntervalMs, TimeUnit.MILLISECONDS);
+            } catch (java.util.concurrent.RejectedExecutionException e) {
+                flushScheduled.set(false); // Engine stopped
+            }
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        Map<Long, Boolean> batch = new HashMap<>();
+        for (Long id : pending.keySet()) {
+            Boolean state = pending.remove(id);
+            if (state != null) {
+                batch.put(id, state);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            listener.accept(batch);
+        } catch (Exception e) {
+            log.error("❌ Presence listener failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.client.service;
+
+import com.example.demo.client.model.User;
+import com.example.demo.client.model.UserStatusMessage;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 🟢 PresenceIndex - Online status of users, indexed by user ID
+ *
+ * Seeded from a full online-users snapshot, then kept current by real-time
+ * status messages, so a friends refresh can read presence locally instead of
+ * downloading the online-users list again.
+ */
+public class PresenceIndex {
+
+    private final Map<Long, User.Status> statuses = new ConcurrentHashMap<>();
+    private volatile boolean seeded = false;
+
+    /**
+     * 📸 Replace the index with a full snapshot of the online users
+     */
+    public void replaceAll(Collection<User> onlineUsers) {
+        Map<Long, User.Status> snapshot = new ConcurrentHashMap<>();
+        for (User user : onlineUsers) {
+            if (user != null && user.getId() != null) {
+                snapshot.put(user.getId(), user.getStatus() != null ? user.getStatus() : User.Status.ONLINE);
+            }
+        }
+        statuses.keySet().retainAll(snapshot.keySet());
+        statuses.putAll(snapshot);
+        seeded = true;
+    }
+
+    /**
+     * 🔄 Apply one real-time status change
+     */
+    public void apply(UserStatusMessage message) {
+        if (message == null || message.getUserId() == null) {
+            return;
+        }
+        boolean online = "ONLINE".equals(message.getStatus()) || Boolean.TRUE.equals(message.getIsOnline());
+        update(message.getUserId(), online ? User.Status.ONLINE : User.Status.OFFLINE);
+    }
+
+    public void update(Long userId, User.Status status) {
+        if (status == null || status == User.Status.OFFLINE) {
+            statuses.remove(userId);
+        } else {
+            statuses.put(userId, status);
+        }
+    }
+
+    /**
+     * Status of a user (OFFLINE when not in the index)
+     */
+    public User.Status statusOf(Long userId) {
+        return statuses.getOrDefault(userId, User.Status.OFFLINE);
+    }
+
+    public boolean isOnline(Long userId) {
+        return statuses.get(userId) == User.Status.ONLINE;
+    }
+
+    /**
+     * Whether a snapshot has been loaded since creation or the last clear
+     */
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * Snapshot of the user IDs currently online (or idle)
+     */
+    public Set<Long> onlineIds() {
+        return new HashSet<>(statuses.keySet());
+    }
+
+    public int size() {
+        return statuses.size();
+    }
+
+    public void clear() {
+        statuses.clear();
+        seeded = false;
+    }
+}
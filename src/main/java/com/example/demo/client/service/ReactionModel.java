@@ -0,0 +1,312 @@
+package com.example.demo.client.service;
+
+import com.example.demo.client.config.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * 😀 ReactionModel - Reaction counts kept in memory and changed in place
+ *
+ * The counts live in the {@link ReactionSummaryService} cache. A local toggle
+ * is applied at once (add unless this user is known to have reacted with
+ * that emoji) and the request runs in the background; real-time reaction
+ * events are applied as +1 / -1 deltas, and the echo of this user's own
+ * toggle is recognised and skipped (only events from this user, or without
+ * a userId, can be an echo; one that has not arrived within
+ * reactions.echo-ttl-ms is no longer expected). The server is only asked again when the
+ * two disagree: the toggle went the other way, or a count would drop below
+ * zero. A failed toggle is rolled back.
+ *
+ * Listeners get (messageId, counts) after every change, on the calling thread.
+ */
+@Slf4j
+public class ReactionModel {
+
+    private static final String ADDED = "ADDED";
+    private static final String REMOVED = "REMOVED";
+    private static final int MAX_TRACKED_MESSAGES = 2000;
+
+    private final ChatService chatService;
+    private final ReactionSummaryService summaries;
+    private final List<BiConsumer<Long, Map<String, Integer>>> listeners = new CopyOnWriteArrayList<>();
+
+    /** Emojis this user has on each message, as far as we know */
+    private final Map<Long, Set<String>> mine = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Set<String>> eldest) {
+            return size() > MAX_TRACKED_MESSAGES;
+        }
+    };
+    /** Own toggles whose real-time echo has not arrived yet ("messageId|emoji|action") */
+    private final Map<String, Echo> expectedEchoes = new HashMap<>();
+    private final long echoTtlMs = ServerConfig.getLong("reactions.echo-ttl-ms", 30000);
+
+    private final AtomicLong toggles = new AtomicLong();
+    private final AtomicLong deltas = new AtomicLong();
+    private final AtomicLong echoesSkipped = new AtomicLong();
+    private final AtomicLong reconciliations = new AtomicLong();
+
+    public ReactionModel(ChatService chatService, ReactionSummaryService summaries) {
+        this.chatService = chatService;
+        this.summaries = summaries;
+    }
+
+    public void addListener(BiConsumer<Long, Map<String, Integer>> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(BiConsumer<Long, Map<String, Integer>> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 👆 Toggle this user's {@code emoji} on a message: counts change now, the
+     * request follows. Completes with true if added, false if removed, null
+     * if the request was queued offline or failed (and was rolled back).
+     */
+    public CompletableFuture<Boolean> toggle(Long messageId, String emoji) {
+        toggles.incrementAndGet();
+        String predicted;
+        synchronized (this) {
+            predicted = mineOf(messageId).contains(emoji) ? REMOVED : ADDED;
+            applyOwn(messageId, emoji, predicted);
+            expectEcho(messageId, emoji, predicted);
+        }
+        notifyChanged(messageId);
+
+        return chatService.sendReactionToggleAsync(messageId, emoji)
+                .handle((action, e) -> {
+                    if (e != null) {
+                        log.warn("😀 Reaction {} on message {} failed, rolling back: {}", emoji, messageId,
+                                e.getMessage());
+                        synchronized (this) {
+                            forgetEcho(messageId, emoji, predicted);
+                            applyOwn(messageId, emoji, opposite(predicted));
+                        }
+                        notifyChanged(messageId);
+                        return null;
+                    }
+                    if (action == null) {
+                        return null; // Queued offline: keep the optimistic state
+                    }
+                    if (!predicted.equals(action)) {
+                        synchronized (this) {
+                            forgetEcho(messageId, emoji, predicted);
+                            expectEcho(messageId, emoji, action);
+                            setMine(messageId, emoji, ADDED.equals(action));
+                        }
+                        reconcile(messageId, "toggle went the other way");
+                    }
+                    return ADDED.equals(action);
+                });
+    }
+
+    /**
+     * 📡 Apply a real-time reaction event ({@code messageId}, {@code emoji},
+     * {@code action}, optionally {@code userId} or the full {@code counts})
+     */
+    @SuppressWarnings("unchecked")
+    public void applyEvent(Map<String, Object> event) {
+        Long messageId = toLong(event.get("messageId"));
+        Object emojiValue = event.get("emoji");
+        Object actionValue = event.get("action");
+        if (messageId == null) {
+            return;
+        }
+        String emoji = emojiValue != null ? emojiValue.toString() : null;
+        String action = actionValue != null ? actionValue.toString().toUpperCase() : null;
+        Long userId = toLong(event.get("userId"));
+        Long selfId = chatService.getCurrentUserId();
+        boolean reconcile = false;
+
+        synchronized (this) {
+            // Another user's event is never this user's echo, even with the same emoji and action
+            boolean mayBeEcho = userId == null || userId.equals(selfId);
+            boolean ownByEcho = mayBeEcho && emoji != null && action != null && forgetEcho(messageId, emoji, action);
+            boolean own = ownByEcho || (selfId != null && selfId.equals(userId));
+
+            if (event.get("counts") instanceof Map) {
+                // Full counts from the server: take them as they are
+                Map<String, Integer> counts = new LinkedHashMap<>();
+                ((Map<String, Object>) event.get("counts")).forEach((key, value) -> {
+                    if (value instanceof Number && ((Number) value).intValue() > 0) {
+                        counts.put(key, ((Number) value).intValue());
+                    }
+                });
+                summaries.put(messageId, counts);
+                if (own && emoji != null && action != null) {
+                    setMine(messageId, emoji, ADDED.equals(action));
+                }
+            } else if (emoji == null || !(ADDED.equals(action) || REMOVED.equals(action))) {
+                reconcile = true; // Nothing we can apply as a delta
+            } else if (own) {
+                if (ownByEcho || mineOf(messageId).contains(emoji) == ADDED.equals(action)) {
+                    echoesSkipped.incrementAndGet();
+                    return; // Already applied when this user toggled
+                }
+                applyOwn(messageId, emoji, action); // Toggled from another session
+            } else {
+                deltas.incrementAndGet();
+                reconcile = !applyDelta(messageId, emoji, ADDED.equals(action) ? 1 : -1);
+            }
+        }
+
+        if (reconcile) {
+            reconcile(messageId, "event could not be applied");
+        } else {
+            notifyChanged(messageId);
+        }
+    }
+
+    public long getToggles() {
+        return toggles.get();
+    }
+
+    /**
+     * Events from other users applied in place
+     */
+    public long getDeltas() {
+        return deltas.get();
+    }
+
+    public long getEchoesSkipped() {
+        return echoesSkipped.get();
+    }
+
+    /**
+     * Times the counts had to be fetched again because local and server state
+     * disagreed
+     */
+    public long getReconciliations() {
+        return reconciliations.get();
+    }
+
+    // ==================== INTERNALS ====================
+
+    private Set<String> mineOf(Long messageId) {
+        return mine.computeIfAbsent(messageId, id -> new HashSet<>());
+    }
+
+    private void setMine(Long messageId, String emoji, boolean reacted) {
+        if (reacted) {
+            mineOf(messageId).add(emoji);
+        } else {
+            mineOf(messageId).remove(emoji);
+        }
+    }
+
+    private void applyOwn(Long messageId, String emoji, String action) {
+        boolean add = ADDED.equals(action);
+        setMine(messageId, emoji, add);
+        applyDelta(messageId, emoji, add ? 1 : -1);
+    }
+
+    /**
+     * @return false if the count would go negative (local state is off)
+     */
+    private boolean applyDelta(Long messageId, String emoji, int delta) {
+        Map<String, Integer> current = summaries.peek(messageId);
+        if (current == null) {
+            return true; // Not loaded yet: fetched fresh when it is shown
+        }
+        Map<String, Integer> counts = new LinkedHashMap<>(current);
+        int value = counts.getOrDefault(emoji, 0) + delta;
+        if (value < 0) {
+            return false;
+        }
+        if (value == 0) {
+            counts.remove(emoji);
+        } else {
+            counts.put(emoji, value);
+        }
+        summaries.put(messageId, counts);
+        return true;
+    }
+
+    private void expectEcho(Long messageId, String emoji, String action) {
+        long now = System.currentTimeMillis();
+        expireEchoes(now);
+        Echo echo = expectedEchoes.computeIfAbsent(echoKey(messageId, emoji, action), key -> new Echo());
+        echo.pending++;
+        echo.expiresAt = now + echoTtlMs;
+    }
+
+    private boolean forgetEcho(Long messageId, String emoji, String action) {
+        expireEchoes(System.currentTimeMillis());
+        String key = echoKey(messageId, emoji, action);
+        Echo echo = expectedEchoes.get(key);
+        if (echo == null) {
+            return false;
+        }
+        if (--echo.pending <= 0) {
+            expectedEchoes.remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * Drop echoes that never arrived (event lost, or sent without this user's id)
+     */
+    private void expireEchoes(long now) {
+        for (Iterator<Echo> it = expectedEchoes.values().iterator(); it.hasNext(); ) {
+            if (it.next().expiresAt <= now) {
+                it.remove();
+            }
+        }
+    }
+
+    private static String echoKey(Long messageId, String emoji, String action) {
+        return messageId + "|" + emoji + "|" + action;
+    }
+
+    private static String opposite(String action) {
+        return ADDED.equals(action) ? REMOVED : ADDED;
+    }
+
+    private void reconcile(Long messageId, String reason) {
+        reconciliations.incrementAndGet();
+        log.debug("😀 Reconciling reactions of message {}: {}", messageId, reason);
+        summaries.invalidate(messageId);
+        summaries.get(messageId).thenRun(() -> notifyChanged(messageId));
+    }
+
+    private void notifyChanged(Long messageId) {
+        Map<String, Integer> counts = summaries.peek(messageId);
+        if (counts == null) {
+            return;
+        }
+        for (BiConsumer<Long, Map<String, Integer>> listener : listeners) {
+            listener.accept(messageId, counts);
+        }
+    }
+
+    private static final class Echo {
+        int pending;
+        long expiresAt;
+    }
+
+    private static Long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.valueOf((String) value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.demo.client.service;
+
+import com.example.demo.client.config.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 😀 ReactionSummaryService - Cached, batched reaction counts per message
+ *
+ * Message bubbles ask for their counts when they scroll into view; requests
+ * made within reactions.batch-window-ms (one layout pass) are collected into a
+ * batch, de-duplicated, and fetched newest-first through at most
+ * reactions.max-concurrency requests in flight over the shared HTTP transport
+ * (no thread per bubble). Results are kept in an LRU cache of
+ * reactions.cache-max-entries message ids; {@link #invalidate} drops one
+ * entry when its reactions change. A failed fetch completes its callers
+ * exceptionally, so bubbles keep the counts they already show.
+ *
+ * The backend only serves one summary per request, so a batch is fetched as
+ * bounded parallel requests rather than a single call.
+ */
+@Slf4j
+public class ReactionSummaryService {
+
+    private final ChatService chatService;
+    private final long batchWindowMs;
+    private final int maxConcurrency;
+    private final int maxEntries;
+
+    private final Map<Long, Map<String, Integer>> cache;
+    private final Map<Long, CompletableFuture<Map<String, Integer>>> inFlight = new HashMap<>();
+    /** Waiting for a lane, most recently requested first */
+    private final LinkedHashSet<Long> queued = new LinkedHashSet<>();
+    private int active;
+    private boolean batchScheduled;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong fetched = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    public ReactionSummaryService(ChatService chatService) {
+        this(chatService, ServerConfig.getLong("reactions.batch-window-ms", 16),
+                (int) ServerConfig.getLong("reactions.max-concurrency", 6),
+                (int) ServerConfig.getLong("reactions.cache-max-entries", 2000));
+    }
+
+    public ReactionSummaryService(ChatService chatService, long batchWindowMs, int maxConcurrency, int maxEntries) {
+        this.chatService = chatService;
+        this.batchWindowMs = batchWindowMs;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxEntries = Math.max(1, maxEntries);
+        this.cache = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Map<String, Integer>> eldest) {
+                return size() > ReactionSummaryService.this.maxEntries;
+            }
+        };
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reaction-summaries");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Cached counts (emoji -> count), or null if not loaded yet
+     */
+    public synchronized Map<String, Integer> peek(Long messageId) {
+        return cache.get(messageId);
+    }
+
+    /**
+     * 📥 Counts for one message: from the cache, or fetched with the next
+     * batch; completes exceptionally if the fetch fails
+     */
+    public CompletableFuture<Map<String, Integer>> get(Long messageId) {
+        requests.incrementAndGet();
+        synchronized (this) {
+            Map<String, Integer> cached = cache.get(messageId);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return CompletableFuture.completedFuture(cached);
+            }
+            CompletableFuture<Map<String, Integer>> pending = inFlight.get(messageId);
+            if (pending != null) {
+                hits.incrementAndGet();
+                if (queued.contains(messageId)) {
+                    queued.addFirst(messageId); // Still wanted: move to the front
+                }
+                return pending;
+            }
+            CompletableFuture<Map<String, Integer>> result = new CompletableFuture<>();
+            inFlight.put(messageId, result);
+            queued.addFirst(messageId);
+            if (!batchScheduled) {
+                batchScheduled = true;
+                try {
+                    scheduler.schedule(this::dispatch, batchWindowMs, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    batchScheduled = false;
+                    dispatch();
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * ✏️ Replace the cached counts (e.g. from a real-time reaction event)
+     */
+    public synchronized void put(Long messageId, Map<String, Integer> counts) {
+        markStale(messageId);
+        cache.put(messageId, Collections.unmodifiableMap(new LinkedHashMap<>(counts)));
+    }
+
+    /**
+     * 🗑️ Forget one message's counts so the next {@link #get} refetches them
+     */
+    public synchronized void invalidate(Long messageId) {
+        markStale(messageId);
+        cache.remove(messageId);
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Requests answered from the cache or joined to a fetch already pending
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getFetched() {
+        return fetched.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public synchronized int getCachedCount() {
+        return cache.size();
+    }
+
+    // ==================== INTERNALS ====================
+
+    /**
+     * A fetch already sent may answer with the old counts: detach it, so
+     * its answer is neither cached nor handed to its callers (they get the
+     * newer counts) and the next {@link #get} sends a new one
+     */
+    private void markStale(Long messageId) {
+        if (!queued.contains(messageId)) {
+            inFlight.remove(messageId);
+        }
+    }
+
+    private void dispatch() {
+        synchronized (this) {
+            batchScheduled = false;
+            if (queued.isEmpty()) {
+                return;
+            }
+            batches.incrementAndGet();
+            log.debug("😀 Reaction summary batch: {} queued, {} in flight", queued.size(), active);
+        }
+        pump();
+    }
+
+    private void pump() {
+        while (true) {
+            Long messageId;
+            CompletableFuture<Map<String, Integer>> result;
+            synchronized (this) {
+                if (active >= maxConcurrency || queued.isEmpty()) {
+                    return;
+                }
+                messageId = queued.removeFirst();
+                result = inFlight.get(messageId);
+                active++;
+            }
+            fetch(messageId, result);
+        }
+    }
+
+    private void fetch(Long messageId, CompletableFuture<Map<String, Integer>> result) {
+        chatService.getReactionSummaryAsync(messageId)
+                .handle((summary, e) -> {
+                    Map<String, Integer> counts = countsOf(summary);
+                    Throwable error = e;
+                    boolean current;
+                    synchronized (this) {
+                        active--;
+                        current = inFlight.remove(messageId, result);
+                        if (current && e == null && summary != null && !summary.isEmpty()) {
+                            cache.put(messageId, counts);
+                        } else if (!current && cache.containsKey(messageId)) {
+                            counts = cache.get(messageId); // Superseded: serve the newer counts
+                            error = null;
+                            current = true;
+                        }
+                    }
+                    fetched.incrementAndGet();
+                    if (!current) {
+                        // Superseded and not cached yet: answer with the fresh fetch instead
+                        get(messageId).whenComplete((fresh, freshError) -> {
+                            if (freshError != null) {
+                                result.completeExceptionally(freshError);
+                            } else {
+                                result.complete(fresh);
+                            }
+                        });
+                    } else if (error != null) {
+                        // Not an empty summary: the UI keeps what it shows
+                        log.debug("😀 Reaction summary of message {} failed: {}", messageId, error.getMessage());
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(counts);
+                    }
+                    pump();
+                    return null;
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Integer> countsOf(Map<String, Object> summary) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        Object raw = summary != null ? summary.get("counts") : null;
+        if (raw instanceof Map) {
+            ((Map<String, Object>) raw).forEach((emoji, count) -> {
+                if (count instanceof Number && ((Number) count).intValue() > 0) {
+                    counts.put(emoji, ((Number) count).intValue());
+                }
+            });
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+}
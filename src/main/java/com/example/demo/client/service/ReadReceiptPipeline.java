@@ -0,0 +1,264 @@
+package com.example.demo.client.service;
+
+import com.example.demo.client.config.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 👁️ ReadReceiptPipeline - Coalesced "mark as read" writes
+ *
+ * Keeps, per room and per private chat, the highest message id the user has
+ * read and whether the server still counts anything as unread there (from the
+ * unread badge load and from messages received since). Reads only mark the
+ * conversation dirty; dirty conversations are sent together once updates go
+ * quiet for read-receipts.debounce-ms, and never later than
+ * read-receipts.max-delay-ms after the first one. A conversation with nothing
+ * unread is never sent, so hopping between rooms costs no writes.
+ *
+ * The backend only offers "mark all read" per conversation, so a batch is one
+ * request per dirty conversation, all issued concurrently.
+ *
+ * Config (ServerConfig):
+ * - read-receipts.debounce-ms   (default 750)
+ * - read-receipts.max-delay-ms  (default 3000)
+ */
+@Slf4j
+public class ReadReceiptPipeline {
+
+    public enum Kind {
+        ROOM, PRIVATE
+    }
+
+    private static final class Conversation {
+        final Kind kind;
+        final Long id;
+        /** Highest message id the user has seen */
+        long readUpTo;
+        /** Server may still count unread messages here; unknown counts as unread */
+        boolean unread = true;
+        /** Bumped by every incoming message, so a receipt in flight cannot clear a newer one */
+        long version;
+        boolean dirty;
+
+        Conversation(Kind kind, Long id) {
+            this.kind = kind;
+            this.id = id;
+        }
+    }
+
+    private final ChatService chatService;
+    private final long debounceMs;
+    private final long maxDelayMs;
+    private final Map<String, Conversation> conversations = new HashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    private long lastUpdateAt;
+    private long firstDirtyAt;
+    private boolean flushScheduled;
+
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    public ReadReceiptPipeline(ChatService chatService) {
+        this(chatService, ServerConfig.getLong("read-receipts.debounce-ms", 750),
+                ServerConfig.getLong("read-receipts.max-delay-ms", 3_000));
+    }
+
+    public ReadReceiptPipeline(ChatService chatService, long debounceMs, long maxDelayMs) {
+        this.chatService = chatService;
+        this.debounceMs = debounceMs;
+        this.maxDelayMs = Math.max(debounceMs, maxDelayMs);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "read-receipts");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 📊 Seed the unread state from the badge load (0 means nothing to send)
+     */
+    public synchronized void setUnreadCounts(Map<Long, Integer> friendCounts, Map<Long, Integer> roomCounts) {
+        friendCounts.forEach((id, count) -> conversation(Kind.PRIVATE, id).unread = count != null && count > 0);
+        roomCounts.forEach((id, count) -> conversation(Kind.ROOM, id).unread = count != null && count > 0);
+    }
+
+    /**
+     * 📨 A message from someone else arrived in the conversation
+     */
+    public synchronized void onIncoming(Kind kind, Long id, Long messageId) {
+        if (id == null) {
+            return;
+        }
+        Conversation c = conversation(kind, id);
+        if (messageId != null && messageId <= c.readUpTo) {
+            return; // Duplicate of something already read
+        }
+        c.unread = true;
+        c.version++;
+    }
+
+    /**
+     * 👁️ The user has seen the conversation up to {@code messageId} (null: up
+     * to whatever is loaded); sent later, and only if something is unread
+     */
+    public void markRead(Kind kind, Long id, Long messageId) {
+        if (id == null) {
+            return;
+        }
+        reads.incrementAndGet();
+        synchronized (this) {
+            Conversation c = conversation(kind, id);
+            if (messageId != null) {
+                c.readUpTo = Math.max(c.readUpTo, messageId);
+            }
+            if (!c.unread) {
+                skipped.incrementAndGet();
+                return;
+            }
+            if (c.dirty) {
+                skipped.incrementAndGet(); // Coalesced into the pending receipt
+            }
+            long now = System.currentTimeMillis();
+            if (!hasDirty()) {
+                firstDirtyAt = now;
+            }
+            c.dirty = true;
+            lastUpdateAt = now;
+            schedule(debounceMs);
+        }
+    }
+
+    /**
+     * 🚀 Send every pending receipt now (e.g. before logout or exit)
+     */
+    public CompletableFuture<Void> flushNow() {
+        List<CompletableFuture<Boolean>> requests;
+        synchronized (this) {
+            requests = takeBatch();
+        }
+        return CompletableFuture.allOf(requests.toArray(new CompletableFuture[0]));
+    }
+
+    public void stop() {
+        try {
+            flushNow().get(2, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("⚠️ Read receipts not flushed before stop: {}", e.getMessage());
+        }
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Calls to {@link #markRead}
+     */
+    public long getReads() {
+        return reads.get();
+    }
+
+    /**
+     * Reads that needed no request of their own
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Requests actually sent
+     */
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    // ==================== INTERNALS ====================
+
+    private Conversation conversation(Kind kind, Long id) {
+        return conversations.computeIfAbsent(kind + ":" + id, k -> new Conversation(kind, id));
+    }
+
+    private boolean hasDirty() {
+        for (Conversation c : conversations.values()) {
+            if (c.dirty) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void schedule(long delayMs) {
+        if (flushScheduled) {
+            return;
+        }
+        try {
+            scheduler.schedule(this::tick, delayMs, TimeUnit.MILLISECONDS);
+            flushScheduled = true;
+        } catch (RejectedExecutionException e) {
+            // Pipeline stopped
+        }
+    }
+
+    /**
+     * ⏱️ Flush once idle for the debounce window or the oldest receipt is due
+     */
+    private synchronized void tick() {
+        flushScheduled = false;
+        long now = System.currentTimeMillis();
+        long quietFor = now - lastUpdateAt;
+        long waitedFor = now - firstDirtyAt;
+        if (quietFor < debounceMs && waitedFor < maxDelayMs) {
+            schedule(Math.min(debounceMs - quietFor, maxDelayMs - waitedFor));
+            return;
+        }
+        takeBatch();
+    }
+
+    private List<CompletableFuture<Boolean>> takeBatch() {
+        List<CompletableFuture<Boolean>> requests = new ArrayList<>();
+        for (Conversation c : conversations.values()) {
+            if (!c.dirty) {
+                continue;
+            }
+            c.dirty = false;
+            if (!c.unread) {
+                continue;
+            }
+            long version = c.version;
+            CompletableFuture<Boolean> request = c.kind == Kind.ROOM
+                    ? chatService.markAllMessagesInRoomAsReadAsync(c.id)
+                    : chatService.markAllPrivateMessagesAsReadAsync(c.id);
+            requests.add(request.thenApply(ok -> {
+                if (ok) {
+                    synchronized (this) {
+                        if (c.version == version) {
+                            c.unread = false; // Nothing newer arrived while the receipt was in flight
+                        }
+                    }
+                }
+                return ok;
+            }));
+        }
+        if (!requests.isEmpty()) {
+            sent.addAndGet(requests.size());
+            batches.incrementAndGet();
+            log.debug("👁️ Sent {} read receipt(s) ({} reads, {} skipped so far)", requests.size(), reads.get(),
+                    skipped.get());
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.client.service;
+
+import java.util.function.Predicate;
+
+/**
+ * 🎯 ReadScopes - Which cached GETs a write can make stale
+ *
+ * A write only invalidates the reads of the resource families it touches:
+ * - room create / delete / join / leave: room lists, that room and its
+ *   members, invite candidates
+ * - admins / members / bans of room X: members and bans of room X
+ * - room invites: pending invites and invite candidates (accepting one also
+ *   changes the room lists)
+ * - friends: friend lists, search and invite candidates
+ * - profile / avatar: users, friends and member lists (names, avatars)
+ * - reactions on message X: reactions of message X
+ * - mark as read: unread counts
+ * - recall / attachment upload: message history and unread counts
+ *
+ * Anything else (login, logout, unknown endpoints) invalidates every read.
+ * Predicates take the read's endpoint (path plus query).
+ */
+final class ReadScopes {
+
+    private static final Predicate<String> EVERYTHING = read -> true;
+
+    private ReadScopes() {
+    }
+
+    static Predicate<String> affectedBy(String writeEndpoint) {
+        String path = writeEndpoint.split("\\?", 2)[0];
+        String[] parts = path.split("/"); // "", "api", resource, id, sub-resource, ...
+        if (parts.length < 3 || !parts[1].equals("api")) {
+            return EVERYTHING;
+        }
+        String id = parts.length > 3 ? parts[3] : null;
+        String sub = parts.length > 4 ? parts[4] : null;
+
+        switch (parts[2]) {
+            case "rooms": {
+                if ("admins".equals(sub) || "members".equals(sub) || "bans".equals(sub)) {
+                    String room = "/api/rooms/" + id + "/";
+                    return read -> read.startsWith(room + "members") || read.startsWith(room + "bans");
+                }
+                String room = id != null ? "/api/rooms/" + id : null;
+                return read -> isRoomList(read)
+                        || (room != null && (read.equals(room) || read.startsWith(room + "/")))
+                        || read.startsWith("/api/room-invites/room/");
+            }
+            case "room-invites":
+                if ("accept".equals(sub)) {
+                    return read -> read.startsWith("/api/room-invites") || isRoomList(read);
+                }
+                return read -> read.startsWith("/api/room-invites");
+            case "friends":
+                return read -> read.startsWith("/api/friends") || read.startsWith("/api/room-invites/room/");
+            case "users":
+                return read -> read.startsWith("/api/users") || read.startsWith("/api/friends")
+                        || (read.startsWith("/api/rooms/") && read.contains("/members"));
+            case "messages":
+                if ("reactions".equals(sub)) {
+                    String reactions = "/api/messages/" + id + "/reactions";
+                    return read -> read.startsWith(reactions);
+                }
+                if (path.endsWith("mark-as-read") || path.endsWith("mark-all-as-read")) {
+                    return ReadScopes::isUnreadCount;
+                }
+                return read -> read.startsWith("/api/messages/room/") || read.startsWith("/api/messages/private/")
+                        || isUnreadCount(read);
+            default:
+                return EVERYTHING;
+        }
+    }
+
+    private static boolean isRoomList(String read) {
+        return read.equals("/api/rooms") || read.startsWith("/api/rooms/my-rooms")
+                || read.startsWith("/api/rooms/public");
+    }
+
+    private static boolean isUnreadCount(String read) {
+        return read.contains("unread-count");
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.demo.client.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🔢 RequestCountMetrics - Number of HTTP requests issued per logical call
+ *
+ * Each instrumented ChatService call records how many round trips it needed,
+ * e.g. "getFriends" should stay at 1 no matter how many friends there are.
+ */
+public class RequestCountMetrics {
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    public void record(String call, int requests) {
+        Stats s = stats.computeIfAbsent(call, k -> new Stats());
+        s.calls.incrementAndGet();
+        s.requests.addAndGet(requests);
+        s.last.set(requests);
+        s.max.accumulateAndGet(requests, Math::max);
+    }
+
+    /**
+     * Requests issued by the most recent call (0 if never called)
+     */
+    public int getLastRequestCount(String call) {
+        Stats s = stats.get(call);
+        return s != null ? s.last.get() : 0;
+    }
+
+    public int getMaxRequestCount(String call) {
+        Stats s = stats.get(call);
+        return s != null ? s.max.get() : 0;
+    }
+
+    public long getCallCount(String call) {
+        Stats s = stats.get(call);
+        return s != null ? s.calls.get() : 0;
+    }
+
+    public double getAverageRequestCount(String call) {
+        Stats s = stats.get(call);
+        if (s == null || s.calls.get() == 0) {
+            return 0;
+        }
+        return (double) s.requests.get() / s.calls.get();
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    /**
+     * 📋 One line per call: calls, last / max / average requests
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Stats> entry : new TreeMap<>(stats).entrySet()) {
+            Stats s = entry.getValue();
+            sb.append(String.format("%s: calls=%d last=%d max=%d avg=%.2f%n", entry.getKey(),
+                    s.calls.get(), s.last.get(), s.max.get(), getAverageRequestCount(entry.getKey())));
+        }
+        return sb.toString();
+    }
+
+    private static class Stats {
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong requests = new AtomicLong();
+        final AtomicInteger last = new AtomicInteger();
+        final AtomicInteger max = new AtomicInteger();
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.demo.client.service;
+
+import com.example.demo.client.config.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 👮 RoomRoleCache - Member roles per room, keyed by (roomId, userId)
+ *
+ * A room's member list is loaded once (concurrent loads share one request)
+ * and turned into a userId -> role map, so admin checks are a lookup instead
+ * of downloading and scanning the whole list. Promote / demote / kick / ban
+ * update the entry in place; joins, leaves and room events invalidate the
+ * room, and entries older than rooms.role-cache-ttl-ms are reloaded to pick up
+ * changes made by other admins.
+ *
+ * A load that started before an invalidation is not cached.
+ */
+@Slf4j
+public class RoomRoleCache {
+
+    private static final class RoomRoles {
+        final Map<Long, String> roles;
+        final long loadedAt;
+
+        RoomRoles(Map<Long, String> roles) {
+            this.roles = roles;
+            this.loadedAt = System.currentTimeMillis();
+        }
+    }
+
+    private final Function<Long, CompletableFuture<List<Map<String, Object>>>> loader;
+    private final long ttlMs;
+    private final Map<Long, RoomRoles> rooms = new HashMap<>();
+    private final Map<Long, CompletableFuture<Map<Long, String>>> loading = new HashMap<>();
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    public RoomRoleCache(Function<Long, CompletableFuture<List<Map<String, Object>>>> loader) {
+        this(loader, ServerConfig.getLong("rooms.role-cache-ttl-ms", 60_000));
+    }
+
+    public RoomRoleCache(Function<Long, CompletableFuture<List<Map<String, Object>>>> loader, long ttlMs) {
+        this.loader = loader;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * 🔍 Role of a user in a room (OWNER / ADMIN / MEMBER), null if not a member
+     */
+    public CompletableFuture<String> getRole(Long roomId, Long userId) {
+        lookups.incrementAndGet();
+        if (userId == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Map<Long, String>> load;
+        synchronized (this) {
+            RoomRoles cached = rooms.get(roomId);
+            if (cached != null && !isExpired(cached)) {
+                hits.incrementAndGet();
+                return CompletableFuture.completedFuture(cached.roles.get(userId));
+            }
+            load = loading.get(roomId);
+            if (load == null) {
+                load = new CompletableFuture<>();
+                loading.put(roomId, load);
+                startLoad(roomId, load);
+            }
+        }
+        return load.thenApply(roles -> roles.get(userId));
+    }
+
+    /**
+     * 👮 Whether a user is owner or admin of a room
+     */
+    public CompletableFuture<Boolean> isAdmin(Long roomId, Long userId) {
+        return getRole(roomId, userId).thenApply(RoomRoleCache::isAdminRole);
+    }
+
+    /**
+     * Cached role without loading; null if unknown or not a member
+     */
+    public synchronized String peekRole(Long roomId, Long userId) {
+        RoomRoles cached = rooms.get(roomId);
+        return cached != null && userId != null ? cached.roles.get(userId) : null;
+    }
+
+    /**
+     * 📥 Take a member list fetched elsewhere (e.g. the management dialog)
+     */
+    public synchronized void populate(Long roomId, List<Map<String, Object>> members) {
+        if (loading.containsKey(roomId)) {
+            return; // The pending load is answered with the same list
+        }
+        rooms.put(roomId, new RoomRoles(rolesOf(members)));
+    }
+
+    /**
+     * ✏️ Change one member's role after a successful promote / demote
+     */
+    public synchronized void setRole(Long roomId, Long userId, String role) {
+        RoomRoles cached = rooms.get(roomId);
+        if (cached != null) {
+            cached.roles.put(userId, role);
+        }
+        loading.remove(roomId);
+    }
+
+    /**
+     * 🚫 Drop one member after a successful kick / ban
+     */
+    public synchronized void remove(Long roomId, Long userId) {
+        RoomRoles cached = rooms.get(roomId);
+        if (cached != null) {
+            cached.roles.remove(userId);
+        }
+        loading.remove(roomId);
+    }
+
+    /**
+     * 🗑️ Forget a room so the next lookup reloads it
+     */
+    public synchronized void invalidate(Long roomId) {
+        rooms.remove(roomId);
+        loading.remove(roomId);
+    }
+
+    public synchronized void clear() {
+        rooms.clear();
+        loading.clear();
+    }
+
+    public long getLookups() {
+        return lookups.get();
+    }
+
+    /**
+     * Lookups answered without a request
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getLoads() {
+        return loads.get();
+    }
+
+    public static boolean isAdminRole(String role) {
+        return "ADMIN".equals(role) || "OWNER".equals(role);
+    }
+
+    // ==================== INTERNALS ====================
+
+    private boolean isExpired(RoomRoles cached) {
+        return ttlMs > 0 && System.currentTimeMillis() - cached.loadedAt > ttlMs;
+    }
+
+    private void startLoad(Long roomId, CompletableFuture<Map<Long, String>> load) {
+        loads.incrementAndGet();
+        loader.apply(roomId).whenComplete((members, e) -> {
+            if (e != null) {
+                synchronized (this) {
+                    loading.remove(roomId, load);
+                }
+                log.warn("👮 Failed to load roles for room {}: {}", roomId, e.getMessage());
+                load.completeExceptionally(e);
+                return;
+            }
+            Map<Long, String> roles = rolesOf(members);
+            synchronized (this) {
+                // Invalidated while loading: answer the callers but do not keep it
+                if (loading.remove(roomId, load)) {
+                    rooms.put(roomId, new RoomRoles(roles));
+                }
+            }
+            load.complete(roles);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Long, String> rolesOf(List<Map<String, Object>> members) {
+        Map<Long, String> roles = new ConcurrentHashMap<>();
+        if (members == null) {
+            return roles;
+        }
+        for (Map<String, Object> member : members) {
+            Object user = member.get("user");
+            Object role = member.get("role");
+            if (user instanceof Map && ((Map<String, Object>) user).get("id") instanceof Number && role != null) {
+                roles.put(((Number) ((Map<String, Object>) user).get("id")).longValue(), role.toString());
+            }
+        }
+        return roles;
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.demo.client.service;
+
+import com.example.demo.client.config.ServerConfig;
+import com.example.demo.client.model.TypingIndicator;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * ⌨️ TypingTracker - Typing indicators, both directions, on one timer
+ *
+ * Outgoing: keystrokes only matter when the state changes. "Typing" is sent
+ * when the user starts, repeated at most every typing.keepalive-ms while they
+ * keep going, and "stopped" is sent once the input is cleared or has been idle
+ * for typing.idle-ms.
+ *
+ * Incoming: indicators are folded into "who is typing" per room. Each user
+ * expires typing.expiry-ms after their last frame (a lost "stopped" cannot
+ * leave them typing forever), checked by one sweep every typing.sweep-ms. The
+ * listener gets a room's names only when that list changes.
+ *
+ * Config (ServerConfig):
+ * - typing.keepalive-ms  (default 4000)
+ * - typing.idle-ms       (default 3000)
+ * - typing.expiry-ms     (default 6000, longer than the keep-alive)
+ * - typing.sweep-ms      (default 500)
+ */
+@Slf4j
+public class TypingTracker {
+
+    private static final class Typist {
+        final String username;
+        long expiresAt;
+
+        Typist(String username) {
+            this.username = username;
+        }
+    }
+
+    private final BiConsumer<Long, Boolean> sender;
+    private final BiConsumer<Long, List<String>> listener;
+    private final long keepAliveMs;
+    private final long idleMs;
+    private final long expiryMs;
+    private final ScheduledExecutorService timer;
+
+    // Outgoing: the room the user is typing in (null if not typing)
+    private Long typingRoom;
+    private long lastSentAt;
+    private long lastInputAt;
+    private boolean idleCheckScheduled;
+
+    // Incoming: roomId -> userId -> typist, in arrival order
+    private final Map<Long, Map<Long, Typist>> rooms = new HashMap<>();
+
+    private final AtomicLong inputs = new AtomicLong();
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong framesReceived = new AtomicLong();
+
+    /**
+     * @param sender   sends (roomId, typing) to the server
+     * @param listener gets (roomId, names typing there) when the names change
+     */
+    public TypingTracker(BiConsumer<Long, Boolean> sender, BiConsumer<Long, List<String>> listener) {
+        this(sender, listener, ServerConfig.getLong("typing.keepalive-ms", 4_000),
+                ServerConfig.getLong("typing.idle-ms", 3_000),
+                ServerConfig.getLong("typing.expiry-ms", 6_000),
+                ServerConfig.getLong("typing.sweep-ms", 500));
+    }
+
+    public TypingTracker(BiConsumer<Long, Boolean> sender, BiConsumer<Long, List<String>> listener,
+            long keepAliveMs, long idleMs, long expiryMs, long sweepMs) {
+        this.sender = sender;
+        this.listener = listener;
+        this.keepAliveMs = keepAliveMs;
+        this.idleMs = idleMs;
+        this.expiryMs = Math.max(expiryMs, keepAliveMs);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "typing-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        long sweep = Math.max(50, sweepMs);
+        timer.scheduleAtFixedRate(this::sweep, sweep, sweep, TimeUnit.MILLISECONDS);
+    }
+
+    // ==================== OUTGOING ====================
+
+    /**
+     * ✍️ The user edited the input of a room (call on every change while it
+     * is not empty); sends only on start and keep-alive
+     */
+    public void typed(Long roomId) {
+        if (roomId == null) {
+            return;
+        }
+        inputs.incrementAndGet();
+        Long stoppedRoom = null;
+        boolean send = false;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            lastInputAt = now;
+            if (!roomId.equals(typingRoom)) {
+                stoppedRoom = typingRoom;
+                typingRoom = roomId;
+                send = true;
+            } else if (now - lastSentAt >= keepAliveMs) {
+                send = true;
+            }
+            if (send) {
+                lastSentAt = now;
+            }
+            if (!idleCheckScheduled) {
+                idleCheckScheduled = true;
+                timer.schedule(this::checkIdle, idleMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (stoppedRoom != null) {
+            send(stoppedRoom, false);
+        }
+        if (send) {
+            send(roomId, true);
+        }
+    }
+
+    /**
+     * ⏹️ Input cleared, message sent or room left: "stopped" if typing
+     */
+    public void stopped() {
+        Long room;
+        synchronized (this) {
+            room = typingRoom;
+            typingRoom = null;
+        }
+        if (room != null) {
+            send(room, false);
+        }
+    }
+
+    // ==================== INCOMING ====================
+
+    /**
+     * 📥 A typing frame from someone else
+     */
+    public void onIndicator(TypingIndicator indicator) {
+        if (indicator == null || indicator.getRoomId() == null || indicator.getUserId() == null) {
+            return;
+        }
+        framesReceived.incrementAndGet();
+        Long roomId = indicator.getRoomId();
+        List<String> names = null;
+        synchronized (this) {
+            Map<Long, Typist> typists = rooms.computeIfAbsent(roomId, id -> new LinkedHashMap<>());
+            boolean changed;
+            if (indicator.isTyping()) {
+                Typist typist = typists.get(indicator.getUserId());
+                changed = typist == null;
+                if (changed) {
+                    String name = indicator.getUsername() != null ? indicator.getUsername() : "?";
+                    typist = new Typist(name);
+                    typists.put(indicator.getUserId(), typist);
+                }
+                typist.expiresAt = System.currentTimeMillis() + expiryMs;
+            } else {
+                changed = typists.remove(indicator.getUserId()) != null;
+            }
+            if (typists.isEmpty()) {
+                rooms.remove(roomId);
+            }
+            if (changed) {
+                names = namesOf(typists);
+            }
+        }
+        if (names != null) {
+            notifyListener(roomId, names);
+        }
+    }
+
+    /**
+     * 👥 Who is typing in a room right now, oldest first
+     */
+    public synchronized List<String> typingIn(Long roomId) {
+        Map<Long, Typist> typists = rooms.get(roomId);
+        return typists == null ? List.of() : namesOf(typists);
+    }
+
+    /**
+     * 🗑️ Forget everyone (after a reconnect); stops our own indicator too
+     */
+    public void clear() {
+        stopped();
+        synchronized (this) {
+            rooms.clear();
+        }
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    public long getInputs() {
+        return inputs.get();
+    }
+
+    /**
+     * Indicators actually sent (starts, keep-alives and stops)
+     */
+    public long getFramesSent() {
+        return framesSent.get();
+    }
+
+    public long getFramesReceived() {
+        return framesReceived.get();
+    }
+
+    // ==================== INTERNALS ====================
+
+    private void send(Long roomId, boolean typing) {
+        framesSent.incrementAndGet();
+        try {
+            sender.accept(roomId, typing);
+        } catch (Exception e) {
+            log.debug("⌨️ Typing indicator not sent: {}", e.getMessage());
+        }
+    }
+
+    private void checkIdle() {
+        Long room = null;
+        synchronized (this) {
+            idleCheckScheduled = false;
+            if (typingRoom == null) {
+                return;
+            }
+            long idleFor = System.currentTimeMillis() - lastInputAt;
+            if (idleFor >= idleMs) {
+                room = typingRoom;
+                typingRoom = null;
+            } else {
+                idleCheckScheduled = true;
+                timer.schedule(this::checkIdle, idleMs - idleFor, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (room != null) {
+            send(room, false);
+        }
+    }
+
+    private void sweep() {
+        Map<Long, List<String>> changed = new HashMap<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (Iterator<Map.Entry<Long, Map<Long, Typist>>> it = rooms.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<Long, Map<Long, Typist>> room = it.next();
+                if (room.getValue().values().removeIf(typist -> typist.expiresAt <= now)) {
+                    changed.put(room.getKey(), namesOf(room.getValue()));
+                }
+                if (room.getValue().isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+        changed.forEach(this::notifyListener);
+    }
+
+    private void notifyListener(Long roomId, List<String> names) {
+        try {
+            listener.accept(roomId, names);
+        } catch (Exception e) {
+            log.error("Typing listener failed: {}", e.getMessage());
+        }
+    }
+
+    private static List<String> namesOf(Map<Long, Typist> typists) {
+        List<String> names = new ArrayList<>(typists.size());
+        typists.values().forEach(typist -> names.add(typist.username));
+        return names;
+    }
+}
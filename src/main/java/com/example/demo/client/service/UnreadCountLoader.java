@@ -0,0 +1,107 @@
+package com.example.demo.client.service;
+
+import com.example.demo.client.config.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 📊 UnreadCountLoader - Loads unread badges for many friends and rooms at once
+ *
+ * Requests run concurrently over the shared HTTP transport, but never more
+ * than {@code unread.max-concurrency} at a time: a fixed number of lanes each
+ * pick the next pending request when their previous one completes, so no
+ * thread blocks waiting for a permit. The result arrives as one batch.
+ */
+@Slf4j
+public class UnreadCountLoader {
+
+    private final ChatService chatService;
+    private final int maxConcurrency;
+
+    public UnreadCountLoader(ChatService chatService) {
+        this(chatService, (int) ServerConfig.getLong("unread.max-concurrency", 8));
+    }
+
+    public UnreadCountLoader(ChatService chatService, int maxConcurrency) {
+        this.chatService = chatService;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+    }
+
+    /**
+     * Unread counts for every requested friend and room (0 included, so
+     * callers can clear stale badges)
+     */
+    public static class UnreadCounts {
+        private final Map<Long, Integer> friendCounts;
+        private final Map<Long, Integer> roomCounts;
+
+        UnreadCounts(Map<Long, Integer> friendCounts, Map<Long, Integer> roomCounts) {
+            this.friendCounts = friendCounts;
+            this.roomCounts = roomCounts;
+        }
+
+        public Map<Long, Integer> getFriendCounts() {
+            return friendCounts;
+        }
+
+        public Map<Long, Integer> getRoomCounts() {
+            return roomCounts;
+        }
+    }
+
+    /**
+     * ⚡ Fetch all counts; completes once every request has finished
+     */
+    public CompletableFuture<UnreadCounts> load(Collection<Long> friendIds, Collection<Long> roomIds) {
+        long start = System.currentTimeMillis();
+        Map<Long, Integer> friendCounts = new ConcurrentHashMap<>();
+        Map<Long, Integer> roomCounts = new ConcurrentHashMap<>();
+
+        List<Supplier<CompletableFuture<Void>>> tasks = new ArrayList<>(friendIds.size() + roomIds.size());
+        for (Long friendId : friendIds) {
+            tasks.add(() -> chatService.getUnreadPrivateMessageCountAsync(friendId)
+                    .thenAccept(count -> friendCounts.put(friendId, count)));
+        }
+        for (Long roomId : roomIds) {
+            tasks.add(() -> chatService.getUnreadMessageCountAsync(roomId)
+                    .thenAccept(count -> roomCounts.put(roomId, count)));
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        int laneCount = Math.min(maxConcurrency, tasks.size());
+        CompletableFuture<?>[] lanes = new CompletableFuture<?>[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = runLane(tasks, next);
+        }
+
+        return CompletableFuture.allOf(lanes).thenApply(v -> {
+            log.info("📊 Loaded unread counts for {} friends and {} rooms in {}ms ({} parallel)",
+                    friendIds.size(), roomIds.size(), System.currentTimeMillis() - start, laneCount);
+            return new UnreadCounts(new HashMap<>(friendCounts), new HashMap<>(roomCounts));
+        });
+    }
+
+    private CompletableFuture<Void> runLane(List<Supplier<CompletableFuture<Void>>> tasks, AtomicInteger next) {
+        int index = next.getAndIncrement();
+        if (index >= tasks.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> task;
+        try {
+            task = tasks.get(index).get();
+        } catch (Exception e) {
+            task = CompletableFuture.failedFuture(e);
+        }
+        // A failed count is left out of the result; keep the lane going regardless
+        return task.handle((v, e) -> null).thenCompose(v -> runLane(tasks, next));
+    }
+}
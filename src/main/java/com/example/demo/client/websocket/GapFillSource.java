@@ -0,0 +1,24 @@
+package com.example.demo.client.websocket;
+
+import com.example.demo.client.model.MessagePage;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 🧩 GapFillSource - Where messages missed while disconnected are fetched from
+ *
+ * Implemented over the REST history API; pages are in ascending order.
+ */
+@FunctionalInterface
+public interface GapFillSource {
+
+    enum Kind {
+        ROOM, PRIVATE
+    }
+
+    /**
+     * Messages of a room (or a private chat with another user) newer than
+     * {@code afterId}, oldest first
+     */
+    CompletableFuture<MessagePage> messagesAfter(Kind kind, Long conversationId, Long afterId, int pageSize);
+}
@@ -0,0 +1,181 @@
+package com.example.demo.client.websocket;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 🧹 MessageDedupWindow - The last N message ids, for dropping duplicate frames
+ *
+ * A fixed-capacity sliding window: ids are written to a ring of primitive
+ * longs in arrival order, and an open-addressing table (4x the capacity,
+ * bounded linear probing) maps each id to its ring position. Once N newer ids
+ * have arrived the oldest one falls out of the window - its table slot is
+ * simply treated as free - so eviction is oldest-first and there is never a
+ * bulk clear. No locks and no allocation per call: producers claim table
+ * slots with CAS, and two frames carrying the same id at the same moment are
+ * let through once, except in the rare interleaving where the slot nearer
+ * home frees up between the two inserts and the nearer insert lands last.
+ */
+public class MessageDedupWindow {
+
+    private static final int MAX_PROBES = 32;
+
+    private final int capacity;
+    /** Ring position -> message id */
+    private final AtomicLongArray ring;
+    /** Table slot -> ring position + 1 (0 = never used) */
+    private final AtomicLongArray table;
+    private final int tableMask;
+    /** Next ring position to hand out */
+    private final AtomicLong head = new AtomicLong();
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+
+    public MessageDedupWindow(int capacity) {
+        this.capacity = Math.max(16, capacity);
+        this.ring = new AtomicLongArray(this.capacity);
+        int tableSize = Integer.highestOneBit(this.capacity * 4 - 1) << 1;
+        this.table = new AtomicLongArray(tableSize);
+        this.tableMask = tableSize - 1;
+    }
+
+    /**
+     * Record an id; false if it is already in the window (a duplicate)
+     */
+    public boolean add(long id) {
+        lookups.incrementAndGet();
+        int home = slotOf(id);
+        if (contains(id, home)) {
+            hits.incrementAndGet();
+            return false;
+        }
+
+        long position = head.getAndIncrement();
+        ring.set((int) (position % capacity), id);
+        long claim = position + 1;
+
+        while (true) {
+            int oldestSlot = -1;
+            long oldestEntry = Long.MAX_VALUE;
+            boolean retry = false;
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                int slot = (home + probe) & tableMask;
+                long entry = table.get(slot);
+                if (isLive(entry)) {
+                    if (ring.get(ringIndex(entry)) == id && entry != claim) {
+                        hits.incrementAndGet(); // Same id inserted concurrently
+                        return false;
+                    }
+                    if (entry < oldestEntry) {
+                        oldestEntry = entry;
+                        oldestSlot = slot;
+                    }
+                    continue;
+                }
+                if (table.compareAndSet(slot, entry, claim)) {
+                    return !twinNearer(id, home, probe);
+                }
+                retry = true; // Lost the slot to another producer: look again
+                break;
+            }
+            if (retry) {
+                continue;
+            }
+            // Every probed slot is live: give up the oldest of them early
+            if (oldestSlot >= 0 && table.compareAndSet(oldestSlot, oldestEntry, claim)) {
+                overflows.incrementAndGet();
+                return !twinNearer(id, home, (oldestSlot - home) & tableMask);
+            }
+        }
+    }
+
+    /**
+     * Whether the id is in the window, without recording it
+     */
+    public boolean contains(long id) {
+        return contains(id, slotOf(id));
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getLookups() {
+        return lookups.get();
+    }
+
+    /**
+     * Duplicates dropped
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    public double getHitRate() {
+        long total = lookups.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    /**
+     * Ids dropped from the window before their time because their probe
+     * range was full (should stay at or near zero)
+     */
+    public long getOverflows() {
+        return overflows.get();
+    }
+
+    // ==================== INTERNALS ====================
+
+    private boolean contains(long id, int home) {
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            long entry = table.get((home + probe) & tableMask);
+            if (entry == 0) {
+                return false;
+            }
+            if (isLive(entry) && ring.get(ringIndex(entry)) == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Another producer inserted the same id at the same time into a slot
+     * that was free again by the time it got there: the copy nearer to the
+     * home slot counts, this one is the duplicate
+     */
+    private boolean twinNearer(long id, int home, int myProbe) {
+        for (int probe = 0; probe < myProbe; probe++) {
+            long entry = table.get((home + probe) & tableMask);
+            if (isLive(entry) && ring.get(ringIndex(entry)) == id) {
+                hits.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * An entry is live while its ring position has not been reused
+     */
+    private boolean isLive(long entry) {
+        return entry != 0 && head.get() - (entry - 1) <= capacity;
+    }
+
+    private int ringIndex(long entry) {
+        return (int) ((entry - 1) % capacity);
+    }
+
+    private int slotOf(long id) {
+        // fmix64 from MurmurHash3: sequential ids spread over the table
+        long h = id;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & tableMask;
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.demo.client.websocket;
+
+import com.example.demo.client.config.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🔁 ReconnectSupervisor - Brings a lost WebSocket connection back
+ *
+ * After {@link #connectionLost()} it retries the connection on its own thread
+ * with exponential backoff and "equal jitter" (ws.reconnect.base-ms doubling
+ * up to ws.reconnect.max-delay-ms), so clients cut off by the same server
+ * restart do not come back in lockstep. One attempt runs at a time; the
+ * backoff resets once an attempt succeeds. {@link #stop()} ends it for good
+ * (user disconnect / exit).
+ */
+@Slf4j
+public class ReconnectSupervisor {
+
+    /**
+     * One connection attempt; true once connected (subscriptions replayed)
+     */
+    @FunctionalInterface
+    public interface Attempt {
+        boolean connect() throws Exception;
+    }
+
+    private final Attempt attempt;
+    private final long baseMs;
+    private final long maxDelayMs;
+    private final ScheduledExecutorService scheduler;
+
+    private boolean scheduled;
+    private boolean running;
+    private boolean lostDuringAttempt;
+    private boolean stopped;
+    private int failures;
+    private long outageStartedAt;
+
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private volatile long lastOutageMs;
+
+    public ReconnectSupervisor(Attempt attempt) {
+        this(attempt, ServerConfig.getLong("ws.reconnect.base-ms", 1_000),
+                ServerConfig.getLong("ws.reconnect.max-delay-ms", 30_000));
+    }
+
+    public ReconnectSupervisor(Attempt attempt, long baseMs, long maxDelayMs) {
+        this.attempt = attempt;
+        this.baseMs = Math.max(1, baseMs);
+        this.maxDelayMs = Math.max(this.baseMs, maxDelayMs);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ws-reconnect");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 🔌 The connection dropped: start reconnecting (no-op if already on it)
+     */
+    public synchronized void connectionLost() {
+        if (stopped) {
+            return;
+        }
+        if (outageStartedAt == 0) {
+            outageStartedAt = System.currentTimeMillis();
+        }
+        if (running) {
+            lostDuringAttempt = true; // Checked again once the attempt is done
+        }
+        schedule();
+    }
+
+    /**
+     * 🛑 Stop reconnecting; a later {@link #resume()} re-arms it
+     */
+    public synchronized void stop() {
+        stopped = true;
+    }
+
+    public synchronized void resume() {
+        stopped = false;
+    }
+
+    public void shutdown() {
+        stop();
+        scheduler.shutdownNow();
+    }
+
+    public synchronized boolean isReconnecting() {
+        return scheduled || running;
+    }
+
+    public long getAttempts() {
+        return attempts.get();
+    }
+
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    /**
+     * How long the last outage lasted until the connection was back
+     */
+    public long getLastOutageMs() {
+        return lastOutageMs;
+    }
+
+    // ==================== INTERNALS ====================
+
+    private void schedule() {
+        if (scheduled || running) {
+            return;
+        }
+        long delay = backoffMs(failures);
+        try {
+            scheduler.schedule(this::run, delay, TimeUnit.MILLISECONDS);
+            scheduled = true;
+            log.info("🔁 Reconnecting in {}ms (attempt {})", delay, failures + 1);
+        } catch (RejectedExecutionException e) {
+            // Shut down
+        }
+    }
+
+    private void run() {
+        synchronized (this) {
+            scheduled = false;
+            if (stopped) {
+                return;
+            }
+            running = true;
+        }
+        attempts.incrementAndGet();
+        boolean connected;
+        try {
+            connected = attempt.connect();
+        } catch (Exception e) {
+            log.warn("🔁 Reconnect failed: {}", e.getMessage());
+            connected = false;
+        }
+        synchronized (this) {
+            running = false;
+            boolean recheck = lostDuringAttempt;
+            lostDuringAttempt = false;
+            if (connected) {
+                reconnects.incrementAndGet();
+                lastOutageMs = outageStartedAt > 0 ? System.currentTimeMillis() - outageStartedAt : 0;
+                log.info("🔁 Reconnected after {}ms and {} attempt(s)", lastOutageMs, failures + 1);
+                failures = 0;
+                outageStartedAt = 0;
+                if (recheck && !stopped) {
+                    schedule(); // Cheap if the connection is still up
+                }
+            } else if (!stopped) {
+                failures++;
+                schedule();
+            }
+        }
+    }
+
+    private long backoffMs(int failures) {
+        long ceiling = Math.min(maxDelayMs, baseMs << Math.min(failures, 20));
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.demo.client.websocket;
+
+import com.example.demo.client.config.ServerConfig;
+import com.example.demo.client.http.LatencyHistogram;
+import com.example.demo.client.json.JsonCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 📬 StompDispatcher - One place where inbound STOMP frames are decoded and delivered
+ *
+ * Each destination has a route: a typed decoder and a list of listeners. The
+ * frame handler given to the STOMP session only copies the raw bytes into a
+ * bounded queue (ws.dispatch.queue-capacity), so the transport thread never
+ * runs JSON decoding or UI callbacks; a single "stomp-dispatch" thread decodes
+ * and calls the listeners, in arrival order.
+ *
+ * When the queue is full:
+ * - frames of a droppable route (typing, presence) are dropped
+ *   and counted - the next one supersedes them anyway
+ * - frames of any other route wait for room, pushing back on the socket
+ *   rather than losing messages
+ *
+ * Per destination: frames, throughput since the first frame, drops, decode
+ * errors and queue lag (time from arrival to dispatch).
+ */
+@Slf4j
+public class StompDispatcher {
+
+    private static final class Frame {
+        final Route<?> route;
+        final byte[] payload;
+        /** Set instead of a route for work queued with {@link #execute} */
+        final Runnable task;
+        final long arrivedNanos;
+
+        Frame(Route<?> route, byte[] payload, Runnable task) {
+            this.route = route;
+            this.payload = payload;
+            this.task = task;
+            this.arrivedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Decoder, listeners and counters of one destination
+     */
+    public static final class Route<T> implements StompFrameHandler {
+        private final StompDispatcher dispatcher;
+        private final String destination;
+        private final Function<byte[], T> decoder;
+        private final boolean droppable;
+        private final List<Consumer<T>> listeners = new CopyOnWriteArrayList<>();
+
+        private final AtomicLong frames = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong decodeErrors = new AtomicLong();
+        private final LatencyHistogram lag = new LatencyHistogram();
+        private volatile long firstFrameNanos;
+
+        private Route(StompDispatcher dispatcher, String destination, Function<byte[], T> decoder,
+                boolean droppable) {
+            this.dispatcher = dispatcher;
+            this.destination = destination;
+            this.decoder = decoder;
+            this.droppable = droppable;
+        }
+
+        @Override
+        @NonNull
+        public Type getPayloadType(@NonNull StompHeaders headers) {
+            return byte[].class;
+        }
+
+        @Override
+        public void handleFrame(@NonNull StompHeaders headers, @Nullable Object payload) {
+            byte[] bytes = payload instanceof byte[] ? (byte[]) payload
+                    : payload != null ? payload.toString().getBytes(StandardCharsets.UTF_8) : null;
+            if (bytes != null) {
+                dispatcher.enqueue(new Frame(this, bytes, null));
+            }
+        }
+
+        private void deliver(Frame frame) {
+            long now = System.nanoTime();
+            lag.record((now - frame.arrivedNanos) / 1_000);
+            if (frames.getAndIncrement() == 0) {
+                firstFrameNanos = frame.arrivedNanos;
+            }
+            T value;
+            try {
+                value = decoder.apply(frame.payload);
+            } catch (Exception e) {
+                decodeErrors.incrementAndGet();
+                log.error("❌ Parse error on {}: {}", destination, e.getMessage());
+                return;
+            }
+            if (value == null) {
+                return;
+            }
+            for (Consumer<T> listener : listeners) {
+                try {
+                    listener.accept(value);
+                } catch (Exception e) {
+                    log.error("Listener on {} failed: {}", destination, e.getMessage(), e);
+                }
+            }
+        }
+
+        public String getDestination() {
+            return destination;
+        }
+
+        public long getFrames() {
+            return frames.get();
+        }
+
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        public long getDecodeErrors() {
+            return decodeErrors.get();
+        }
+
+        /**
+         * Time frames spent queued before dispatch (microseconds)
+         */
+        public LatencyHistogram getLag() {
+            return lag;
+        }
+
+        /**
+         * Frames per second since the first one
+         */
+        public double getThroughput() {
+            long count = frames.get();
+            long elapsed = System.nanoTime() - firstFrameNanos;
+            return count < 2 || elapsed <= 0 ? 0.0 : count * 1e9 / elapsed;
+        }
+    }
+
+    private final Map<String, Route<?>> routes = new ConcurrentHashMap<>();
+    private final BlockingQueue<Frame> queue;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public StompDispatcher() {
+        this((int) ServerConfig.getLong("ws.dispatch.queue-capacity", 1024));
+    }
+
+    public StompDispatcher(int queueCapacity) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.worker = new Thread(this::run, "stomp-dispatch");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 📬 Route for a destination, decoded as JSON into {@code type}; the
+     * returned handler is what gets subscribed
+     */
+    public <T> Route<T> route(String destination, Class<T> type, boolean droppable, Consumer<T> listener) {
+        return route(destination, bytes -> JsonCodec.read(bytes, type), droppable, listener);
+    }
+
+    /**
+     * 📬 Route for a destination with its own decoder; a second call for the
+     * same destination adds the listener to the existing route
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Route<T> route(String destination, Function<byte[], T> decoder, boolean droppable,
+            Consumer<T> listener) {
+        Route<T> route = (Route<T>) routes.computeIfAbsent(destination,
+                d -> new Route<>(this, d, decoder, droppable));
+        route.listeners.add(listener);
+        return route;
+    }
+
+    /**
+     * 🧵 Run a task on the dispatch thread, after the frames already queued
+     * (e.g. messages fetched over REST, so they never race live frames); never
+     * dropped, waits for room like a message frame
+     */
+    public void execute(Runnable task) {
+        enqueue(new Frame(null, null, task));
+    }
+
+    /**
+     * 🗑️ Forget a destination (after unsubscribing)
+     */
+    public void remove(String destination) {
+        routes.remove(destination);
+    }
+
+    /**
+     * 🗑️ Forget every destination (on disconnect)
+     */
+    public void clear() {
+        routes.clear();
+    }
+
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * 📊 Routes by destination, for metrics
+     */
+    public Map<String, Route<?>> getRoutes() {
+        return new TreeMap<>(routes);
+    }
+
+    /**
+     * 📋 One line per destination that has seen frames
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("📬 dispatch queue=%d%n", queue.size()));
+        getRoutes().forEach((destination, route) -> {
+            if (route.getFrames() == 0 && route.getDropped() == 0) {
+                return;
+            }
+            sb.append(String.format("%s: frames=%d (%.1f/s) dropped=%d errors=%d lag p50=%.2fms p99=%.2fms "
+                    + "max=%.2fms%n", destination, route.getFrames(), route.getThroughput(), route.getDropped(),
+                    route.getDecodeErrors(), route.lag.getValueAtPercentile(50) / 1000.0,
+                    route.lag.getValueAtPercentile(99) / 1000.0, route.lag.getMax() / 1000.0));
+        });
+        return sb.toString();
+    }
+
+    // ==================== INTERNALS ====================
+
+    private void enqueue(Frame frame) {
+        if (queue.offer(frame)) {
+            return;
+        }
+        if (frame.route != null && frame.route.droppable) {
+            frame.route.dropped.incrementAndGet();
+            log.debug("📬 Dispatch queue full, dropped a frame for {}", frame.route.destination);
+            return;
+        }
+        try {
+            // Must not be lost: hold the transport thread until there is room
+            while (running && !queue.offer(frame, 100, TimeUnit.MILLISECONDS)) {
+                log.warn("📬 Dispatch queue full ({}), waiting to queue {}", queue.size(),
+                        frame.route != null ? frame.route.destination : "a task");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            Frame frame;
+            try {
+                frame = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (frame.task != null) {
+                try {
+                    frame.task.run();
+                } catch (Exception e) {
+                    log.error("Dispatch task failed: {}", e.getMessage(), e);
+                }
+            } else {
+                frame.route.deliver(frame);
+            }
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.demo.client.websocket;
+
+import com.example.demo.client.config.ServerConfig;
+import com.example.demo.client.http.LatencyHistogram;
+import com.example.demo.client.json.JsonCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 📤 StompSender - Outbound STOMP frames, written by one thread
+ *
+ * Callers (usually the FX thread) only enqueue; the "stomp-writer" thread
+ * serializes and sends. Under load it drains up to ws.send.batch-max frames
+ * per wake-up and writes them back to back, keeping only the newest typing
+ * frame per destination within a batch.
+ *
+ * Chat messages ask for a STOMP receipt and their future completes with the
+ * outcome:
+ * - DELIVERED: the server acknowledged the frame
+ * - UNCONFIRMED: written, but no receipt within ws.send.receipt-timeout-ms
+ * - QUEUED: not connected (or the outbox is still replaying), kept in the outbox
+ * - FAILED: could neither be sent nor queued
+ * Frames without a receipt complete with SENT once written. Outbox replays
+ * always ask for a receipt and never fall back to the outbox; only FAILED
+ * (never written) leaves the action queued for another, capped, attempt.
+ *
+ * Send-to-receipt latency, time spent queued and batch sizes are recorded.
+ */
+@Slf4j
+public class StompSender {
+
+    public enum Delivery {
+        SENT, DELIVERED, UNCONFIRMED, QUEUED, FAILED
+    }
+
+    /**
+     * Where frames go: the live session and, for chat messages, the outbox
+     */
+    public interface Link {
+        /** Current session, null while disconnected */
+        StompSession session();
+
+        /** Whether messages must wait behind ones already in the outbox */
+        boolean outboxPending();
+
+        /** Keep a message for the next connect; false if there is no outbox */
+        boolean queueOffline(String destination, String json);
+    }
+
+    private static final class Frame {
+        final String destination;
+        final Object payload;
+        final boolean message;
+        final boolean replay;
+        final CompletableFuture<Delivery> result = new CompletableFuture<>();
+        final long enqueuedNanos = System.nanoTime();
+
+        Frame(String destination, Object payload, boolean message, boolean replay) {
+            this.destination = destination;
+            this.payload = payload;
+            this.message = message;
+            this.replay = replay;
+        }
+    }
+
+    private final Link link;
+    private final boolean receipts;
+    private final int batchMax;
+    private final BlockingQueue<Frame> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final AtomicLong receiptSeq = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong unconfirmed = new AtomicLong();
+    private final AtomicLong queuedOffline = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final LatencyHistogram receiptLatency = new LatencyHistogram();
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+    private final LatencyHistogram batchSizes = new LatencyHistogram();
+
+    public StompSender(Link link) {
+        this(link, !"false".equalsIgnoreCase(ServerConfig.getString("ws.send.receipts", "true")),
+                (int) ServerConfig.getLong("ws.send.batch-max", 32),
+                (int) ServerConfig.getLong("ws.send.queue-capacity", 1024));
+    }
+
+    public StompSender(Link link, boolean receipts, int batchMax, int queueCapacity) {
+        this.link = link;
+        this.receipts = receipts;
+        this.batchMax = Math.max(1, batchMax);
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+        this.writer = new Thread(this::run, "stomp-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * 💬 Chat message: receipt requested, kept in the outbox when it cannot
+     * be sent now
+     */
+    public CompletableFuture<Delivery> sendMessage(String destination, Object payload) {
+        return enqueue(new Frame(destination, payload, true, false));
+    }
+
+    /**
+     * 📮 Outbox replay of a message: receipt requested; FAILED instead of
+     * QUEUED when it cannot be written, since it is still in the outbox
+     */
+    public CompletableFuture<Delivery> replay(String destination, String json) {
+        return enqueue(new Frame(destination, json, true, true));
+    }
+
+    /**
+     * ⌨️ Fire-and-forget signal (typing): dropped while disconnected, and a
+     * newer frame to the same destination in the same batch replaces it
+     */
+    public CompletableFuture<Delivery> sendSignal(String destination, Object payload) {
+        return enqueue(new Frame(destination, payload, false, false));
+    }
+
+    public boolean isReceipts() {
+        return receipts;
+    }
+
+    /**
+     * 🛑 Stop the writer; frames still waiting complete now: chat messages go
+     * to the outbox (QUEUED), everything else is FAILED
+     */
+    public void shutdown() {
+        running = false;
+        writer.interrupt();
+        drainUnsent();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    public long getUnconfirmed() {
+        return unconfirmed.get();
+    }
+
+    public long getQueuedOffline() {
+        return queuedOffline.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Send-to-receipt time of delivered messages (microseconds)
+     */
+    public LatencyHistogram getReceiptLatency() {
+        return receiptLatency;
+    }
+
+    /**
+     * Time frames waited for the writer (microseconds)
+     */
+    public LatencyHistogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    /**
+     * 📋 Counters and latencies on two lines
+     */
+    public String summary() {
+        return String.format("📤 send queue=%d sent=%d delivered=%d unconfirmed=%d queued=%d failed=%d "
+                + "superseded=%d%n   batches=%d avg=%.1f max=%d, queue wait p99=%.2fms, "
+                + "receipt p50=%.2fms p99=%.2fms max=%.2fms%n",
+                queue.size(), sent.get(), delivered.get(), unconfirmed.get(), queuedOffline.get(), failed.get(),
+                superseded.get(), batches.get(), batchSizes.getMean(), batchSizes.getMax(),
+                queueLatency.getValueAtPercentile(99) / 1000.0,
+                receiptLatency.getValueAtPercentile(50) / 1000.0,
+                receiptLatency.getValueAtPercentile(99) / 1000.0, receiptLatency.getMax() / 1000.0);
+    }
+
+    // ==================== INTERNALS ====================
+
+    private CompletableFuture<Delivery> enqueue(Frame frame) {
+        if (!running) {
+            settleUnsent(frame);
+        } else if (!queue.offer(frame)) {
+            log.warn("📤 Send queue full, frame to {} not sent", frame.destination);
+            fail(frame);
+        } else if (!running) {
+            drainUnsent(); // Shut down while it was being queued
+        }
+        return frame.result;
+    }
+
+    private void drainUnsent() {
+        Frame frame;
+        while ((frame = queue.poll()) != null) {
+            settleUnsent(frame);
+        }
+    }
+
+    /**
+     * A frame the writer will never take: messages to the outbox, the rest failed
+     */
+    private void settleUnsent(Frame frame) {
+        if (!frame.message || frame.replay) {
+            fail(frame);
+            return;
+        }
+        try {
+            String json = frame.payload instanceof String ? (String) frame.payload : JsonCodec.write(frame.payload);
+            queueOffline(frame, json);
+        } catch (Exception e) {
+            log.error("📤 Cannot serialize frame to {}: {}", frame.destination, e.getMessage());
+            fail(frame);
+        }
+    }
+
+    private void run() {
+        List<Frame> batch = new ArrayList<>(batchMax);
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, batchMax - 1);
+            batches.incrementAndGet();
+            batchSizes.record(batch.size());
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<Frame> batch) {
+        // Only the newest typing frame per destination is worth sending
+        Map<String, Frame> latestSignal = new HashMap<>();
+        for (Frame frame : batch) {
+            if (!frame.message) {
+                Frame older = latestSignal.put(frame.destination, frame);
+                if (older != null) {
+                    superseded.incrementAndGet();
+                    older.result.complete(Delivery.SENT);
+                }
+            }
+        }
+        for (Frame frame : batch) {
+            if (frame.message || latestSignal.get(frame.destination) == frame) {
+                write(frame);
+            }
+        }
+    }
+
+    private void write(Frame frame) {
+        queueLatency.record((System.nanoTime() - frame.enqueuedNanos) / 1_000);
+        String json;
+        try {
+            json = frame.payload instanceof String ? (String) frame.payload : JsonCodec.write(frame.payload);
+        } catch (Exception e) {
+            log.error("📤 Cannot serialize frame to {}: {}", frame.destination, e.getMessage());
+            fail(frame);
+            return;
+        }
+
+        StompSession session = link.session();
+        if (session == null || (frame.message && !frame.replay && link.outboxPending())) {
+            if (frame.message && !frame.replay) {
+                queueOffline(frame, json);
+            } else {
+                fail(frame);
+            }
+            return;
+        }
+
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination(frame.destination);
+        String receiptId = frame.replay || (frame.message && receipts) ? "msg-" + receiptSeq.incrementAndGet() : null;
+        if (receiptId != null) {
+            headers.setReceipt(receiptId);
+        }
+        try {
+            long sentAt = System.nanoTime();
+            StompSession.Receiptable receiptable = session.send(headers, json.getBytes(StandardCharsets.UTF_8));
+            sent.incrementAndGet();
+            if (receiptId == null) {
+                frame.result.complete(Delivery.SENT);
+                return;
+            }
+            receiptable.addReceiptTask(() -> {
+                receiptLatency.record((System.nanoTime() - sentAt) / 1_000);
+                delivered.incrementAndGet();
+                frame.result.complete(Delivery.DELIVERED);
+            });
+            receiptable.addReceiptLostTask(() -> {
+                unconfirmed.incrementAndGet();
+                log.warn("📤 No receipt {} for message to {}", receiptId, frame.destination);
+                frame.result.complete(Delivery.UNCONFIRMED);
+            });
+        } catch (Exception e) {
+            log.warn("📤 Send to {} failed: {}", frame.destination, e.getMessage());
+            if (frame.message && !frame.replay) {
+                queueOffline(frame, json);
+            } else {
+                fail(frame);
+            }
+        }
+    }
+
+    private void queueOffline(Frame frame, String json) {
+        if (link.queueOffline(frame.destination, json)) {
+            queuedOffline.incrementAndGet();
+            frame.result.complete(Delivery.QUEUED);
+        } else {
+            log.warn("Not connected, message to {} dropped", frame.destination);
+            fail(frame);
+        }
+    }
+
+    private void fail(Frame frame) {
+        failed.incrementAndGet();
+        frame.result.complete(Delivery.FAILED);
+    }
+}
@@ -3,13 +3,15 @@ package com.example.demo.client.websocket;
 import com.example.demo.client.config.ServerConfig;
 import com.example.demo.client.model.ChatMessage;
 import com.example.demo.client.model.FriendRequestNotification;
+import com.example.demo.client.model.MessagePage;
 import com.example.demo.client.model.RoomInviteNotification;
 import com.example.demo.client.model.RecallResponse;
 import com.example.demo.client.model.TypingIndicator;
 import com.example.demo.client.model.UserStatusMessage;
+import com.example.demo.client.json.JsonCodec;
+import com.example.demo.client.outbox.OutboundAction;
+import com.example.demo.client.outbox.OutboundQueue;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
@@ -18,6 +20,7 @@ import org.springframework.messaging.simp.stomp.StompFrameHandler;
 import org.springframework.messaging.simp.stomp.StompHeaders;
 import org.springframework.messaging.simp.stomp.StompSession;
 import org.springframework.messaging.simp.stomp.StompSessionHandler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.web.socket.WebSocketHttpHeaders;
 import org.springframework.web.socket.client.standard.StandardWebSocketClient;
 import org.springframework.web.socket.messaging.WebSocketStompClient;
@@ -37,7 +40,7 @@ import java.util.function.Consumer;
 @Slf4j
 public class WebSocketClient {
     private final String serverUrl;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper = JsonCodec.mapper();
 
     // ✅ FIX 1: Dùng StompSession.Subscription thay vì StompSubscription (không tồn
     // tại)
@@ -46,12 +49,12 @@ public class WebSocketClient {
     private final BlockingQueue<ChatMessage> messageQueue = new LinkedBlockingQueue<>();
 
     private WebSocketStompClient stompClient;
-    private StompSession stompSession;
+    private volatile StompSession stompSession;
     private String jwtToken;
     private Long currentUserId;
     private String currentUsername;
     private CountDownLatch connectionLatch;
-    private boolean connected = false;
+    private volatile boolean connected = false;
 
     // Heartbeat scheduler to keep user ONLINE status
     private java.util.concurrent.ScheduledExecutorService heartbeatScheduler;
@@ -63,17 +66,85 @@ public class WebSocketClient {
     // 😀 Reaction callback for both room and private reactions
     private Consumer<Map<String, Object>> reactionCallback;
 
+    // 📮 Messages sent while disconnected wait here until the next connect
+    private volatile OutboundQueue outbox;
+
+    // 🔁 Every active subscription (name -> destination + handler), replayed on each (re)connect
+    private final Map<String, SubscriptionSpec> subscriptionRegistry = new ConcurrentHashMap<>();
+    private final ReconnectSupervisor reconnectSupervisor = new ReconnectSupervisor(this::reconnect);
+
+    // 🧩 Gap fill: newest message id seen per conversation ("ROOM:1", "PRIVATE:7") and where
+    // the messages go, so what was missed while disconnected can be fetched over REST
+    private final Map<String, Long> lastSeenIds = new ConcurrentHashMap<>();
+    // Taken before subscriptions are restored, so live frames cannot move the starting point
+    // past the gap; a fill that fails for good starts from the same point on the next reconnect
+    private volatile Map<String, Long> gapFillFrom = Map.of();
+    private final Map<String, Long> unfilledGaps = new ConcurrentHashMap<>();
+    // Live frames of a conversation whose gap is being filled, delivered after the older gap messages
+    private final Map<String, List<ChatMessage>> heldLiveFrames = new ConcurrentHashMap<>();
+    private final Map<Long, Consumer<ChatMessage>> roomMessageSinks = new ConcurrentHashMap<>();
+    private volatile Consumer<ChatMessage> privateMessageSink;
+    private volatile GapFillSource gapFillSource;
+    private volatile Runnable onReconnected;
+    private final int gapFillPageSize = (int) ServerConfig.getLong("ws.gap-fill.page-size", 50);
+    private final int gapFillMaxPages = (int) ServerConfig.getLong("ws.gap-fill.max-pages", 20);
+    private final int gapFillRetries = (int) ServerConfig.getLong("ws.gap-fill.retries", 2);
+    private final long gapFillRetryBaseMs = ServerConfig.getLong("ws.gap-fill.retry-base-ms", 500);
+
+    // 📬 Inbound frames are decoded and delivered by the dispatcher, off the transport thread
+    private final StompDispatcher dispatcher = new StompDispatcher();
+
+    // 📤 Chat messages and typing frames are serialized and written by the sender's thread;
+    // receipt timeouts run on the receipt scheduler
+    private final StompSender sender = new StompSender(new StompSender.Link() {
+        @Override
+        public StompSession session() {
+            return isConnected() ? stompSession : null;
+        }
+
+        @Override
+        public boolean outboxPending() {
+            OutboundQueue queue = outbox;
+            return queue != null && queue.hasPending(OutboundAction.Channel.STOMP);
+        }
+
+        @Override
+        public boolean queueOffline(String destination, String json) {
+            OutboundQueue queue = outbox;
+            return queue != null && queue.enqueueStomp(destination, json);
+        }
+    });
+    private ThreadPoolTaskScheduler receiptScheduler;
+
+    @SuppressWarnings("unchecked")
+    private static final Class<Map<String, Object>> EVENT = (Class<Map<String, Object>>) (Class<?>) Map.class;
+
+    private static final class SubscriptionSpec {
+        final String destination;
+        final StompFrameHandler handler;
+
+        SubscriptionSpec(String destination, StompFrameHandler handler) {
+            this.destination = destination;
+            this.handler = handler;
+        }
+    }
+
     public WebSocketClient(String serverUrl) {
         this.serverUrl = serverUrl;
-        objectMapper.registerModule(new JavaTimeModule());
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        objectMapper.configure(com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
 
     /**
      * ✅ Connect to WebSocket server with JWT authentication
      */
     public void connect(String token) throws Exception {
+        connect(token, false);
+    }
+
+    /**
+     * @param fillingGaps live frames of conversations with a gap are held
+     *                    until {@link #fillGaps()} has delivered the gap
+     */
+    private void connect(String token, boolean fillingGaps) throws Exception {
         this.jwtToken = token;
         this.connectionLatch = new CountDownLatch(1);
 
@@ -82,6 +153,11 @@ public class WebSocketClient {
         SockJsClient sockJsClient = new SockJsClient(transports);
 
         this.stompClient = new WebSocketStompClient(sockJsClient);
+        // Receipt timeouts need the scheduler, also with ws.send.receipts off since outbox
+        // replays always ask for one; it is for receipts only: keep heartbeats off as before
+        stompClient.setTaskScheduler(receiptScheduler());
+        stompClient.setReceiptTimeLimit(ServerConfig.getLong("ws.send.receipt-timeout-ms", 10_000));
+        stompClient.setDefaultHeartbeat(new long[] { 0, 0 });
 
         WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
         headers.add("Authorization", "Bearer " + token);
@@ -91,8 +167,9 @@ public class WebSocketClient {
 
         log.info("Connecting to " + wsUrl.split("\\?")[0] + "...");
 
+        reconnectSupervisor.resume();
         try {
-            StompSessionHandler handler = new MySessionHandler(this.connectionLatch);
+            StompSessionHandler handler = new MySessionHandler(this.connectionLatch, this::onTransportError);
             this.stompSession = stompClient.connectAsync(wsUrl, headers, handler).get(10, TimeUnit.SECONDS);
 
             if (connectionLatch.await(5, TimeUnit.SECONDS)) {
@@ -112,6 +189,14 @@ public class WebSocketClient {
                         log.warn("Failed to register on connect: {}", e.getMessage());
                     }
                 }
+                snapshotGapFillStart();
+                if (fillingGaps && gapFillSource != null) {
+                    gapFillFrom.keySet().forEach(key -> heldLiveFrames.put(key, new ArrayList<>()));
+                }
+                replaySubscriptions();
+                if (outbox != null) {
+                    outbox.flush();
+                }
             } else {
                 log.error("Connection timeout");
             }
@@ -121,63 +206,309 @@ public class WebSocketClient {
         }
     }
 
+    private synchronized ThreadPoolTaskScheduler receiptScheduler() {
+        if (receiptScheduler == null) {
+            receiptScheduler = new ThreadPoolTaskScheduler();
+            receiptScheduler.setPoolSize(1);
+            receiptScheduler.setThreadNamePrefix("stomp-receipt-");
+            receiptScheduler.setDaemon(true);
+            receiptScheduler.initialize();
+        }
+        return receiptScheduler;
+    }
+
     /**
-     * ♻️ HELPER: Hàm chung để parse dữ liệu (giúp code gọn hơn, tránh lặp lại)
+     * 🔁 Reconnect attempt run by the supervisor: new session, re-register,
+     * replay subscriptions (all inside {@link #connect}), then fetch what was
+     * missed while disconnected
      */
-    private <T> T parsePayload(Object payload, Class<T> targetClass) {
+    private boolean reconnect() throws Exception {
+        if (isConnected()) {
+            return true;
+        }
+        if (jwtToken == null) {
+            return false;
+        }
         try {
-            if (payload == null)
-                return null;
-            if (targetClass.isInstance(payload)) {
-                return targetClass.cast(payload);
-            }
-            if (payload instanceof String) {
-                return objectMapper.readValue((String) payload, targetClass);
+            connect(jwtToken, true);
+        } finally {
+            if (!isConnected()) {
+                heldLiveFrames.clear();
             }
-            if (payload instanceof byte[]) {
-                String json = new String((byte[]) payload, java.nio.charset.StandardCharsets.UTF_8);
-                return objectMapper.readValue(json, targetClass);
+        }
+        if (!isConnected()) {
+            return false;
+        }
+        fillGaps();
+        Runnable hook = onReconnected;
+        if (hook != null) {
+            try {
+                hook.run();
+            } catch (Exception e) {
+                log.error("Reconnect hook failed: {}", e.getMessage());
             }
-            return objectMapper.convertValue(payload, targetClass);
-        } catch (Exception e) {
-            log.error("❌ Parse error for {}: {}", targetClass.getSimpleName(), e.getMessage());
-            return null;
         }
+        return true;
     }
 
     /**
-     * 📨 Subscribe to chat room messages
+     * 🔌 Transport error on a session: if it is the current one, it is gone
+     * and its subscriptions with it
      */
-    public void subscribeToRoom(Long roomId, Consumer<ChatMessage> callback) {
-        if (stompSession == null || !connected)
+    private void onTransportError(StompSession session) {
+        if (session != stompSession || (session != null && session.isConnected())) {
             return;
+        }
+        connected = false;
+        subscriptionIds.clear();
+        log.warn("🔌 WebSocket connection lost, {} subscription(s) to restore", subscriptionRegistry.size());
+        reconnectSupervisor.connectionLost();
+    }
 
-        String destination = "/topic/room/" + roomId;
-        String id = "room-" + roomId;
+    /**
+     * 🔁 Subscribe now if connected, and in any case remember the subscription
+     * so every later (re)connect restores it
+     */
+    private void subscribe(String name, String destination, StompFrameHandler handler) {
+        subscriptionRegistry.put(name, new SubscriptionSpec(destination, handler));
+        if (isConnected()) {
+            subscriptionIds.put(name, stompSession.subscribe(destination, handler));
+        } else {
+            log.debug("Not connected, {} subscribes on the next connect", name);
+        }
+    }
+
+    /**
+     * 📬 Subscribe through the dispatcher: frames are decoded as {@code type}
+     * and handed to the listener on the dispatch thread
+     */
+    private <T> void subscribe(String name, String destination, Class<T> type, boolean droppable,
+            Consumer<T> listener) {
+        subscribe(name, destination, dispatcher.route(destination, type, droppable, listener));
+    }
+
+    /**
+     * 🗑️ Drop a subscription from the registry and its route from the dispatcher
+     */
+    private void forget(String name) {
+        SubscriptionSpec spec = subscriptionRegistry.remove(name);
+        if (spec != null) {
+            dispatcher.remove(spec.destination);
+        }
+    }
+
+    private void replaySubscriptions() {
+        int replayed = 0;
+        for (Map.Entry<String, SubscriptionSpec> entry : subscriptionRegistry.entrySet()) {
+            if (subscriptionIds.containsKey(entry.getKey())) {
+                continue;
+            }
+            try {
+                SubscriptionSpec spec = entry.getValue();
+                subscriptionIds.put(entry.getKey(), stompSession.subscribe(spec.destination, spec.handler));
+                replayed++;
+            } catch (Exception e) {
+                log.error("Failed to restore subscription {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+        if (replayed > 0) {
+            log.info("🔁 Restored {} subscription(s)", replayed);
+        }
+    }
+
+    /**
+     * 🧩 Remember the newest message of a conversation that has been shown
+     * (from history loads as well as live frames)
+     */
+    public void noteSeen(GapFillSource.Kind kind, Long conversationId, Long messageId) {
+        if (conversationId != null && messageId != null) {
+            lastSeenIds.merge(kind + ":" + conversationId, messageId, Math::max);
+        }
+    }
+
+    /**
+     * 🧩 Where each conversation's gap fill starts: the last seen message, or
+     * an earlier point a failed fill did not get past
+     */
+    private void snapshotGapFillStart() {
+        Map<String, Long> from = new HashMap<>(lastSeenIds);
+        unfilledGaps.forEach((key, afterId) -> from.merge(key, afterId, Math::min));
+        gapFillFrom = from;
+    }
+
+    /**
+     * 🧩 REST source for messages missed while disconnected
+     */
+    public void setGapFillSource(GapFillSource source) {
+        this.gapFillSource = source;
+    }
+
+    /**
+     * 🔁 Called after each automatic reconnect, once missed messages are fetched
+     */
+    public void setOnReconnected(Runnable hook) {
+        this.onReconnected = hook;
+    }
 
-        if (subscriptionIds.containsKey(id))
+    /**
+     * 🧩 Fetch everything after the last seen message of each subscribed room
+     * and each private chat seen so far, and deliver it like live frames (on
+     * the dispatch thread, through the same dedup window). Live frames that
+     * arrive meanwhile are held per conversation and delivered after its gap,
+     * so nothing older shows up below them.
+     */
+    private void fillGaps() {
+        GapFillSource source = gapFillSource;
+        if (source == null) {
+            releaseHeldFrames();
             return;
+        }
+        Map<String, Long> from = gapFillFrom;
+        roomMessageSinks.forEach((roomId, sink) -> fillGap(source, from, GapFillSource.Kind.ROOM, roomId, sink));
+        Consumer<ChatMessage> privateSink = privateMessageSink;
+        if (privateSink != null) {
+            String prefix = GapFillSource.Kind.PRIVATE + ":";
+            for (String key : from.keySet()) {
+                if (key.startsWith(prefix)) {
+                    Long otherUserId = Long.valueOf(key.substring(prefix.length()));
+                    fillGap(source, from, GapFillSource.Kind.PRIVATE, otherUserId, privateSink);
+                }
+            }
+        }
+        releaseHeldFrames(); // Conversations no longer subscribed
+    }
 
+    private void fillGap(GapFillSource source, Map<String, Long> from, GapFillSource.Kind kind,
+            Long conversationId, Consumer<ChatMessage> sink) {
+        String key = kind + ":" + conversationId;
+        Long afterId = from.get(key);
+        if (afterId == null) {
+            return; // Nothing seen yet: the history load covers it
+        }
+        int delivered = 0;
         try {
-            // ✅ FIX: StompSession.Subscription
-            StompSession.Subscription subscription = stompSession.subscribe(destination, new StompFrameHandler() {
-                @Override
-                @NonNull
-                public Type getPayloadType(@NonNull StompHeaders headers) {
-                    return byte[].class;
+            for (int page = 0; page < gapFillMaxPages; page++) {
+                MessagePage result = fetchGapPage(source, kind, conversationId, afterId);
+                for (ChatMessage msg : result.getMessages()) {
+                    dispatcher.execute(() -> sink.accept(msg));
+                    delivered++;
+                }
+                if (!result.isHasMore() || result.getNewestId() == null) {
+                    break;
                 }
+                afterId = result.getNewestId();
+            }
+            unfilledGaps.remove(key);
+        } catch (Exception e) {
+            unfilledGaps.merge(key, afterId, Math::min);
+            log.warn("🧩 Gap fill for {} {} failed after message {}, retried on the next reconnect: {}", kind,
+                    conversationId, afterId, e.getMessage());
+        }
+        if (delivered > 0) {
+            log.info("🧩 Filled {} missed message(s) in {} {}", delivered, kind, conversationId);
+        }
+        dispatcher.execute(() -> releaseHeldFrames(key, sink)); // Queued behind the gap messages
+    }
 
-                @Override
-                public void handleFrame(@NonNull StompHeaders headers, @Nullable Object payload) {
-                    ChatMessage msg = parsePayload(payload, ChatMessage.class); // Dùng hàm chung
-                    if (msg != null) {
-                        callback.accept(msg);
-                        messageQueue.offer(msg);
-                    }
+    /**
+     * Hold a live frame while its conversation's gap is filled (dispatch thread)
+     */
+    private boolean holdWhileFilling(String key, ChatMessage msg) {
+        List<ChatMessage> held = heldLiveFrames.get(key);
+        if (held == null) {
+            return false;
+        }
+        held.add(msg);
+        return true;
+    }
+
+    /**
+     * Deliver the frames held for one conversation in message-id order (dispatch thread)
+     */
+    private void releaseHeldFrames(String key, Consumer<ChatMessage> sink) {
+        List<ChatMessage> held = heldLiveFrames.remove(key);
+        if (held == null) {
+            return;
+        }
+        held.sort(Comparator.comparing(ChatMessage::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+        held.forEach(sink);
+    }
+
+    private void releaseHeldFrames() {
+        for (String key : heldLiveFrames.keySet()) {
+            Consumer<ChatMessage> sink = sinkOf(key);
+            dispatcher.execute(() -> {
+                if (sink != null) {
+                    releaseHeldFrames(key, sink);
+                } else {
+                    heldLiveFrames.remove(key);
                 }
             });
+        }
+    }
+
+    private Consumer<ChatMessage> sinkOf(String key) {
+        String roomPrefix = GapFillSource.Kind.ROOM + ":";
+        if (key.startsWith(roomPrefix)) {
+            return roomMessageSinks.get(Long.valueOf(key.substring(roomPrefix.length())));
+        }
+        return privateMessageSink;
+    }
+
+    /**
+     * One page of a gap, retried with backoff (ws.gap-fill.retries,
+     * ws.gap-fill.retry-base-ms) before the fill gives up
+     */
+    private MessagePage fetchGapPage(GapFillSource source, GapFillSource.Kind kind, Long conversationId,
+            Long afterId) throws Exception {
+        for (int attempt = 0;; attempt++) {
+            try {
+                return source.messagesAfter(kind, conversationId, afterId, gapFillPageSize)
+                        .get(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw e;
+            } catch (Exception e) {
+                Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                if (attempt >= gapFillRetries) {
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+                long delay = gapFillRetryBaseMs << attempt;
+                log.debug("🧩 Gap page for {} {} failed ({}), retry in {}ms", kind, conversationId,
+                        cause.getMessage(), delay);
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * 📨 Subscribe to chat room messages
+     */
+    public void subscribeToRoom(Long roomId, Consumer<ChatMessage> callback) {
+        String destination = "/topic/room/" + roomId;
+        String id = "room-" + roomId;
+
+        if (subscriptionRegistry.containsKey(id))
+            return;
+
+        // Live frames and gap-filled messages take the same path
+        Consumer<ChatMessage> sink = msg -> {
+            if (holdWhileFilling(GapFillSource.Kind.ROOM + ":" + roomId, msg)) {
+                return; // Delivered after the older messages of the gap
+            }
+            if (msg.getId() != null && !processedMessageIds.add(msg.getId())) {
+                log.debug("Skipping duplicate room message: {}", msg.getId());
+                return;
+            }
+            noteSeen(GapFillSource.Kind.ROOM, roomId, msg.getId());
+            callback.accept(msg);
+            messageQueue.offer(msg);
+        };
+        roomMessageSinks.put(roomId, sink);
+
+        try {
+            subscribe(id, destination, ChatMessage.class, false, sink);
 
-            subscriptionIds.put(id, subscription);
             log.info("Subscribed to room " + roomId);
 
             // 😀 Also subscribe to room reactions
@@ -192,6 +523,8 @@ public class WebSocketClient {
      */
     public void unsubscribeFromRoom(Long roomId) {
         String id = "room-" + roomId;
+        forget(id);
+        roomMessageSinks.remove(roomId);
         // ✅ FIX: StompSession.Subscription
         StompSession.Subscription subscription = subscriptionIds.get(id);
         if (subscription != null) {
@@ -208,93 +541,74 @@ public class WebSocketClient {
     /**
      * 📎 Send file message to room
      */
-    public void sendFileMessage(Long roomId, String fileName, String fileUrl) {
-        if (stompSession == null || !connected)
-            return;
-
-        try {
-            ChatMessage message = new ChatMessage();
-            message.setContent(fileUrl);
-            message.setFileName(fileName);
-            message.setRoomId(roomId);
-            message.setSenderId(currentUserId);
-            message.setSenderUsername(currentUsername);
-            message.setMessageType(ChatMessage.MessageType.FILE);
-            message.setTimestamp(java.time.LocalDateTime.now());
-
-            String destination = "/app/chat/room/" + roomId;
-            String json = objectMapper.writeValueAsString(message);
-            stompSession.send(destination, json.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-        } catch (Exception e) {
-            log.error("Send file failed: " + e.getMessage());
-        }
+    public CompletableFuture<StompSender.Delivery> sendFileMessage(Long roomId, String fileName,
+            String fileUrl) {
+        ChatMessage message = new ChatMessage();
+        message.setContent(fileUrl);
+        message.setFileName(fileName);
+        message.setRoomId(roomId);
+        message.setSenderId(currentUserId);
+        message.setSenderUsername(currentUsername);
+        message.setMessageType(ChatMessage.MessageType.FILE);
+        message.setTimestamp(java.time.LocalDateTime.now());
+
+        return sender.sendMessage("/app/chat/room/" + roomId, message);
     }
 
     /**
      * 💬 Subscribe to private messages
      */
     public void subscribeToPrivateMessages(Consumer<ChatMessage> callback) {
-        if (stompSession == null || !connected)
-            return;
-
         // Only subscribe to user queue (primary channel) - avoid duplicate
         // subscriptions
         String userQueueDestination = "/user/queue/messages";
-        if (!subscriptionIds.containsKey("private-messages")) {
+        if (!subscriptionRegistry.containsKey("private-messages")) {
             subscribeToDestination(userQueueDestination, callback, "private-messages");
         }
 
         // Fallback topic subscription only if user queue is not available
         // This is kept as backup for servers that don't support user destinations
         String topicDestination = "/topic/private/" + currentUserId;
-        if (!subscriptionIds.containsKey("private-messages-fallback")) {
+        if (!subscriptionRegistry.containsKey("private-messages-fallback")) {
             subscribeToDestination(topicDestination, callback, "private-messages-fallback");
         }
     }
 
-    // Track processed message IDs to avoid duplicates
-    private final Set<Long> processedMessageIds = java.util.Collections.synchronizedSet(new java.util.HashSet<>());
-    private static final int MAX_PROCESSED_IDS = 1000; // Limit memory usage
+    // Track processed message IDs to avoid duplicates (last ws.dedup.capacity ids, oldest evicted first)
+    private final MessageDedupWindow processedMessageIds = new MessageDedupWindow(
+            (int) ServerConfig.getLong("ws.dedup.capacity", 4096));
 
     private void subscribeToDestination(String destination, Consumer<ChatMessage> callback, String subscriptionName) {
         try {
             // Skip if already subscribed
-            if (subscriptionIds.containsKey(subscriptionName)) {
+            if (subscriptionRegistry.containsKey(subscriptionName)) {
                 log.debug("Already subscribed to {}", subscriptionName);
                 return;
             }
 
-            StompSession.Subscription subscription = stompSession.subscribe(destination, new StompFrameHandler() {
-                @Override
-                @NonNull
-                public Type getPayloadType(@NonNull StompHeaders headers) {
-                    return byte[].class;
+            // Live frames and gap-filled messages take the same path
+            Consumer<ChatMessage> sink = msg -> {
+                Long otherUserId = currentUserId != null && currentUserId.equals(msg.getSenderId())
+                        ? msg.getRecipientId()
+                        : msg.getSenderId();
+                if (holdWhileFilling(GapFillSource.Kind.PRIVATE + ":" + otherUserId, msg)) {
+                    return; // Delivered after the older messages of the gap
                 }
 
-                @Override
-                public void handleFrame(@NonNull StompHeaders headers, @Nullable Object payload) {
-                    ChatMessage msg = parsePayload(payload, ChatMessage.class);
-                    if (msg != null) {
-                        // Deduplication: Skip if we've already processed this message
-                        if (msg.getId() != null && processedMessageIds.contains(msg.getId())) {
-                            log.debug("Skipping duplicate message: {}", msg.getId());
-                            return;
-                        }
-
-                        // Track processed message ID
-                        if (msg.getId() != null) {
-                            processedMessageIds.add(msg.getId());
-                            // Cleanup old IDs to prevent memory leak
-                            if (processedMessageIds.size() > MAX_PROCESSED_IDS) {
-                                processedMessageIds.clear();
-                            }
-                        }
-
-                        callback.accept(msg);
-                    }
+                // Deduplication: Skip if we've already processed this message
+                if (msg.getId() != null && !processedMessageIds.add(msg.getId())) {
+                    log.debug("Skipping duplicate message: {}", msg.getId());
+                    return;
                 }
-            });
-            subscriptionIds.put(subscriptionName, subscription);
+
+                noteSeen(GapFillSource.Kind.PRIVATE, otherUserId, msg.getId());
+                callback.accept(msg);
+            };
+            if (privateMessageSink == null) {
+                privateMessageSink = sink;
+            }
+
+            subscribe(subscriptionName, destination, ChatMessage.class, false, sink);
             log.info("Subscribed to {} as {}", destination, subscriptionName);
         } catch (Exception e) {
             log.error("Subscribe failed: " + e.getMessage());
@@ -304,70 +618,69 @@ public class WebSocketClient {
     /**
      * 📤 Send message to room
      */
-    public void sendChatMessage(Long roomId, String content) {
-        if (stompSession == null || !connected)
-            return;
-
-        try {
-            ChatMessage message = new ChatMessage();
-            message.setContent(content);
-            message.setRoomId(roomId);
-            message.setSenderId(currentUserId);
-            message.setSenderUsername(currentUsername);
-            message.setMessageType(ChatMessage.MessageType.TEXT);
-            message.setTimestamp(java.time.LocalDateTime.now());
-
-            String destination = "/app/chat/room/" + roomId;
-            String json = objectMapper.writeValueAsString(message);
-            stompSession.send(destination, json.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-        } catch (Exception e) {
-            log.error("Send failed: " + e.getMessage());
-        }
+    public CompletableFuture<StompSender.Delivery> sendChatMessage(Long roomId, String content) {
+        ChatMessage message = new ChatMessage();
+        message.setContent(content);
+        message.setRoomId(roomId);
+        message.setSenderId(currentUserId);
+        message.setSenderUsername(currentUsername);
+        message.setMessageType(ChatMessage.MessageType.TEXT);
+        message.setTimestamp(java.time.LocalDateTime.now());
+
+        return sender.sendMessage("/app/chat/room/" + roomId, message);
     }
 
     /**
      * 🔒 Send private message
      */
-    public void sendPrivateMessage(Long recipientId, String content) {
-        if (stompSession == null || !connected)
-            return;
+    public CompletableFuture<StompSender.Delivery> sendPrivateMessage(Long recipientId, String content) {
+        ChatMessage message = new ChatMessage();
+        message.setContent(content);
+        message.setSenderId(currentUserId);
+        message.setSenderUsername(currentUsername);
+        message.setMessageType(ChatMessage.MessageType.TEXT);
+        message.setTimestamp(java.time.LocalDateTime.now());
+        message.setRecipientId(recipientId);
+
+        return sender.sendMessage("/app/private/" + recipientId, message);
+    }
 
-        try {
-            ChatMessage message = new ChatMessage();
-            message.setContent(content);
-            message.setSenderId(currentUserId);
-            message.setSenderUsername(currentUsername);
-            message.setMessageType(ChatMessage.MessageType.TEXT);
-            message.setTimestamp(java.time.LocalDateTime.now());
-            message.setRecipientId(recipientId);
-
-            String destination = "/app/private/" + recipientId;
-            String json = objectMapper.writeValueAsString(message);
-            stompSession.send(destination, json.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-        } catch (Exception e) {
-            log.error("Send private failed: " + e.getMessage());
+    /**
+     * 📮 Outbox delivery through the writer thread. Messages carry no id the
+     * server could deduplicate on, so a frame that was written counts as
+     * delivered even without its receipt (UNCONFIRMED): sending it again
+     * would duplicate it. Only a frame that was never written stays queued.
+     */
+    private CompletableFuture<Void> deliverQueued(OutboundAction action) {
+        if (!isConnected()) {
+            return CompletableFuture.failedFuture(new java.net.ConnectException("WebSocket not connected"));
         }
+        return sender.replay(action.getDestination(), action.getBody())
+                .thenCompose(delivery -> {
+                    if (delivery == StompSender.Delivery.UNCONFIRMED) {
+                        log.warn("📮 Replayed message to {} written but not confirmed, not resending",
+                                action.getDestination());
+                    }
+                    return delivery == StompSender.Delivery.DELIVERED || delivery == StompSender.Delivery.UNCONFIRMED
+                            ? CompletableFuture.<Void>completedFuture(null)
+                            : CompletableFuture.<Void>failedFuture(new java.io.IOException(
+                                    "Replay to " + action.getDestination() + " " + delivery));
+                });
     }
 
     /**
      * ⌨️ Send typing indicator
      */
     public void sendTypingIndicator(Long roomId, boolean typing) {
-        if (stompSession == null || !connected)
+        if (!isConnected())
             return;
-        try {
-            TypingIndicator indicator = new TypingIndicator();
-            indicator.setUserId(currentUserId);
-            indicator.setUsername(currentUsername);
-            indicator.setRoomId(roomId);
-            indicator.setTyping(typing);
-
-            String destination = "/app/typing/room/" + roomId;
-            String json = objectMapper.writeValueAsString(indicator);
-            stompSession.send(destination, json.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-        } catch (Exception e) {
-            // silent
-        }
+        TypingIndicator indicator = new TypingIndicator();
+        indicator.setUserId(currentUserId);
+        indicator.setUsername(currentUsername);
+        indicator.setRoomId(roomId);
+        indicator.setTyping(typing);
+
+        sender.sendSignal("/app/typing/room/" + roomId, indicator);
     }
 
     /**
@@ -377,40 +690,25 @@ public class WebSocketClient {
      * @param callback Called when someone types in the room
      */
     public void subscribeToRoomTyping(Long roomId, Consumer<TypingIndicator> callback) {
-        if (stompSession == null || !connected)
-            return;
-
         String destination = "/topic/typing/room/" + roomId;
         String subscriptionName = "room-typing-" + roomId;
 
-        if (subscriptionIds.containsKey(subscriptionName)) {
+        if (subscriptionRegistry.containsKey(subscriptionName)) {
             log.debug("Already subscribed to typing for room {}", roomId);
             return;
         }
 
         try {
-            StompSession.Subscription subscription = stompSession.subscribe(destination, new StompFrameHandler() {
-                @Override
-                @NonNull
-                public Type getPayloadType(@NonNull StompHeaders headers) {
-                    return byte[].class;
-                }
-
-                @Override
-                public void handleFrame(@NonNull StompHeaders headers, @Nullable Object payload) {
-                    TypingIndicator indicator = parsePayload(payload, TypingIndicator.class);
-                    if (indicator != null && callback != null) {
-                        // Ignore my own typing (already shown locally)
-                        if (indicator.getUserId() != null && !indicator.getUserId().equals(currentUserId)) {
-                            log.info("⌨️ Typing indicator from {} (typing={})",
-                                    indicator.getUsername(), indicator.isTyping());
-                            callback.accept(indicator);
-                        }
-                    }
+            subscribe(subscriptionName, destination, TypingIndicator.class, true, indicator -> {
+                // Ignore my own typing (already shown locally)
+                if (callback != null && indicator.getUserId() != null
+                        && !indicator.getUserId().equals(currentUserId)) {
+                    log.info("⌨️ Typing indicator from {} (typing={})",
+                            indicator.getUsername(), indicator.isTyping());
+                    callback.accept(indicator);
                 }
             });
 
-            subscriptionIds.put(subscriptionName, subscription);
             log.info("✅ Subscribed to room typing: {}", destination);
         } catch (Exception e) {
             log.error("Failed to subscribe to room typing: " + e.getMessage());
@@ -422,6 +720,7 @@ public class WebSocketClient {
      */
     public void unsubscribeFromRoomTyping(Long roomId) {
         String subscriptionName = "room-typing-" + roomId;
+        forget(subscriptionName);
         StompSession.Subscription subscription = subscriptionIds.get(subscriptionName);
         if (subscription != null) {
             try {
@@ -442,29 +741,10 @@ public class WebSocketClient {
      * 👥 Subscribe to user status updates
      */
     public void subscribeToUserStatus(Consumer<UserStatusMessage> callback) {
-        if (stompSession == null || !connected)
-            return;
-
         try {
             String destination = "/topic/user-status";
-            // ✅ FIX: Lấy subscription object để lưu vào Map
-            StompSession.Subscription subscription = stompSession.subscribe(destination, new StompFrameHandler() {
-                @Override
-                @NonNull
-                public Type getPayloadType(@NonNull StompHeaders headers) {
-                    return byte[].class;
-                }
-
-                @Override
-                public void handleFrame(@NonNull StompHeaders headers, @Nullable Object payload) {
-                    UserStatusMessage status = parsePayload(payload, UserStatusMessage.class);
-                    if (status != null) {
-                        callback.accept(status);
-                    }
-                }
-            });
+            subscribe("user-status", destination, UserStatusMessage.class, true, callback);
 
-            subscriptionIds.put("user-status", subscription); // ✅ Đã sửa (lưu Subscription thay vì String)
         } catch (Exception e) {
             log.error("Failed to subscribe to user status: " + e.getMessage());
         }
@@ -492,36 +772,19 @@ public class WebSocketClient {
      * 👋 Subscribe to friend request notifications
      */
     public void subscribeToFriendRequests(Consumer<FriendRequestNotification> callback) {
-        if (stompSession == null || !connected)
-            return;
-
         // Method 1: Subscribe to user queue
         String userQueueDestination = "/user/queue/friend-requests";
         String subscriptionName = "friend-requests";
 
-        if (!subscriptionIds.containsKey(subscriptionName)) {
+        if (!subscriptionRegistry.containsKey(subscriptionName)) {
             try {
-                StompSession.Subscription subscription = stompSession.subscribe(userQueueDestination,
-                        new StompFrameHandler() {
-                            @Override
-                            @NonNull
-                            public Type getPayloadType(@NonNull StompHeaders headers) {
-                                return byte[].class;
-                            }
-
-                            @Override
-                            public void handleFrame(@NonNull StompHeaders headers, @Nullable Object payload) {
-                                FriendRequestNotification notification = parsePayload(payload,
-                                        FriendRequestNotification.class);
-                                if (notification != null) {
-                                    log.info("👋 Received friend request via user queue from: {}",
-                                            notification.getSenderUsername());
-                                    callback.accept(notification);
-                                }
-                            }
+                subscribe(subscriptionName, userQueueDestination, FriendRequestNotification.class, false,
+                        notification -> {
+                            log.info("👋 Received friend request via user queue from: {}",
+                                    notification.getSenderUsername());
+                            callback.accept(notification);
                         });
 
-                subscriptionIds.put(subscriptionName, subscription);
                 log.info("Subscribed to friend requests (user queue)");
             } catch (Exception e) {
                 log.error("Failed to subscribe to friend requests user queue: " + e.getMessage());
@@ -532,29 +795,15 @@ public class WebSocketClient {
         String topicDestination = "/topic/friend-requests/" + currentUserId;
         String topicSubscriptionName = "friend-requests-topic";
 
-        if (!subscriptionIds.containsKey(topicSubscriptionName) && currentUserId != null) {
+        if (!subscriptionRegistry.containsKey(topicSubscriptionName) && currentUserId != null) {
             try {
-                StompSession.Subscription subscription = stompSession.subscribe(topicDestination,
-                        new StompFrameHandler() {
-                            @Override
-                            @NonNull
-                            public Type getPayloadType(@NonNull StompHeaders headers) {
-                                return byte[].class;
-                            }
-
-                            @Override
-                            public void handleFrame(@NonNull StompHeaders headers, @Nullable Object payload) {
-                                FriendRequestNotification notification = parsePayload(payload,
-                                        FriendRequestNotification.class);
-                                if (notification != null) {
-                                    log.info("👋 Received friend request via topic from: {}",
-                                            notification.getSenderUsername());
-                                    callback.accept(notification);
-                                }
-                            }
+                subscribe(topicSubscriptionName, topicDestination, FriendRequestNotification.class, false,
+                        notification -> {
+                            log.info("👋 Received friend request via topic from: {}",
+                                    notification.getSenderUsername());
+                            callback.accept(notification);
                         });
 
-                subscriptionIds.put(topicSubscriptionName, subscription);
                 log.info("Subscribed to friend requests (topic fallback): {}", topicDestination);
             } catch (Exception e) {
                 log.error("Failed to subscribe to friend requests topic: " + e.getMessage());
@@ -566,46 +815,20 @@ public class WebSocketClient {
      * 🏠 Subscribe to room invite notifications
      */
     public void subscribeToRoomInvites(Consumer<RoomInviteNotification> callback) {
-        if (stompSession == null || !connected)
-            return;
-
         String destination = "/user/queue/room-invites";
         String subscriptionName = "room-invites";
 
-        if (subscriptionIds.containsKey(subscriptionName)) {
+        if (subscriptionRegistry.containsKey(subscriptionName)) {
             log.debug("Already subscribed to {}", subscriptionName);
             return;
         }
 
         try {
-            StompSession.Subscription subscription = stompSession.subscribe(destination, new StompFrameHandler() {
-                @Override
-                @NonNull
-                public Type getPayloadType(@NonNull StompHeaders headers) {
-                    return byte[].class;
-                }
-
-                @Override
-                public void handleFrame(@NonNull StompHeaders headers, @Nullable Object payload) {
-                    log.info("🏠 Room invite WebSocket frame received! Parsing payload...");
-                    if (payload != null) {
-                        log.info("🏠 Payload type: {}, length: {}", payload.getClass().getName(),
-                                payload instanceof byte[] ? ((byte[]) payload).length : "N/A");
-                        if (payload instanceof byte[]) {
-                            log.info("🏠 Raw payload: {}", new String((byte[]) payload));
-                        }
-                    }
-                    RoomInviteNotification notification = parsePayload(payload, RoomInviteNotification.class);
-                    if (notification != null) {
-                        log.info("🏠 Received room invite to: {}", notification.getRoomName());
-                        callback.accept(notification);
-                    } else {
-                        log.warn("🏠 Failed to parse room invite notification from payload");
-                    }
-                }
+            subscribe(subscriptionName, destination, RoomInviteNotification.class, false, notification -> {
+                log.info("🏠 Received room invite to: {}", notification.getRoomName());
+                callback.accept(notification);
             });
 
-            subscriptionIds.put(subscriptionName, subscription);
             log.info("Subscribed to room invites (user queue)");
         } catch (Exception e) {
             log.error("Failed to subscribe to room invites user queue: " + e.getMessage());
@@ -615,34 +838,14 @@ public class WebSocketClient {
         String topicDestination = "/topic/room-invites/" + currentUserId;
         String topicSubscriptionName = "room-invites-topic";
 
-        if (!subscriptionIds.containsKey(topicSubscriptionName) && currentUserId != null) {
+        if (!subscriptionRegistry.containsKey(topicSubscriptionName) && currentUserId != null) {
             try {
-                StompSession.Subscription subscription = stompSession.subscribe(topicDestination,
-                        new StompFrameHandler() {
-                            @Override
-                            @NonNull
-                            public Type getPayloadType(@NonNull StompHeaders headers) {
-                                return byte[].class;
-                            }
-
-                            @Override
-                            public void handleFrame(@NonNull StompHeaders headers, @Nullable Object payload) {
-                                log.info("🏠 Room invite via TOPIC received! Parsing payload...");
-                                if (payload != null && payload instanceof byte[]) {
-                                    log.info("🏠 Raw payload (topic): {}", new String((byte[]) payload));
-                                }
-                                RoomInviteNotification notification = parsePayload(payload,
-                                        RoomInviteNotification.class);
-                                if (notification != null) {
-                                    log.info("🏠 Received room invite via topic to: {}", notification.getRoomName());
-                                    callback.accept(notification);
-                                } else {
-                                    log.warn("🏠 Failed to parse room invite notification from topic payload");
-                                }
-                            }
+                subscribe(topicSubscriptionName, topicDestination, RoomInviteNotification.class, false,
+                        notification -> {
+                            log.info("🏠 Received room invite via topic to: {}", notification.getRoomName());
+                            callback.accept(notification);
                         });
 
-                subscriptionIds.put(topicSubscriptionName, subscription);
                 log.info("Subscribed to room invites (topic fallback): {}", topicDestination);
             } catch (Exception e) {
                 log.error("Failed to subscribe to room invites topic: " + e.getMessage());
@@ -656,37 +859,21 @@ public class WebSocketClient {
      * /topic/recall/room/{roomId}
      */
     public void subscribeToRoomRecall(Long roomId, Consumer<RecallResponse> callback) {
-        if (stompSession == null || !connected)
-            return;
-
         String destination = "/topic/recall/room/" + roomId;
         String subscriptionName = "room-recall-" + roomId;
 
-        if (subscriptionIds.containsKey(subscriptionName)) {
+        if (subscriptionRegistry.containsKey(subscriptionName)) {
             log.debug("Already subscribed to {}", subscriptionName);
             return;
         }
 
         try {
-            StompSession.Subscription subscription = stompSession.subscribe(destination, new StompFrameHandler() {
-                @Override
-                @NonNull
-                public Type getPayloadType(@NonNull StompHeaders headers) {
-                    return byte[].class;
-                }
-
-                @Override
-                public void handleFrame(@NonNull StompHeaders headers, @Nullable Object payload) {
-                    RecallResponse recallResponse = parsePayload(payload, RecallResponse.class);
-                    if (recallResponse != null) {
-                        log.info("🔙 Received room recall notification for message: {} in room: {}",
-                                recallResponse.getMessageId(), roomId);
-                        callback.accept(recallResponse);
-                    }
-                }
+            subscribe(subscriptionName, destination, RecallResponse.class, false, recallResponse -> {
+                log.info("🔙 Received room recall notification for message: {} in room: {}",
+                        recallResponse.getMessageId(), roomId);
+                callback.accept(recallResponse);
             });
 
-            subscriptionIds.put(subscriptionName, subscription);
             log.info("✅ Subscribed to room recall notifications for room: {}", roomId);
         } catch (Exception e) {
             log.error("Failed to subscribe to room recall: " + e.getMessage());
@@ -698,6 +885,7 @@ public class WebSocketClient {
      */
     public void unsubscribeFromRoomRecall(Long roomId) {
         String subscriptionName = "room-recall-" + roomId;
+        forget(subscriptionName);
         StompSession.Subscription subscription = subscriptionIds.get(subscriptionName);
         if (subscription != null) {
             try {
@@ -721,37 +909,21 @@ public class WebSocketClient {
             log.info("🔙 Added recall callback, total listeners: {}", recallCallbacks.size());
         }
 
-        if (stompSession == null || !connected)
-            return;
-
         // Subscribe to user queue (standard way)
         String destination = "/user/queue/recall";
         String subscriptionName = "message-recall";
 
         // Only subscribe once to WebSocket, but broadcast to all callbacks
-        if (!subscriptionIds.containsKey(subscriptionName)) {
+        if (!subscriptionRegistry.containsKey(subscriptionName)) {
             try {
-                StompSession.Subscription subscription = stompSession.subscribe(destination, new StompFrameHandler() {
-                    @Override
-                    @NonNull
-                    public Type getPayloadType(@NonNull StompHeaders headers) {
-                        return byte[].class;
-                    }
-
-                    @Override
-                    public void handleFrame(@NonNull StompHeaders headers, @Nullable Object payload) {
-                        System.out.println("🔙 [USER QUEUE] Received recall frame!");
-                        RecallResponse recallResponse = parsePayload(payload, RecallResponse.class);
-                        if (recallResponse != null) {
-                            log.info(
-                                    "🔙 [USER QUEUE] Received recall notification for message: {}, broadcasting to {} listeners",
-                                    recallResponse.getMessageId(), recallCallbacks.size());
-                            broadcastRecallToCallbacks(recallResponse);
-                        }
-                    }
+                subscribe(subscriptionName, destination, RecallResponse.class, false, recallResponse -> {
+                    System.out.println("🔙 [USER QUEUE] Received recall frame!");
+                    log.info(
+                            "🔙 [USER QUEUE] Received recall notification for message: {}, broadcasting to {} listeners",
+                            recallResponse.getMessageId(), recallCallbacks.size());
+                    broadcastRecallToCallbacks(recallResponse);
                 });
 
-                subscriptionIds.put(subscriptionName, subscription);
                 log.info("✅ Subscribed to message recall via user queue: {}", destination);
             } catch (Exception e) {
                 log.error("Failed to subscribe to message recall user queue: " + e.getMessage());
@@ -762,30 +934,16 @@ public class WebSocketClient {
         String topicDestination = "/topic/private/recall/" + currentUserId;
         String topicSubscriptionName = "message-recall-topic";
 
-        if (!subscriptionIds.containsKey(topicSubscriptionName)) {
+        if (!subscriptionRegistry.containsKey(topicSubscriptionName)) {
             try {
-                StompSession.Subscription topicSubscription = stompSession.subscribe(topicDestination,
-                        new StompFrameHandler() {
-                            @Override
-                            @NonNull
-                            public Type getPayloadType(@NonNull StompHeaders headers) {
-                                return byte[].class;
-                            }
-
-                            @Override
-                            public void handleFrame(@NonNull StompHeaders headers, @Nullable Object payload) {
-                                System.out.println("🔙 [TOPIC] Received recall frame on topic!");
-                                RecallResponse recallResponse = parsePayload(payload, RecallResponse.class);
-                                if (recallResponse != null) {
-                                    log.info(
-                                            "🔙 [TOPIC] Received recall notification for message: {}, broadcasting to {} listeners",
-                                            recallResponse.getMessageId(), recallCallbacks.size());
-                                    broadcastRecallToCallbacks(recallResponse);
-                                }
-                            }
-                        });
+                subscribe(topicSubscriptionName, topicDestination, RecallResponse.class, false, recallResponse -> {
+                    System.out.println("🔙 [TOPIC] Received recall frame on topic!");
+                    log.info(
+                            "🔙 [TOPIC] Received recall notification for message: {}, broadcasting to {} listeners",
+                            recallResponse.getMessageId(), recallCallbacks.size());
+                    broadcastRecallToCallbacks(recallResponse);
+                });
 
-                subscriptionIds.put(topicSubscriptionName, topicSubscription);
                 log.info("✅ Subscribed to message recall via topic: {}", topicDestination);
             } catch (Exception e) {
                 log.error("Failed to subscribe to message recall topic: " + e.getMessage());
@@ -826,45 +984,28 @@ public class WebSocketClient {
         // Save callback for use by room reactions too
         this.reactionCallback = callback;
 
-        if (stompSession == null || !connected) {
-            System.out.println("😀 Cannot subscribe: stompSession=" + stompSession + ", connected=" + connected);
-            log.warn("Cannot subscribe to reactions: not connected");
-            return;
-        }
-
         String destination = "/topic/reactions/private/" + currentUserId;
         String subscriptionName = "private-reactions";
         System.out.println("😀 Subscribing to: " + destination);
 
-        if (subscriptionIds.containsKey(subscriptionName)) {
+        if (subscriptionRegistry.containsKey(subscriptionName)) {
             log.debug("Already subscribed to reactions");
             return;
         }
 
         try {
-            StompSession.Subscription subscription = stompSession.subscribe(destination, new StompFrameHandler() {
-                @Override
-                @NonNull
-                public Type getPayloadType(@NonNull StompHeaders headers) {
-                    return byte[].class;
-                }
-
-                @Override
-                @SuppressWarnings("unchecked")
-                public void handleFrame(@NonNull StompHeaders headers, @Nullable Object payload) {
-                    System.out.println("😀 Received reaction event!");
-                    Map<String, Object> reactionEvent = parsePayload(payload, Map.class);
-                    if (reactionEvent != null && callback != null) {
-                        log.info("😀 Reaction event received: messageId={}, emoji={}, action={}",
-                                reactionEvent.get("messageId"),
-                                reactionEvent.get("emoji"),
-                                reactionEvent.get("action"));
-                        callback.accept(reactionEvent);
-                    }
+            subscribe(subscriptionName, destination, EVENT, false, reactionEvent -> {
+                System.out.println("😀 Received reaction event!");
+                if (callback == null) {
+                    return;
                 }
+                log.info("😀 Reaction event received: messageId={}, emoji={}, action={}",
+                        reactionEvent.get("messageId"),
+                        reactionEvent.get("emoji"),
+                        reactionEvent.get("action"));
+                callback.accept(reactionEvent);
             });
 
-            subscriptionIds.put(subscriptionName, subscription);
             log.info("✅ Subscribed to reaction updates: {}", destination);
         } catch (Exception e) {
             log.error("Failed to subscribe to reactions: " + e.getMessage());
@@ -876,43 +1017,27 @@ public class WebSocketClient {
      * Called automatically when joining a room
      */
     public void subscribeToRoomReactions(Long roomId) {
-        if (stompSession == null || !connected) {
-            log.warn("Cannot subscribe to room reactions: not connected");
-            return;
-        }
-
         String destination = "/topic/reactions/room/" + roomId;
         String subscriptionName = "room-reactions-" + roomId;
 
-        if (subscriptionIds.containsKey(subscriptionName)) {
+        if (subscriptionRegistry.containsKey(subscriptionName)) {
             log.debug("Already subscribed to room reactions for room {}", roomId);
             return;
         }
 
         try {
-            StompSession.Subscription subscription = stompSession.subscribe(destination, new StompFrameHandler() {
-                @Override
-                @NonNull
-                public Type getPayloadType(@NonNull StompHeaders headers) {
-                    return byte[].class;
-                }
-
-                @Override
-                @SuppressWarnings("unchecked")
-                public void handleFrame(@NonNull StompHeaders headers, @Nullable Object payload) {
-                    System.out.println("😀 Received ROOM reaction event for room " + roomId);
-                    Map<String, Object> reactionEvent = parsePayload(payload, Map.class);
-                    if (reactionEvent != null && reactionCallback != null) {
-                        log.info("😀 Room reaction event received: messageId={}, emoji={}, action={}",
-                                reactionEvent.get("messageId"),
-                                reactionEvent.get("emoji"),
-                                reactionEvent.get("action"));
-                        reactionCallback.accept(reactionEvent);
-                    }
+            subscribe(subscriptionName, destination, EVENT, false, reactionEvent -> {
+                System.out.println("😀 Received ROOM reaction event for room " + roomId);
+                if (reactionCallback == null) {
+                    return;
                 }
+                log.info("😀 Room reaction event received: messageId={}, emoji={}, action={}",
+                        reactionEvent.get("messageId"),
+                        reactionEvent.get("emoji"),
+                        reactionEvent.get("action"));
+                reactionCallback.accept(reactionEvent);
             });
 
-            subscriptionIds.put(subscriptionName, subscription);
             log.info("✅ Subscribed to room reactions for room {}: {}", roomId, destination);
         } catch (Exception e) {
             log.error("Failed to subscribe to room reactions: " + e.getMessage());
@@ -927,44 +1052,20 @@ public class WebSocketClient {
     public void subscribeToRoomEvents(Consumer<Map<String, Object>> callback) {
         log.info("📢 subscribeToRoomEvents called, stompSession={}, connected={}",
                 stompSession != null, connected);
-        if (stompSession == null || !connected) {
-            log.warn("⚠️ Cannot subscribe to room events - not connected!");
-            return;
-        }
-
         String destination = "/topic/rooms";
         String subscriptionName = "room-events";
 
-        if (subscriptionIds.containsKey(subscriptionName)) {
+        if (subscriptionRegistry.containsKey(subscriptionName)) {
             log.debug("Already subscribed to {}", subscriptionName);
             return;
         }
 
         try {
-            StompSession.Subscription subscription = stompSession.subscribe(destination, new StompFrameHandler() {
-                @Override
-                @NonNull
-                public Type getPayloadType(@NonNull StompHeaders headers) {
-                    return byte[].class;
-                }
-
-                @Override
-                @SuppressWarnings("unchecked")
-                public void handleFrame(@NonNull StompHeaders headers, @Nullable Object payload) {
-                    try {
-                        Map<String, Object> event = parsePayload(payload, Map.class);
-                        if (event != null) {
-                            String eventType = (String) event.get("type");
-                            log.info("🏠 Received room event: {}", eventType);
-                            callback.accept(event);
-                        }
-                    } catch (Exception e) {
-                        log.error("Error parsing room event: {}", e.getMessage());
-                    }
-                }
+            subscribe(subscriptionName, destination, EVENT, false, event -> {
+                log.info("🏠 Received room event: {}", event.get("type"));
+                callback.accept(event);
             });
 
-            subscriptionIds.put(subscriptionName, subscription);
             log.info("✅ Subscribed to room events (/topic/rooms)");
         } catch (Exception e) {
             log.error("Failed to subscribe to room events: " + e.getMessage());
@@ -977,48 +1078,47 @@ public class WebSocketClient {
      * the room
      */
     public void subscribeToBannedNotifications(Long userId, Consumer<Map<String, Object>> callback) {
-        if (stompSession == null || !connected)
-            return;
-
         String destination = "/topic/user/" + userId + "/banned";
         String subscriptionName = "banned-notifications";
 
-        if (subscriptionIds.containsKey(subscriptionName)) {
+        if (subscriptionRegistry.containsKey(subscriptionName)) {
             log.debug("Already subscribed to {}", subscriptionName);
             return;
         }
 
         try {
-            StompSession.Subscription subscription = stompSession.subscribe(destination, new StompFrameHandler() {
-                @Override
-                @NonNull
-                public Type getPayloadType(@NonNull StompHeaders headers) {
-                    return byte[].class;
-                }
-
-                @Override
-                @SuppressWarnings("unchecked")
-                public void handleFrame(@NonNull StompHeaders headers, @Nullable Object payload) {
-                    try {
-                        Map<String, Object> event = parsePayload(payload, Map.class);
-                        if (event != null) {
-                            String eventType = (String) event.get("type");
-                            log.info("🚫 Received ban notification: {}", eventType);
-                            callback.accept(event);
-                        }
-                    } catch (Exception e) {
-                        log.error("Error parsing ban notification: {}", e.getMessage());
-                    }
-                }
+            subscribe(subscriptionName, destination, EVENT, false, event -> {
+                log.info("🚫 Received ban notification: {}", event.get("type"));
+                callback.accept(event);
             });
 
-            subscriptionIds.put(subscriptionName, subscription);
             log.info("✅ Subscribed to ban notifications ({})", destination);
         } catch (Exception e) {
             log.error("Failed to subscribe to ban notifications: " + e.getMessage());
         }
     }
 
+    /**
+     * 📬 Inbound dispatch: per-destination frames, drops, decode errors and lag
+     */
+    public StompDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * 📤 Outbound pipeline: delivered / unconfirmed / queued / failed counts, receipt latency
+     */
+    public StompSender getSender() {
+        return sender;
+    }
+
+    /**
+     * 🧹 Duplicate filter for private messages (user queue + fallback topic); see its hit rate
+     */
+    public MessageDedupWindow getDedupWindow() {
+        return processedMessageIds;
+    }
+
     public boolean isConnected() {
         return connected && stompSession != null && stompSession.isConnected();
     }
@@ -1026,6 +1126,14 @@ public class WebSocketClient {
     public void disconnect() {
         // Stop heartbeat first
         stopHeartbeat();
+        // Leaving on purpose: no reconnect, nothing to restore
+        reconnectSupervisor.stop();
+        subscriptionRegistry.clear();
+        dispatcher.clear();
+        roomMessageSinks.clear();
+        heldLiveFrames.clear();
+        privateMessageSink = null;
+        sender.shutdown(); // Messages still waiting go to the outbox
 
         if (stompSession != null) {
             try {
@@ -1042,6 +1150,16 @@ public class WebSocketClient {
         this.currentUserId = userId;
     }
 
+    /**
+     * 📮 Queue room and private messages in {@code queue} while disconnected
+     */
+    public void setOutbox(OutboundQueue queue) {
+        this.outbox = queue;
+        if (queue != null) {
+            queue.setTransport(OutboundAction.Channel.STOMP, this::deliverQueued);
+        }
+    }
+
     /**
      * 📋 Register user session with the server
      * Should be called after setting currentUserId and connecting
@@ -1133,9 +1251,11 @@ public class WebSocketClient {
      */
     private static class MySessionHandler implements StompSessionHandler {
         private final CountDownLatch latch;
+        private final Consumer<StompSession> onTransportError;
 
-        public MySessionHandler(CountDownLatch latch) {
+        public MySessionHandler(CountDownLatch latch, Consumer<StompSession> onTransportError) {
             this.latch = latch;
+            this.onTransportError = onTransportError;
         }
 
         @Override
@@ -1154,6 +1274,7 @@ public class WebSocketClient {
         @Override
         public void handleTransportError(@NonNull StompSession session, @NonNull Throwable exception) {
             log.error("Transport error: {}", exception.getMessage());
+            onTransportError.accept(session);
         }
 
         @Override
@@ -1,10 +1,12 @@
 package com.example.demo.ui;
 
+import com.example.demo.client.http.Download;
 import com.example.demo.client.model.User;
+import com.example.demo.client.service.ReactionSummaryService;
 import javafx.animation.FadeTransition;
+import javafx.animation.PauseTransition;
 import javafx.animation.TranslateTransition;
 import javafx.application.Platform;
-import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -22,9 +24,6 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URI;
-import java.net.URL;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.time.format.DateTimeFormatter;
@@ -70,7 +69,6 @@ public class ContentArea extends BorderPane {
 
     // Typing indicator
     private Label typingLabel;
-    private java.util.concurrent.ScheduledExecutorService typingResetScheduler;
 
     // Callbacks
     @Setter
@@ -81,6 +79,8 @@ public class ContentArea extends BorderPane {
     private Runnable onPrivateFileClicked;
     @Setter
     private Consumer<java.io.File> onVoiceSendClicked;
+    @Setter
+    private Runnable onScrolledToTop; // Load older history page
 
     // Avatar colors for consistent user coloring
     private static final Color[] AVATAR_COLORS = {
@@ -130,6 +130,9 @@ public class ContentArea extends BorderPane {
 
     public void setChatService(com.example.demo.client.service.ChatService chatService) {
         this.chatService = chatService;
+        if (chatService != null) {
+            chatService.getReactionModel().addListener(this::updateReactionCounts);
+        }
     }
 
     private List<MessageData> messageHistory = new ArrayList<>();
@@ -176,6 +179,7 @@ public class ContentArea extends BorderPane {
         }
         messageListView.setCellFactory(param -> new MessageCell());
         VBox.setVgrow(messageListView, Priority.ALWAYS);
+        installScrollTopListener();
 
         // Create loading overlay
         loadingOverlay = createLoadingOverlay();
@@ -757,11 +761,8 @@ public class ContentArea extends BorderPane {
                 final Long finalMsgId = messageId;
                 emojiItem.setOnAction(e -> {
                     if (chatService != null) {
-                        Boolean added = chatService.toggleReaction(finalMsgId, emoji);
-                        if (added != null) {
-                            System.out.println("😀 Reaction " + emoji + " " + (added ? "added" : "removed")
-                                    + " on message " + finalMsgId);
-                        }
+                        // Counts update at once; the request runs in the background
+                        chatService.getReactionModel().toggle(finalMsgId, emoji);
                     }
                 });
                 reactionMenu.getItems().add(emojiItem);
@@ -877,31 +878,19 @@ public class ContentArea extends BorderPane {
                         emojiLabel.setStyle("-fx-font-size: 16px; -fx-cursor: hand; -fx-padding: 1;");
                     });
 
-                    // Click to react
+                    // Click to react: counts update at once, the request runs in the background
                     emojiLabel.setOnMouseClicked(e -> {
                         if (chatService != null) {
-                            Boolean added = chatService.toggleReaction(msgId, emoji);
-                            if (added != null) {
-                                // Pop animation
-                                emojiLabel.setScaleX(1.5);
-                                emojiLabel.setScaleY(1.5);
-                                new Thread(() -> {
-                                    try {
-                                        // Wait for backend to process before refreshing
-                                        Thread.sleep(300);
-                                        Platform.runLater(() -> {
-                                            emojiLabel.setScaleX(1.0);
-                                            emojiLabel.setScaleY(1.0);
-                                            // Refresh counts immediately after reaction
-                                            System.out.println("🔄 Refreshing reaction counts for msg " + msgId);
-                                            loadReactionCounts(msgId, reactionCountsBox, darkMode);
-                                        });
-                                    } catch (InterruptedException ignored) {
-                                    }
-                                }).start();
-                                System.out.println(
-                                        "😀 " + emoji + " " + (added ? "added ✅" : "removed ❌") + " on msg " + msgId);
-                            }
+                            chatService.getReactionModel().toggle(msgId, emoji);
+                            // Pop animation
+                            emojiLabel.setScaleX(1.5);
+                            emojiLabel.setScaleY(1.5);
+                            PauseTransition pop = new PauseTransition(Duration.millis(300));
+                            pop.setOnFinished(ev -> {
+                                emojiLabel.setScaleX(1.0);
+                                emojiLabel.setScaleY(1.0);
+                            });
+                            pop.play();
                         }
                     });
 
@@ -1025,6 +1014,38 @@ public class ContentArea extends BorderPane {
 
     // Updated to accept current username to check ownership
     public void addMessages(List<com.example.demo.client.model.ChatMessage> messages, String currentUsername) {
+        appendMessages(messages, currentUsername);
+
+        // 📜 Scroll to bottom after loading all messages
+        if (!messages.isEmpty()) {
+            Platform.runLater(() -> {
+                messageListView.scrollTo(messageListView.getItems().size() - 1);
+            });
+        }
+    }
+
+    /**
+     * 📜 Insert an older history page above the current messages, keeping the
+     * message the user was looking at in place
+     */
+    public void prependMessages(List<com.example.demo.client.model.ChatMessage> messages, String currentUsername) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        List<HBox> currentItems = new ArrayList<>(messageListView.getItems());
+        List<MessageData> currentHistory = new ArrayList<>(messageHistory);
+        messageListView.getItems().clear();
+        messageHistory.clear();
+
+        appendMessages(messages, currentUsername);
+        int added = messageListView.getItems().size();
+
+        messageListView.getItems().addAll(currentItems);
+        messageHistory.addAll(currentHistory);
+        messageListView.scrollTo(added);
+    }
+
+    private void appendMessages(List<com.example.demo.client.model.ChatMessage> messages, String currentUsername) {
         for (com.example.demo.client.model.ChatMessage msg : messages) {
             String displayName = msg.getSenderDisplayName() != null ? msg.getSenderDisplayName()
                     : msg.getSenderUsername();
@@ -1045,13 +1066,27 @@ public class ContentArea extends BorderPane {
                 addMessage(msg.getId(), displayName, msg.getContent(), msg.getTimestamp(), isMine, false);
             }
         }
+    }
 
-        // 📜 Scroll to bottom after loading all messages
-        if (!messages.isEmpty()) {
-            Platform.runLater(() -> {
-                messageListView.scrollTo(messageListView.getItems().size() - 1);
-            });
-        }
+    /**
+     * ⬆️ Fire onScrolledToTop when the user scrolls up to the first message
+     */
+    private void installScrollTopListener() {
+        messageListView.skinProperty().addListener((obs, oldSkin, newSkin) -> {
+            for (javafx.scene.Node node : messageListView.lookupAll(".scroll-bar")) {
+                if (node instanceof javafx.scene.control.ScrollBar) {
+                    javafx.scene.control.ScrollBar bar = (javafx.scene.control.ScrollBar) node;
+                    if (bar.getOrientation() == javafx.geometry.Orientation.VERTICAL) {
+                        bar.valueProperty().addListener((o, oldValue, newValue) -> {
+                            if (newValue.doubleValue() <= bar.getMin() && oldValue.doubleValue() > bar.getMin()
+                                    && onScrolledToTop != null) {
+                                onScrolledToTop.run();
+                            }
+                        });
+                    }
+                }
+            }
+        });
     }
 
     // Legacy method support
@@ -1078,34 +1113,36 @@ public class ContentArea extends BorderPane {
      * @param isTyping true to show, false to hide
      */
     public void showTypingIndicator(String username, boolean isTyping) {
+        showTypingUsers(isTyping && username != null ? List.of(username) : List.of());
+    }
+
+    /**
+     * ⌨️ Show who is typing in the current room (empty list hides the label);
+     * expiry is handled by TypingTracker
+     */
+    public void showTypingUsers(List<String> usernames) {
         Platform.runLater(() -> {
             if (typingLabel == null)
                 return;
 
-            if (isTyping && username != null) {
-                typingLabel.setText("⌨️ " + username + " đang gõ...");
-                typingLabel.setVisible(true);
-                typingLabel.setManaged(true);
-
-                // Auto-hide after 3 seconds if no more typing events
-                if (typingResetScheduler != null) {
-                    typingResetScheduler.shutdownNow();
-                }
-                typingResetScheduler = java.util.concurrent.Executors.newSingleThreadScheduledExecutor();
-                typingResetScheduler.schedule(() -> {
-                    Platform.runLater(() -> {
-                        typingLabel.setVisible(false);
-                        typingLabel.setManaged(false);
-                    });
-                }, 3, java.util.concurrent.TimeUnit.SECONDS);
-            } else {
+            if (usernames.isEmpty()) {
                 typingLabel.setVisible(false);
                 typingLabel.setManaged(false);
-                if (typingResetScheduler != null) {
-                    typingResetScheduler.shutdownNow();
-                    typingResetScheduler = null;
-                }
+                return;
+            }
+            String who;
+            if (usernames.size() == 1) {
+                who = usernames.get(0);
+            } else if (usernames.size() == 2) {
+                who = usernames.get(0) + " và " + usernames.get(1);
+            } else if (usernames.size() == 3) {
+                who = usernames.get(0) + ", " + usernames.get(1) + " và " + usernames.get(2);
+            } else {
+                who = usernames.get(0) + ", " + usernames.get(1) + " và " + (usernames.size() - 2) + " người khác";
             }
+            typingLabel.setText("⌨️ " + who + " đang gõ...");
+            typingLabel.setVisible(true);
+            typingLabel.setManaged(true);
         });
     }
 
@@ -1353,15 +1390,9 @@ public class ContentArea extends BorderPane {
             return;
         }
 
-        // Prepend default server URL if relative path
-        String fullUrl = fileUrl;
-        if (!fileUrl.startsWith("http://") && !fileUrl.startsWith("https://")) {
-            // Use default server URL or get from config
-            String serverUrl = System.getenv("WEBCHAT_G10_SERVER_URL");
-            if (serverUrl == null || serverUrl.isEmpty()) {
-                serverUrl = "http://26.6.143.150:8081"; // Default server
-            }
-            fullUrl = serverUrl + fileUrl;
+        if (chatService == null) {
+            showAlert(Alert.AlertType.ERROR, "Lỗi", "Chưa kết nối tới máy chủ");
+            return;
         }
 
         // Get the Downloads folder path
@@ -1391,105 +1422,42 @@ public class ContentArea extends BorderPane {
             }
         }
 
-        // Create final reference for use in lambda
-        final File finalSaveFile = saveFile;
-        final String finalFileUrl = fullUrl;
-
         // Disable button and show downloading state
         String originalText = downloadBtn.getText();
         downloadBtn.setDisable(true);
         downloadBtn.setText("⏳");
-        statusLabel.setText("⏳ Đang tải...");
-
-        // Download in background thread
-        Task<Boolean> downloadTask = new Task<>() {
-            @Override
-            protected Boolean call() throws Exception {
-                HttpURLConnection conn = null;
-                try {
-                    URL url = URI.create(finalFileUrl).toURL();
-                    conn = (HttpURLConnection) url.openConnection();
-                    conn.setRequestMethod("GET");
-                    conn.setConnectTimeout(10000);
-                    conn.setReadTimeout(60000);
-
-                    int responseCode = conn.getResponseCode();
-                    if (responseCode != HttpURLConnection.HTTP_OK) {
-                        throw new IOException("Server returned HTTP " + responseCode);
-                    }
-
-                    long fileSize = conn.getContentLengthLong();
-
-                    try (InputStream in = new BufferedInputStream(conn.getInputStream());
-                            FileOutputStream fos = new FileOutputStream(finalSaveFile)) {
-
-                        byte[] buffer = new byte[8192];
-                        long downloaded = 0;
-                        int bytesRead;
+        statusLabel.setText("⏳ Đang chờ tải...");
 
-                        while ((bytesRead = in.read(buffer)) != -1) {
-                            fos.write(buffer, 0, bytesRead);
-                            downloaded += bytesRead;
-
-                            // Update progress
-                            if (fileSize > 0) {
-                                long finalDownloaded = downloaded;
-                                Platform.runLater(() -> {
-                                    int percent = (int) ((finalDownloaded * 100) / fileSize);
-                                    statusLabel.setText("⏳ " + percent + "%");
-                                });
-                            }
-                        }
-                    }
-                    return true;
-                } finally {
-                    if (conn != null) {
-                        conn.disconnect();
-                    }
-                }
-            }
-        };
+        // Queued in the download manager (ranged, resumable); progress arrives throttled
+        Download download = chatService.getDownloadManager().download(fileUrl, saveFile.toPath(),
+                (received, total) -> Platform.runLater(() -> statusLabel.setText(total > 0
+                        ? "⏳ " + (int) (received * 100 / total) + "%"
+                        : "⏳ " + received / 1024 + " KB")));
 
-        downloadTask.setOnSucceeded(event -> {
+        download.getResult().whenComplete((path, error) -> Platform.runLater(() -> {
             downloadBtn.setDisable(false);
             downloadBtn.setText(originalText);
-            statusLabel.setText("✅ Đã tải xong!");
 
-            // Show success notification
-            showAlert(Alert.AlertType.INFORMATION, "Thành công",
-                    "File đã được lưu tại:\n" + finalSaveFile.getAbsolutePath());
+            if (error == null) {
+                statusLabel.setText("✅ Đã tải xong!");
 
-            // Reset status after 3 seconds
-            new Thread(() -> {
-                try {
-                    Thread.sleep(3000);
-                    Platform.runLater(() -> statusLabel.setText("📦 Tệp đính kèm"));
-                } catch (InterruptedException ignored) {
-                }
-            }).start();
-        });
-
-        downloadTask.setOnFailed(event -> {
-            downloadBtn.setDisable(false);
-            downloadBtn.setText(originalText);
-            statusLabel.setText("❌ Lỗi tải file");
+                // Show success notification
+                showAlert(Alert.AlertType.INFORMATION, "Thành công",
+                        "File đã được lưu tại:\n" + path.toAbsolutePath());
+            } else {
+                statusLabel.setText("❌ Lỗi tải file");
 
-            Throwable ex = downloadTask.getException();
-            showAlert(Alert.AlertType.ERROR, "Lỗi tải file",
-                    "Không thể tải file:\n" + (ex != null ? ex.getMessage() : "Unknown error"));
+                Throwable ex = error.getCause() != null ? error.getCause() : error;
+                showAlert(Alert.AlertType.ERROR, "Lỗi tải file",
+                        "Không thể tải file:\n" + (ex.getMessage() != null ? ex.getMessage() : "Unknown error")
+                                + "\nTải lại để tiếp tục từ phần đã tải.");
+            }
 
             // Reset status after 3 seconds
-            new Thread(() -> {
-                try {
-                    Thread.sleep(3000);
-                    Platform.runLater(() -> statusLabel.setText("📦 Tệp đính kèm"));
-                } catch (InterruptedException ignored) {
-                }
-            }).start();
-        });
-
-        // Start download
-        new Thread(downloadTask).start();
+            PauseTransition reset = new PauseTransition(Duration.seconds(3));
+            reset.setOnFinished(e -> statusLabel.setText("📦 Tệp đính kèm"));
+            reset.play();
+        }));
     }
 
     /**
@@ -1628,25 +1596,16 @@ public class ContentArea extends BorderPane {
             playBtn.setOnAction(e -> {
                 try {
                     if (clipRef[0] == null) {
-                        // Build full URL and download audio
-                        String fullUrl = voiceUrl;
-                        if (!voiceUrl.startsWith("http")) {
-                            fullUrl = (chatService != null ? chatService.getBaseUrl() : "http://localhost:8080")
-                                    + voiceUrl;
+                        if (chatService == null) {
+                            throw new IllegalStateException("Chưa kết nối tới máy chủ");
                         }
 
-                        // Download audio file to temp
-                        java.net.URL audioUrl = new java.net.URL(fullUrl);
-                        java.io.InputStream audioStream = audioUrl.openStream();
-                        java.io.File tempFile = java.io.File.createTempFile("voice_", ".wav");
-                        tempFile.deleteOnExit();
-                        java.nio.file.Files.copy(audioStream, tempFile.toPath(),
-                                java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-                        audioStream.close();
+                        // Audio file from the local media cache (downloaded only the first time)
+                        java.io.File audioFile = chatService.getMediaCache().get(voiceUrl).join().toFile();
 
                         // Open audio clip
                         javax.sound.sampled.AudioInputStream ais = javax.sound.sampled.AudioSystem
-                                .getAudioInputStream(tempFile);
+                                .getAudioInputStream(audioFile);
                         clipRef[0] = javax.sound.sampled.AudioSystem.getClip();
                         clipRef[0].open(ais);
 
@@ -2110,123 +2069,129 @@ public class ContentArea extends BorderPane {
     /**
      * 🎨 Load and display reaction counts for a message (e.g., ❤️2 👍1)
      * Uses colorful badges - each emoji has its own background color!
+     * Counts come from the shared summary cache; uncached ones are fetched
+     * only once the bubble is actually shown, batched with the other visible
+     * bubbles.
      */
-    @SuppressWarnings("unchecked")
     private void loadReactionCounts(Long messageId, HBox reactionCountsBox, boolean isDarkMode) {
         if (chatService == null || messageId == null)
             return;
 
-        new Thread(() -> {
-            try {
-                java.util.Map<String, Object> summary = chatService.getReactionSummary(messageId);
-                if (summary == null || summary.isEmpty())
-                    return;
-
-                java.util.Map<String, Integer> counts = (java.util.Map<String, Integer>) summary.get("counts");
-                if (counts == null || counts.isEmpty())
-                    return;
-
-                Platform.runLater(() -> {
-                    reactionCountsBox.getChildren().clear();
-
-                    // Emoji to color mapping for colorful badges
-                    java.util.Map<String, String> emojiColors = new java.util.HashMap<>();
-                    emojiColors.put("👍", "#3b82f6"); // Blue
-                    emojiColors.put("❤️", "#ef4444"); // Red
-                    emojiColors.put("😂", "#f59e0b"); // Orange
-                    emojiColors.put("😮", "#8b5cf6"); // Purple
-                    emojiColors.put("😢", "#06b6d4"); // Cyan
-                    emojiColors.put("😡", "#f97316"); // Deep orange
-
-                    for (java.util.Map.Entry<String, Integer> entry : counts.entrySet()) {
-                        String emoji = entry.getKey();
-                        Integer count = entry.getValue();
-                        if (count == null || count <= 0)
-                            continue;
-
-                        // Get color for this emoji (or default gray)
-                        String bgColor = emojiColors.getOrDefault(emoji, isDarkMode ? "#4b5563" : "#9ca3af");
-
-                        // Create colorful emoji badge
-                        Label badge = new Label(emoji + (count > 1 ? " " + count : ""));
-                        badge.setStyle(
-                                "-fx-background-color: " + bgColor + "; " +
-                                        "-fx-text-fill: white; " +
-                                        "-fx-padding: 3 8; " +
-                                        "-fx-background-radius: 12; " +
-                                        "-fx-font-size: 13px; " +
-                                        "-fx-font-weight: bold; " +
-                                        "-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.3), 3, 0, 0, 1); " +
-                                        "-fx-cursor: hand;");
-
-                        // Hover effect - brighter
-                        badge.setOnMouseEntered(e -> {
-                            badge.setScaleX(1.1);
-                            badge.setScaleY(1.1);
-                        });
-                        badge.setOnMouseExited(e -> {
-                            badge.setScaleX(1.0);
-                            badge.setScaleY(1.0);
-                        });
+        ReactionSummaryService summaries = chatService.getReactionSummaries();
+        java.util.Map<String, Integer> cached = summaries.peek(messageId);
+        if (cached != null) {
+            showReactionCounts(reactionCountsBox, cached, isDarkMode);
+            return;
+        }
 
-                        reactionCountsBox.getChildren().add(badge);
+        if (reactionCountsBox.getScene() == null) {
+            // Not on screen yet (the list only attaches visible rows): fetch when it is
+            reactionCountsBox.sceneProperty().addListener(new javafx.beans.value.ChangeListener<>() {
+                @Override
+                public void changed(javafx.beans.value.ObservableValue<? extends javafx.scene.Scene> obs,
+                        javafx.scene.Scene oldScene, javafx.scene.Scene newScene) {
+                    if (newScene != null) {
+                        obs.removeListener(this);
+                        loadReactionCounts(messageId, reactionCountsBox, isDarkMode);
                     }
-                });
-            } catch (Exception e) {
-                System.err.println("Failed to load reactions: " + e.getMessage());
-            }
-        }).start();
+                }
+            });
+            return;
+        }
+
+        summaries.get(messageId)
+                .thenAccept(counts -> Platform.runLater(
+                        () -> showReactionCounts(reactionCountsBox, counts, isDarkMode)));
+    }
+
+    private void showReactionCounts(HBox reactionCountsBox, java.util.Map<String, Integer> counts,
+            boolean isDarkMode) {
+        reactionCountsBox.getChildren().clear();
+
+        // Emoji to color mapping for colorful badges
+        java.util.Map<String, String> emojiColors = new java.util.HashMap<>();
+        emojiColors.put("👍", "#3b82f6"); // Blue
+        emojiColors.put("❤️", "#ef4444"); // Red
+        emojiColors.put("😂", "#f59e0b"); // Orange
+        emojiColors.put("😮", "#8b5cf6"); // Purple
+        emojiColors.put("😢", "#06b6d4"); // Cyan
+        emojiColors.put("😡", "#f97316"); // Deep orange
+
+        for (java.util.Map.Entry<String, Integer> entry : counts.entrySet()) {
+            String emoji = entry.getKey();
+            Integer count = entry.getValue();
+            if (count == null || count <= 0)
+                continue;
+
+            // Get color for this emoji (or default gray)
+            String bgColor = emojiColors.getOrDefault(emoji, isDarkMode ? "#4b5563" : "#9ca3af");
+
+            // Create colorful emoji badge
+            Label badge = new Label(emoji + (count > 1 ? " " + count : ""));
+            badge.setStyle(
+                    "-fx-background-color: " + bgColor + "; " +
+                            "-fx-text-fill: white; " +
+                            "-fx-padding: 3 8; " +
+                            "-fx-background-radius: 12; " +
+                            "-fx-font-size: 13px; " +
+                            "-fx-font-weight: bold; " +
+                            "-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.3), 3, 0, 0, 1); " +
+                            "-fx-cursor: hand;");
+
+            // Hover effect - brighter
+            badge.setOnMouseEntered(e -> {
+                badge.setScaleX(1.1);
+                badge.setScaleY(1.1);
+            });
+            badge.setOnMouseExited(e -> {
+                badge.setScaleX(1.0);
+                badge.setScaleY(1.0);
+            });
+
+            reactionCountsBox.getChildren().add(badge);
+        }
     }
 
     /**
-     * 😀 Refresh reaction counts for a specific message (called when receiving
-     * reaction update via WebSocket)
+     * 😀 Show new reaction counts for a specific message (called by the
+     * reaction model after a local toggle or a WebSocket reaction event)
      */
-    public void refreshReactionForMessage(Long messageId) {
+    public void updateReactionCounts(Long messageId, java.util.Map<String, Integer> counts) {
         if (messageId == null)
             return;
 
-        System.out.println("😀 Refreshing reaction for message: " + messageId);
         boolean isDarkMode = SettingsDialog.isDarkTheme();
 
         // Find the reactionCountsBox for this message in the ListView
         Platform.runLater(() -> {
-            boolean found = false;
-
             for (HBox row : messageListView.getItems()) {
                 // Search through the hierarchy to find reactionCountsBox with matching
                 // messageId
-                found = findAndRefreshReactionBox(row, messageId, isDarkMode);
-                if (found) {
+                if (findAndUpdateReactionBox(row, messageId, counts, isDarkMode)) {
                     break;
                 }
             }
-
-            if (!found) {
-                // Just log the issue - don't refresh all messages to avoid flicker
-                System.out.println("⚠️ Could not find reaction box for message " + messageId + " - skipping refresh");
-            }
         });
     }
 
     /**
-     * Recursively find and refresh reaction box for a specific message
+     * Recursively find and update the reaction box for a specific message
      */
-    private boolean findAndRefreshReactionBox(javafx.scene.Parent parent, Long messageId, boolean isDarkMode) {
+    private boolean findAndUpdateReactionBox(javafx.scene.Parent parent, Long messageId,
+            java.util.Map<String, Integer> counts, boolean isDarkMode) {
         for (javafx.scene.Node child : parent.getChildrenUnmodifiable()) {
             // Check if this is the reactionCountsBox we're looking for
             if (child instanceof HBox hbox && "reactionCountsBox".equals(hbox.getId())) {
                 Object msgIdData = hbox.getUserData();
                 if (msgIdData != null && msgIdData.equals(messageId)) {
-                    System.out.println("😀 Found reactionCountsBox for message " + messageId + " - refreshing!");
-                    loadReactionCounts(messageId, hbox, isDarkMode);
+                    showReactionCounts(hbox, counts, isDarkMode);
                     return true;
                 }
             }
 
             // Recursively search in children
             if (child instanceof javafx.scene.Parent parentChild) {
-                if (findAndRefreshReactionBox(parentChild, messageId, isDarkMode)) {
+                if (findAndUpdateReactionBox(parentChild, messageId, counts, isDarkMode)) {
                     return true;
                 }
             }
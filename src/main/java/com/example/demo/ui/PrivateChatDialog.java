@@ -5,6 +5,7 @@ import com.example.demo.client.model.RecallResponse;
 import com.example.demo.client.model.User;
 import com.example.demo.client.service.ChatService;
 import com.example.demo.client.util.VoiceRecorder;
+import com.example.demo.client.websocket.StompSender;
 import com.example.demo.client.websocket.WebSocketClient;
 import javafx.animation.FadeTransition;
 import javafx.animation.Interpolator;
@@ -474,9 +475,11 @@ public class PrivateChatDialog extends Stage {
         String message = inputField.getText().trim();
         if (!message.isEmpty()) {
             try {
-                if (webSocketClient != null && webSocketClient.isConnected()) {
+                // Sent while disconnected too: the sender keeps it in the outbox (QUEUED)
+                if (webSocketClient != null) {
                     // Send private message via WebSocket
-                    webSocketClient.sendPrivateMessage(targetUser.getId(), message);
+                    webSocketClient.sendPrivateMessage(targetUser.getId(), message)
+                            .whenComplete(this::reportDelivery);
 
                     // Add to local display
                     ChatMessage sentMessage = ChatMessage.builder()
@@ -511,7 +514,8 @@ public class PrivateChatDialog extends Stage {
             java.io.File selectedFile = fileChooser.showOpenDialog(this);
 
             if (selectedFile != null) {
-                if (webSocketClient != null && webSocketClient.isConnected()) {
+                // Sent while disconnected too: the sender keeps it in the outbox (QUEUED)
+                if (webSocketClient != null) {
                     // Disable button during upload
                     fileButton.setDisable(true);
                     fileButton.setText("⏳");
@@ -524,7 +528,8 @@ public class PrivateChatDialog extends Stage {
                         if (fileUrl != null && !fileUrl.isEmpty()) {
                             // Send file message via WebSocket
                             webSocketClient.sendPrivateMessage(targetUser.getId(),
-                                    "📎 " + selectedFile.getName() + "\n" + fileUrl);
+                                    "📎 " + selectedFile.getName() + "\n" + fileUrl)
+                                    .whenComplete(this::reportDelivery);
 
                             // Add to local display
                             ChatMessage fileMessage = ChatMessage.builder()
@@ -562,6 +567,34 @@ public class PrivateChatDialog extends Stage {
         }
     }
 
+    /**
+     * 📤 Tell the user when a sent message did not (or not provably) reach the server
+     */
+    private void reportDelivery(StompSender.Delivery delivery, Throwable error) {
+        if (error != null || delivery == StompSender.Delivery.FAILED) {
+            showError("Lỗi", "Không gửi được tin nhắn");
+        } else if (delivery == StompSender.Delivery.QUEUED) {
+            showNotice("📮 Tin nhắn sẽ được gửi khi kết nối lại");
+        } else if (delivery == StompSender.Delivery.UNCONFIRMED) {
+            showNotice("⚠️ Tin nhắn chưa xác nhận: server chưa báo đã nhận");
+        }
+    }
+
+    /**
+     * 📝 One-line system note in the conversation
+     */
+    private void showNotice(String text) {
+        javafx.application.Platform.runLater(() -> {
+            Label notice = new Label(text);
+            notice.setStyle("-fx-text-fill: #9ca3af; -fx-font-size: 11px;");
+            HBox row = new HBox(notice);
+            row.setAlignment(Pos.CENTER);
+            row.setPadding(new Insets(2, 15, 2, 15));
+            messageListView.getItems().add(row);
+            smoothScrollToBottom();
+        });
+    }
+
     private void handleIncomingPrivateMessage(ChatMessage message) {
         // Check if this message is for our conversation
         if ((message.getSenderId().equals(targetUser.getId()) && message.getRecipientId() != null
@@ -722,21 +755,10 @@ public class PrivateChatDialog extends Stage {
                     }
 
                     if (clipRef[0] == null) {
-                        String fullUrl = finalVoiceUrl;
-                        if (!finalVoiceUrl.startsWith("http")) {
-                            fullUrl = chatService.getBaseUrl() + finalVoiceUrl;
-                        }
-
-                        java.net.URL audioUrl = new java.net.URL(fullUrl);
-                        java.io.InputStream audioStream = audioUrl.openStream();
-                        java.io.File tempFile = java.io.File.createTempFile("voice_", ".wav");
-                        tempFile.deleteOnExit();
-                        java.nio.file.Files.copy(audioStream, tempFile.toPath(),
-                                java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-                        audioStream.close();
+                        java.io.File audioFile = chatService.getMediaCache().get(finalVoiceUrl).join().toFile();
 
                         javax.sound.sampled.AudioInputStream ais = javax.sound.sampled.AudioSystem
-                                .getAudioInputStream(tempFile);
+                                .getAudioInputStream(audioFile);
                         clipRef[0] = javax.sound.sampled.AudioSystem.getClip();
                         clipRef[0].open(ais);
 
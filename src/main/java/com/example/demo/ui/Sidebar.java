@@ -765,23 +765,48 @@ public class Sidebar extends VBox {
         updateOnlineUsersList(userId, isOnline);
     }
 
+    /**
+     * Apply a batch of coalesced status changes (userId -> isOnline)
+     * with a single refresh of the Direct Messages list
+     */
+    public void updateFriendStatuses(Map<Long, Boolean> changes) {
+        if (changes == null || changes.isEmpty()) {
+            return;
+        }
+        if (loadedFriends != null) {
+            for (com.example.demo.client.model.User friend : loadedFriends) {
+                Boolean isOnline = changes.get(friend.getId());
+                if (isOnline != null) {
+                    friend.setStatus(isOnline ? com.example.demo.client.model.User.Status.ONLINE
+                            : com.example.demo.client.model.User.Status.OFFLINE);
+                }
+            }
+            friendsListView.refresh();
+        }
+        for (Map.Entry<Long, Boolean> change : changes.entrySet()) {
+            updateOnlineUsersList(change.getKey(), change.getValue());
+        }
+    }
+
     /**
      * Update the Online Users list when a user comes online or goes offline
      */
     private void updateOnlineUsersList(Long userId, boolean isOnline) {
         // Find user display name from loadedFriends or other sources
         String userDisplayName = null;
+        boolean hideOnlineStatus = false; // Privacy: friend has disabled showOnlineStatus
 
         if (loadedFriends != null) {
             for (com.example.demo.client.model.User friend : loadedFriends) {
                 if (friend.getId().equals(userId)) {
                     userDisplayName = friend.getDisplayName() != null ? friend.getDisplayName() : friend.getUsername();
+                    hideOnlineStatus = Boolean.FALSE.equals(friend.getShowOnlineStatus());
                     break;
                 }
             }
         }
 
-        if (isOnline) {
+        if (isOnline && !hideOnlineStatus) {
             // User came online - add to Online Users list if not already present
             if (userDisplayName != null) {
                 final String displayName = userDisplayName;
@@ -793,7 +818,7 @@ public class Sidebar extends VBox {
                 }
             }
         } else {
-            // User went offline - remove from Online Users list
+            // User went offline (or hides status) - remove from Online Users list
             if (userDisplayName != null) {
                 final String displayName = userDisplayName;
                 userListView.getItems().removeIf(item -> item.equals(displayName));
@@ -992,6 +1017,29 @@ public class Sidebar extends VBox {
         updateDMBadge();
     }
 
+    /**
+     * 📊 Apply a batch of loaded unread counts (friendId/roomId -> count)
+     * with one refresh of each list
+     */
+    public void setUnreadCounts(Map<Long, Integer> friendCounts, Map<Long, Integer> roomCounts) {
+        for (Map.Entry<Long, Integer> entry : friendCounts.entrySet()) {
+            if (entry.getValue() > 0) {
+                unreadCounts.put(entry.getKey(), entry.getValue());
+            } else {
+                unreadCounts.remove(entry.getKey());
+            }
+        }
+        for (Map.Entry<Long, Integer> entry : roomCounts.entrySet()) {
+            if (entry.getValue() > 0) {
+                roomUnreadCounts.put(entry.getKey(), entry.getValue());
+            } else {
+                roomUnreadCounts.remove(entry.getKey());
+            }
+        }
+        refreshUnreadBadges();
+        refreshRoomsList();
+    }
+
     /**
      * 📊 Refresh all unread badges (call after loading from backend)
      */
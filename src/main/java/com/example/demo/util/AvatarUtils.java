@@ -1,5 +1,6 @@
 package com.example.demo.util;
 
+import com.example.demo.client.http.MediaCache;
 import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.ImagePattern;
@@ -7,6 +8,8 @@ import javafx.scene.paint.Paint;
 import javafx.scene.shape.Circle;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.file.Path;
+
 /**
  * 🖼️ Avatar Utilities - Helper methods for loading and displaying user avatars
  */
@@ -14,6 +17,7 @@ import lombok.extern.slf4j.Slf4j;
 public class AvatarUtils {
 
     private static String baseUrl = "http://26.6.143.150:8081";
+    private static volatile MediaCache mediaCache;
 
     /**
      * Set the base URL for avatar loading
@@ -22,6 +26,13 @@ public class AvatarUtils {
         baseUrl = url;
     }
 
+    /**
+     * Serve avatar images from the on-disk media cache
+     */
+    public static void setMediaCache(MediaCache cache) {
+        mediaCache = cache;
+    }
+
     /**
      * 🎨 Generate a consistent color based on username
      */
@@ -38,7 +49,8 @@ public class AvatarUtils {
 
     /**
      * 📷 Load avatar image from URL
-     * Returns null if loading fails
+     * Returns null if loading fails; blocks while a media cache miss is
+     * fetched, so UI code should prefer setAvatarOnCircleAsync
      */
     public static Image loadAvatarImage(String avatarUrl) {
         if (avatarUrl == null || avatarUrl.trim().isEmpty()) {
@@ -66,8 +78,14 @@ public class AvatarUtils {
 
             log.debug("📷 Loading avatar from: {}", fullUrl);
 
-            // Load image with background loading
-            Image image = new Image(fullUrl, true);
+            // Load image with background loading, from the media cache when possible;
+            // a miss is fetched once into the cache and decoded from that file
+            MediaCache cache = mediaCache;
+            Path cached = cache != null ? cache.lookup(fullUrl) : null;
+            if (cache != null && cached == null) {
+                cached = cache.get(fullUrl).exceptionally(e -> null).join();
+            }
+            Image image = new Image(cached != null ? cached.toUri().toString() : fullUrl, true);
 
             // Check for loading errors
             if (image.isError()) {
@@ -92,6 +110,11 @@ public class AvatarUtils {
      */
     public static void setAvatarOnCircle(Circle circle, String avatarUrl, String username) {
         if (avatarUrl != null && !avatarUrl.trim().isEmpty()) {
+            if (!isCached(avatarUrl)) {
+                // Not on disk yet: fetch in the background instead of blocking the caller
+                setAvatarOnCircleAsync(circle, avatarUrl, username, circle.getRadius() * 2);
+                return;
+            }
             Image image = loadAvatarImage(avatarUrl);
             if (image != null) {
                 // Apply image pattern to circle
@@ -151,51 +174,78 @@ public class AvatarUtils {
 
                 log.info("📷 Loading avatar async from: {}", fullUrl);
 
-                // Load image asynchronously with specified size
-                Image image = new Image(fullUrl, size * 2, size * 2, true, true, true);
-
-                // Check if image is already loaded (cached case)
-                if (image.getProgress() >= 1.0 && !image.isError()) {
-                    log.info("📷 Avatar loaded immediately (cached): {}", fullUrl);
-                    ImagePattern pattern = new ImagePattern(image);
-                    circle.setFill(pattern);
+                // Fetch through the media cache, then decode from the local file
+                MediaCache cache = mediaCache;
+                if (cache != null) {
+                    cache.get(fullUrl).whenComplete((path, error) -> javafx.application.Platform.runLater(() ->
+                            loadIntoCircle(circle, path != null ? path.toUri().toString() : fullUrl, avatarUrl, size)));
                 } else {
-                    // When loading completes, update the circle
-                    image.progressProperty().addListener((obs, oldProgress, newProgress) -> {
-                        if (newProgress.doubleValue() >= 1.0 && !image.isError()) {
-                            log.info("📷 Avatar loaded async: {}", fullUrl);
-                            javafx.application.Platform.runLater(() -> {
-                                try {
-                                    ImagePattern pattern = new ImagePattern(image);
-                                    circle.setFill(pattern);
-                                    // Force layout refresh to ensure visual update
-                                    circle.setVisible(false);
-                                    circle.setVisible(true);
-                                    if (circle.getParent() != null) {
-                                        circle.getParent().requestLayout();
-                                    }
-                                    log.info("✅ Avatar setFill completed for circle: {}", circle);
-                                } catch (Exception ex) {
-                                    log.error("❌ Error setting avatar fill: {}", ex.getMessage());
-                                }
-                            });
-                        }
-                    });
+                    loadIntoCircle(circle, fullUrl, avatarUrl, size);
                 }
 
-                // Handle errors
-                image.errorProperty().addListener((obs, wasError, isError) -> {
-                    if (isError) {
-                        log.warn("⚠️ Avatar async load failed for: {}", avatarUrl);
-                    }
-                });
-
             } catch (Exception e) {
                 log.error("❌ Error starting async avatar load: {}", e.getMessage());
             }
         }
     }
 
+    /**
+     * True when there is no media cache or the avatar is already in it
+     */
+    private static boolean isCached(String avatarUrl) {
+        MediaCache cache = mediaCache;
+        if (cache == null || baseUrl == null) {
+            return true;
+        }
+        String fullUrl = avatarUrl.startsWith("http://") || avatarUrl.startsWith("https://") ? avatarUrl
+                : baseUrl + (avatarUrl.startsWith("/") ? "" : "/") + avatarUrl;
+        return cache.lookup(fullUrl) != null;
+    }
+
+    /**
+     * Decode the avatar in the background and fill the circle when done
+     */
+    private static void loadIntoCircle(Circle circle, String fullUrl, String avatarUrl, double size) {
+        // Load image asynchronously with specified size
+        Image image = new Image(fullUrl, size * 2, size * 2, true, true, true);
+
+        // Check if image is already loaded (cached case)
+        if (image.getProgress() >= 1.0 && !image.isError()) {
+            log.info("📷 Avatar loaded immediately (cached): {}", fullUrl);
+            ImagePattern pattern = new ImagePattern(image);
+            circle.setFill(pattern);
+        } else {
+            // When loading completes, update the circle
+            image.progressProperty().addListener((obs, oldProgress, newProgress) -> {
+                if (newProgress.doubleValue() >= 1.0 && !image.isError()) {
+                    log.info("📷 Avatar loaded async: {}", fullUrl);
+                    javafx.application.Platform.runLater(() -> {
+                        try {
+                            ImagePattern pattern = new ImagePattern(image);
+                            circle.setFill(pattern);
+                            // Force layout refresh to ensure visual update
+                            circle.setVisible(false);
+                            circle.setVisible(true);
+                            if (circle.getParent() != null) {
+                                circle.getParent().requestLayout();
+                            }
+                            log.info("✅ Avatar setFill completed for circle: {}", circle);
+                        } catch (Exception ex) {
+                            log.error("❌ Error setting avatar fill: {}", ex.getMessage());
+                        }
+                    });
+                }
+            });
+        }
+
+        // Handle errors
+        image.errorProperty().addListener((obs, wasError, isError) -> {
+            if (isError) {
+                log.warn("⚠️ Avatar async load failed for: {}", avatarUrl);
+            }
+        });
+    }
+
     /**
      * 🔤 Get initials from a display name or username
      */
@@ -0,0 +1,146 @@
+package com.example.demo.client.http;
+
+import com.example.demo.client.json.JsonCodec;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🧪 Round trips of {@link ChunkedUploader} against {@link LocalUploadServer}
+ */
+class ChunkedUploaderTest {
+
+    private static final int PART = 64 * 1024;
+    private static final int PARTS = 6;
+    private static final Map<String, String> SETTINGS = Map.of(
+            "upload.part-bytes", String.valueOf(PART),
+            "upload.part-concurrency", "1",
+            "upload.part-retries", "2",
+            "upload.retry-base-ms", "10");
+
+    @TempDir
+    Path dir;
+
+    private LocalUploadServer server;
+    private HttpTransport transport;
+    private ChunkedUploader uploader;
+    private MultipartUploader multipart;
+
+    @BeforeAll
+    static void configure() {
+        SETTINGS.forEach(System::setProperty);
+    }
+
+    @AfterAll
+    static void restore() {
+        SETTINGS.keySet().forEach(System::clearProperty);
+    }
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new LocalUploadServer(0, Files.createDirectories(dir.resolve("server"))).start();
+        transport = new HttpTransport(server.getBaseUrl());
+        multipart = new MultipartUploader(transport);
+        uploader = new ChunkedUploader(transport, multipart.getMetrics(),
+                new UploadCheckpointStore(dir.resolve("checkpoints")));
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    @Test
+    void uploadsEveryPartAndCompletes() throws Exception {
+        Path file = randomFile("report.bin", (PARTS - 1) * PART + 123);
+
+        String body = upload(file);
+
+        assertEquals(PARTS, server.getPartRequests());
+        assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(completedFile(body)));
+        assertTrue(uploader.pending().isEmpty());
+    }
+
+    @Test
+    void retriesFailedAndDroppedParts() throws Exception {
+        Path file = randomFile("retry.bin", PARTS * PART);
+        server.failNextParts(1);
+        server.dropNextParts(1);
+
+        String body = upload(file);
+
+        assertEquals(PARTS + 2, server.getPartRequests());
+        assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(completedFile(body)));
+    }
+
+    @Test
+    void resumesWithOnlyTheMissingParts() throws Exception {
+        Path file = randomFile("resume.bin", PARTS * PART);
+        server.failPart(2);
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> upload(file));
+        assertTrue(error.getCause() instanceof HttpStatusException);
+        List<UploadCheckpoint> pending = uploader.pending();
+        assertEquals(1, pending.size());
+        int done = pending.get(0).getCompletedParts().size();
+        assertEquals(2, done); // Parts 0 and 1, then part 2 ran out of retries
+
+        server.failPart(-1);
+        long before = server.getPartRequests();
+        String body = upload(file);
+
+        assertEquals(PARTS - done, server.getPartRequests() - before);
+        assertEquals(1, server.getCreateRequests());
+        assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(completedFile(body)));
+        assertTrue(uploader.pending().isEmpty());
+    }
+
+    @Test
+    void asksForTheChunkedProtocolOnlyOnce() throws Exception {
+        server.setChunkedSupported(false);
+
+        upload(randomFile("first.bin", 2 * PART));
+        upload(randomFile("second.bin", 2 * PART));
+
+        assertEquals(1, server.getCreateRequests());
+        assertEquals(0, server.getPartRequests());
+        assertTrue(server.getBytesReceived() >= 4L * PART, "both files went through the multipart endpoint");
+    }
+
+    private String upload(Path file) throws Exception {
+        return uploader.upload("room:1", Map.of("roomId", 1), null, file, null,
+                        listener -> multipart.upload("/api/messages/upload", null, "file", file, listener))
+                .getResult().get(30, TimeUnit.SECONDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Path completedFile(String body) {
+        String content = String.valueOf(JsonCodec.read(body, Map.class).get("content")); // /files/{id}/{name}
+        Path completed = server.getCompletedFile(content.split("/")[2]);
+        assertTrue(completed != null, "upload was not assembled: " + body);
+        return completed;
+    }
+
+    private Path randomFile(String name, int size) throws IOException {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return Files.write(dir.resolve(name), bytes);
+    }
+}
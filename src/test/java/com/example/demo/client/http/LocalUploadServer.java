@@ -0,0 +1,297 @@
+package com.example.demo.client.http;
+
+import com.example.demo.client.json.JsonCodec;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🧪 LocalUploadServer - Local stand-in for the upload endpoints
+ *
+ * Implements the chunked protocol of {@link ChunkedUploader} and the
+ * multipart endpoints (/api/messages/upload, /api/messages/private/upload)
+ * on the JDK's built-in HTTP server, storing files under a local directory.
+ * Faults can be injected to exercise retry and resume:
+ * - {@link #failNextParts(int)}: the next N part requests answer 503
+ * - {@link #dropNextParts(int)}: the next N part requests lose the connection
+ *   after reading half of the body
+ * - {@link #failPart(int)}: every request for one part answers 503
+ * - {@link #setChunkedSupported(boolean)}: false answers 404 on create, like
+ *   a server that only has the multipart endpoints
+ *
+ * Run standalone with {@code java ... LocalUploadServer [port] [dir]} and
+ * point server.url at it.
+ */
+@Slf4j
+public class LocalUploadServer {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Path storage;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger failParts = new AtomicInteger();
+    private final AtomicInteger dropParts = new AtomicInteger();
+    private final AtomicInteger failingPart = new AtomicInteger(-1);
+    private final AtomicLong createRequests = new AtomicLong();
+    private final AtomicLong partRequests = new AtomicLong();
+    private volatile boolean chunkedSupported = true;
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    public LocalUploadServer(int port, Path storage) throws IOException {
+        this.storage = storage;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "local-upload-server");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/api/uploads", this::handleChunked);
+        server.createContext("/api/messages/upload", this::handleMultipart);
+        server.createContext("/api/messages/private/upload", this::handleMultipart);
+    }
+
+    public LocalUploadServer start() {
+        server.start();
+        log.info("🧪 Local upload server on {} (storage {})", getBaseUrl(), storage);
+        return this;
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void failNextParts(int count) {
+        failParts.set(count);
+    }
+
+    public void dropNextParts(int count) {
+        dropParts.set(count);
+    }
+
+    /**
+     * Answer 503 to every request for part {@code index}; -1 clears it
+     */
+    public void failPart(int index) {
+        failingPart.set(index);
+    }
+
+    public void setChunkedSupported(boolean supported) {
+        chunkedSupported = supported;
+    }
+
+    public long getCreateRequests() {
+        return createRequests.get();
+    }
+
+    public long getPartRequests() {
+        return partRequests.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * Assembled file of a completed upload, or null
+     */
+    public Path getCompletedFile(String uploadId) {
+        Session session = sessions.get(uploadId);
+        return session != null ? session.completed : null;
+    }
+
+    // ==================== CHUNKED PROTOCOL ====================
+
+    private void handleChunked(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String[] path = exchange.getRequestURI().getPath().split("/"); // "", api, uploads, id, parts, n
+            String method = exchange.getRequestMethod();
+            if (path.length == 3 && method.equals("POST")) {
+                createRequests.incrementAndGet();
+                if (!chunkedSupported) {
+                    exchange.getRequestBody().readAllBytes();
+                    respond(exchange, 404, Map.of("error", "Not found"));
+                    return;
+                }
+                createSession(exchange);
+            } else if (path.length == 4 && method.equals("GET")) {
+                sessionStatus(exchange, path[3]);
+            } else if (path.length == 4 && method.equals("DELETE")) {
+                deleteSession(exchange, path[3]);
+            } else if (path.length == 6 && path[4].equals("parts") && method.equals("PUT")) {
+                receivePart(exchange, path[3], Integer.parseInt(path[5]));
+            } else if (path.length == 5 && path[4].equals("complete") && method.equals("POST")) {
+                completeSession(exchange, path[3]);
+            } else {
+                respond(exchange, 404, Map.of("error", "Not found"));
+            }
+        } catch (RuntimeException e) {
+            log.warn("🧪 Upload request failed: {}", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void createSession(HttpExchange exchange) throws IOException {
+        Map<String, Object> request = JsonCodec.read(exchange.getRequestBody().readAllBytes(), Map.class);
+        Session session = new Session();
+        session.id = UUID.randomUUID().toString();
+        session.fileName = String.valueOf(request.get("fileName"));
+        session.fileSize = ((Number) request.get("fileSize")).longValue();
+        session.partSize = ((Number) request.get("partSize")).longValue();
+        session.directory = Files.createDirectories(storage.resolve(session.id));
+        sessions.put(session.id, session);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("uploadId", session.id);
+        response.put("partSize", session.partSize);
+        respond(exchange, 201, response);
+    }
+
+    private void sessionStatus(HttpExchange exchange, String id) throws IOException {
+        Session session = sessions.get(id);
+        if (session == null) {
+            respond(exchange, 404, Map.of("error", "Unknown upload"));
+            return;
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("uploadId", id);
+        response.put("receivedParts", session.receivedParts());
+        respond(exchange, 200, response);
+    }
+
+    private void deleteSession(HttpExchange exchange, String id) throws IOException {
+        sessions.remove(id);
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void receivePart(HttpExchange exchange, String id, int index) throws IOException {
+        partRequests.incrementAndGet();
+        Session session = sessions.get(id);
+        if (session == null) {
+            respond(exchange, 404, Map.of("error", "Unknown upload"));
+            return;
+        }
+        if (failingPart.get() == index || failParts.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 503, Map.of("error", "Injected failure"));
+            return;
+        }
+
+        long expected = Math.min(session.partSize, session.fileSize - index * session.partSize);
+        boolean drop = dropParts.getAndUpdate(n -> Math.max(0, n - 1)) > 0;
+        Path temp = session.directory.resolve(index + ".part.tmp");
+        long received = 0;
+        try (InputStream in = exchange.getRequestBody();
+                OutputStream out = Files.newOutputStream(temp, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+                received += read;
+                bytesReceived.addAndGet(read);
+                if (drop && received >= expected / 2) {
+                    throw new IOException("Injected connection drop");
+                }
+            }
+        }
+        if (received != expected) {
+            respond(exchange, 400, Map.of("error", "Expected " + expected + " bytes, got " + received));
+            return;
+        }
+        Files.move(temp, session.directory.resolve(index + ".part"), StandardCopyOption.REPLACE_EXISTING);
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void completeSession(HttpExchange exchange, String id) throws IOException {
+        Session session = sessions.get(id);
+        if (session == null) {
+            respond(exchange, 404, Map.of("error", "Unknown upload"));
+            return;
+        }
+        int partCount = (int) Math.max(1, (session.fileSize + session.partSize - 1) / session.partSize);
+        if (session.receivedParts().size() != partCount) {
+            respond(exchange, 409, Map.of("error", "Missing parts", "receivedParts", session.receivedParts()));
+            return;
+        }
+        Path target = session.directory.resolve(session.fileName);
+        try (OutputStream out = Files.newOutputStream(target)) {
+            for (int i = 0; i < partCount; i++) {
+                Files.copy(session.directory.resolve(i + ".part"), out);
+            }
+        }
+        session.completed = target;
+        respond(exchange, 200, Map.of("content", "/files/" + id + "/" + session.fileName,
+                "messageType", "FILE"));
+    }
+
+    // ==================== MULTIPART ====================
+
+    private void handleMultipart(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream in = exchange.getRequestBody()) {
+            String id = UUID.randomUUID().toString();
+            Path target = Files.createDirectories(storage.resolve(id)).resolve("multipart.body");
+            bytesReceived.addAndGet(Files.copy(in, target));
+            respond(exchange, 200, Map.of("content", "/files/" + id + "/multipart.body", "messageType", "FILE"));
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, Map<String, ?> body) throws IOException {
+        byte[] bytes = JsonCodec.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", HttpTransport.JSON);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static final class Session {
+        String id;
+        String fileName;
+        long fileSize;
+        long partSize;
+        Path directory;
+        volatile Path completed;
+
+        List<Integer> receivedParts() throws IOException {
+            List<Integer> parts = new ArrayList<>();
+            try (var files = Files.list(directory)) {
+                files.map(p -> p.getFileName().toString())
+                        .filter(name -> name.endsWith(".part"))
+                        .forEach(name -> parts.add(Integer.parseInt(name.substring(0, name.indexOf('.')))));
+            }
+            parts.sort(null);
+            return parts;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8081;
+        Path storage = args.length > 1 ? Paths.get(args[1]) : Files.createTempDirectory("webchat-uploads");
+        new LocalUploadServer(port, storage).start();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.client.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 🧪 A friends refresh costs a constant number of requests, however many
+ * friends there are
+ */
+class ChatServiceFriendsTest {
+
+    private static final int FRIENDS = 300;
+    private static final long ME = 1;
+
+    @TempDir
+    static Path dir;
+
+    private StubApiServer server;
+    private ChatService chatService;
+
+    @BeforeAll
+    static void configure() {
+        System.setProperty("outbox.dir", dir.resolve("outbox").toString());
+        System.setProperty("http.single-flight-window-ms", "0"); // Count every refresh, none reused
+    }
+
+    @AfterAll
+    static void restore() {
+        System.clearProperty("outbox.dir");
+        System.clearProperty("http.single-flight-window-ms");
+    }
+
+    @BeforeEach
+    void start() throws Exception {
+        String friendships = IntStream.rangeClosed(1, FRIENDS)
+                .mapToObj(i -> "{\"id\":" + i + ",\"user\":" + user(ME) + ",\"friend\":" + user(100 + i) + "}")
+                .collect(Collectors.joining(",", "[", "]"));
+        server = new StubApiServer()
+                .route("/api/users/me", path -> user(ME))
+                .route("/api/users/online", path -> "[" + user(101) + "," + user(102) + "]")
+                .route("/api/friends", path -> friendships);
+        chatService = new ChatService(server.getBaseUrl());
+        chatService.setJwtToken("token");
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    @Test
+    void firstRefreshFetchesIdentityAndPresenceOnce() {
+        List<Map<String, Object>> friends = chatService.getFriends();
+
+        assertEquals(FRIENDS, friends.size());
+        assertEquals(3, chatService.getRequestMetrics().getLastRequestCount("getFriends"));
+        assertEquals(3, server.getTotalHits());
+        assertEquals("ONLINE", friends.get(0).get("status"));
+        assertEquals("OFFLINE", friends.get(2).get("status"));
+    }
+
+    @Test
+    void laterRefreshesCostOneRequest() {
+        chatService.getFriends();
+        long before = server.getTotalHits();
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(FRIENDS, chatService.getFriends().size());
+            assertEquals(1, chatService.getRequestMetrics().getLastRequestCount("getFriends"));
+        }
+
+        assertEquals(5, server.getTotalHits() - before);
+        assertEquals(1, server.getHits("/api/users/me"));
+        assertEquals(1, server.getHits("/api/users/online"));
+        assertEquals(6, server.getHits("/api/friends"));
+    }
+
+    private static String user(long id) {
+        return "{\"id\":" + id + ",\"username\":\"user" + id + "\"}";
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.client.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 🧪 StubApiServer - Canned REST responses on the JDK's HTTP server
+ *
+ * Each GET path is answered by a function of the path; requests are counted
+ * per path, and the peak number of requests in flight is tracked.
+ */
+class StubApiServer {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "stub-api-server");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<String, Function<String, String>> routes = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> hits = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile long delayMs;
+
+    StubApiServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Answer GETs of {@code pathPrefix} (longest prefix wins) with the JSON
+     * the function returns for the full path
+     */
+    StubApiServer route(String pathPrefix, Function<String, String> body) {
+        routes.put(pathPrefix, body);
+        return this;
+    }
+
+    /**
+     * Hold every response this long, so concurrent requests overlap
+     */
+    void setDelayMs(long delayMs) {
+        this.delayMs = delayMs;
+    }
+
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    long getHits(String path) {
+        AtomicLong count = hits.get(path);
+        return count != null ? count.get() : 0;
+    }
+
+    long getTotalHits() {
+        return hits.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            hits.computeIfAbsent(path, k -> new AtomicLong()).incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                if (delayMs > 0) {
+                    Thread.sleep(delayMs);
+                }
+                Function<String, String> route = routes.entrySet().stream()
+                        .filter(entry -> path.startsWith(entry.getKey()))
+                        .max(Map.Entry.comparingByKey((a, b) -> Integer.compare(a.length(), b.length())))
+                        .map(Map.Entry::getValue)
+                        .orElse(null);
+                if (route == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                byte[] bytes = route.apply(path).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, bytes.length);
+                exchange.getResponseBody().write(bytes);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
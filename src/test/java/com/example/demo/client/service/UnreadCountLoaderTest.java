@@ -0,0 +1,69 @@
+package com.example.demo.client.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 🧪 Unread counts for many friends and rooms load concurrently, never more
+ * than the limit at a time, and arrive as one batch
+ */
+class UnreadCountLoaderTest {
+
+    private static final int FRIENDS = 200;
+    private static final int ROOMS = 80;
+    private static final int LIMIT = 8;
+
+    private StubApiServer server;
+    private UnreadCountLoader loader;
+
+    @BeforeEach
+    void start() throws Exception {
+        server = new StubApiServer()
+                .route("/api/messages/private/", UnreadCountLoaderTest::countFor)
+                .route("/api/messages/room/", UnreadCountLoaderTest::countFor);
+        server.setDelayMs(20);
+        ChatService chatService = new ChatService(server.getBaseUrl());
+        chatService.setJwtToken("token");
+        loader = new UnreadCountLoader(chatService, LIMIT);
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    @Test
+    void loadsEveryCountWithBoundedConcurrency() throws Exception {
+        List<Long> friendIds = ids(1000, FRIENDS);
+        List<Long> roomIds = ids(1, ROOMS);
+
+        UnreadCountLoader.UnreadCounts counts = loader.load(friendIds, roomIds).get(30, TimeUnit.SECONDS);
+
+        assertEquals(FRIENDS, counts.getFriendCounts().size());
+        assertEquals(ROOMS, counts.getRoomCounts().size());
+        assertEquals(1007 % 5, (long) counts.getFriendCounts().get(1007L));
+        assertEquals(42 % 5, (long) counts.getRoomCounts().get(42L));
+        assertEquals(FRIENDS + ROOMS, server.getTotalHits());
+        assertTrue(server.getMaxInFlight() <= LIMIT, "in flight at once: " + server.getMaxInFlight());
+        assertTrue(server.getMaxInFlight() > 1, "requests did not overlap");
+    }
+
+    /** /api/messages/{room|private}/{id}/unread-count → id % 5 */
+    private static String countFor(String path) {
+        String[] parts = path.split("/");
+        return String.valueOf(Long.parseLong(parts[4]) % 5);
+    }
+
+    private static List<Long> ids(long first, int count) {
+        return LongStream.range(first, first + count).boxed().collect(Collectors.toList());
+    }
+}